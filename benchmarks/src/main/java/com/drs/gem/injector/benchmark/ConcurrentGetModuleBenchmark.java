@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.drs.gem.injector.benchmark.modules.CrownModule;
+import com.drs.gem.injector.benchmark.modules.LeafModule;
+import com.drs.gem.injector.core.Container;
+import com.drs.gem.injector.core.GemInjector;
+import com.drs.gem.injector.core.GemModuleType;
+
+/**
+ * <p>Measures throughput of {@link Container#getModule(Class)
+ * Container.getModule()} invoked from several threads simultaneously on
+ * one shared container.</p>
+ *
+ * <p>Prototype benchmarks create {@link CrownModule} together with its
+ * prototype dependencies on every invocation, singleton benchmarks only
+ * read ready {@link LeafModule}. Since read path of initialized container
+ * takes no locks, total throughput is expected to grow with threads
+ * quantity until it reaches available cores quantity.</p>
+ *
+ * @author Diarsid
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConcurrentGetModuleBenchmark {
+
+    private static final String CONTAINER = "concurrent-benchmark";
+    private static final String MODULES =
+            "com.drs.gem.injector.benchmark.modules.";
+    private static final String WORKERS =
+            "com.drs.gem.injector.benchmark.modules.workers.";
+
+    private Container container;
+
+    @Setup
+    public void setUp() {
+        container = GemInjector.buildContainer(CONTAINER);
+        container.declareModule(
+                MODULES + "LeafModule", WORKERS + "LeafModuleImpl",
+                GemModuleType.SINGLETON);
+        container.declareModule(
+                MODULES + "BranchModule", WORKERS + "BranchModuleImpl",
+                GemModuleType.PROTOTYPE);
+        container.declareModule(
+                MODULES + "TrunkModule", WORKERS + "TrunkModuleImpl",
+                GemModuleType.PROTOTYPE);
+        container.declareModule(
+                MODULES + "CrownModule", WORKERS + "CrownModuleImpl",
+                GemModuleType.PROTOTYPE);
+        container.init();
+    }
+
+    @TearDown
+    public void tearDown() {
+        GemInjector.removeContainer(CONTAINER);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object prototype1Thread() {
+        return container.getModule(CrownModule.class);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Object prototype2Threads() {
+        return container.getModule(CrownModule.class);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object prototype4Threads() {
+        return container.getModule(CrownModule.class);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object prototypeMaxThreads() {
+        return container.getModule(CrownModule.class);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object singleton1Thread() {
+        return container.getModule(LeafModule.class);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object singletonMaxThreads() {
+        return container.getModule(LeafModule.class);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+
+package com.drs.gem.injector.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.drs.gem.injector.benchmark.graph.GraphShapes;
+import com.drs.gem.injector.benchmark.graph.ModuleGraph;
+import com.drs.gem.injector.benchmark.graph.ModuleGraphGenerator;
+import com.drs.gem.injector.core.Container;
+import com.drs.gem.injector.core.GemInjector;
+
+/**
+ * <p>Measures cost of container creation, module declaration and 
+ * {@link Container#init() Container.init()} depending on modules 
+ * quantity.</p>
+ * 
+ * <p>Graph is random acyclic graph where every module has up to three 
+ * dependencies. All modules except a few top ones are singletons, thus 
+ * init cost includes constructors resolution, priority calculation, 
+ * creation of all singletons and compilation of prototype plans. Module 
+ * classes are generated and loaded once per trial, so class loading is 
+ * not measured.</p>
+ * 
+ * @author Diarsid
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ContainerInitBenchmark {
+    
+    private static final AtomicLong CONTAINERS_COUNTER = new AtomicLong(0);
+    
+    @Param({"100", "1000", "5000"})
+    private int modulesQty;
+    
+    private ModuleGraph graph;
+    
+    @Setup
+    public void setUp() {
+        graph = new ModuleGraphGenerator().generate(
+                GraphShapes.randomDag(modulesQty, 3, 42L), 
+                ModuleGraphGenerator.topPrototypes(modulesQty, 4));
+    }
+    
+    @Benchmark
+    public Container init() {
+        String name = "init-benchmark-" + CONTAINERS_COUNTER.incrementAndGet();
+        Container container = GemInjector.buildContainer(name);
+        try {
+            graph.declareIn(container);
+            container.init();
+            return container;
+        } finally {
+            GemInjector.removeContainer(name);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+
+package com.drs.gem.injector.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.drs.gem.injector.benchmark.graph.GraphShapes;
+import com.drs.gem.injector.benchmark.graph.ModuleGraph;
+import com.drs.gem.injector.benchmark.graph.ModuleGraphGenerator;
+import com.drs.gem.injector.core.Container;
+import com.drs.gem.injector.core.GemInjector;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Measures single-threaded throughput of {@link Container#getModule(Class)
+ * Container.getModule()} for singleton and prototype modules of 
+ * generated graphs.</p>
+ * 
+ * <p>Prototype benchmark requests the top module of graph. The top four 
+ * modules of graph are prototypes, so that every request creates small 
+ * prototype subgraph with singleton dependencies injected.</p>
+ * 
+ * <p>Run it with <b>-prof gc</b> JMH option to obtain allocation rate 
+ * and bytes allocated per request.</p>
+ * 
+ * @author Diarsid
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GetModuleBenchmark {
+    
+    private static final String CONTAINER = "get-module-benchmark";
+    
+    @Param({"10", "1000"})
+    private int modulesQty;
+    
+    private Container container;
+    private Class<? extends GemModule> singleton;
+    private Class<? extends GemModule> prototype;
+    
+    @Setup
+    public void setUp() {
+        ModuleGraph graph = new ModuleGraphGenerator().generate(
+                GraphShapes.randomDag(modulesQty, 3, 42L), 
+                ModuleGraphGenerator.topPrototypes(modulesQty, 4));
+        container = GemInjector.buildContainer(CONTAINER);
+        graph.declareIn(container);
+        container.init();
+        singleton = graph.getModuleInterface(0);
+        prototype = graph.getRootInterface();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        GemInjector.removeContainer(CONTAINER);
+    }
+    
+    @Benchmark
+    public Object singleton() {
+        return container.getModule(singleton);
+    }
+    
+    @Benchmark
+    public Object prototype() {
+        return container.getModule(prototype);
+    }
+}
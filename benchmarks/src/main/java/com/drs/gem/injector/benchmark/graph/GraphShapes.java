@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+
+package com.drs.gem.injector.benchmark.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>Factory of module graph shapes.</p>
+ * 
+ * <p>Shape is described by array of dependencies where element 
+ * <b>i</b> contains indexes of modules which module <b>i</b> depends 
+ * on. Every module depends only on modules with lower indexes, thus 
+ * any shape is acyclic.</p>
+ * 
+ * @author Diarsid
+ */
+public final class GraphShapes {
+    
+    private GraphShapes() {
+    }
+    
+    /**
+     * Random acyclic graph. Every module except the first one depends on 
+     * one to <b>maxDependencies</b> distinct random modules with lower 
+     * indexes.
+     * 
+     * @param modulesQty        quantity of modules.
+     * @param maxDependencies   maximum quantity of constructor parameters.
+     * @param seed              seed of random, the same seed produces 
+     *                          the same shape.
+     * @return                  dependencies of every module.
+     */
+    public static int[][] randomDag(int modulesQty, int maxDependencies, long seed) {
+        Random random = new Random(seed);
+        int[][] dependencies = new int[modulesQty][];
+        dependencies[0] = new int[0];
+        for (int i = 1; i < modulesQty; i++) {
+            int qty = 1 + random.nextInt(Math.min(maxDependencies, i));
+            dependencies[i] = distinctRandom(random, i, qty);
+        }
+        return dependencies;
+    }
+    
+    /**
+     * Wide fan-out graph. The first <b>modulesQty</b> modules do not 
+     * have dependencies and are grouped under aggregator modules having 
+     * up to <b>fanOut</b> dependencies each. Aggregators are grouped in the 
+     * same way level by level until one root remains.
+     * 
+     * @param modulesQty    quantity of leaf modules.
+     * @param fanOut        maximum quantity of constructor parameters.
+     * @return              dependencies of every module.
+     */
+    public static int[][] wideFanOut(int modulesQty, int fanOut) {
+        List<int[]> dependencies = new ArrayList<>();
+        List<Integer> level = new ArrayList<>();
+        for (int i = 0; i < modulesQty; i++) {
+            level.add(dependencies.size());
+            dependencies.add(new int[0]);
+        }
+        while ( level.size() > 1 ) {
+            List<Integer> upper = new ArrayList<>();
+            for (int from = 0; from < level.size(); from += fanOut) {
+                int to = Math.min(from + fanOut, level.size());
+                int[] group = new int[to - from];
+                for (int i = from; i < to; i++) {
+                    group[i - from] = level.get(i);
+                }
+                upper.add(dependencies.size());
+                dependencies.add(group);
+            }
+            level = upper;
+        }
+        return dependencies.toArray(new int[dependencies.size()][]);
+    }
+    
+    /**
+     * Deep chain. Every module depends on the previous one.
+     * 
+     * @param modulesQty    quantity of modules.
+     * @return              dependencies of every module.
+     */
+    public static int[][] deepChain(int modulesQty) {
+        int[][] dependencies = new int[modulesQty][];
+        dependencies[0] = new int[0];
+        for (int i = 1; i < modulesQty; i++) {
+            dependencies[i] = new int[] {i - 1};
+        }
+        return dependencies;
+    }
+    
+    /**
+     * Chain of diamonds. Every diamond consists of top module depending 
+     * on two side modules which depend on the same bottom module. Top of
+     * every diamond is the bottom of the next one.
+     * 
+     * @param modulesQty    approximate quantity of modules.
+     * @return              dependencies of every module.
+     */
+    public static int[][] diamonds(int modulesQty) {
+        int diamondsQty = Math.max(1, (modulesQty - 1) / 3);
+        int[][] dependencies = new int[diamondsQty * 3 + 1][];
+        dependencies[0] = new int[0];
+        for (int d = 0; d < diamondsQty; d++) {
+            int bottom = d * 3;
+            dependencies[bottom + 1] = new int[] {bottom};
+            dependencies[bottom + 2] = new int[] {bottom};
+            dependencies[bottom + 3] = new int[] {bottom + 1, bottom + 2};
+        }
+        return dependencies;
+    }
+    
+    private static int[] distinctRandom(Random random, int bound, int qty) {
+        int[] values = new int[qty];
+        int found = 0;
+        while ( found < qty ) {
+            int value = random.nextInt(bound);
+            boolean duplicate = false;
+            for (int i = 0; i < found; i++) {
+                if ( values[i] == value ) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if ( ! duplicate ) {
+                values[found++] = value;
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+
+package com.drs.gem.injector.benchmark.graph;
+
+import com.drs.gem.injector.core.Container;
+import com.drs.gem.injector.core.GemModuleType;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * Module classes generated by {@link ModuleGraphGenerator} for one graph 
+ * shape.
+ * 
+ * @author Diarsid
+ */
+public final class ModuleGraph {
+    
+    private final Class[] moduleInterfaces;
+    private final String[] interfaceNames;
+    private final String[] implementationNames;
+    private final GemModuleType[] types;
+    private final int[][] dependencies;
+    
+    ModuleGraph(
+            Class[] moduleInterfaces, 
+            String[] interfaceNames, 
+            String[] implementationNames, 
+            GemModuleType[] types, 
+            int[][] dependencies) {
+        this.moduleInterfaces = moduleInterfaces;
+        this.interfaceNames = interfaceNames;
+        this.implementationNames = implementationNames;
+        this.types = types;
+        this.dependencies = dependencies;
+    }
+    
+    /**
+     * Declares all modules of graph in specified container.
+     * 
+     * @param container container which modules should be declared in.
+     */
+    public void declareIn(Container container) {
+        for (int i = 0; i < moduleInterfaces.length; i++) {
+            container.declareModule(
+                    interfaceNames[i], implementationNames[i], types[i]);
+        }
+    }
+    
+    public int getModulesQty() {
+        return moduleInterfaces.length;
+    }
+    
+    public int getDependenciesQty() {
+        int qty = 0;
+        for (int[] moduleDependencies : dependencies) {
+            qty += moduleDependencies.length;
+        }
+        return qty;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public Class<? extends GemModule> getModuleInterface(int index) {
+        return moduleInterfaces[index];
+    }
+    
+    /**
+     * Returns the last module of graph, which is the module depending on
+     * the largest part of graph in all shapes.
+     * 
+     * @return  interface of the last module.
+     */
+    public Class<? extends GemModule> getRootInterface() {
+        return getModuleInterface(moduleInterfaces.length - 1);
+    }
+}
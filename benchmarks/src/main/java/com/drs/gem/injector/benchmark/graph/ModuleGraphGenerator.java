@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+
+package com.drs.gem.injector.benchmark.graph;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import com.drs.gem.injector.benchmark.graph.generated.GeneratedModules;
+import com.drs.gem.injector.core.GemModuleType;
+import com.drs.gem.injector.module.GemModule;
+import com.drs.gem.injector.module.GemModuleBuilder;
+
+/**
+ * <p>Generates module classes for specified graph shape at runtime.</p>
+ * 
+ * <p>For every module of shape generator emits module interface 
+ * extending {@link GemModule} and its implementation having one public 
+ * constructor, which parameters are interfaces of modules this module 
+ * depends on. If module should have builder, generator also emits 
+ * {@link GemModuleBuilder} implementation with the same constructor, 
+ * which stores dependencies in fields and passes them to module 
+ * implementation constructor in {@link GemModuleBuilder#buildModule() 
+ * .buildModule()}. Classes are emitted with ASM and defined in 
+ * {@link GeneratedModules} package.</p>
+ * 
+ * <p>Every generated graph receives unique name prefix, therefore the 
+ * same shape can be generated many times in one JVM.</p>
+ * 
+ * @author Diarsid
+ */
+public final class ModuleGraphGenerator {
+    
+    private static final AtomicInteger GRAPHS_COUNTER = new AtomicInteger(0);
+    private static final String GEM_MODULE = 
+            GemModule.class.getName().replace('.', '/');
+    private static final String GEM_MODULE_BUILDER = 
+            GemModuleBuilder.class.getName().replace('.', '/');
+    private static final String OBJECT = "java/lang/Object";
+    
+    private final MethodHandles.Lookup lookup;
+    
+    public ModuleGraphGenerator() {
+        this.lookup = GeneratedModules.lookup();
+    }
+    
+    /**
+     * Generates and loads classes of all modules of specified shape.
+     * Modules do not have builders.
+     * 
+     * @param dependencies  shape of graph, see {@link GraphShapes}.
+     * @param types         type of every module.
+     * @return              generated graph.
+     */
+    public ModuleGraph generate(int[][] dependencies, GemModuleType[] types) {
+        return generate(dependencies, types, 0);
+    }
+    
+    /**
+     * Generates and loads classes of all modules of specified shape.
+     * 
+     * @param dependencies      shape of graph, see {@link GraphShapes}.
+     * @param types             type of every module.
+     * @param builderInterval   every module which index is divisible by 
+     *                          this value has builder, 0 means no builders.
+     * @return                  generated graph.
+     */
+    public ModuleGraph generate(
+            int[][] dependencies, GemModuleType[] types, int builderInterval) {
+        String prefix = GeneratedModules.PACKAGE + ".G" + 
+                GRAPHS_COUNTER.incrementAndGet() + "M";
+        int qty = dependencies.length;
+        String[] interfaces = new String[qty];
+        String[] implementations = new String[qty];
+        for (int i = 0; i < qty; i++) {
+            interfaces[i] = prefix + i;
+            implementations[i] = prefix + i + "Impl";
+        }
+        Class[] loaded = new Class[qty];
+        try {
+            for (int i = 0; i < qty; i++) {
+                loaded[i] = lookup.defineClass(emitInterface(interfaces[i]));
+            }
+            for (int i = 0; i < qty; i++) {
+                boolean hasBuilder = 
+                        builderInterval > 0 && i % builderInterval == 0;
+                String constructorDescriptor = 
+                        constructorDescriptor(dependencies[i], interfaces);
+                lookup.defineClass(emitImplementation(
+                        implementations[i], interfaces[i], 
+                        constructorDescriptor));
+                if ( hasBuilder ) {
+                    lookup.defineClass(emitBuilder(
+                            implementations[i], dependencies[i], interfaces,
+                            constructorDescriptor));
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(
+                    "Generated modules can not be defined.", e);
+        }
+        return new ModuleGraph(
+                loaded, interfaces, implementations, types, dependencies);
+    }
+    
+    /**
+     * Returns module types where the last <b>prototypesQty</b> modules 
+     * are prototypes and all others are singletons. Prototypes are 
+     * placed on the top of graph because every injection of prototype 
+     * creates its whole prototype subgraph afresh.
+     * 
+     * @param modulesQty    quantity of modules.
+     * @param prototypesQty quantity of prototypes.
+     * @return              types of modules.
+     */
+    public static GemModuleType[] topPrototypes(int modulesQty, int prototypesQty) {
+        GemModuleType[] types = new GemModuleType[modulesQty];
+        for (int i = 0; i < modulesQty; i++) {
+            if ( i >= modulesQty - prototypesQty ) {
+                types[i] = GemModuleType.PROTOTYPE;
+            } else {
+                types[i] = GemModuleType.SINGLETON;
+            }
+        }
+        return types;
+    }
+    
+    private static byte[] emitInterface(String name) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(
+                Opcodes.V1_8, 
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE, 
+                internal(name), 
+                null, 
+                OBJECT, 
+                new String[] {GEM_MODULE});
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+    
+    private static String constructorDescriptor(int[] dependencies, String[] interfaces) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (int dependency : dependencies) {
+            descriptor.append('L').append(internal(interfaces[dependency])).append(';');
+        }
+        return descriptor.append(")V").toString();
+    }
+    
+    private static byte[] emitImplementation(
+            String name, String moduleInterface, String constructorDescriptor) {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(
+                Opcodes.V1_8, 
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, 
+                internal(name), 
+                null, 
+                OBJECT, 
+                new String[] {internal(moduleInterface)});
+        MethodVisitor constructor = writer.visitMethod(
+                Opcodes.ACC_PUBLIC, "<init>", constructorDescriptor, null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(
+                Opcodes.INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+    
+    /**
+     * Emits builder named as implementation with "Builder" suffix, so
+     * that container detects it.
+     */
+    private static byte[] emitBuilder(
+            String implementation, 
+            int[] dependencies, 
+            String[] interfaces, 
+            String constructorDescriptor) {
+        String name = internal(implementation + "Builder");
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(
+                Opcodes.V1_8, 
+                Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, 
+                name, 
+                null, 
+                OBJECT, 
+                new String[] {GEM_MODULE_BUILDER});
+        String[] fieldDescriptors = new String[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            fieldDescriptors[i] = "L" + internal(interfaces[dependencies[i]]) + ";";
+            writer.visitField(
+                    Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, 
+                    "d" + i, fieldDescriptors[i], null, null).visitEnd();
+        }
+        
+        MethodVisitor constructor = writer.visitMethod(
+                Opcodes.ACC_PUBLIC, "<init>", constructorDescriptor, null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(
+                Opcodes.INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        for (int i = 0; i < dependencies.length; i++) {
+            constructor.visitVarInsn(Opcodes.ALOAD, 0);
+            constructor.visitVarInsn(Opcodes.ALOAD, i + 1);
+            constructor.visitFieldInsn(
+                    Opcodes.PUTFIELD, name, "d" + i, fieldDescriptors[i]);
+        }
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+        
+        MethodVisitor buildModule = writer.visitMethod(
+                Opcodes.ACC_PUBLIC, "buildModule", "()L" + GEM_MODULE + ";", null, null);
+        buildModule.visitCode();
+        buildModule.visitTypeInsn(Opcodes.NEW, internal(implementation));
+        buildModule.visitInsn(Opcodes.DUP);
+        for (int i = 0; i < dependencies.length; i++) {
+            buildModule.visitVarInsn(Opcodes.ALOAD, 0);
+            buildModule.visitFieldInsn(
+                    Opcodes.GETFIELD, name, "d" + i, fieldDescriptors[i]);
+        }
+        buildModule.visitMethodInsn(
+                Opcodes.INVOKESPECIAL, internal(implementation), 
+                "<init>", constructorDescriptor, false);
+        buildModule.visitInsn(Opcodes.ARETURN);
+        buildModule.visitMaxs(0, 0);
+        buildModule.visitEnd();
+        
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+    
+    private static String internal(String className) {
+        return className.replace('.', '/');
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+
+package com.drs.gem.injector.benchmark.graph.generated;
+
+import java.lang.invoke.MethodHandles;
+
+/**
+ * <p>Anchor of package containing module classes generated by 
+ * {@link com.drs.gem.injector.benchmark.graph.ModuleGraphGenerator 
+ * ModuleGraphGenerator}.</p>
+ * 
+ * <p>Generated classes are defined through lookup of this class, thus 
+ * they are defined in the same class loader as container classes and 
+ * can be found by container by their names.</p>
+ * 
+ * @author Diarsid
+ */
+public final class GeneratedModules {
+    
+    public static final String PACKAGE = 
+            GeneratedModules.class.getPackage().getName();
+    
+    private GeneratedModules() {
+    }
+    
+    public static MethodHandles.Lookup lookup() {
+        return MethodHandles.lookup();
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.benchmark.modules.workers;
+
+import com.drs.gem.injector.benchmark.modules.BranchModule;
+import com.drs.gem.injector.benchmark.modules.CrownModule;
+import com.drs.gem.injector.benchmark.modules.LeafModule;
+import com.drs.gem.injector.benchmark.modules.TrunkModule;
+
+/**
+ *
+ * @author Diarsid
+ */
+public class CrownModuleImpl implements CrownModule {
+
+    private final LeafModule leaf;
+    private final BranchModule branch;
+    private final TrunkModule trunk;
+
+    public CrownModuleImpl(LeafModule leaf, BranchModule branch, TrunkModule trunk) {
+        this.leaf = leaf;
+        this.branch = branch;
+        this.trunk = trunk;
+    }
+    
+    @Override
+    public int weight() {
+        return 1 + leaf.weight() + branch.weight() + trunk.weight();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.drs.gem.injector.benchmark.modules.BranchModule;
+import com.drs.gem.injector.benchmark.modules.CrownModule;
+import com.drs.gem.injector.benchmark.modules.LeafModule;
+import com.drs.gem.injector.benchmark.modules.TrunkModule;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Compares reflective module constructor invocation via 
+ * {@link Constructor#newInstance(Object...) Constructor.newInstance()}, 
+ * which is used by default {@link ModuleInvoker}, with method handle 
+ * based ModuleInvoker and {@link GeneratedModuleInvoker}.</p>
+ * 
+ * <p>Benchmark is placed in container package in order to have access
+ * to package-private ModuleInvoker.</p>
+ * 
+ * @author Diarsid
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConstructorInvocationBenchmark {
+    
+    private static final String WORKERS = 
+            "com.drs.gem.injector.benchmark.modules.workers.";
+    
+    private Constructor leafCons;
+    private Constructor crownCons;
+    private ModuleInvoker leafReflective;
+    private ModuleInvoker crownReflective;
+    private ModuleInvoker leafInvoker;
+    private ModuleInvoker crownInvoker;
+    private ModuleInvoker leafGenerated;
+    private ModuleInvoker crownGenerated;
+    private GemModule[] noArgs;
+    private GemModule[] crownArgs;
+    
+    @Setup
+    public void setUp() throws Exception {
+        leafCons = accessibleConstructor(WORKERS + "LeafModuleImpl");
+        crownCons = accessibleConstructor(WORKERS + "CrownModuleImpl");
+        leafReflective = ModuleInvoker.reflective(LeafModule.class, leafCons);
+        crownReflective = ModuleInvoker.reflective(CrownModule.class, crownCons);
+        leafInvoker = ModuleInvoker.of(LeafModule.class, leafCons);
+        crownInvoker = ModuleInvoker.of(CrownModule.class, crownCons);
+        leafGenerated = GeneratedModuleInvoker.tryGenerate(LeafModule.class, leafCons);
+        crownGenerated = GeneratedModuleInvoker.tryGenerate(CrownModule.class, crownCons);
+        
+        LeafModule leaf = (LeafModule) leafCons.newInstance();
+        BranchModule branch = (BranchModule) accessibleConstructor(
+                WORKERS + "BranchModuleImpl").newInstance(leaf);
+        TrunkModule trunk = (TrunkModule) accessibleConstructor(
+                WORKERS + "TrunkModuleImpl").newInstance(leaf, branch);
+        noArgs = new GemModule[0];
+        crownArgs = new GemModule[] {leaf, branch, trunk};
+    }
+    
+    private static Constructor accessibleConstructor(String className) 
+            throws ClassNotFoundException {
+        Constructor cons = Class.forName(className).getDeclaredConstructors()[0];
+        cons.setAccessible(true);
+        return cons;
+    }
+    
+    @Benchmark
+    public Object reflectiveNoArgs() {
+        return leafReflective.newModule(noArgs);
+    }
+    
+    @Benchmark
+    public Object invokerNoArgs() {
+        return leafInvoker.newModule(noArgs);
+    }
+    
+    @Benchmark
+    public Object generatedNoArgs() {
+        return leafGenerated.newModule(noArgs);
+    }
+    
+    @Benchmark
+    public Object reflectiveThreeArgs() {
+        return crownReflective.newModule(crownArgs);
+    }
+    
+    @Benchmark
+    public Object invokerThreeArgs() {
+        return crownInvoker.newModule(crownArgs);
+    }
+    
+    @Benchmark
+    public Object generatedThreeArgs() {
+        return crownGenerated.newModule(crownArgs);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+
+package com.drs.gem.injector.core;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.drs.gem.injector.benchmark.graph.GraphShapes;
+import com.drs.gem.injector.benchmark.graph.ModuleGraph;
+import com.drs.gem.injector.benchmark.graph.ModuleGraphGenerator;
+
+/**
+ * <p>Compares {@link PriorityLoopInjector} and {@link RecursiveInjector}
+ * creating the top prototype module of the same generated graphs. 
+ * Execution of precompiled {@link InstantiationPlan}, which is used by 
+ * container for prototypes by default, is measured as reference.</p>
+ * 
+ * <p>Benchmark is placed in container package in order to have access
+ * to package-private injectors.</p>
+ * 
+ * @author Diarsid
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class InjectorComparisonBenchmark {
+    
+    private static final String CONTAINER = "injector-comparison-benchmark";
+    
+    @Param({"10", "100", "1000"})
+    private int modulesQty;
+    
+    private ModulesInfo info;
+    private Class root;
+    private Constructor rootCons;
+    private InstantiationPlan rootPlan;
+    
+    @Setup
+    public void setUp() {
+        ModuleGraph graph = new ModuleGraphGenerator().generate(
+                GraphShapes.randomDag(modulesQty, 3, 42L), 
+                ModuleGraphGenerator.topPrototypes(modulesQty, 4));
+        Container container = GemInjector.buildContainer(CONTAINER);
+        graph.declareIn(container);
+        container.init();
+        info = (ModulesInfo) container;
+        root = graph.getRootInterface();
+        rootCons = info.getConstructorOfModule(root);
+        rootPlan = new InstantiationPlanCompiler(info).compile(
+                info.getMetaDataOfModule(root));
+    }
+    
+    @TearDown
+    public void tearDown() {
+        GemInjector.removeContainer(CONTAINER);
+    }
+    
+    @Benchmark
+    public Object loopInjector() {
+        return new PriorityLoopInjector(info).newModule(rootCons, root);
+    }
+    
+    @Benchmark
+    public Object recursiveInjector() {
+        return new RecursiveInjector(info).newModule(rootCons, root);
+    }
+    
+    @Benchmark
+    public Object instantiationPlan() {
+        return rootPlan.execute();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.drs.gem.injector.benchmark.graph.GraphShapes;
+import com.drs.gem.injector.benchmark.graph.ModuleGraph;
+import com.drs.gem.injector.benchmark.graph.ModuleGraphGenerator;
+import com.drs.gem.injector.core.Container;
+import com.drs.gem.injector.core.GemInjector;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <p>Tests that {@link Container#init() Container.init()} time grows 
+ * nearly linearly with modules quantity.</p>
+ * 
+ * <p>For every graph shape test generates graphs of increasing size, 
+ * every tenth module having builder, and initializes container for each 
+ * of them several times. Median time is taken, so that single runs 
+ * slowed down by garbage collection or compilation do not affect result. 
+ * Time per module of every size is compared with time per module of 
+ * previous size: linear algorithm keeps it nearly constant, while 
+ * quadratic algorithm multiplies it by size ratio. Allowed growth is 
+ * wide enough to tolerate noise, and sizes which initialize faster than 
+ * timer noise allows to compare are not compared.</p>
+ * 
+ * @author Diarsid
+ */
+public class ScalingTest {
+    
+    private static final int[] SIZES = {1000, 4000, 16000};
+    private static final int RUNS = 5;
+    private static final int BUILDER_INTERVAL = 10;
+    private static final int TOP_PROTOTYPES = 4;
+    
+    /**
+     * Allowed growth of time per module between two consecutive sizes. 
+     * Size grows four times, thus quadratic algorithm exceeds it even 
+     * with noise.
+     */
+    private static final double MAX_TIME_GROWTH = 2.5;
+    private static final long MIN_COMPARED_NANOS = 20_000_000L;
+    
+    private static final AtomicLong CONTAINERS_COUNTER = new AtomicLong(0);
+    
+    private static final ModuleGraphGenerator GENERATOR = new ModuleGraphGenerator();
+    
+    @BeforeClass
+    public static void warmUp() {
+        ModuleGraph graph = generate(GraphShapes.randomDag(500, 3, 7L));
+        for (int i = 0; i < 20; i++) {
+            measureInit(graph);
+        }
+    }
+    
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+    
+    @Test
+    public void testRandomDagScalesLinearly() {
+        verifyLinear("random DAG", qty -> GraphShapes.randomDag(qty, 3, 42L));
+    }
+    
+    @Test
+    public void testWideFanOutScalesLinearly() {
+        verifyLinear("wide fan-out", qty -> GraphShapes.wideFanOut(qty, 32));
+    }
+    
+    @Test
+    public void testDeepChainScalesLinearly() {
+        verifyLinear("deep chain", qty -> GraphShapes.deepChain(qty));
+    }
+    
+    @Test
+    public void testDiamondsScaleLinearly() {
+        verifyLinear("diamonds", qty -> GraphShapes.diamonds(qty));
+    }
+    
+    private static void verifyLinear(String shapeName, IntFunction<int[][]> shape) {
+        double previousTimePerModule = -1;
+        for (int size : SIZES) {
+            ModuleGraph graph = generate(shape.apply(size));
+            long nanos = medianInit(graph);
+            double timePerModule = (double) nanos / graph.getModulesQty();
+            if ( previousTimePerModule > 0 && nanos > MIN_COMPARED_NANOS ) {
+                double growth = timePerModule / previousTimePerModule;
+                assertTrue(
+                        String.format(
+                                "%s, %d modules: init time per module grew %.1f times", 
+                                shapeName, graph.getModulesQty(), growth), 
+                        growth <= MAX_TIME_GROWTH);
+            }
+            previousTimePerModule = timePerModule;
+        }
+    }
+    
+    private static ModuleGraph generate(int[][] dependencies) {
+        return GENERATOR.generate(
+                dependencies, 
+                ModuleGraphGenerator.topPrototypes(dependencies.length, TOP_PROTOTYPES), 
+                BUILDER_INTERVAL);
+    }
+    
+    private static long medianInit(ModuleGraph graph) {
+        long[] nanos = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            nanos[run] = measureInit(graph);
+        }
+        Arrays.sort(nanos);
+        return nanos[RUNS / 2];
+    }
+    
+    private static long measureInit(ModuleGraph graph) {
+        String name = "scaling-test-" + CONTAINERS_COUNTER.incrementAndGet();
+        Container container = GemInjector.buildContainer(name);
+        try {
+            graph.declareIn(container);
+            long start = System.nanoTime();
+            container.init();
+            return System.nanoTime() - start;
+        } finally {
+            GemInjector.removeContainer(name);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.processor;
+
+import java.util.List;
+
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Describes one declared module as it has been resolved during compilation:
+ * module interface, class being instantiated to obtain module, which can
+ * be module implementation or its builder, and module interfaces of 
+ * injected constructor parameters.
+ * 
+ * @author Diarsid
+ */
+final class ModuleModel {
+    
+    static final String SINGLETON = "SINGLETON";
+    static final String PROTOTYPE = "PROTOTYPE";
+    static final String THREAD = "THREAD";
+    
+    private final int index;
+    private final TypeElement moduleInterface;
+    private final TypeElement buildClass;
+    private final boolean builder;
+    private final String type;
+    private final List<String> dependencies;
+
+    ModuleModel(
+            int index,
+            TypeElement moduleInterface, 
+            TypeElement buildClass, 
+            boolean builder, 
+            String type, 
+            List<String> dependencies) {
+        this.index = index;
+        this.moduleInterface = moduleInterface;
+        this.buildClass = buildClass;
+        this.builder = builder;
+        this.type = type;
+        this.dependencies = dependencies;
+    }
+    
+    int getIndex() {
+        return index;
+    }
+
+    String getModuleName() {
+        return moduleInterface.getQualifiedName().toString();
+    }
+
+    String getBuildClassName() {
+        return buildClass.getQualifiedName().toString();
+    }
+    
+    TypeElement getModuleInterface() {
+        return moduleInterface;
+    }
+
+    boolean isBuilder() {
+        return builder;
+    }
+
+    String getType() {
+        return type;
+    }
+
+    boolean isSingleton() {
+        return type.equals(ModuleModel.SINGLETON);
+    }
+
+    boolean isThread() {
+        return type.equals(ModuleModel.THREAD);
+    }
+
+    List<String> getDependencies() {
+        return dependencies;
+    }
+}
@@ -0,0 +1,508 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * <p>Annotation processor generating static wiring code for {@link 
+ * com.drs.gem.injector.core.Declaration Declaration} implementations 
+ * annotated with {@code @DeclaredModule} annotations.</p>
+ * 
+ * <p>For every annotated class processor resolves all declared modules
+ * exactly in the same way as container does it at runtime: finds module
+ * builder, chooses constructor and verifies that all constructor 
+ * parameters are declared modules. Then it sorts modules topologically
+ * and generates class named after annotated class with "Wiring" suffix
+ * in the same package. Generated class creates all singletons in 
+ * topological order, prototypes on request and thread modules once per 
+ * thread using plain "new" invocations, therefore no reflection is used 
+ * at runtime.</p>
+ * 
+ * <p>Pooled and scoped modules require objects returned into pool and 
+ * scope contexts managed by {@link com.drs.gem.injector.core.Container 
+ * Container}, thus declarations containing them can not be wired 
+ * statically and compilation error is reported for them. Dependencies
+ * are verified by the same rules as container applies: singleton can not
+ * receive thread module directly or through its prototype dependencies.
+ * </p>
+ * 
+ * <p>Because generated code is ordinary Java code, every module 
+ * implementation or builder class and its injected constructor must 
+ * be accessible from the package of annotated class. Otherwise 
+ * compilation error is reported.</p>
+ * 
+ * @author Diarsid
+ */
+@SupportedAnnotationTypes({
+    WiringProcessor.DECLARED_MODULE, 
+    WiringProcessor.DECLARED_MODULES})
+public class WiringProcessor extends AbstractProcessor {
+    
+    static final String DECLARED_MODULE = 
+            "com.drs.gem.injector.core.DeclaredModule";
+    static final String DECLARED_MODULES = 
+            "com.drs.gem.injector.core.DeclaredModules";
+    
+    private static final String GEM_MODULE = 
+            "com.drs.gem.injector.module.GemModule";
+    private static final String GEM_MODULE_BUILDER = 
+            "com.drs.gem.injector.module.GemModuleBuilder";
+    private static final String INJECTED_CONSTRUCTOR = 
+            "com.drs.gem.injector.module.InjectedConstructor";
+    private static final String WIRING_SUFFIX = "Wiring";
+
+    public WiringProcessor() {
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(
+            Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> declarations = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                declarations.add((TypeElement) element);
+            }
+        }
+        for (TypeElement declaration : declarations) {
+            processDeclaration(declaration);
+        }
+        return true;
+    }
+    
+    private void processDeclaration(TypeElement declaration) {
+        List<AnnotationMirror> declared = collectDeclaredModules(declaration);
+        String packageName = getPackageName(declaration);
+        Map<String, ModuleModel> modules = new LinkedHashMap<>();
+        
+        for (AnnotationMirror moduleDec : declared) {
+            ModuleModel module = resolveModule(
+                    declaration, packageName, moduleDec, modules.size());
+            if ( module == null ) {
+                return;
+            }
+            modules.put(module.getModuleName(), module);
+        }
+        
+        if ( ! verifyDependencies(declaration, modules) || 
+                ! verifyNoThreadDependencies(declaration, modules) ) {
+            return;
+        }
+        List<ModuleModel> order = sortTopologically(declaration, modules);
+        if ( order == null ) {
+            return;
+        }
+        
+        String wiringName = getWiringSimpleName(declaration);
+        String qualifiedName = packageName.isEmpty() ? 
+                wiringName : packageName + "." + wiringName;
+        try {
+            JavaFileObject file = processingEnv.getFiler()
+                    .createSourceFile(qualifiedName, declaration);
+            try (Writer writer = file.openWriter()) {
+                new WiringSourceWriter(
+                        packageName, 
+                        wiringName, 
+                        declaration.getQualifiedName().toString(), 
+                        modules, 
+                        order)
+                        .write(writer);
+            }
+        } catch (IOException e) {
+            error(declaration, "Unable to generate " + qualifiedName + 
+                    ": " + e.getMessage());
+        }
+    }
+    
+    private List<AnnotationMirror> collectDeclaredModules(TypeElement declaration) {
+        List<AnnotationMirror> declared = new ArrayList<>();
+        for (AnnotationMirror mirror : declaration.getAnnotationMirrors()) {
+            String name = ((TypeElement) mirror.getAnnotationType().asElement())
+                    .getQualifiedName().toString();
+            if ( name.equals(DECLARED_MODULE) ) {
+                declared.add(mirror);
+            } else if ( name.equals(DECLARED_MODULES) ) {
+                List<? extends AnnotationValue> values = 
+                        (List<? extends AnnotationValue>) getValue(mirror, "value");
+                for (AnnotationValue value : values) {
+                    declared.add((AnnotationMirror) value.getValue());
+                }
+            }
+        }
+        return declared;
+    }
+    
+    private Object getValue(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry 
+                : mirror.getElementValues().entrySet()) {
+            if ( entry.getKey().getSimpleName().contentEquals(name) ) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+    
+    private ModuleModel resolveModule(
+            TypeElement declaration, 
+            String packageName, 
+            AnnotationMirror moduleDec, 
+            int index) {
+        
+        TypeElement moduleInterface = asTypeElement(getValue(moduleDec, "module"));
+        TypeElement implementation = asTypeElement(getValue(moduleDec, "implementation"));
+        VariableElement type = (VariableElement) getValue(moduleDec, "type");
+        if ( moduleInterface == null || implementation == null || type == null ) {
+            error(declaration, "Invalid module declaration: module, " + 
+                    "implementation and type must be specified.");
+            return null;
+        }
+        String typeName = type.getSimpleName().toString();
+        if ( ! typeName.equals(ModuleModel.SINGLETON) && 
+                ! typeName.equals(ModuleModel.PROTOTYPE) && 
+                ! typeName.equals(ModuleModel.THREAD) ) {
+            error(declaration, "Static wiring is impossible: module " + 
+                    moduleInterface.getQualifiedName() + " is declared as " + 
+                    typeName + ". Only " + ModuleModel.SINGLETON + ", " + 
+                    ModuleModel.PROTOTYPE + " and " + ModuleModel.THREAD + 
+                    " modules can be wired statically, " + typeName + 
+                    " modules require Container at runtime.");
+            return null;
+        }
+        
+        if ( moduleInterface.getKind() != ElementKind.INTERFACE ) {
+            error(declaration, "Invalid module declaration: class " + 
+                    moduleInterface.getQualifiedName() + " is not interface.");
+            return null;
+        }
+        if ( ! isSubtype(moduleInterface, GEM_MODULE) ) {
+            error(declaration, "Invalid module interface: " + 
+                    moduleInterface.getQualifiedName() + 
+                    " does not implement " + GEM_MODULE + ".");
+            return null;
+        }
+        if ( ! processingEnv.getTypeUtils().isAssignable(
+                processingEnv.getTypeUtils().erasure(implementation.asType()), 
+                processingEnv.getTypeUtils().erasure(moduleInterface.asType())) ) {
+            error(declaration, "Invalid module implementation: " + 
+                    implementation.getQualifiedName() + " does not implement " + 
+                    moduleInterface.getQualifiedName() + ".");
+            return null;
+        }
+        
+        TypeElement buildClass = implementation;
+        boolean builder = false;
+        TypeElement builderClass = processingEnv.getElementUtils().getTypeElement(
+                implementation.getQualifiedName() + "Builder");
+        if ( builderClass != null ) {
+            if ( ! isSubtype(builderClass, GEM_MODULE_BUILDER) ) {
+                error(declaration, "Invalid module builder implementation: " + 
+                        builderClass.getQualifiedName() + " does not implement " + 
+                        GEM_MODULE_BUILDER);
+                return null;
+            }
+            buildClass = builderClass;
+            builder = true;
+        }
+        
+        ExecutableElement constructor = resolveConstructor(declaration, buildClass);
+        if ( constructor == null ) {
+            return null;
+        }
+        if ( ! isAccessible(buildClass, constructor, packageName) ) {
+            error(declaration, "Static wiring is impossible: constructor of " + 
+                    buildClass.getQualifiedName() + " is not accessible from " + 
+                    "package '" + packageName + "'.");
+            return null;
+        }
+        
+        List<String> dependencies = new ArrayList<>();
+        for (VariableElement parameter : constructor.getParameters()) {
+            TypeMirror parameterType = processingEnv.getTypeUtils()
+                    .erasure(parameter.asType());
+            if ( parameterType.getKind() != TypeKind.DECLARED ) {
+                error(declaration, "Modules dependency injection is broken: " + 
+                        "parameter " + parameter.getSimpleName() + " of " + 
+                        buildClass.getQualifiedName() + " is not a module.");
+                return null;
+            }
+            TypeElement parameterElement = (TypeElement) 
+                    ((DeclaredType) parameterType).asElement();
+            dependencies.add(parameterElement.getQualifiedName().toString());
+        }
+        
+        return new ModuleModel(
+                index, 
+                moduleInterface, 
+                buildClass, 
+                builder, 
+                typeName, 
+                dependencies);
+    }
+    
+    private TypeElement asTypeElement(Object classValue) {
+        if ( classValue instanceof DeclaredType ) {
+            return (TypeElement) ((DeclaredType) classValue).asElement();
+        } else {
+            return null;
+        }
+    }
+    
+    private boolean isSubtype(TypeElement type, String superTypeName) {
+        TypeElement superType = processingEnv.getElementUtils()
+                .getTypeElement(superTypeName);
+        if ( superType == null ) {
+            return false;
+        }
+        return processingEnv.getTypeUtils().isAssignable(
+                processingEnv.getTypeUtils().erasure(type.asType()), 
+                processingEnv.getTypeUtils().erasure(superType.asType()));
+    }
+    
+    private ExecutableElement resolveConstructor(
+            TypeElement declaration, TypeElement buildClass) {
+        List<ExecutableElement> constructors = 
+                ElementFilter.constructorsIn(buildClass.getEnclosedElements());
+        if ( constructors.size() == 1 ) {
+            return constructors.get(0);
+        }
+        ExecutableElement required = null;
+        int annotatedConstrQty = 0;
+        for (ExecutableElement constructor : constructors) {
+            for (AnnotationMirror mirror : constructor.getAnnotationMirrors()) {
+                TypeElement annotation = (TypeElement) 
+                        mirror.getAnnotationType().asElement();
+                if ( annotation.getQualifiedName().contentEquals(INJECTED_CONSTRUCTOR) ) {
+                    required = constructor;
+                    annotatedConstrQty++;
+                }
+            }
+        }
+        if ( annotatedConstrQty == 1 ) {
+            return required;
+        } else if ( annotatedConstrQty == 0 ) {
+            error(declaration, "Invalid module implementation: " + 
+                    buildClass.getQualifiedName() + " has no one constructor " + 
+                    "annotated with @InjectedConstructor annotation.");
+            return null;
+        } else {
+            error(declaration, "Invalid module implementation: " + 
+                    buildClass.getQualifiedName() + " has more than one " + 
+                    "constructor annotated with @InjectedConstructor annotation.");
+            return null;
+        }
+    }
+    
+    private boolean isAccessible(
+            TypeElement buildClass, ExecutableElement constructor, String packageName) {
+        boolean samePackage = getPackageName(buildClass).equals(packageName);
+        if ( ! isAccessible(constructor.getModifiers(), samePackage) ) {
+            return false;
+        }
+        Element enclosing = buildClass;
+        while ( enclosing instanceof TypeElement ) {
+            if ( ! isAccessible(enclosing.getModifiers(), samePackage) ) {
+                return false;
+            }
+            if ( enclosing.getEnclosingElement() instanceof TypeElement && 
+                    ! enclosing.getModifiers().contains(Modifier.STATIC) ) {
+                // inner class can not be instantiated without outer instance.
+                return false;
+            }
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return true;
+    }
+    
+    private boolean isAccessible(Set<Modifier> modifiers, boolean samePackage) {
+        if ( modifiers.contains(Modifier.PUBLIC) ) {
+            return true;
+        }
+        if ( modifiers.contains(Modifier.PRIVATE) ) {
+            return false;
+        }
+        return samePackage;
+    }
+    
+    private boolean verifyDependencies(
+            TypeElement declaration, Map<String, ModuleModel> modules) {
+        for (ModuleModel module : modules.values()) {
+            for (String dependency : module.getDependencies()) {
+                if ( ! modules.containsKey(dependency) ) {
+                    error(declaration, "Modules dependency injection is broken: " +
+                            "dependency " + dependency + " declared in injected " + 
+                            "constructor in class " + module.getBuildClassName() + 
+                            " does not declared as module.");
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Verifies that singletons do not depend on thread modules directly or
+     * through their prototype dependencies, because singleton would keep
+     * object of one thread and share it with other threads.
+     */
+    private boolean verifyNoThreadDependencies(
+            TypeElement declaration, Map<String, ModuleModel> modules) {
+        for (ModuleModel module : modules.values()) {
+            if ( ! module.isSingleton() ) {
+                continue;
+            }
+            Set<String> visitedPrototypes = new HashSet<>();
+            Deque<ModuleModel> toVisit = new ArrayDeque<>();
+            toVisit.push(module);
+            while ( ! toVisit.isEmpty() ) {
+                ModuleModel current = toVisit.pop();
+                for (String dependency : current.getDependencies()) {
+                    ModuleModel depModule = modules.get(dependency);
+                    if ( depModule.isThread() ) {
+                        error(declaration, "Module " + module.getModuleName() + 
+                                " of type " + module.getType() + 
+                                " depends on module " + dependency + 
+                                " of type " + depModule.getType() + 
+                                ". Modules of type " + depModule.getType() + 
+                                " can not be injected into modules of type " + 
+                                module.getType() + ".");
+                        return false;
+                    }
+                    if ( depModule.getType().equals(ModuleModel.PROTOTYPE) && 
+                            visitedPrototypes.add(dependency) ) {
+                        toVisit.push(depModule);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Sorts modules so that every module is placed after all its 
+     * dependencies. Returns null if modules have cyclic dependencies.
+     */
+    private List<ModuleModel> sortTopologically(
+            TypeElement declaration, Map<String, ModuleModel> modules) {
+        Map<String, Integer> unresolvedDependencies = new HashMap<>();
+        Map<String, List<ModuleModel>> dependents = new HashMap<>();
+        Deque<ModuleModel> ready = new ArrayDeque<>();
+        for (ModuleModel module : modules.values()) {
+            unresolvedDependencies.put(
+                    module.getModuleName(), module.getDependencies().size());
+            for (String dependency : module.getDependencies()) {
+                List<ModuleModel> list = dependents.get(dependency);
+                if ( list == null ) {
+                    list = new ArrayList<>();
+                    dependents.put(dependency, list);
+                }
+                list.add(module);
+            }
+            if ( module.getDependencies().isEmpty() ) {
+                ready.add(module);
+            }
+        }
+        
+        List<ModuleModel> order = new ArrayList<>();
+        while ( ! ready.isEmpty() ) {
+            ModuleModel module = ready.poll();
+            order.add(module);
+            List<ModuleModel> list = dependents.get(module.getModuleName());
+            if ( list != null ) {
+                for (ModuleModel dependent : list) {
+                    int left = unresolvedDependencies.get(dependent.getModuleName()) - 1;
+                    unresolvedDependencies.put(dependent.getModuleName(), left);
+                    if ( left == 0 ) {
+                        ready.add(dependent);
+                    }
+                }
+            }
+        }
+        
+        if ( order.size() < modules.size() ) {
+            StringBuilder cyclic = new StringBuilder();
+            for (Map.Entry<String, Integer> entry : unresolvedDependencies.entrySet()) {
+                if ( entry.getValue() > 0 ) {
+                    if ( cyclic.length() > 0 ) {
+                        cyclic.append(", ");
+                    }
+                    cyclic.append(entry.getKey());
+                }
+            }
+            error(declaration, "Cyclic dependency detected among modules: " + cyclic);
+            return null;
+        }
+        return order;
+    }
+    
+    private String getPackageName(TypeElement type) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        return pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+    }
+    
+    private String getWiringSimpleName(TypeElement declaration) {
+        StringBuilder name = new StringBuilder(declaration.getSimpleName());
+        Element enclosing = declaration.getEnclosingElement();
+        while ( enclosing instanceof TypeElement ) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name.append(WIRING_SUFFIX).toString();
+    }
+    
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Writes source code of class wiring declared modules statically.</p>
+ * 
+ * <p>Generated class has one field per singleton module and one private 
+ * factory method per module. Every factory method invokes module 
+ * implementation or module builder constructor with plain "new" and 
+ * passes singleton fields or results of other factory methods as 
+ * arguments. Thread modules are kept in {@link ThreadLocal} fields 
+ * initialized with their factory methods. Method {@code init()} creates 
+ * singletons in topological order, method {@code getModule(Class)} 
+ * returns singleton, object of current thread or creates new prototype 
+ * just like {@link com.drs.gem.injector.core.Container Container} does.
+ * </p>
+ * 
+ * @author Diarsid
+ */
+final class WiringSourceWriter {
+    
+    private static final String GEM_MODULE = 
+            "com.drs.gem.injector.module.GemModule";
+    private static final String INIT_EXCEPTION = 
+            "com.drs.gem.injector.exceptions.ContainerInitializationException";
+    private static final String UNDECLARED_EXCEPTION = 
+            "com.drs.gem.injector.exceptions.UndeclaredDependencyException";
+    
+    private final String packageName;
+    private final String className;
+    private final String declarationName;
+    private final Map<String, ModuleModel> modules;
+    private final List<ModuleModel> order;
+
+    WiringSourceWriter(
+            String packageName, 
+            String className, 
+            String declarationName,
+            Map<String, ModuleModel> modules, 
+            List<ModuleModel> order) {
+        this.packageName = packageName;
+        this.className = className;
+        this.declarationName = declarationName;
+        this.modules = modules;
+        this.order = order;
+    }
+    
+    void write(Writer writer) throws IOException {
+        StringBuilder code = new StringBuilder();
+        if ( ! packageName.isEmpty() ) {
+            code.append("package ").append(packageName).append(";\n\n");
+        }
+        code.append("/**\n")
+            .append(" * Static wiring of modules declared in {@link ")
+            .append(declarationName).append("}.\n")
+            .append(" * Generated by gem-injector annotation processor, ")
+            .append("do not edit.\n")
+            .append(" */\n")
+            .append("public final class ").append(className).append(" {\n\n");
+        
+        writeIndexes(code);
+        writeFields(code);
+        code.append("    private volatile boolean initialized;\n\n")
+            .append("    public ").append(className).append("() {\n")
+            .append("    }\n\n");
+        writeInit(code);
+        writeGetModule(code);
+        for (ModuleModel module : modules.values()) {
+            writeFactoryMethod(code, module);
+        }
+        code.setLength(code.length() - 1);
+        code.append("}\n");
+        writer.write(code.toString());
+    }
+    
+    private void writeIndexes(StringBuilder code) {
+        code.append("    private static final java.util.Map<Class<?>, Integer> ")
+            .append("MODULE_INDEXES = new java.util.IdentityHashMap<>();\n\n")
+            .append("    static {\n");
+        for (ModuleModel module : modules.values()) {
+            code.append("        MODULE_INDEXES.put(")
+                .append(module.getModuleName()).append(".class, ")
+                .append(module.getIndex()).append(");\n");
+        }
+        code.append("    }\n\n");
+    }
+    
+    private void writeFields(StringBuilder code) {
+        for (ModuleModel module : modules.values()) {
+            if ( module.isSingleton() ) {
+                code.append("    private ").append(module.getModuleName())
+                    .append(" ").append(singletonField(module)).append(";\n");
+            } else if ( module.isThread() ) {
+                code.append("    private final java.lang.ThreadLocal<")
+                    .append(module.getModuleName()).append("> ")
+                    .append(threadField(module))
+                    .append(" = java.lang.ThreadLocal.withInitial(this::")
+                    .append(factoryMethod(module)).append(");\n");
+            }
+        }
+        code.append("\n");
+    }
+    
+    private void writeInit(StringBuilder code) {
+        code.append("    /**\n")
+            .append("     * Creates all singleton modules in topological order.\n")
+            .append("     */\n")
+            .append("    public synchronized void init() {\n")
+            .append("        if ( initialized ) {\n")
+            .append("            throw new ").append(INIT_EXCEPTION)
+            .append("(\"Modules have been initialized already.\");\n")
+            .append("        }\n");
+        for (ModuleModel module : order) {
+            if ( module.isSingleton() ) {
+                code.append("        ").append(singletonField(module))
+                    .append(" = ").append(factoryMethod(module)).append("();\n");
+            }
+        }
+        code.append("        initialized = true;\n")
+            .append("    }\n\n");
+    }
+    
+    private void writeGetModule(StringBuilder code) {
+        code.append("    /**\n")
+            .append("     * Returns singleton module, module of current thread or \n")
+            .append("     * creates new prototype module.\n")
+            .append("     */\n")
+            .append("    public <M extends ").append(GEM_MODULE)
+            .append("> M getModule(Class<M> moduleClass) {\n")
+            .append("        if ( ! initialized ) {\n")
+            .append("            throw new ").append(INIT_EXCEPTION)
+            .append("(\"Modules::init() was not invoked.\");\n")
+            .append("        }\n")
+            .append("        Integer index = MODULE_INDEXES.get(moduleClass);\n")
+            .append("        if ( index == null ) {\n")
+            .append("            throw new ").append(UNDECLARED_EXCEPTION)
+            .append("(\"Undeclared dependency: \" + moduleClass.getCanonicalName() + ")
+            .append("\n                    \" is not contained in this wiring\");\n")
+            .append("        }\n")
+            .append("        switch ( index ) {\n");
+        for (ModuleModel module : modules.values()) {
+            code.append("            case ").append(module.getIndex()).append(" : ")
+                .append("return moduleClass.cast(")
+                .append(moduleAccess(module)).append(");\n");
+        }
+        code.append("            default : throw new IllegalStateException();\n")
+            .append("        }\n")
+            .append("    }\n\n");
+    }
+    
+    private void writeFactoryMethod(StringBuilder code, ModuleModel module) {
+        code.append("    private ").append(module.getModuleName()).append(" ")
+            .append(factoryMethod(module)).append("() {\n")
+            .append("        return ");
+        if ( module.isBuilder() ) {
+            code.append("(").append(module.getModuleName()).append(") ");
+        }
+        code.append("new ").append(module.getBuildClassName()).append("(");
+        List<String> dependencies = module.getDependencies();
+        for (int i = 0; i < dependencies.size(); i++) {
+            ModuleModel dependency = modules.get(dependencies.get(i));
+            if ( i > 0 ) {
+                code.append(", ");
+            }
+            code.append(moduleAccess(dependency));
+        }
+        code.append(")");
+        if ( module.isBuilder() ) {
+            code.append(".buildModule()");
+        }
+        code.append(";\n")
+            .append("    }\n\n");
+    }
+    
+    /**
+     * Returns expression obtaining module object according to its type.
+     */
+    private String moduleAccess(ModuleModel module) {
+        if ( module.isSingleton() ) {
+            return singletonField(module);
+        } else if ( module.isThread() ) {
+            return threadField(module) + ".get()";
+        } else {
+            return factoryMethod(module) + "()";
+        }
+    }
+    
+    private String singletonField(ModuleModel module) {
+        return "singleton" + module.getIndex() + "_" + 
+                module.getModuleInterface().getSimpleName();
+    }
+    
+    private String threadField(ModuleModel module) {
+        return "thread" + module.getIndex() + "_" + 
+                module.getModuleInterface().getSimpleName();
+    }
+    
+    private String factoryMethod(ModuleModel module) {
+        return "new" + module.getIndex() + "_" + 
+                module.getModuleInterface().getSimpleName();
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.drs.gem.injector.core.Declaration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests wiring generated by {@link WiringProcessor} for declarations 
+ * compiled at test runtime.
+ *
+ * @author Diarsid
+ */
+public class WiringProcessorTest {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private File sources;
+    private File classes;
+    private DiagnosticCollector<JavaFileObject> diagnostics;
+    
+    @Before
+    public void setUp() throws IOException {
+        sources = folder.newFolder("sources");
+        classes = folder.newFolder("classes");
+        diagnostics = new DiagnosticCollector<>();
+        writeSource("Store", 
+                "public interface Store extends GemModule {}");
+        writeSource("StoreImpl", 
+                "public class StoreImpl implements Store {}");
+        writeSource("Service", 
+                "public interface Service extends GemModule {\n" +
+                "    Store getStore();\n" +
+                "    boolean isBuilt();\n" +
+                "}");
+        writeSource("ServiceImpl", 
+                "public class ServiceImpl implements Service {\n" +
+                "    private final Store store;\n" +
+                "    ServiceImpl(Store store) { this.store = store; }\n" +
+                "    public Store getStore() { return store; }\n" +
+                "    public boolean isBuilt() { return true; }\n" +
+                "}");
+        writeSource("ServiceImplBuilder", 
+                "public class ServiceImplBuilder implements GemModuleBuilder<Service> {\n" +
+                "    private final Store store;\n" +
+                "    public ServiceImplBuilder(Store store) { this.store = store; }\n" +
+                "    public Service buildModule() { return new ServiceImpl(store); }\n" +
+                "}");
+        writeSource("Request", 
+                "public interface Request extends GemModule {\n" +
+                "    Service getService();\n" +
+                "}");
+        writeSource("RequestImpl", 
+                "public class RequestImpl implements Request {\n" +
+                "    private final Service service;\n" +
+                "    public RequestImpl(Service service) { this.service = service; }\n" +
+                "    public Service getService() { return service; }\n" +
+                "}");
+    }
+    
+    private void writeSource(String className, String body) throws IOException {
+        String source = 
+                "package wired;\n\n" +
+                "import java.util.Collections;\n" +
+                "import java.util.Set;\n" +
+                "import com.drs.gem.injector.core.*;\n" +
+                "import com.drs.gem.injector.module.*;\n\n" +
+                body + "\n";
+        File packageDir = new File(sources, "wired");
+        packageDir.mkdirs();
+        Files.write(
+                new File(packageDir, className + ".java").toPath(), 
+                source.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private void writeDeclaration(String... modules) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (String module : modules) {
+            body.append("@DeclaredModule(").append(module).append(")\n");
+        }
+        body.append("public class AppDeclaration implements Declaration {\n")
+            .append("    public Set<GemModuleDeclaration> getDeclaredModules() {\n")
+            .append("        return Collections.emptySet();\n")
+            .append("    }\n")
+            .append("}");
+        writeSource("AppDeclaration", body.toString());
+    }
+    
+    private boolean compile() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String classpath = new File(Declaration.class.getProtectionDomain()
+                .getCodeSource().getLocation().getPath()).getPath();
+        try (StandardJavaFileManager files = 
+                compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<File> sourceFiles = new ArrayList<>(Arrays.asList(
+                    new File(sources, "wired").listFiles()));
+            JavaCompiler.CompilationTask task = compiler.getTask(
+                    null, 
+                    files, 
+                    diagnostics, 
+                    Arrays.asList(
+                            "-classpath", classpath, 
+                            "-d", classes.getPath(), 
+                            "-s", classes.getPath()), 
+                    null, 
+                    files.getJavaFileObjectsFromFiles(sourceFiles));
+            task.setProcessors(Collections.singletonList(new WiringProcessor()));
+            return task.call();
+        }
+    }
+    
+    private String errors() {
+        StringBuilder errors = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if ( diagnostic.getKind() == Diagnostic.Kind.ERROR ) {
+                errors.append(diagnostic.getMessage(null)).append("\n");
+            }
+        }
+        return errors.toString();
+    }
+    
+    @Test
+    public void testGeneratedWiringCreatesModules() throws Exception {
+        writeDeclaration(
+                "module = Request.class, implementation = RequestImpl.class, " + 
+                        "type = GemModuleType.PROTOTYPE", 
+                "module = Service.class, implementation = ServiceImpl.class, " + 
+                        "type = GemModuleType.SINGLETON", 
+                "module = Store.class, implementation = StoreImpl.class, " + 
+                        "type = GemModuleType.SINGLETON");
+        
+        assertTrue(errors(), compile());
+        assertTrue(new File(classes, "wired/AppDeclarationWiring.java").exists());
+        
+        try (URLClassLoader loader = new URLClassLoader(
+                new URL[] {classes.toURI().toURL()}, getClass().getClassLoader())) {
+            Class<?> wiringClass = loader.loadClass("wired.AppDeclarationWiring");
+            Class<?> request = loader.loadClass("wired.Request");
+            Class<?> service = loader.loadClass("wired.Service");
+            Class<?> store = loader.loadClass("wired.Store");
+            Object wiring = wiringClass.newInstance();
+            wiringClass.getMethod("init").invoke(wiring);
+            Method getModule = wiringClass.getMethod("getModule", Class.class);
+            
+            Object firstRequest = getModule.invoke(wiring, request);
+            Object secondRequest = getModule.invoke(wiring, request);
+            Object singleton = getModule.invoke(wiring, service);
+            
+            assertNotSame(firstRequest, secondRequest);
+            assertSame(singleton, request.getMethod("getService").invoke(firstRequest));
+            assertSame(singleton, request.getMethod("getService").invoke(secondRequest));
+            assertEquals(true, service.getMethod("isBuilt").invoke(singleton));
+            assertSame(
+                    getModule.invoke(wiring, store), 
+                    service.getMethod("getStore").invoke(singleton));
+        }
+    }
+    
+    @Test
+    public void testUndeclaredDependencyIsReported() throws Exception {
+        writeDeclaration(
+                "module = Request.class, implementation = RequestImpl.class, " + 
+                        "type = GemModuleType.PROTOTYPE");
+        
+        assertFalse(compile());
+        assertTrue(errors(), errors().contains("wired.Service"));
+        assertFalse(new File(classes, "wired/AppDeclarationWiring.java").exists());
+    }
+    
+    @Test
+    public void testThreadModuleInjectedIntoSingletonIsReported() throws Exception {
+        writeDeclaration(
+                "module = Service.class, implementation = ServiceImpl.class, " + 
+                        "type = GemModuleType.SINGLETON", 
+                "module = Store.class, implementation = StoreImpl.class, " + 
+                        "type = GemModuleType.THREAD");
+        
+        assertFalse(compile());
+        assertTrue(errors(), errors().contains("can not be injected"));
+    }
+    
+    @Test
+    public void testPooledModuleIsReported() throws Exception {
+        writeDeclaration(
+                "module = Store.class, implementation = StoreImpl.class, " + 
+                        "type = GemModuleType.POOLED");
+        
+        assertFalse(compile());
+        assertTrue(errors(), errors().contains("Static wiring is impossible"));
+    }
+}
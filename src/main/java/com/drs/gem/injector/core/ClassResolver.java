@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.drs.gem.injector.exceptions.ModuleDeclarationException;
+
+/**
+ * <p>Resolves module classes declared by their names with specified 
+ * {@link ClassLoader}.</p>
+ * 
+ * <p>Classes are loaded without initialization, thus static initializers
+ * of module classes are executed when module object is constructed for 
+ * the first time rather than during declarations parsing. Modules which 
+ * are never constructed, e.g. lazy singletons, are never initialized.</p>
+ * 
+ * <p>Builder of module is searched by its name derived from module 
+ * implementation class name. Class file of builder is not looked up as 
+ * resource of class loader, because classes can be defined at runtime 
+ * without any class file. Builder is considered absent only if class 
+ * loader fails to load it. Names of absent builders are remembered by 
+ * resolver, thus they are not looked up again when the same module is 
+ * resolved by container once more, e.g. lazily or on redeclaration. 
+ * They are not shared between containers, because class loader can 
+ * define builder class later.</p>
+ * 
+ * <p>Null class loader denotes bootstrap class loader.</p>
+ * 
+ * @author  Diarsid
+ * @see     Container#useClassLoader(ClassLoader)
+ */
+final class ClassResolver {
+    
+    private static final String BUILDER_SUFFIX = "Builder";
+    
+    private final ClassLoader loader;
+    private final Set<String> absentBuilders;
+    
+    ClassResolver(ClassLoader loader) {
+        this.loader = loader;
+        this.absentBuilders = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    }
+    
+    /**
+     * Returns class by its name without initialization or throws an 
+     * exception.
+     * 
+     * @param className binary class name.
+     * @return          class object.
+     * @throws          ModuleDeclarationException if class does not exist.
+     */
+    Class resolve(String className) {
+        try {
+            return Class.forName(className, false, loader);
+        } catch (ClassNotFoundException e) {
+            throw new ModuleDeclarationException(
+                    "Invalid module declaration: class " +
+                    className + " does not exist.");
+        }
+    }
+    
+    /**
+     * Returns class by its name without initialization, used for classes 
+     * that could have been changed since they were recorded.
+     * 
+     * @param className binary class name.
+     * @return          class object.
+     * @throws ClassNotFoundException   if class does not exist.
+     */
+    Class resolveIfExists(String className) throws ClassNotFoundException {
+        return Class.forName(className, false, loader);
+    }
+    
+    /**
+     * Determines if given module has appropriate {@link 
+     * com.drs.gem.injector.module.GemModuleBuilder GemModuleBuilder} class
+     * in its package. If it doesn't returns null.
+     * 
+     * @param moduleImplemName  module implementation class binary name.
+     * @return                  Class of GemModuleBuilder or null if specified 
+     *                          module doesn't have one.
+     */
+    Class findBuilder(String moduleImplemName) {
+        String builderName = moduleImplemName + BUILDER_SUFFIX;
+        if ( absentBuilders.contains(builderName) ) {
+            return null;
+        }
+        try {
+            return Class.forName(builderName, false, loader);
+        } catch (ClassNotFoundException e) {
+            absentBuilders.add(builderName);
+            return null;
+        }
+    }
+}
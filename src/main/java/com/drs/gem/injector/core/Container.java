@@ -18,6 +18,8 @@
 
 package com.drs.gem.injector.core;
 
+import java.util.concurrent.TimeUnit;
+
 import com.drs.gem.injector.module.GemModule;
 
 /**
@@ -52,9 +54,13 @@ import com.drs.gem.injector.module.GemModule;
  * are not allowed to introduce new modules after {@link #init()} method has
  * been invoked.</p>
  * 
+ * <p>Declarations are only recorded when they are made. All declared 
+ * classes are loaded and verified during {@link #init()}, so that 
+ * declaration errors are reported by this method.</p>
+ * 
  * @author Diarsid
  */
-public interface Container {
+public interface Container extends AutoCloseable {
     
     /**
      * Method to declare new module in container.
@@ -66,6 +72,68 @@ public interface Container {
      */
     void declareModule(String moduleInterface, String moduleImplem, GemModuleType type);
     
+    /**
+     * Method to declare new module of type {@link GemModuleType#SCOPED 
+     * SCOPED} in container.
+     * 
+     * @param moduleInterface   canonical name of declared module interface.
+     * @param moduleImplem      canonical name of declared module implementation class.
+     * @param scopeName         name of scope registered with {@link 
+     *                          #registerScope(String, GemModuleScope) 
+     *                          .registerScope()}.
+     * @see                     com.drs.gem.injector.core.GemModuleScope
+     */
+    void declareModule(String moduleInterface, String moduleImplem, String scopeName);
+    
+    /**
+     * <p>Replaces implementation of module declared in this initialized 
+     * container. Module keeps its type and scope. Only modules affected 
+     * by replacement are rebuilt: module itself and all modules which 
+     * receive its objects directly or through other affected modules. 
+     * Injection priorities are calculated for these modules only, affected 
+     * singletons are created afresh and instantiation plans of affected 
+     * modules are compiled again. Other singletons stay alive. Modules 
+     * receiving provider of affected module are not rebuilt because 
+     * provider obtains actual module object on every invocation.</p>
+     * 
+     * <p>Objects obtained from container before replacement and objects 
+     * kept in scope contexts which are open are not replaced. If new 
+     * implementation can not be verified or any affected module can not be 
+     * created, container keeps its previous state. Replaced singletons 
+     * implementing {@link AutoCloseable} are closed after replacement in 
+     * the same order as by {@link #close(long, TimeUnit) .close()}.</p>
+     * 
+     * <p>Child containers and forks are not refreshed. Therefore module 
+     * can not be redeclared while any affected singleton is held by child 
+     * container or fork which is not closed yet.</p>
+     * 
+     * @param moduleInterface   canonical name of declared module interface.
+     * @param moduleImplem      canonical name of new module implementation class.
+     * @throws  com.drs.gem.injector.exceptions.ContainerInitializationException
+     *          if container is not initialized.
+     * @throws  com.drs.gem.injector.exceptions.ModuleDeclarationException
+     *          if module is not declared in this container or affected 
+     *          singleton is held by child container or fork.
+     * @throws  com.drs.gem.injector.exceptions.ContainerCloseException
+     *          if replaced singleton has not been closed properly. Module 
+     *          is redeclared in this case as well.
+     */
+    void redeclareModule(String moduleInterface, String moduleImplem);
+    
+    /**
+     * <p>Registers scope under specified name, so that modules of type 
+     * {@link GemModuleType#SCOPED SCOPED} declared with this name keep 
+     * their objects in this scope. See {@link GemModuleScope} for 
+     * details.</p>
+     * 
+     * <p>This method must be invoked before {@link #init()}.</p>
+     * 
+     * @param scopeName     name of scope.
+     * @param scope         scope implementation.
+     * @see                 ContextScope
+     */
+    void registerScope(String scopeName, GemModuleScope scope);
+    
     /**
      * Start point of container's work. <br>
      * Container collects all information 
@@ -88,6 +156,186 @@ public interface Container {
      */
     void useRecursiveInjector();
     
+    /**
+     * <p>Forces container to generate a small factory class for every 
+     * module during {@link #init()}. Generated factory invokes module 
+     * implementation constructor or module builder constructor and its 
+     * {@link com.drs.gem.injector.module.GemModuleBuilder#buildModule() 
+     * .buildModule()} method directly, without reflection, thus it makes 
+     * sense for modules requested very often, i.e. hot prototypes.</p>
+     * 
+     * <p>Factories can be generated only for public constructors of 
+     * public classes. Modules having not public constructors or classes 
+     * are created via reflection as usual.</p>
+     * 
+     * <p>This method must be invoked before {@link #init()}.</p>
+     */
+    void useGeneratedFactories();
+    
+    /**
+     * <p>Forces container to invoke module constructors through 
+     * {@link java.lang.invoke.MethodHandle MethodHandle} adapted to 
+     * constructor parameters count instead of reflective 
+     * {@link java.lang.reflect.Constructor#newInstance(Object...) 
+     * Constructor.newInstance()}. It does not make module creation faster 
+     * on modern JVMs, but can be useful on JVMs where reflective access is 
+     * slow. Modules which factories are generated due to 
+     * {@link #useGeneratedFactories()} are not affected.</p>
+     * 
+     * <p>This method must be invoked before {@link #init()}.</p>
+     */
+    void useMethodHandles();
+    
+    /**
+     * <p>Forces container to use snapshot of resolved modules graph stored
+     * in specified file.</p>
+     * 
+     * <p>During {@link #init()} container calculates hash of all module 
+     * declarations and reads snapshot from the file. If snapshot has been 
+     * written for the same declarations, container takes module 
+     * implementation or builder classes, their constructors and injection 
+     * priorities from it and skips module verification, constructor 
+     * resolution and priority calculation. If file does not exist, 
+     * snapshot has been written for other declarations or it does not 
+     * correspond to actual classes anymore, container performs full 
+     * initialization and rewrites the file.</p>
+     * 
+     * <p>Snapshot is keyed by declarations only, so it does not notice 
+     * changes in module classes themselves that keep their constructors 
+     * valid, e.g. newly added module builder. Snapshot file should be 
+     * removed after such changes.</p>
+     * 
+     * <p>This method must be invoked before {@link #init()}.</p>
+     * 
+     * @param snapshotFilePath  path to snapshot file.
+     */
+    void useSnapshot(String snapshotFilePath);
+    
+    /**
+     * <p>Forces container to initialize singleton modules concurrently 
+     * during {@link #init()}. Every singleton is created on separate 
+     * thread as soon as all singletons it depends on are ready, thus 
+     * independent singletons having expensive constructors do not wait 
+     * for each other.</p>
+     * 
+     * <p>If any singleton fails, singletons which have not been started 
+     * yet are not created, singletons created already are closed if they 
+     * implement {@link AutoCloseable} and {@link #init()} throws 
+     * {@link com.drs.gem.injector.exceptions.ContainerInitializationException 
+     * ContainerInitializationException} containing all failures occurred.
+     * Module constructors must be ready to be invoked on different 
+     * threads.</p>
+     * 
+     * <p>This method must be invoked before {@link #init()}.</p>
+     */
+    void useParallelInit();
+    
+    /**
+     * <p>Forces container to resolve modules on demand. In this mode 
+     * {@link #init()} only finishes module declaration. Loading and 
+     * verification of declared classes, constructor resolution, priority 
+     * calculation and singleton initialization are performed for 
+     * module and its dependency graph at the first 
+     * {@link #getModule(Class) .getModule()} invocation requiring this
+     * module. Modules that are never required directly or as dependency 
+     * are never loaded.</p>
+     * 
+     * <p>Thus all declaration errors and module instantiation errors are 
+     * reported by {@link #getModule(Class) .getModule()}. In this mode
+     * {@link #useRecursiveInjector()}, {@link #useSnapshot(String)} and 
+     * {@link #useParallelInit()} settings are ignored.</p>
+     * 
+     * <p>This method must be invoked before {@link #init()}.</p>
+     */
+    void useLazyInit();
+    
+    /**
+     * <p>Forces container to collect metrics: duration of every 
+     * {@link #init()} phase, construction time of every module, 
+     * quantity and rate of prototype creations and latency histograms 
+     * of {@link #getModule(Class) .getModule()} invocations. After 
+     * {@link #init()} metrics are also published as MXBean in platform 
+     * MBean server. See {@link ContainerMetricsMXBean} for details.</p>
+     * 
+     * <p>Collection of metrics adds several {@link System#nanoTime()} 
+     * invocations to every module creation and module request.</p>
+     * 
+     * <p>This method must be invoked before {@link #init()}.</p>
+     */
+    void useMetrics();
+    
+    /**
+     * <p>Sets maximal quantity of idle objects kept in pool of 
+     * {@link GemModuleType#POOLED POOLED} module. Pool is filled up to 
+     * this quantity when module is initialized. Default size is quantity 
+     * of available processors.</p>
+     * 
+     * <p>This method must be invoked before {@link #init()}.</p>
+     * 
+     * @param moduleInterface   canonical name of pooled module interface.
+     * @param size              pool size, must be positive.
+     */
+    void setPoolSize(String moduleInterface, int size);
+    
+    /**
+     * <p>Sets class loader used to load module classes declared by their 
+     * names. By default class loader of this library is used, which is 
+     * not appropriate if modules are loaded by other class loader, e.g. 
+     * in application servers or plugin systems.</p>
+     * 
+     * <p>Classes are loaded without initialization, their static 
+     * initializers are executed when module objects are created.</p>
+     * 
+     * <p>This method must be invoked before {@link #init()}.</p>
+     * 
+     * @param loader    class loader of module classes.
+     */
+    void useClassLoader(ClassLoader loader);
+    
+    /**
+     * <p>Makes {@link GemModuleType#SINGLETON SINGLETON} module lazy: 
+     * instead of singleton itself container creates lightweight proxy of 
+     * module interface during {@link #init()}, injects it into other 
+     * modules and returns it from {@link #getModule(Class) .getModule()}.
+     * Singleton is created on the first invocation of any module method 
+     * through proxy.</p>
+     * 
+     * <p>It is useful for singletons required by many modules but used 
+     * rarely. Singletons which lazy singleton depends on are still 
+     * initialized during {@link #init()} unless they are lazy too.</p>
+     * 
+     * <p>This method must be invoked before {@link #init()}.</p>
+     * 
+     * @param moduleInterface   canonical name of singleton module interface.
+     */
+    void useLazyProxy(String moduleInterface);
+    
+    /**
+     * Returns metrics collected by this container.
+     * 
+     * @return  metrics of this container.
+     * @throws  com.drs.gem.injector.exceptions.ContainerInitializationException
+     *          if {@link #useMetrics()} was not invoked.
+     * @see     ContainerMetricsMXBean
+     */
+    ContainerMetricsMXBean getMetrics();
+    
+    /**
+     * <p>Returns report describing critical path of singletons 
+     * initialization, built from dependency graph and construction times 
+     * measured during {@link #init()}. See {@link StartupReport} for 
+     * details.</p>
+     * 
+     * <p>Report is available only if {@link #useMetrics()} was invoked 
+     * before {@link #init()} and container does not use 
+     * {@link #useLazyInit() lazy initialization}.</p>
+     * 
+     * @return  startup report of this container.
+     * @throws  com.drs.gem.injector.exceptions.ContainerInitializationException
+     *          if report can not be built.
+     */
+    StartupReport getStartupReport();
+    
     /**
      * Returns fully initialized instance of specified module.
      * 
@@ -97,4 +345,122 @@ public interface Container {
      * @see                 com.drs.gem.injector.module.GemModule
      */
     <M extends GemModule> M getModule(Class<M> moduleClass);
+    
+    /**
+     * <p>Releases objects of all {@link GemModuleType#THREAD THREAD} 
+     * modules kept for current thread. Objects implementing {@link 
+     * AutoCloseable} are closed. Subsequent requests of these modules in 
+     * current thread will create new objects.</p>
+     * 
+     * <p>Objects are released automatically when thread terminates, 
+     * including virtual threads, and when container is closed. Threads of 
+     * pools are reused for many tasks, so that task should invoke this 
+     * method in the end if thread modules objects must not outlive it.</p>
+     * 
+     * @throws  com.drs.gem.injector.exceptions.ContainerCloseException
+     *          if any object has failed to close. All objects are released 
+     *          regardless of failures.
+     */
+    void releaseThreadModules();
+    
+    /**
+     * Gives object of {@link GemModuleType#POOLED POOLED} module obtained 
+     * by {@link #getModule(Class) .getModule()} back to pool. Object must
+     * not be used after it has been returned. If pool is full or 
+     * container is closed, object is dropped and closed if it implements 
+     * {@link AutoCloseable}.
+     * 
+     * <p>Container does not keep objects checked out from pool. Object 
+     * which is never returned is collected as soon as it is not used, but 
+     * it is not closed by container, thus closeable objects should always 
+     * be returned.</p>
+     * 
+     * @param <M>           actual module interface.
+     * @param moduleClass   class object of actual module interface.
+     * @param module        object of this module obtained from container.
+     * @throws              com.drs.gem.injector.exceptions.ModuleDeclarationException
+     *                      if module is not pooled, if object is null, 
+     *                      has not been obtained from this pool or has 
+     *                      been returned already.
+     * @throws              com.drs.gem.injector.exceptions.ContainerCloseException
+     *                      if dropped object has failed to close.
+     */
+    <M extends GemModule> void returnModule(Class<M> moduleClass, M module);
+    
+    /**
+     * <p>Returns a new initialized {@link Container} having the same 
+     * modules as this initialized container. Fork reuses everything this 
+     * container has resolved during its initialization: module classes, 
+     * constructors, injection priorities and dependencies of modules. 
+     * Only singletons are created afresh, concurrently, and instantiation
+     * plans are compiled for them. Container initialized lazily is forked
+     * as new lazy container with the same declarations.</p>
+     * 
+     * <p>Singletons specified as shared are not created, fork receives 
+     * objects of this container instead. Shared singleton keeps its own 
+     * dependencies taken from this container. If this container collects 
+     * metrics, fork collects its own metrics under its own name, so that 
+     * modules created by fork are not counted in metrics of this 
+     * container.</p>
+     * 
+     * @param name              name of fork.
+     * @param sharedSingletons  interface names of singletons that should 
+     *                          be shared with fork.
+     * @return                  initialized fork of this container.
+     * @throws  com.drs.gem.injector.exceptions.ContainerInitializationException
+     *          if this container is not initialized or container with 
+     *          this name already exists.
+     * @throws  com.drs.gem.injector.exceptions.ModuleDeclarationException
+     *          if shared module is not singleton of this container.
+     */
+    Container fork(String name, String... sharedSingletons);
+    
+    /**
+     * Closes this container waiting at most 30 seconds for its singletons 
+     * to be closed. See {@link #close(long, TimeUnit) .close(long, TimeUnit)}.
+     * 
+     * @throws  com.drs.gem.injector.exceptions.ContainerCloseException
+     *          if any singleton has not been closed.
+     */
+    @Override
+    void close();
+    
+    /**
+     * <p>Closes this container. Singletons created by this container 
+     * which implement {@link AutoCloseable} are closed in reverse order 
+     * of their dependencies: singleton is closed after all singletons 
+     * using it. Singletons which do not depend on each other are closed 
+     * concurrently. Lazy singletons which have not been created are not 
+     * created for closing. Singletons inherited from parent container or 
+     * shared by forked container are left to their own containers.</p>
+     * 
+     * <p>Child containers and forks created from this container can hold 
+     * its singletons, thus those which are not closed yet are closed 
+     * before singletons of this container, each with the same timeout. 
+     * Failure of dependent container closing does not stop closing of 
+     * this container.</p>
+     * 
+     * <p>Closed container is removed from {@link GemInjector} and its 
+     * metrics MXBean is unregistered, thus closing is equivalent to 
+     * {@link GemInjector#removeContainer(String) 
+     * GemInjector.removeContainer()}.</p>
+     * 
+     * <p>Objects of {@link GemModuleType#THREAD THREAD} modules kept for 
+     * all threads and idle objects of {@link GemModuleType#POOLED POOLED} 
+     * modules are closed on the calling thread before singletons, because 
+     * they can use singletons. Pooled objects returned after closing are 
+     * closed on return. Pooled objects which are checked out, objects of 
+     * scoped and prototype modules are not closed by container.</p>
+     * 
+     * <p>Modules can not be obtained from closed container. Closing 
+     * of closed container has no effect.</p>
+     * 
+     * @param timeout   maximum time to wait for singletons closing.
+     * @param unit      unit of timeout.
+     * @throws  com.drs.gem.injector.exceptions.ContainerCloseException
+     *          if any module object has failed to close or singleton has 
+     *          not been closed within timeout. All objects are attempted 
+     *          to be closed regardless of failures.
+     */
+    void close(long timeout, TimeUnit unit);
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.drs.gem.injector.exceptions.ContainerCloseException;
+import com.drs.gem.injector.exceptions.ContainerInitializationException;
+import com.drs.gem.injector.exceptions.ModuleDeclarationException;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Creates forks of initialized container.</p>
+ *
+ * <p>Fork receives declarations and settings of template together with
+ * its resolved modules graph, so that module declarations are not parsed
+ * and injection priorities are not calculated again. Fork has its own
+ * {@link ModuleMetaData} objects and invokers, thus it collects its own
+ * metrics if template collects them. Singletons, instantiation plans and
+ * module sources are not copied, except singletons shared by template
+ * and singletons inherited from parent container. Resolved graph of
+ * lazily initialized template is not complete, thus only its
+ * declarations and settings are copied.</p>
+ *
+ * <p>Fork is registered among dependent containers of template, so that
+ * it is closed before template.</p>
+ *
+ * @author  Diarsid
+ * @see     Container#fork(String, String...)
+ */
+final class ContainerForker {
+
+    private final ModulesContainer template;
+    private final Factory factory;
+
+    ContainerForker(ModulesContainer template, Factory factory) {
+        this.template = template;
+        this.factory = factory;
+    }
+
+    /**
+     * Creates, initializes and registers fork of template. If fork can 
+     * not be initialized, singletons it has created are closed and its 
+     * name is released.
+     *
+     * @param name              name of fork.
+     * @param sharedSingletons  interface names of singletons that should
+     *                          be shared with fork.
+     * @return                  initialized fork.
+     * @throws ContainerInitializationException if template is not
+     *                                          initialized or container
+     *                                          with this name exists.
+     * @throws ModuleDeclarationException       if shared module is not
+     *                                          singleton of template.
+     */
+    ModulesContainer fork(String name, String... sharedSingletons) {
+        if ( ! template.isInitialized() ) {
+            throw new ContainerInitializationException(
+                    "Modules::init() was not invoked.");
+        }
+        ModulesContainer fork = factory.buildFork(template, name);
+        // name is reserved before any singleton or MXBean of fork is 
+        // created, so that existing container with this name is not 
+        // affected.
+        GemInjector.registerContainer(name, fork);
+        try {
+            if ( ! template.isLazyInit() ) {
+                fork.copyResolvedGraph(template, copyMetaDatas(fork));
+            }
+            for (String sharedSingleton : sharedSingletons) {
+                share(sharedSingleton, fork);
+            }
+            fork.initFork();
+        } catch (RuntimeException | Error e) {
+            discard(fork, e);
+            throw e;
+        }
+        template.getDependents().register(fork);
+        return fork;
+    }
+    
+    /**
+     * Closes fork which has not been initialized. Its singletons created 
+     * so far are closed, its name and MXBean are unregistered. Failure 
+     * of closing is suppressed by failure of initialization.
+     */
+    private void discard(ModulesContainer fork, Throwable initFailure) {
+        try {
+            fork.close();
+        } catch (ContainerCloseException e) {
+            initFailure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Creates metadata of every module resolved by template with the same
+     * constructor and priority but with own invoker, which measures module
+     * creations with metrics of fork.
+     */
+    private List<ModuleMetaData> copyMetaDatas(ModulesContainer fork) {
+        ContainerMetrics metrics = fork.getMetricsOrNull();
+        Collection<ModuleMetaData> templateDatas = template.getResolvedModules();
+        List<ModuleMetaData> metaDatas = new ArrayList<>(templateDatas.size());
+        for (ModuleMetaData templateData : templateDatas) {
+            Class moduleInterface = templateData.getModuleInterface();
+            Constructor buildCons = templateData.getConstructor();
+            ModuleInvoker invoker = templateData.getInvoker();
+            if ( invoker instanceof MeasuredModuleInvoker ) {
+                invoker = ((MeasuredModuleInvoker) invoker).getInvoker();
+            }
+            if ( metrics != null ) {
+                invoker = factory.buildMeasuredInvoker(
+                        buildCons,
+                        invoker,
+                        metrics.statsOf(moduleInterface, templateData.getType()));
+            }
+            ModuleMetaData metaData = factory.buildMetaData(
+                    moduleInterface, buildCons, invoker, templateData.getType());
+            metaData.setPriority(templateData.getPriority());
+            metaDatas.add(metaData);
+        }
+        return metaDatas;
+    }
+
+    /**
+     * Places singleton of template into fork.
+     */
+    private void share(String moduleInterfaceName, ModulesContainer fork) {
+        GemModuleDeclaration declaration =
+                template.getDeclaration(moduleInterfaceName);
+        if ( declaration == null ||
+                ! declaration.getModuleType().equals(GemModuleType.SINGLETON) ) {
+            throw new ModuleDeclarationException(
+                    "Module " + moduleInterfaceName + " is not singleton " +
+                    "declared in container " + template.getName() +
+                    ", it can not be shared.");
+        }
+        Class moduleInterface = template.resolveClass(moduleInterfaceName);
+        GemModule module = template.provideModule(moduleInterface);
+        fork.shareSingleton(moduleInterface, module);
+    }
+}
@@ -37,26 +37,6 @@ final class ContainerHelper {
     ContainerHelper() {
     }
     
-    /**
-     * Determines if given module has appropriate {link@ 
- com.drs.gem.injector.module.GemModuleBuilder GemModuleBuilder} class
- in its package. If it doesn't returns null.
-     * 
-     * @param moduleImplemName  module implementation class canonical name.
-     * @return                  Class of GemModuleBuilder or null if specified 
-                          module doesn't have one.
-     * @see                     com.drs.gem.injector.module.ModuleBuilder.
-     */
-    Class ifModuleHasBuilder(String moduleImplemName){
-        String moduleBuilderName = moduleImplemName + "Builder";
-        try {
-            Class builderClass = Class.forName(moduleBuilderName);
-            return builderClass;
-        } catch (ClassNotFoundException e){
-            return null;
-        }
-    }
-    
     /**
      * Checks if given class actually implements {link@ 
      * com.drs.gem.injector.module.GemModuleBuilder GemModuleBuilder} interface.
@@ -113,24 +93,6 @@ final class ContainerHelper {
         }
     }
     
-    /**
-     * Returns module class by its canonical name or throws an exception.
-     * 
-     * @param className module canonical class name.
-     * @return          module actual class.
-     */
-    Class getClassByName(String className){
-        Class classImpl;
-        try {
-            classImpl = Class.forName(className);
-            return classImpl;
-        } catch (ClassNotFoundException e){
-            throw new ModuleDeclarationException(
-                    "Invalid module declaration: class " +
-                    className + " does not exist.");
-        }
-    }
-    
     /**
      * <p>Searches correct constructor among all constructors in the class. If there
      * are more than one constructor in the class, one of them which will be 
@@ -0,0 +1,376 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * <p>Collects metrics of one {@link Container}. See description of 
+ * every metric in {@link ContainerMetricsMXBean}.</p>
+ * 
+ * <p>Metrics are recorded on module creation and module request paths,
+ * thus all counters are {@link LongAdder LongAdders} and every module 
+ * has its own {@link ModuleStats} object, which is resolved once when 
+ * module invoker is created. Recording never takes locks, so that it 
+ * does not serialize threads requesting modules concurrently.</p>
+ * 
+ * @author  Diarsid
+ * @see     Container#useMetrics()
+ */
+final class ContainerMetrics implements ContainerMetricsMXBean {
+    
+    private static final String DOMAIN = "com.drs.gem.injector";
+    private static final int HISTOGRAM_SIZE = 40;
+    
+    private final String containerName;
+    private final Map<String, Long> phases;
+    private final Map<Class, ModuleStats> modules;
+    private volatile long startNanos;
+    private volatile boolean registered;
+    
+    ContainerMetrics(String containerName) {
+        this.containerName = containerName;
+        this.phases = Collections.synchronizedMap(new LinkedHashMap<>());
+        this.modules = new ConcurrentHashMap<>();
+        this.startNanos = System.nanoTime();
+        this.registered = false;
+    }
+    
+    /**
+     * Records duration of {@link Container#init()} phase.
+     * 
+     * @param phase         phase name.
+     * @param phaseStart    {@link System#nanoTime()} value at phase start.
+     */
+    void phaseFinished(String phase, long phaseStart) {
+        phases.put(phase, System.nanoTime() - phaseStart);
+    }
+    
+    /**
+     * Returns statistics object of specified module, creates it if it 
+     * does not exist.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @param type              module type.
+     * @return                  statistics of module.
+     */
+    ModuleStats statsOf(Class moduleInterface, GemModuleType type) {
+        return modules.computeIfAbsent(
+                moduleInterface, module -> new ModuleStats(type));
+    }
+    
+    /**
+     * Returns average construction time of specified module objects.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @return                  average construction time or 0 if module
+     *                          has never been created.
+     */
+    long constructionNanosOf(Class moduleInterface) {
+        ModuleStats stats = modules.get(moduleInterface);
+        if ( stats == null ) {
+            return 0;
+        }
+        long creations = stats.creations.sum();
+        if ( creations == 0 ) {
+            return 0;
+        }
+        return stats.constructionNanos.sum() / creations;
+    }
+    
+    /**
+     * Records latency of {@link Container#getModule(Class) .getModule()} 
+     * invocation. Requests of modules unknown to container are ignored.
+     * 
+     * @param moduleInterface   requested module interface class object.
+     * @param nanos             invocation latency.
+     */
+    void requestFinished(Class moduleInterface, long nanos) {
+        ModuleStats stats = modules.get(moduleInterface);
+        if ( stats != null ) {
+            stats.requested(nanos);
+        }
+    }
+    
+    /**
+     * Marks container as initialized. Prototype creation rates are 
+     * calculated since this moment and MXBean is registered in platform 
+     * MBean server. If MXBean with the same name is registered already, 
+     * e.g. by container of the same name loaded by other class loader, 
+     * it is left as it is and these metrics are not registered. 
+     * Registration failure does not affect container, metrics are still 
+     * available via {@link Container#getMetrics()}.
+     */
+    void containerInitialized() {
+        startNanos = System.nanoTime();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = objectNameOf(containerName);
+            server.registerMBean(this, name);
+            registered = true;
+        } catch (JMException e) {
+            // metrics are only an observation tool.
+        }
+    }
+    
+    /**
+     * Removes MXBean of these metrics from platform MBean server if it 
+     * has been registered by {@link #containerInitialized()}. MXBean 
+     * registered under the same name by other metrics is not affected.
+     */
+    void unregister() {
+        if ( ! registered ) {
+            return;
+        }
+        registered = false;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectNameOf(containerName));
+        } catch (JMException e) {
+            // MXBean has been removed concurrently.
+        }
+    }
+    
+    private static ObjectName objectNameOf(String containerName) 
+            throws JMException {
+        return new ObjectName(
+                DOMAIN + ":type=Container,name=" + ObjectName.quote(containerName));
+    }
+    
+    @Override
+    public Map<String, Long> getPhaseNanos() {
+        synchronized ( phases ) {
+            return new LinkedHashMap<>(phases);
+        }
+    }
+    
+    @Override
+    public Map<String, Long> getModuleConstructionNanos() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<Class, ModuleStats> entry : modules.entrySet()) {
+            long creations = entry.getValue().creations.sum();
+            if ( creations > 0 ) {
+                result.put(
+                        nameOf(entry.getKey()), 
+                        entry.getValue().constructionNanos.sum() / creations);
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public Map<String, Long> getPrototypeCreations() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<Class, ModuleStats> entry : modules.entrySet()) {
+            if ( entry.getValue().isPrototype() ) {
+                result.put(
+                        nameOf(entry.getKey()), 
+                        entry.getValue().creations.sum());
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public Map<String, Double> getPrototypeCreationRates() {
+        double seconds = Math.max(1, System.nanoTime() - startNanos) / 1e9;
+        Map<String, Double> result = new TreeMap<>();
+        for (Map.Entry<Class, ModuleStats> entry : modules.entrySet()) {
+            if ( entry.getValue().isPrototype() ) {
+                result.put(
+                        nameOf(entry.getKey()), 
+                        entry.getValue().creations.sum() / seconds);
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public Map<String, Long> getPoolHits() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<Class, ModuleStats> entry : modules.entrySet()) {
+            if ( entry.getValue().isPooled() ) {
+                result.put(nameOf(entry.getKey()), entry.getValue().poolHits.sum());
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public Map<String, Long> getPoolMisses() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<Class, ModuleStats> entry : modules.entrySet()) {
+            if ( entry.getValue().isPooled() ) {
+                result.put(nameOf(entry.getKey()), entry.getValue().poolMisses.sum());
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public Map<String, Long> getPoolWaitNanos() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<Class, ModuleStats> entry : modules.entrySet()) {
+            ModuleStats stats = entry.getValue();
+            long checkouts = stats.poolHits.sum() + stats.poolMisses.sum();
+            if ( stats.isPooled() && checkouts > 0 ) {
+                result.put(nameOf(entry.getKey()), stats.poolWaitNanos.sum() / checkouts);
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public Map<String, long[]> getRequestLatencyHistograms() {
+        Map<String, long[]> result = new TreeMap<>();
+        for (Map.Entry<Class, ModuleStats> entry : modules.entrySet()) {
+            long[] histogram = entry.getValue().histogram();
+            if ( total(histogram) > 0 ) {
+                result.put(nameOf(entry.getKey()), histogram);
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public Map<String, Long> getRequestLatencyMedianNanos() {
+        return requestLatencyPercentile(0.5);
+    }
+    
+    @Override
+    public Map<String, Long> getRequestLatency99PercentileNanos() {
+        return requestLatencyPercentile(0.99);
+    }
+    
+    private Map<String, Long> requestLatencyPercentile(double percentile) {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<Class, ModuleStats> entry : modules.entrySet()) {
+            long[] histogram = entry.getValue().histogram();
+            long total = total(histogram);
+            if ( total == 0 ) {
+                continue;
+            }
+            long rank = (long) Math.ceil(total * percentile);
+            long counted = 0;
+            int bucket = 0;
+            while ( counted + histogram[bucket] < rank ) {
+                counted += histogram[bucket];
+                bucket++;
+            }
+            result.put(nameOf(entry.getKey()), 1L << (bucket + 1));
+        }
+        return result;
+    }
+    
+    private static long total(long[] histogram) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        return total;
+    }
+    
+    private static String nameOf(Class moduleInterface) {
+        return moduleInterface.getCanonicalName();
+    }
+    
+    /**
+     * Statistics of one module.
+     */
+    static final class ModuleStats {
+        
+        private final GemModuleType type;
+        private final LongAdder creations;
+        private final LongAdder constructionNanos;
+        private final LongAdder[] requestLatencies;
+        private final LongAdder poolHits;
+        private final LongAdder poolMisses;
+        private final LongAdder poolWaitNanos;
+        
+        private ModuleStats(GemModuleType type) {
+            this.type = type;
+            this.creations = new LongAdder();
+            this.constructionNanos = new LongAdder();
+            this.poolHits = new LongAdder();
+            this.poolMisses = new LongAdder();
+            this.poolWaitNanos = new LongAdder();
+            this.requestLatencies = new LongAdder[HISTOGRAM_SIZE];
+            for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+                this.requestLatencies[i] = new LongAdder();
+            }
+        }
+        
+        /**
+         * Records creation of one module object.
+         * 
+         * @param nanos time spent in module constructor.
+         */
+        void created(long nanos) {
+            creations.increment();
+            constructionNanos.add(nanos);
+        }
+        
+        /**
+         * Records checkout of pooled module object.
+         * 
+         * @param hit   true if idle object has been taken from pool, false 
+         *              if new object has been created.
+         * @param nanos checkout duration.
+         */
+        void checkedOut(boolean hit, long nanos) {
+            if ( hit ) {
+                poolHits.increment();
+            } else {
+                poolMisses.increment();
+            }
+            poolWaitNanos.add(nanos);
+        }
+        
+        private void requested(long nanos) {
+            int bucket = 63 - Long.numberOfLeadingZeros(Math.max(1, nanos));
+            requestLatencies[Math.min(bucket, HISTOGRAM_SIZE - 1)].increment();
+        }
+        
+        private boolean isPrototype() {
+            return type.equals(GemModuleType.PROTOTYPE);
+        }
+        
+        private boolean isPooled() {
+            return type.equals(GemModuleType.POOLED);
+        }
+        
+        private long[] histogram() {
+            long[] histogram = new long[HISTOGRAM_SIZE];
+            for (int i = 0; i < HISTOGRAM_SIZE; i++) {
+                histogram[i] = requestLatencies[i].sum();
+            }
+            return histogram;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.Map;
+
+/**
+ * <p>Interface represents metrics collected by {@link Container} when 
+ * they have been enabled by {@link Container#useMetrics()}. It is also 
+ * management interface of MXBean registered in platform MBean server 
+ * under name <b>com.drs.gem.injector:type=Container,name=&lt;container 
+ * name&gt;</b>, thus metrics can be observed with any JMX client.</p>
+ * 
+ * <p>In all returned maps key is canonical name of module interface or
+ * name of {@link Container#init()} phase. All times are in 
+ * nanoseconds. Returned maps are snapshots of metrics at the moment of 
+ * invocation.</p>
+ * 
+ * @author Diarsid
+ * @see Container#getMetrics()
+ */
+public interface ContainerMetricsMXBean {
+    
+    /**
+     * Returns duration of every {@link Container#init()} phase performed
+     * by container in order of their execution. Phases are 
+     * <b>parseModuleDeclarations</b>, <b>collectConstructors</b>, 
+     * <b>initializeModuleMetaDatas</b>, <b>rateModulesByInjectionPriority</b>, 
+     * <b>injectSingletons</b> and <b>compileInstantiationPlans</b>. If 
+     * graph has been restored from snapshot, the first four phases are 
+     * replaced by <b>restoreFromSnapshot</b>, if snapshot has been 
+     * rewritten, <b>writeSnapshot</b> phase follows them. In lazy mode 
+     * there are no phases.
+     * 
+     * @return  phase names and their durations.
+     */
+    Map<String, Long> getPhaseNanos();
+    
+    /**
+     * Returns average time spent in constructor of every module that has 
+     * been created at least once. Dependencies of module are created 
+     * before its constructor invocation, so that this time does not 
+     * include them. If module has builder, time includes builder creation 
+     * and {@link com.drs.gem.injector.module.GemModuleBuilder#buildModule() 
+     * .buildModule()} invocation.
+     * 
+     * @return  module names and average construction time of their objects.
+     */
+    Map<String, Long> getModuleConstructionNanos();
+    
+    /**
+     * Returns quantity of objects created for every prototype module, 
+     * including objects created as dependencies of other modules.
+     * 
+     * @return  prototype module names and quantities of their objects.
+     */
+    Map<String, Long> getPrototypeCreations();
+    
+    /**
+     * Returns average quantity of objects created per second for every 
+     * prototype module since container initialization. Short spikes are 
+     * better observed as growth of {@link #getPrototypeCreations()} 
+     * between two subsequent readings.
+     * 
+     * @return  prototype module names and their creation rates.
+     */
+    Map<String, Double> getPrototypeCreationRates();
+    
+    /**
+     * Returns quantity of checkouts of every 
+     * {@link GemModuleType#POOLED POOLED} module that have taken idle 
+     * object from pool.
+     * 
+     * @return  pooled module names and quantities of pool hits.
+     */
+    Map<String, Long> getPoolHits();
+    
+    /**
+     * Returns quantity of checkouts of every 
+     * {@link GemModuleType#POOLED POOLED} module that have found pool 
+     * empty and created new object.
+     * 
+     * @return  pooled module names and quantities of pool misses.
+     */
+    Map<String, Long> getPoolMisses();
+    
+    /**
+     * Returns average time which checkout of every 
+     * {@link GemModuleType#POOLED POOLED} module takes, including time of
+     * new object creation in case of pool miss.
+     * 
+     * @return  pooled module names and average checkout times.
+     */
+    Map<String, Long> getPoolWaitNanos();
+    
+    /**
+     * <p>Returns latency histogram of {@link Container#getModule(Class) 
+     * .getModule()} invocations for every module requested at least 
+     * once.</p>
+     * 
+     * <p>Element <b>i</b> of histogram array is quantity of invocations 
+     * lasted from 2<sup>i</sup> to 2<sup>i+1</sup> nanoseconds. The 
+     * first element includes also invocations lasted less than one 
+     * nanosecond, the last element includes all longer invocations.</p>
+     * 
+     * @return  module names and latency histograms of their requests.
+     */
+    Map<String, long[]> getRequestLatencyHistograms();
+    
+    /**
+     * Returns median latency of {@link Container#getModule(Class) 
+     * .getModule()} invocations for every module requested at least once,
+     * approximated by upper bound of appropriate histogram element.
+     * 
+     * @return  module names and median latencies of their requests.
+     * @see     #getRequestLatencyHistograms()
+     */
+    Map<String, Long> getRequestLatencyMedianNanos();
+    
+    /**
+     * Returns 99th percentile of {@link Container#getModule(Class) 
+     * .getModule()} invocations latency for every module requested at 
+     * least once, approximated by upper bound of appropriate histogram 
+     * element.
+     * 
+     * @return  module names and 99th percentiles of their requests latency.
+     * @see     #getRequestLatencyHistograms()
+     */
+    Map<String, Long> getRequestLatency99PercentileNanos();
+}
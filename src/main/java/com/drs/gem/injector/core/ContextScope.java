@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.drs.gem.injector.exceptions.ScopeNotActiveException;
+import com.drs.gem.injector.module.GemModule;
+import com.drs.gem.injector.module.GemModuleProvider;
+
+/**
+ * <p>{@link GemModuleScope} keeping module objects in contexts opened and 
+ * closed by application, for example one context per request.</p>
+ * 
+ * <p>Context is opened with {@link #open()} and becomes current context 
+ * of this scope in thread that has opened it. All scoped modules 
+ * requested in this thread are created once and kept in context until 
+ * it is closed. Context can be attached to other threads with 
+ * {@link #attach(Context) .attach()}, so that work of one request 
+ * executed in several threads shares the same objects.</p>
+ * 
+ * <pre>
+ * {@code 
+ * try (ContextScope.Context context = requestScope.open()) {
+ *     container.getModule(RequestModule.class).handle();
+ * }
+ * }
+ * </pre>
+ * 
+ * <p>Objects of context are created under its lock, so that every module 
+ * is created only once even if context is shared by several threads. 
+ * Objects are kept per provider, so that containers sharing this scope 
+ * never receive objects of each other.</p>
+ * 
+ * @author  Diarsid
+ * @see     Container#registerScope(String, GemModuleScope)
+ */
+public final class ContextScope implements GemModuleScope {
+    
+    private final String name;
+    private final ThreadLocal<Context> current;
+    
+    /**
+     * Creates new scope without any contexts.
+     * 
+     * @param name  name of scope used in error messages.
+     */
+    public ContextScope(String name) {
+        this.name = name;
+        this.current = new ThreadLocal<>();
+    }
+    
+    /**
+     * Opens new context and makes it current context of this scope in 
+     * current thread. Context that was current before is restored when 
+     * new context is closed.
+     * 
+     * @return  new context.
+     */
+    public Context open() {
+        Context context = new Context(this, current.get());
+        current.set(context);
+        return context;
+    }
+    
+    /**
+     * Makes specified context current context of this scope in current 
+     * thread.
+     * 
+     * @param context   open context of this scope.
+     * @throws          ScopeNotActiveException if context is closed.
+     * @throws          IllegalArgumentException if context belongs to 
+     *                  other scope.
+     */
+    public void attach(Context context) {
+        if ( context.scope != this ) {
+            throw new IllegalArgumentException(
+                    "Context does not belong to scope " + name + ".");
+        }
+        if ( context.isClosed() ) {
+            throw new ScopeNotActiveException(
+                    "Context of scope " + name + " is closed.");
+        }
+        current.set(context);
+    }
+    
+    /**
+     * Removes current context of this scope from current thread without 
+     * closing it.
+     */
+    public void detach() {
+        current.remove();
+    }
+    
+    /**
+     * Overrides abstract method in {@link GemModuleScope} interface. 
+     * See full method description in {@link GemModuleScope}.
+     * 
+     * @see GemModuleScope.
+     */
+    @Override
+    public <M extends GemModule> M get(
+            Class<M> moduleInterface, GemModuleProvider<M> provider) {
+        Context context = current.get();
+        if ( context == null ) {
+            throw new ScopeNotActiveException(
+                    "Scope " + name + " has no open context in current " + 
+                    "thread, " + moduleInterface.getCanonicalName() + 
+                    " can not be obtained.");
+        }
+        return context.get(moduleInterface, provider);
+    }
+    
+    /**
+     * Context of {@link ContextScope} keeping module objects until it is 
+     * closed.
+     */
+    public static final class Context implements AutoCloseable {
+        
+        private final ContextScope scope;
+        private final Context previous;
+        private final Map<GemModuleProvider, GemModule> modules;
+        private volatile boolean closed;
+        
+        private Context(ContextScope scope, Context previous) {
+            this.scope = scope;
+            this.previous = previous;
+            this.modules = new ConcurrentHashMap<>();
+            this.closed = false;
+        }
+        
+        private <M extends GemModule> M get(
+                Class<M> moduleInterface, GemModuleProvider<M> provider) {
+            GemModule module = modules.get(provider);
+            if ( module == null ) {
+                // creation of module can request other modules of the 
+                // same context, monitor is reentrant.
+                synchronized ( this ) {
+                    verifyNotClosed(moduleInterface);
+                    module = modules.get(provider);
+                    if ( module == null ) {
+                        module = provider.get();
+                        modules.put(provider, module);
+                    }
+                }
+            } else {
+                verifyNotClosed(moduleInterface);
+            }
+            return moduleInterface.cast(module);
+        }
+        
+        private void verifyNotClosed(Class moduleInterface) {
+            if ( closed ) {
+                throw new ScopeNotActiveException(
+                        "Context of scope " + scope.name + " is closed, " + 
+                        moduleInterface.getCanonicalName() + 
+                        " can not be obtained.");
+            }
+        }
+        
+        /**
+         * @return  true if context has been closed.
+         */
+        public boolean isClosed() {
+            return closed;
+        }
+        
+        /**
+         * Closes context and drops all module objects kept in it. If 
+         * context is current in this thread, context that was current 
+         * before its opening is restored.
+         */
+        @Override
+        public void close() {
+            synchronized ( this ) {
+                closed = true;
+                modules.clear();
+            }
+            if ( scope.current.get() == this ) {
+                if ( previous == null || previous.isClosed() ) {
+                    scope.current.remove();
+                } else {
+                    scope.current.set(previous);
+                }
+            }
+        }
+    }
+}
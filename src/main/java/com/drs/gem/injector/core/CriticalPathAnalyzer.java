@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>Class builds {@link StartupReport} from dependency graph of 
+ * container and construction times measured by {@link ContainerMetrics}.</p>
+ * 
+ * <p>Graph of singletons is analysed, because only singletons are 
+ * created during {@link Container#init()}. Prototypes injected into 
+ * singleton are created together with it, so that construction time 
+ * of singleton includes construction time of all prototypes created 
+ * for it at any depth. Singleton depends on singletons injected into it
+ * directly and on singletons injected into its prototype 
+ * dependencies, like in {@link ParallelSingletonsInitializer}.</p>
+ * 
+ * <p>Singletons are processed in order of their injection priority, 
+ * which is topological order of this graph. Earliest start of every 
+ * singleton is the latest finish of singletons it depends on. Maximal 
+ * finish is duration of initialization performed on unlimited quantity
+ * of threads, chain of singletons leading to it is critical path. 
+ * Latest start allowed for every singleton without delay of whole 
+ * initialization is calculated in reverse order, difference between 
+ * latest and earliest start is slack of singleton.</p>
+ * 
+ * @author  Diarsid
+ * @see     StartupReport
+ */
+final class CriticalPathAnalyzer {
+    
+    private final ModulesInfo info;
+    private final ContainerMetrics metrics;
+    private final Map<Class, Long> prototypeCosts;
+    
+    CriticalPathAnalyzer(ModulesInfo info, ContainerMetrics metrics) {
+        this.info = info;
+        this.metrics = metrics;
+        this.prototypeCosts = new HashMap<>();
+    }
+    
+    /**
+     * Analyses singletons of container.
+     * 
+     * @param injectionPriorities   all modules sorted by injection priority.
+     * @return                      startup report.
+     */
+    StartupReport analyze(List<ModuleMetaData> injectionPriorities) {
+        List<ModuleMetaData> singletons = new ArrayList<>();
+        Map<Class, Integer> indexes = new HashMap<>();
+        for (ModuleMetaData metaData : injectionPriorities) {
+            if ( metaData.getType().equals(GemModuleType.SINGLETON) ) {
+                indexes.put(metaData.getModuleInterface(), singletons.size());
+                singletons.add(metaData);
+            }
+        }
+        int qty = singletons.size();
+        String[] names = new String[qty];
+        long[] costs = new long[qty];
+        int[][] dependencies = new int[qty][];
+        for (int i = 0; i < qty; i++) {
+            ModuleMetaData singleton = singletons.get(i);
+            names[i] = singleton.getModuleInterface().getCanonicalName();
+            costs[i] = metrics.constructionNanosOf(singleton.getModuleInterface()) + 
+                    prototypesCostOf(singleton);
+            Set<Class> singletonDepcies = collectSingletonDependencies(singleton);
+            // singletons inherited from parent container are ready 
+            // before initialization of this container.
+            singletonDepcies.retainAll(indexes.keySet());
+            dependencies[i] = new int[singletonDepcies.size()];
+            int j = 0;
+            for (Class depcy : singletonDepcies) {
+                dependencies[i][j] = indexes.get(depcy);
+                j++;
+            }
+        }
+        
+        long[] earliestStarts = new long[qty];
+        int[] criticalDepcies = new int[qty];
+        int last = -1;
+        long criticalPathNanos = 0;
+        long sequentialNanos = 0;
+        for (int i = 0; i < qty; i++) {
+            criticalDepcies[i] = -1;
+            for (int depcy : dependencies[i]) {
+                long depcyFinish = earliestStarts[depcy] + costs[depcy];
+                if ( depcyFinish > earliestStarts[i] || criticalDepcies[i] < 0 ) {
+                    earliestStarts[i] = depcyFinish;
+                    criticalDepcies[i] = depcy;
+                }
+            }
+            long finish = earliestStarts[i] + costs[i];
+            if ( finish > criticalPathNanos || last < 0 ) {
+                criticalPathNanos = finish;
+                last = i;
+            }
+            sequentialNanos += costs[i];
+        }
+        
+        long[] latestFinishes = new long[qty];
+        for (int i = 0; i < qty; i++) {
+            latestFinishes[i] = criticalPathNanos;
+        }
+        long[] slacks = new long[qty];
+        for (int i = qty - 1; i >= 0; i--) {
+            long latestStart = latestFinishes[i] - costs[i];
+            slacks[i] = latestStart - earliestStarts[i];
+            for (int depcy : dependencies[i]) {
+                latestFinishes[depcy] = Math.min(latestFinishes[depcy], latestStart);
+            }
+        }
+        
+        Deque<Integer> criticalPath = new ArrayDeque<>();
+        for (int i = last; i >= 0; i = criticalDepcies[i]) {
+            criticalPath.push(i);
+        }
+        int[] path = new int[criticalPath.size()];
+        int step = 0;
+        for (int module : criticalPath) {
+            path[step] = module;
+            step++;
+        }
+        return new StartupReport(
+                names, costs, earliestStarts, slacks, dependencies, path, 
+                criticalPathNanos, sequentialNanos);
+    }
+    
+    /**
+     * Sums construction times of all prototypes created for module, 
+     * every prototype is counted as many times as it is created. 
+     * Prototypes injected as providers are not created with module.
+     */
+    private long prototypesCostOf(ModuleMetaData metaData) {
+        long cost = 0;
+        Class[] depcies = metaData.getDeclaredDependencies();
+        for (int i = 0; i < depcies.length; i++) {
+            if ( ! metaData.isProvidedDependency(i) && 
+                    ! info.isModuleSingleton(depcies[i]) ) {
+                cost += prototypeCostOf(depcies[i]);
+            }
+        }
+        return cost;
+    }
+    
+    private long prototypeCostOf(Class prototype) {
+        Long cost = prototypeCosts.get(prototype);
+        if ( cost == null ) {
+            cost = metrics.constructionNanosOf(prototype) + 
+                    prototypesCostOf(info.getMetaDataOfModule(prototype));
+            prototypeCosts.put(prototype, cost);
+        }
+        return cost;
+    }
+    
+    /**
+     * Walks through constructor parameters of singleton and all its
+     * prototype dependencies and collects all singletons met.
+     */
+    private Set<Class> collectSingletonDependencies(ModuleMetaData metaData) {
+        Set<Class> singletons = new HashSet<>();
+        Set<Class> visitedPrototypes = new HashSet<>();
+        Deque<ModuleMetaData> toVisit = new ArrayDeque<>();
+        toVisit.push(metaData);
+        while ( ! toVisit.isEmpty() ) {
+            ModuleMetaData current = toVisit.pop();
+            for (Class depcy : current.getDeclaredDependencies()) {
+                if ( info.isModuleSingleton(depcy) ) {
+                    singletons.add(depcy);
+                } else if ( visitedPrototypes.add(depcy) ) {
+                    toVisit.push(info.getMetaDataOfModule(depcy));
+                }
+            }
+        }
+        return singletons;
+    }
+}
@@ -51,6 +51,10 @@ import java.util.Set;
  }
  </code></pre>
  * 
+ * <p>Modules can also be declared with {@link DeclaredModule} annotations
+ * placed on Declaration implementation class. Such modules are processed
+ * together with modules returned from {@link #getDeclaredModules()}.</p>
+ * 
  * @author Diarsid
  */
 public interface Declaration {
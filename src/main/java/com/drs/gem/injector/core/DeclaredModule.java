@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Annotation declaring one module on {@link Declaration} implementation
+ * class. It is the annotation-based analogue of {@link GemModuleDeclaration}
+ * object, so that modules declared with it are processed by {@link 
+ * Container} together with those returned by {@link 
+ * Declaration#getDeclaredModules() .getDeclaredModules()}.</p>
+ * 
+ * <p>Besides, these annotations can be read during compilation by 
+ * gem-injector annotation processor, which generates class constructing 
+ * the whole declared modules graph with plain "new" invocations and 
+ * without any reflection at runtime. Such class can be generated only 
+ * for {@link GemModuleType#SINGLETON SINGLETON}, {@link 
+ * GemModuleType#PROTOTYPE PROTOTYPE} and {@link GemModuleType#THREAD 
+ * THREAD} modules. {@link GemModuleType#POOLED POOLED} and {@link 
+ * GemModuleType#SCOPED SCOPED} modules depend on pool and scope contexts 
+ * of container, thus processor reports compilation error for them.</p>
+ * 
+ * <pre><code>
+ * &#64;DeclaredModule(
+ *         module = SomeModule.class, 
+ *         implementation = SomeModuleWorker.class, 
+ *         type = GemModuleType.SINGLETON)
+ * class MyDeclaration implements Declaration {
+ *     ...
+ * }
+ * </code></pre>
+ * 
+ * @author  Diarsid
+ * @see     com.drs.gem.injector.core.Declaration
+ * @see     com.drs.gem.injector.core.DeclaredModules
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Repeatable(DeclaredModules.class)
+public @interface DeclaredModule {
+    
+    /**
+     * @return  module interface.
+     */
+    Class<? extends GemModule> module();
+    
+    /**
+     * @return  module interface implementation class.
+     */
+    Class<?> implementation();
+    
+    /**
+     * @return  module type.
+     */
+    GemModuleType type();
+    
+    /**
+     * @return  name of module scope, required if module type is 
+     *          {@link GemModuleType#SCOPED SCOPED}. It is ignored by 
+     *          annotation processor, which does not wire scoped 
+     *          modules.
+     */
+    String scope() default "";
+}
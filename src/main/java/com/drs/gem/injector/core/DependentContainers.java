@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.drs.gem.injector.exceptions.ContainerCloseException;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Child containers and forks created from one container.</p>
+ *
+ * <p>Dependent container can hold singletons of container it has been
+ * created from: child container inherits them and fork receives shared
+ * singletons. Therefore these singletons must not be replaced while
+ * dependent containers are open, and dependent containers are closed
+ * before container they have been created from. Closed containers are
+ * forgotten when new dependent container is registered.</p>
+ *
+ * @author  Diarsid
+ * @see     Container#fork(String, String...)
+ * @see     GemInjector#buildChildContainer(String, String)
+ */
+final class DependentContainers {
+
+    private final Set<ModulesContainer> containers;
+
+    DependentContainers() {
+        this.containers = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Remembers child container or fork.
+     *
+     * @param dependent child container or fork.
+     */
+    void register(ModulesContainer dependent) {
+        containers.removeIf(ModulesContainer::isClosed);
+        containers.add(dependent);
+    }
+
+    /**
+     * Returns dependent containers which are not closed yet, including
+     * containers dependent on them.
+     *
+     * @return  open dependent containers.
+     */
+    List<ModulesContainer> listOpen() {
+        List<ModulesContainer> open = new ArrayList<>();
+        for (ModulesContainer dependent : containers) {
+            if ( ! dependent.isClosed() ) {
+                open.add(dependent);
+                open.addAll(dependent.getDependents().listOpen());
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Returns open dependent container holding specified singleton.
+     *
+     * @param moduleInterface   singleton interface class object.
+     * @param singleton         singleton object.
+     * @return                  dependent container or null if singleton
+     *                          is not held by any open dependent container.
+     */
+    ModulesContainer findHolderOf(Class moduleInterface, GemModule singleton) {
+        for (ModulesContainer dependent : listOpen()) {
+            if ( dependent.getSingletons().get(moduleInterface) == singleton ) {
+                return dependent;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes all dependent containers. Every container is closed with the
+     * same timeout.
+     *
+     * @param timeout   maximum time to wait for singletons closing.
+     * @param unit      unit of timeout.
+     * @return          the first failure of containers closing with other
+     *                  failures suppressed, or null if all containers have
+     *                  been closed properly.
+     */
+    ContainerCloseException closeAll(long timeout, TimeUnit unit) {
+        ContainerCloseException failure = null;
+        for (ModulesContainer dependent : containers) {
+            try {
+                dependent.close(timeout, unit);
+            } catch (ContainerCloseException e) {
+                if ( failure == null ) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        containers.clear();
+        return failure;
+    }
+}
@@ -20,6 +20,8 @@ package com.drs.gem.injector.core;
 
 import java.lang.reflect.Constructor;
 
+import com.drs.gem.injector.module.GemModule;
+
 /**
  * Simple factory for instantiation new objects required in other classes.
  * 
@@ -63,6 +65,7 @@ final class Factory {
      * 
      * @param moduleInterface   canonical name of module interface.
      * @param cons              Constructor represent this module constructor.
+     * @param invoker           ModuleInvoker of this module constructor.
      * @param type              module type.
      * @return                  ModuleMetaData instance.
      * @see                     com.drs.gem.injector.core.ModuleMetaData
@@ -71,9 +74,10 @@ final class Factory {
     ModuleMetaData buildMetaData(
             Class moduleInterface,
             Constructor cons, 
+            ModuleInvoker invoker,
             GemModuleType type){
         
-        return new ModuleMetaData(moduleInterface, cons, type);
+        return new ModuleMetaData(moduleInterface, cons, invoker, type);
     }
     
     /**
@@ -90,6 +94,301 @@ final class Factory {
         return new InjectionPriorityCalculator(info);
     }
     
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.ModuleInvoker 
+     * ModuleInvoker} object calling specified constructor reflectively.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @param cons              accessible constructor of module or module builder.
+     * @return                  ModuleInvoker instance.
+     * @see                     com.drs.gem.injector.core.ModuleInvoker
+     */
+    ModuleInvoker buildInvoker(Class moduleInterface, Constructor cons){
+        return ModuleInvoker.reflective(moduleInterface, cons);
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.ModuleInvoker 
+     * ModuleInvoker} object calling specified constructor through method 
+     * handle appropriate for its parameters count.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @param cons              accessible constructor of module or module builder.
+     * @return                  ModuleInvoker instance.
+     * @see                     com.drs.gem.injector.core.ModuleInvoker
+     */
+    ModuleInvoker buildMethodHandleInvoker(Class moduleInterface, Constructor cons){
+        return ModuleInvoker.of(moduleInterface, cons);
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.GeneratedModuleInvoker 
+     * GeneratedModuleInvoker} object for specified constructor if it is 
+     * possible to generate factory for it. Otherwise returns ordinary 
+     * {@link com.drs.gem.injector.core.ModuleInvoker ModuleInvoker}.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @param cons              accessible constructor of module or module builder.
+     * @return                  ModuleInvoker instance.
+     * @see                     com.drs.gem.injector.core.GeneratedModuleInvoker
+     */
+    ModuleInvoker buildGeneratedInvoker(Class moduleInterface, Constructor cons){
+        ModuleInvoker invoker = GeneratedModuleInvoker.tryGenerate(moduleInterface, cons);
+        if ( invoker == null ) {
+            return ModuleInvoker.reflective(moduleInterface, cons);
+        } else {
+            return invoker;
+        }
+    }
+    
+    /**
+     * Factory method returns new
+     * {@link com.drs.gem.injector.core.InstantiationPlanCompiler
+     * InstantiationPlanCompiler} object.
+     *
+     * @param info  ModulesInfo interface used to obtain info about modules.
+     * @return      new InstantiationPlanCompiler object.
+     * @see         com.drs.gem.injector.core.InstantiationPlan
+     * @see         com.drs.gem.injector.core.ModulesInfo
+     */
+    InstantiationPlanCompiler buildPlanCompiler(ModulesInfo info){
+        return new InstantiationPlanCompiler(info);
+    }
+    
+    /**
+     * Factory method returns new
+     * {@link com.drs.gem.injector.core.ParallelSingletonsInitializer
+     * ParallelSingletonsInitializer} object.
+     *
+     * @param info      ModulesInfo interface used to obtain info about modules.
+     * @param compiler  compiler of singletons instantiation plans.
+     * @return          new ParallelSingletonsInitializer object.
+     * @see             com.drs.gem.injector.core.ParallelSingletonsInitializer
+     */
+    ParallelSingletonsInitializer buildParallelInitializer(
+            ModulesInfo info, InstantiationPlanCompiler compiler){
+        return new ParallelSingletonsInitializer(info, compiler, buildDisposer(info));
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.ParallelSingletonsDisposer
+     * ParallelSingletonsDisposer} object.
+     *
+     * @param info  {@link ModulesInfo} implementation.
+     * @return      new ParallelSingletonsDisposer object.
+     * @see         com.drs.gem.injector.core.Container#close(long, java.util.concurrent.TimeUnit)
+     */
+    ParallelSingletonsDisposer buildDisposer(ModulesInfo info){
+        return new ParallelSingletonsDisposer(info);
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.ThreadModuleSource
+     * ThreadModuleSource} object.
+     *
+     * @param plan  instantiation plan of thread module.
+     * @return      new ThreadModuleSource object.
+     * @see         com.drs.gem.injector.core.ModuleSource
+     */
+    ThreadModuleSource buildThreadSource(InstantiationPlan plan){
+        return new ThreadModuleSource(plan);
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.PooledModuleSource
+     * PooledModuleSource} object with filled pool.
+     *
+     * @param plan      instantiation plan of pooled module.
+     * @param capacity  maximal quantity of idle objects in pool.
+     * @param stats     statistics of module or null if metrics are not collected.
+     * @return          new PooledModuleSource object.
+     * @see             com.drs.gem.injector.core.ModuleSource
+     */
+    PooledModuleSource buildPooledSource(
+            InstantiationPlan plan, int capacity, ContainerMetrics.ModuleStats stats){
+        return new PooledModuleSource(plan, capacity, stats);
+    }
+    
+    /**
+     * Factory method returns new proxy of lazy singleton handled by 
+     * {@link com.drs.gem.injector.core.LazySingletonHandler 
+     * LazySingletonHandler}.
+     *
+     * @param metaData  singleton module.
+     * @param compiler  compiler of singleton instantiation plan.
+     * @return          new proxy implementing module interface.
+     * @see             com.drs.gem.injector.core.Container#useLazyProxy(String)
+     */
+    GemModule buildLazyProxy(
+            ModuleMetaData metaData, InstantiationPlanCompiler compiler){
+        return LazySingletonHandler.newProxy(metaData, compiler);
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.ModuleProvider
+     * ModuleProvider} object.
+     *
+     * @param moduleInterface   class object of provided module interface.
+     * @param container         container obtaining module objects.
+     * @return                  new ModuleProvider object.
+     * @see                     com.drs.gem.injector.module.GemModuleProvider
+     */
+    ModuleProvider buildProvider(
+            Class moduleInterface, ModulesContainer container){
+        return new ModuleProvider(moduleInterface, container);
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.ModulesContainer
+     * ModulesContainer} object forked from initialized container.
+     *
+     * @param template  initialized container.
+     * @param name      name of fork.
+     * @return          new ModulesContainer object which is not initialized.
+     * @see             com.drs.gem.injector.core.Container#fork(String, String...)
+     */
+    ModulesContainer buildFork(ModulesContainer template, String name){
+        return new ModulesContainer(template, name);
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.ContainerForker
+     * ContainerForker} object.
+     *
+     * @param template  initialized container.
+     * @return          new ContainerForker object.
+     * @see             com.drs.gem.injector.core.Container#fork(String, String...)
+     */
+    ContainerForker buildForker(ModulesContainer template){
+        return new ContainerForker(template, this);
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.ModuleRedeclarator
+     * ModuleRedeclarator} object.
+     *
+     * @param container initialized container.
+     * @return          new ModuleRedeclarator object.
+     * @see             com.drs.gem.injector.core.Container#redeclareModule(String, String)
+     */
+    ModuleRedeclarator buildRedeclarator(ModulesContainer container){
+        return new ModuleRedeclarator(container, this);
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.SnapshotRestorer
+     * SnapshotRestorer} object.
+     *
+     * @param container container which graph is restored or written.
+     * @return          new SnapshotRestorer object.
+     * @see             com.drs.gem.injector.core.Container#useSnapshot(String)
+     */
+    SnapshotRestorer buildSnapshotRestorer(ModulesContainer container){
+        return new SnapshotRestorer(container, this);
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.LazyModuleResolver
+     * LazyModuleResolver} object.
+     *
+     * @param container container which modules are resolved on demand.
+     * @return          new LazyModuleResolver object.
+     * @see             com.drs.gem.injector.core.Container#useLazyInit()
+     */
+    LazyModuleResolver buildLazyResolver(ModulesContainer container){
+        return new LazyModuleResolver(container, this);
+    }
+    
+    /**
+     * Factory method returns new empty {@link com.drs.gem.injector.core.ModuleSources
+     * ModuleSources} object.
+     *
+     * @param container container which module sources are kept.
+     * @return          new ModuleSources object.
+     * @see             com.drs.gem.injector.core.ModuleSource
+     */
+    ModuleSources buildModuleSources(ModulesContainer container){
+        return new ModuleSources(container, this);
+    }
+    
+    /**
+     * Factory method returns new empty {@link com.drs.gem.injector.core.ParentSingletons
+     * ParentSingletons} object.
+     *
+     * @param container child container.
+     * @param parent    initialized parent container or null.
+     * @return          new ParentSingletons object.
+     * @see             com.drs.gem.injector.core.GemInjector#buildChildContainer(String, String)
+     */
+    ParentSingletons buildParentSingletons(ModulesContainer container, ModulesContainer parent){
+        return new ParentSingletons(container, parent);
+    }
+    
+    /**
+     * Factory method returns new empty {@link com.drs.gem.injector.core.DependentContainers
+     * DependentContainers} object.
+     *
+     * @return  new DependentContainers object.
+     */
+    DependentContainers buildDependents(){
+        return new DependentContainers();
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.ScopedModuleSource
+     * ScopedModuleSource} object.
+     *
+     * @param moduleInterface   class object of scoped module interface.
+     * @param scope             scope of module.
+     * @param plan              instantiation plan of scoped module.
+     * @return                  new ScopedModuleSource object.
+     * @see                     com.drs.gem.injector.core.ModuleSource
+     */
+    ScopedModuleSource buildScopedSource(
+            Class moduleInterface, GemModuleScope scope, InstantiationPlan plan){
+        return new ScopedModuleSource(moduleInterface, scope, plan);
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.ContainerMetrics
+     * ContainerMetrics} object.
+     *
+     * @param containerName name of container which metrics are collected.
+     * @return              new ContainerMetrics object.
+     * @see                 com.drs.gem.injector.core.ContainerMetricsMXBean
+     */
+    ContainerMetrics buildMetrics(String containerName){
+        return new ContainerMetrics(containerName);
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.CriticalPathAnalyzer
+     * CriticalPathAnalyzer} object.
+     *
+     * @param info      ModulesInfo interface used to obtain info about modules.
+     * @param metrics   metrics containing measured construction times.
+     * @return          new CriticalPathAnalyzer object.
+     * @see             com.drs.gem.injector.core.StartupReport
+     */
+    CriticalPathAnalyzer buildCriticalPathAnalyzer(ModulesInfo info, ContainerMetrics metrics){
+        return new CriticalPathAnalyzer(info, metrics);
+    }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.MeasuredModuleInvoker
+     * MeasuredModuleInvoker} object wrapping specified invoker.
+     *
+     * @param cons      accessible constructor of module or module builder.
+     * @param invoker   invoker performing module creation.
+     * @param stats     statistics of module where creation time is recorded.
+     * @return          ModuleInvoker instance.
+     * @see             com.drs.gem.injector.core.ContainerMetrics
+     */
+    ModuleInvoker buildMeasuredInvoker(
+            Constructor cons, ModuleInvoker invoker, ContainerMetrics.ModuleStats stats){
+        return new MeasuredModuleInvoker(cons, invoker, stats);
+    }
+    
     /**
      * Factory method returns {@link com.drs.gem.injector.core.ContainerHelper
      * ModuleVerifier} object.
@@ -99,4 +398,15 @@ final class Factory {
     ContainerHelper buildHelper(){
         return new ContainerHelper();
     }
+    
+    /**
+     * Factory method returns new {@link com.drs.gem.injector.core.ClassResolver
+     * ClassResolver} object.
+     *
+     * @param loader    class loader of module classes.
+     * @return          new ClassResolver object.
+     */
+    ClassResolver buildClassResolver(ClassLoader loader){
+        return new ClassResolver(loader);
+    }
 }
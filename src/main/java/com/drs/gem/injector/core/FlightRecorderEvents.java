@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Emits Java Flight Recorder events describing container 
+ * initialization and module construction, so that they can be 
+ * correlated with GC, lock and allocation events of the same 
+ * recording. See {@code ModuleConstructionEvent}, 
+ * {@code ContainerInitEvent} and {@code ContainerInitPhaseEvent}.</p>
+ * 
+ * <p>Flight Recorder API is not present in Java 8, therefore event 
+ * classes and {@code FlightRecorderSupport} referring to them are 
+ * compiled separately from {@code src/main/jfr} and this class does not 
+ * refer to them directly. Support is loaded once, when this class is 
+ * loaded, through {@link Recorder} interface. If API or support classes 
+ * are absent, module is created without any additional work.</p>
+ * 
+ * <p>Creation of the first event object initializes Flight Recorder, 
+ * which takes hundreds of milliseconds. Thus events are not created 
+ * until Flight Recorder is initialized by somebody else, e.g. by 
+ * {@code -XX:StartFlightRecording} option or {@code jcmd JFR.start} 
+ * command, or until events are explicitly enabled with 
+ * {@code -Dgem.injector.jfr=true} system property. Flight Recorder state
+ * is checked at the beginning of every {@link Container#init()}, so that
+ * recording started later is noticed by the next initialized container.
+ * Until then module creation costs one volatile read.</p>
+ * 
+ * @author  Diarsid
+ * @see     ModuleInvoker
+ */
+final class FlightRecorderEvents {
+    
+    /**
+     * System property which enables events creation even if Flight 
+     * Recorder has not been initialized yet.
+     */
+    static final String ENABLED_PROPERTY = "gem.injector.jfr";
+    
+    private static final String SUPPORT_CLASS = 
+            "com.drs.gem.injector.core.FlightRecorderSupport";
+    
+    private static final InitRecording NO_RECORDING = new InitRecording() {
+        
+        @Override
+        public void phaseFinished(String phase) {
+        }
+
+        @Override
+        public void initFinished(int modulesQty, boolean lazy) {
+        }
+    };
+    
+    private static final Recorder RECORDER = loadRecorder();
+    
+    private static volatile boolean recording = 
+            RECORDER != null && Boolean.getBoolean(ENABLED_PROPERTY);
+    
+    private FlightRecorderEvents() {
+    }
+    
+    private static Recorder loadRecorder() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            return (Recorder) Class.forName(SUPPORT_CLASS)
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Flight Recorder API is absent or support classes have not 
+            // been compiled, events are not emitted at all.
+            return null;
+        }
+    }
+    
+    /**
+     * Creates new module object with specified invoker and records 
+     * {@code ModuleConstructionEvent} if it is enabled.
+     * 
+     * @param invoker   invoker of module constructor.
+     * @param args      dependencies of module.
+     * @return          module object.
+     */
+    static GemModule newModule(ModuleInvoker invoker, GemModule[] args) {
+        if ( recording ) {
+            return RECORDER.newModule(invoker, args);
+        } else {
+            return invoker.newModule(args);
+        }
+    }
+    
+    /**
+     * Starts recording of {@link Container#init()} invocation. If Flight 
+     * Recorder has been initialized since previous invocation, events 
+     * are created from now on.
+     * 
+     * @param containerName name of container being initialized.
+     * @return              recording of initialization, the first phase 
+     *                      is started as well.
+     */
+    static InitRecording beginInit(String containerName) {
+        if ( ! recording && RECORDER != null && RECORDER.isInitialized() ) {
+            recording = true;
+        }
+        if ( recording ) {
+            return RECORDER.beginInit(containerName);
+        } else {
+            return NO_RECORDING;
+        }
+    }
+    
+    /**
+     * Recording of one {@link Container#init()} invocation. Phases of 
+     * initialization follow each other, so that every phase starts when 
+     * previous one is finished.
+     */
+    interface InitRecording {
+        
+        /**
+         * Records {@code ContainerInitPhaseEvent} of finished phase and 
+         * starts the next phase.
+         * 
+         * @param phase name of finished phase.
+         */
+        void phaseFinished(String phase);
+        
+        /**
+         * Records {@code ContainerInitEvent}.
+         * 
+         * @param modulesQty    quantity of modules declared in container.
+         * @param lazy          true if container resolves modules on demand.
+         */
+        void initFinished(int modulesQty, boolean lazy);
+    }
+    
+    /**
+     * Part of {@link FlightRecorderEvents} referring to Flight Recorder 
+     * API. It is implemented by {@code FlightRecorderSupport} which is 
+     * compiled only by JDK having this API.
+     */
+    interface Recorder {
+        
+        /**
+         * Checks whether Flight Recorder has been initialized. This check 
+         * does not initialize it.
+         * 
+         * @return  true if Flight Recorder has been initialized.
+         */
+        boolean isInitialized();
+        
+        /**
+         * Creates new module object and records its construction.
+         * 
+         * @param invoker   invoker of module constructor.
+         * @param args      dependencies of module.
+         * @return          module object.
+         */
+        GemModule newModule(ModuleInvoker invoker, GemModule[] args);
+        
+        /**
+         * Starts recording of {@link Container#init()} invocation.
+         * 
+         * @param containerName name of container being initialized.
+         * @return              recording of initialization.
+         */
+        InitRecording beginInit(String containerName);
+    }
+}
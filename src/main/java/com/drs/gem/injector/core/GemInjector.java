@@ -18,9 +18,11 @@
 
 package com.drs.gem.injector.core;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.drs.gem.injector.exceptions.ContainerInitializationException;
 import com.drs.gem.injector.exceptions.NoSuchContainerException;
@@ -35,7 +37,7 @@ import com.drs.gem.injector.exceptions.NoSuchContainerException;
  */
 public final class GemInjector {
     
-    private final static Map<String, Container> containers = new HashMap<>();
+    private final static Map<String, Container> containers = new ConcurrentHashMap<>();
     
     private GemInjector() {}
     
@@ -51,14 +53,9 @@ public final class GemInjector {
      * @return      new {@link Container} instance.
      */
     public static Container buildContainer(String name) {
-        if (containers.containsKey(name)) {
-            throw new ContainerInitializationException(
-                    "Container with name '" + 
-                    name + "' already exists.");
-        } 
         Factory factory = new Factory();
-        Container container = new ModulesContainer(factory);
-        containers.put(name, container);
+        Container container = new ModulesContainer(factory, name, null);
+        registerContainer(name, container);
         return container;
     }
     
@@ -77,14 +74,82 @@ public final class GemInjector {
      * @see                 Declaration
      */
     public static Container buildContainer(String name, Declaration... declarations) {
-        if (containers.containsKey(name)) {
+        Factory factory = new Factory();
+        Container container = new ModulesContainer(factory, name, null, declarations);
+        registerContainer(name, container);
+        return container;
+    }
+    
+    /**
+     * <p>Returns a new child {@link Container} instance of initialized 
+     * parent container. Child container declares only its own modules. 
+     * Singletons of parent container which are required by modules of 
+     * child container but are not declared in it are shared with child 
+     * container as they are, without any resolving or instantiation. 
+     * Modules which are not declared in child container are obtained 
+     * from parent container.</p>
+     * 
+     * <p>Module declared in child container overrides module of parent 
+     * container for modules of child container only, modules of parent 
+     * container are not affected.</p>
+     * 
+     * @param name          name of this new {@link Container}.
+     * @param parentName    name of initialized parent {@link Container}.
+     * @return              new {@link Container} instance.
+     */
+    public static Container buildChildContainer(String name, String parentName) {
+        Factory factory = new Factory();
+        Container container = new ModulesContainer(
+                factory, name, getInitializedContainer(parentName));
+        registerContainer(name, container);
+        return container;
+    }
+    
+    /**
+     * <p>Returns a new child {@link Container} instance of initialized 
+     * parent container. Accepts array of {@link Declaration Declarations} 
+     * as info about modules declared in child container.</p>
+     * 
+     * <p>Read more about child containers in {@link 
+     * #buildChildContainer(String, String) .buildChildContainer()}.</p>
+     * 
+     * @param name          name of this new {@link Container}.
+     * @param parentName    name of initialized parent {@link Container}.
+     * @param declarations  array of module {@link Declaration declarations}.
+     * @return              new {@link Container} instance.
+     * @see                 Declaration
+     */
+    public static Container buildChildContainer(
+            String name, String parentName, Declaration... declarations) {
+        Factory factory = new Factory();
+        Container container = new ModulesContainer(
+                factory, name, getInitializedContainer(parentName), declarations);
+        registerContainer(name, container);
+        return container;
+    }
+    
+    /**
+     * Stores new container under its name.
+     * 
+     * @param name      name of container.
+     * @param container new container.
+     * @throws ContainerInitializationException if container with this 
+     *                                          name already exists.
+     */
+    static void registerContainer(String name, Container container) {
+        if (containers.putIfAbsent(name, container) != null) {
             throw new ContainerInitializationException(
                     "Container with name '" + 
                     name + "' already exists.");
         }
-        Factory factory = new Factory();
-        Container container = new ModulesContainer(factory, declarations);
-        containers.put(name, container);
+    }
+    
+    private static ModulesContainer getInitializedContainer(String name) {
+        ModulesContainer container = (ModulesContainer) getContainer(name);
+        if ( ! container.isInitialized() ) {
+            throw new ContainerInitializationException(
+                    "Parent container '" + name + "' is not initialized.");
+        }
         return container;
     }
     
@@ -108,21 +173,66 @@ public final class GemInjector {
     }
     
     /**
-     * Removes specified {@link Container} instance.
+     * Removes specified {@link Container} instance and closes it with 
+     * {@link Container#close() Container.close()}. Child containers and 
+     * forks created from this container, which are not closed yet, are 
+     * removed as well because they are closed together with it.
      * 
      * @param name  name of {@link Container container} that should be removed.
      * @return      true if {@link Container container} with this name 
      *              was removed, false otherwise.
+     * @throws      com.drs.gem.injector.exceptions.ContainerCloseException
+     *              if container has not been closed properly. Container 
+     *              is removed in this case as well.
      */
     public static boolean removeContainer(String name) {
-        return (containers.remove(name) != null);
+        Container container = containers.remove(name);
+        if ( container != null ) {
+            container.close();
+            return true;
+        } else {
+            return false;
+        }
     }
     
     /**
-     * Deletes all existed {@link Container containers}.
+     * Removes container closed by {@link Container#close(long, 
+     * java.util.concurrent.TimeUnit) Container.close()} if it is stored 
+     * under specified name.
+     * 
+     * @param name      name of container.
+     * @param container closed container.
+     */
+    static void unregisterContainer(String name, Container container) {
+        containers.remove(name, container);
+    }
+    
+    /**
+     * Deletes and closes all existed {@link Container containers}. Child 
+     * containers and forks are closed before containers they have been 
+     * created from. If some containers have not been closed properly, the 
+     * first failure is thrown after all containers have been removed, 
+     * other failures are suppressed.
      */
     public static void clear() {
-        containers.clear();
+        // dependent containers are removed and closed together with 
+        // containers they have been created from.
+        List<String> names = new ArrayList<>(containers.keySet());
+        RuntimeException failure = null;
+        for (String name : names) {
+            try {
+                removeContainer(name);
+            } catch (RuntimeException e) {
+                if ( failure == null ) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if ( failure != null ) {
+            throw failure;
+        }
     }
     
     /**
@@ -20,6 +20,9 @@ package com.drs.gem.injector.core;
 
 import java.util.Objects;
 
+import com.drs.gem.injector.module.GemModule;
+import com.drs.gem.injector.module.GemModuleBuilder;
+
 /**
  * <p>Object of ModuleDeclaraion class represents declaration of one module.
  * </p>
@@ -35,6 +38,32 @@ import java.util.Objects;
  }
  * </pre>
  * 
+ * <p>Module of type {@link GemModuleType#SCOPED SCOPED} is declared with 
+ * name of its {@link GemModuleScope}:</p>
+ * 
+ * <pre>
+ * {@code 
+ * new GemModuleDeclaration( 
+         "my.app.modules.RequestModule",
+         "my.app.some.package.with.moduleimplem.RequestModuleWorker",
+         "request");
+ }
+ * </pre>
+ * 
+ * <p>Module can also be declared with class objects, in this case classes
+ * are not searched by their names and builder of module, if any, can be 
+ * specified explicitly instead of being searched by naming convention:</p>
+ * 
+ * <pre>
+ * {@code 
+ * new GemModuleDeclaration( 
+         SomeModule.class,
+         SomeModuleWorker.class,
+         SomeModuleWorkerBuilder.class,
+         GemModuleType.SINGLETON);
+ }
+ * </pre>
+ * 
  * @author  Diarsid
  * @see     com.drs.gem.injector.core.Declaration
  * @see     com.drs.gem.injector.core.Container
@@ -44,6 +73,10 @@ public final class GemModuleDeclaration {
     private final String moduleInterfaceName;
     private final String moduleBuildClassName;
     private final GemModuleType moduleType;
+    private final String scopeName;
+    private final Class moduleInterface;
+    private final Class moduleBuildClass;
+    private final Class moduleBuilder;
 
     /**
      * <p>ModuleDeclaration constructor.</p>
@@ -64,6 +97,103 @@ public final class GemModuleDeclaration {
         this.moduleInterfaceName = moduleName;
         this.moduleBuildClassName = moduleBuildClass;
         this.moduleType = type;
+        this.scopeName = null;
+        this.moduleInterface = null;
+        this.moduleBuildClass = null;
+        this.moduleBuilder = null;
+    }
+    
+    /**
+     * <p>ModuleDeclaration constructor of module having type 
+     * {@link GemModuleType#SCOPED SCOPED}.</p>
+     * <p>Accepts {@link String} parameter representing the canonical 
+     * name of module interface, {@link String} parameter representing 
+     * the canonical name of module interface implementation class and 
+     * {@link String} parameter representing name of {@link GemModuleScope}
+     * registered in container.</p>
+     * 
+     * @param moduleName        canonical name of module interface.
+     * @param moduleBuildClass  canonical name of module interface 
+     *                          implementation class.
+     * @param scopeName         name of module scope.
+     * @see Container#registerScope(String, GemModuleScope)
+     */
+    public GemModuleDeclaration(String moduleName, String moduleBuildClass, String scopeName) {
+        this.moduleInterfaceName = moduleName;
+        this.moduleBuildClassName = moduleBuildClass;
+        this.moduleType = GemModuleType.SCOPED;
+        this.scopeName = scopeName;
+        this.moduleInterface = null;
+        this.moduleBuildClass = null;
+        this.moduleBuilder = null;
+    }
+    
+    /**
+     * <p>ModuleDeclaration constructor accepting class objects of module 
+     * interface and its implementation. Builder of module is searched 
+     * by naming convention.</p>
+     * 
+     * @param module            module interface.
+     * @param implementation    module interface implementation class.
+     * @param type              module type.
+     * @see com.drs.gem.injector.module.GemModuleBuilder
+     */
+    public GemModuleDeclaration(
+            Class<? extends GemModule> module, 
+            Class<?> implementation, 
+            GemModuleType type) {
+        this(module, implementation, null, type, null);
+    }
+    
+    /**
+     * <p>ModuleDeclaration constructor accepting class objects of module 
+     * interface, its implementation and its builder.</p>
+     * 
+     * @param module            module interface.
+     * @param implementation    module interface implementation class.
+     * @param builder           builder of module.
+     * @param type              module type.
+     * @see com.drs.gem.injector.module.GemModuleBuilder
+     */
+    public GemModuleDeclaration(
+            Class<? extends GemModule> module, 
+            Class<?> implementation, 
+            Class<? extends GemModuleBuilder> builder,
+            GemModuleType type) {
+        this(module, implementation, builder, type, null);
+    }
+    
+    /**
+     * <p>ModuleDeclaration constructor of module having type 
+     * {@link GemModuleType#SCOPED SCOPED}, accepting class objects of module 
+     * interface and its implementation. Builder of module is searched 
+     * by naming convention.</p>
+     * 
+     * @param module            module interface.
+     * @param implementation    module interface implementation class.
+     * @param scopeName         name of module scope.
+     * @see Container#registerScope(String, GemModuleScope)
+     */
+    public GemModuleDeclaration(
+            Class<? extends GemModule> module, 
+            Class<?> implementation, 
+            String scopeName) {
+        this(module, implementation, null, GemModuleType.SCOPED, scopeName);
+    }
+    
+    private GemModuleDeclaration(
+            Class module, 
+            Class implementation, 
+            Class builder, 
+            GemModuleType type, 
+            String scopeName) {
+        this.moduleInterfaceName = module.getName();
+        this.moduleBuildClassName = implementation.getName();
+        this.moduleType = type;
+        this.scopeName = scopeName;
+        this.moduleInterface = module;
+        this.moduleBuildClass = implementation;
+        this.moduleBuilder = builder;
     }
 
     public String getModuleInterfaceName() {
@@ -78,12 +208,45 @@ public final class GemModuleDeclaration {
         return moduleType;
     }
 
+    /**
+     * @return  module interface or null if module has been declared by 
+     *          class names.
+     */
+    public Class getModuleInterface() {
+        return moduleInterface;
+    }
+
+    /**
+     * @return  module implementation class or null if module has been 
+     *          declared by class names.
+     */
+    public Class getModuleBuildClass() {
+        return moduleBuildClass;
+    }
+
+    /**
+     * @return  explicitly declared builder of module or null if builder 
+     *          should be searched by naming convention.
+     */
+    public Class getModuleBuilder() {
+        return moduleBuilder;
+    }
+
+    /**
+     * @return  name of module scope or null if module is not scoped.
+     */
+    public String getScopeName() {
+        return scopeName;
+    }
+
     @Override
     public int hashCode() {
         int hash = 3;
         hash = 89 * hash + Objects.hashCode(this.moduleInterfaceName);
         hash = 89 * hash + Objects.hashCode(this.moduleBuildClassName);
         hash = 89 * hash + Objects.hashCode(this.moduleType);
+        hash = 89 * hash + Objects.hashCode(this.scopeName);
+        hash = 89 * hash + Objects.hashCode(this.moduleBuilder);
         return hash;
     }
 
@@ -105,6 +268,12 @@ public final class GemModuleDeclaration {
         if (this.moduleType != other.moduleType) {
             return false;
         }
+        if (!Objects.equals(this.scopeName, other.scopeName)) {
+            return false;
+        }
+        if (!Objects.equals(this.moduleBuilder, other.moduleBuilder)) {
+            return false;
+        }
         return true;
     }
 }
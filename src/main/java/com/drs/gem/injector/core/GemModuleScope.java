@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import com.drs.gem.injector.module.GemModule;
+import com.drs.gem.injector.module.GemModuleProvider;
+
+/**
+ * <p>Scope of {@link GemModuleType#SCOPED SCOPED} modules. Scope defines 
+ * lifetime of module objects, such as request, session or tenant: it 
+ * keeps objects in its current context and decides which context is 
+ * current.</p>
+ * 
+ * <p>Scope is registered in container under its name with {@link 
+ * Container#registerScope(String, GemModuleScope) 
+ * Container.registerScope()}, module is placed into scope by 
+ * {@link GemModuleDeclaration} naming this scope. Every request of scoped 
+ * module, including its injection into prototypes and other scoped 
+ * modules, is delegated to scope. If current context has no object of 
+ * module yet, scope creates it with given provider and keeps it in 
+ * context.</p>
+ * 
+ * <p>One scope can serve several containers, e.g. container and its 
+ * forks, which declare the same module interface but must not share its
+ * objects. Every container passes its own provider of module, thus 
+ * scope must keep objects of current context per provider rather than 
+ * per module interface.</p>
+ * 
+ * <p>Scope is invoked from every thread requesting scoped modules, thus 
+ * its implementation must be thread safe. {@link ContextScope} is ready 
+ * implementation keeping contexts opened and closed by application.</p>
+ * 
+ * @author  Diarsid
+ * @see     ContextScope
+ */
+public interface GemModuleScope {
+    
+    /**
+     * Returns object created by specified provider and kept in current 
+     * context of this scope. If there is no such object, creates it with 
+     * this provider and keeps it in context. Provider is the same object 
+     * for all requests of module in one container until module is 
+     * redeclared.
+     * 
+     * @param <M>               module interface.
+     * @param moduleInterface   class object of module interface.
+     * @param provider          provider creating new module objects.
+     * @return                  module object of current context.
+     * @throws                  com.drs.gem.injector.exceptions.ScopeNotActiveException
+     *                          if scope has no current context.
+     */
+    <M extends GemModule> M get(Class<M> moduleInterface, GemModuleProvider<M> provider);
+}
@@ -32,10 +32,42 @@ package com.drs.gem.injector.core;
  * Container.getModule()} will always create new object of specified 
  * module interface.</p>
  * 
+ * <p>Thread module type means that there is one instance of this module 
+ * per thread. In case of thread module {@link 
+ * Container#getModule(java.lang.Class) Container.getModule()} will 
+ * always return the same object of specified module interface in the 
+ * same thread, object is created when it is required in thread for the 
+ * first time. Modules injected into thread module follow their own types.
+ * Thread module can be injected into prototype and other thread modules,
+ * they receive object of thread where they are created. Thread module 
+ * can not be injected into singleton or pooled module neither directly 
+ * nor through its prototype dependencies. Objects of thread modules are released when 
+ * thread terminates or by {@link Container#releaseThreadModules()}.</p>
+ * 
+ * <p>Pooled module type means that container keeps bounded pool of 
+ * ready objects of this module. {@link Container#getModule(java.lang.Class)
+ * Container.getModule()} checks out idle object from pool or creates new 
+ * one if pool is empty, object should be given back with {@link 
+ * Container#returnModule(java.lang.Class, com.drs.gem.injector.module.GemModule)
+ * Container.returnModule()} when it is not used anymore. Pooled module can
+ * not be injected into other modules because nobody would return it.</p>
+ * 
+ * <p>Scoped module type means that objects of this module are kept by 
+ * {@link GemModuleScope} registered in container under name given in 
+ * {@link GemModuleDeclaration}. {@link Container#getModule(java.lang.Class)
+ * Container.getModule()} returns object kept in current context of scope,
+ * for example in current request. Like thread module, scoped module can 
+ * be injected into prototype and other scoped modules, but not into 
+ * singleton, pooled or thread module neither directly nor through its 
+ * prototype dependencies.</p>
+ * 
  * @author Diarsid
  * @see com.drs.gem.injector.module.GemModule
  */
 public enum GemModuleType {
     SINGLETON,
-    PROTOTYPE
+    PROTOTYPE,
+    THREAD,
+    POOLED,
+    SCOPED
 }
@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+
+import com.drs.gem.injector.module.GemModule;
+import com.drs.gem.injector.module.GemModuleBuilder;
+
+/**
+ * <p>{@link ModuleInvoker} that calls module constructor through a small
+ * factory class generated at runtime by {@link LambdaMetafactory}.</p>
+ *
+ * <p>Generated factory class contains plain constructor invocation, so
+ * there is no reflection or method handle invocation left on the module
+ * creation path and JIT is able to inline module creation completely.
+ * If constructor belongs to {@link GemModuleBuilder} the builder is created
+ * by generated factory and {@link GemModuleBuilder#buildModule()
+ * .buildModule()} is called directly on it.</p>
+ *
+ * <p>Factory can be generated only for public constructors of public
+ * top-level or public nested classes having no more than five parameters.
+ * Generated class is defined in class loader of this library, thus 
+ * constructor class and its parameter types must be visible from it as 
+ * well. Classes loaded by child class loader, e.g. specified with 
+ * {@link Container#useClassLoader(ClassLoader)}, are not visible, and 
+ * generated class would fail with {@link NoClassDefFoundError} on the 
+ * first invocation. Other constructors can not be reached from generated
+ * class, therefore {@link #tryGenerate(Class, Constructor) .tryGenerate()}
+ * returns null for them and container falls back to ordinary {@link 
+ * ModuleInvoker}.</p>
+ *
+ * @author  Diarsid
+ * @see     Container#useGeneratedFactories()
+ */
+abstract class GeneratedModuleInvoker extends ModuleInvoker {
+
+    private static final int MAX_GENERATED_ARITY = 5;
+
+    private final boolean builder;
+
+    GeneratedModuleInvoker(Class moduleInterface, Constructor buildCons) {
+        super(moduleInterface, buildCons);
+        this.builder = GemModuleBuilder.class.isAssignableFrom(
+                buildCons.getDeclaringClass());
+    }
+
+    /**
+     * Generates factory for specified constructor.
+     *
+     * @param moduleInterface   module interface which is created by
+     *                          this constructor.
+     * @param buildCons         constructor of module implementation class
+     *                          or module builder class.
+     * @return                  invoker using generated factory or null if
+     *                          factory can not be generated for this
+     *                          constructor.
+     */
+    static ModuleInvoker tryGenerate(Class moduleInterface, Constructor buildCons) {
+        if ( ! isReachable(buildCons) ) {
+            return null;
+        }
+        int arity = buildCons.getParameterCount();
+        try {
+            switch (arity) {
+                case 0 : return new Arity0(moduleInterface, buildCons,
+                        (Factory0) generate(buildCons, Factory0.class));
+                case 1 : return new Arity1(moduleInterface, buildCons,
+                        (Factory1) generate(buildCons, Factory1.class));
+                case 2 : return new Arity2(moduleInterface, buildCons,
+                        (Factory2) generate(buildCons, Factory2.class));
+                case 3 : return new Arity3(moduleInterface, buildCons,
+                        (Factory3) generate(buildCons, Factory3.class));
+                case 4 : return new Arity4(moduleInterface, buildCons,
+                        (Factory4) generate(buildCons, Factory4.class));
+                case 5 : return new Arity5(moduleInterface, buildCons,
+                        (Factory5) generate(buildCons, Factory5.class));
+                default : return null;
+            }
+        } catch (Throwable e) {
+            // generation is only an optimization, if it is not possible
+            // for any reason container uses ordinary invoker.
+            return null;
+        }
+    }
+
+    private static boolean isReachable(Constructor buildCons) {
+        if ( buildCons.getParameterCount() > MAX_GENERATED_ARITY ) {
+            return false;
+        }
+        if ( ! Modifier.isPublic(buildCons.getModifiers()) ) {
+            return false;
+        }
+        Class declaring = buildCons.getDeclaringClass();
+        while ( declaring != null ) {
+            if ( ! Modifier.isPublic(declaring.getModifiers()) ) {
+                return false;
+            }
+            declaring = declaring.getEnclosingClass();
+        }
+        if ( ! isVisible(buildCons.getDeclaringClass()) ) {
+            return false;
+        }
+        for (Class paramType : buildCons.getParameterTypes()) {
+            if ( ! isVisible(paramType) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that class is visible by its name from class loader of this
+     * library, where generated factory class is defined.
+     */
+    private static boolean isVisible(Class cls) {
+        ClassLoader libraryLoader = GeneratedModuleInvoker.class.getClassLoader();
+        if ( cls.getClassLoader() == libraryLoader ) {
+            return true;
+        }
+        try {
+            return Class.forName(cls.getName(), false, libraryLoader) == cls;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static Object generate(Constructor buildCons, Class factoryInterface)
+            throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle consHandle = lookup.unreflectConstructor(buildCons);
+        int arity = buildCons.getParameterCount();
+        MethodType erasedType = MethodType.genericMethodType(arity);
+        CallSite site = LambdaMetafactory.metafactory(
+                lookup,
+                "create",
+                MethodType.methodType(factoryInterface),
+                erasedType,
+                consHandle,
+                consHandle.type());
+        return site.getTarget().invoke();
+    }
+
+    GemModule toModule(Object obj) {
+        if ( builder ) {
+            return ((GemModuleBuilder) obj).buildModule();
+        } else {
+            return (GemModule) obj;
+        }
+    }
+
+    interface Factory0 {
+        Object create();
+    }
+
+    interface Factory1 {
+        Object create(Object a);
+    }
+
+    interface Factory2 {
+        Object create(Object a, Object b);
+    }
+
+    interface Factory3 {
+        Object create(Object a, Object b, Object c);
+    }
+
+    interface Factory4 {
+        Object create(Object a, Object b, Object c, Object d);
+    }
+
+    interface Factory5 {
+        Object create(Object a, Object b, Object c, Object d, Object e);
+    }
+
+    private static final class Arity0 extends GeneratedModuleInvoker {
+
+        private final Factory0 factory;
+
+        Arity0(Class moduleInterface, Constructor buildCons, Factory0 factory) {
+            super(moduleInterface, buildCons);
+            this.factory = factory;
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            try {
+                return toModule(factory.create());
+            } catch (Throwable e) {
+                throw failure(e);
+            }
+        }
+    }
+
+    private static final class Arity1 extends GeneratedModuleInvoker {
+
+        private final Factory1 factory;
+
+        Arity1(Class moduleInterface, Constructor buildCons, Factory1 factory) {
+            super(moduleInterface, buildCons);
+            this.factory = factory;
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            try {
+                return toModule(factory.create(args[0]));
+            } catch (Throwable e) {
+                throw failure(e);
+            }
+        }
+    }
+
+    private static final class Arity2 extends GeneratedModuleInvoker {
+
+        private final Factory2 factory;
+
+        Arity2(Class moduleInterface, Constructor buildCons, Factory2 factory) {
+            super(moduleInterface, buildCons);
+            this.factory = factory;
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            try {
+                return toModule(factory.create(args[0], args[1]));
+            } catch (Throwable e) {
+                throw failure(e);
+            }
+        }
+    }
+
+    private static final class Arity3 extends GeneratedModuleInvoker {
+
+        private final Factory3 factory;
+
+        Arity3(Class moduleInterface, Constructor buildCons, Factory3 factory) {
+            super(moduleInterface, buildCons);
+            this.factory = factory;
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            try {
+                return toModule(factory.create(args[0], args[1], args[2]));
+            } catch (Throwable e) {
+                throw failure(e);
+            }
+        }
+    }
+
+    private static final class Arity4 extends GeneratedModuleInvoker {
+
+        private final Factory4 factory;
+
+        Arity4(Class moduleInterface, Constructor buildCons, Factory4 factory) {
+            super(moduleInterface, buildCons);
+            this.factory = factory;
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            try {
+                return toModule(factory.create(args[0], args[1], args[2], args[3]));
+            } catch (Throwable e) {
+                throw failure(e);
+            }
+        }
+    }
+
+    private static final class Arity5 extends GeneratedModuleInvoker {
+
+        private final Factory5 factory;
+
+        Arity5(Class moduleInterface, Constructor buildCons, Factory5 factory) {
+            super(moduleInterface, buildCons);
+            this.factory = factory;
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            try {
+                return toModule(factory.create(
+                        args[0], args[1], args[2], args[3], args[4]));
+            } catch (Throwable e) {
+                throw failure(e);
+            }
+        }
+    }
+}
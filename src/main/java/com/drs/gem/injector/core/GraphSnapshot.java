@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Binary snapshot of resolved modules graph. It is used to skip 
+ * module verification, constructor resolution and priority calculation 
+ * phases of {@link Container#init()} if module declarations have not 
+ * been changed since snapshot had been written.</p>
+ * 
+ * <p>Snapshot contains hash of module declarations it was created for and
+ * one entry per module in the order of injection priority. Every entry 
+ * contains module interface name, name of class which constructor is 
+ * used to create module (implementation or builder), module type, 
+ * injection priority and indexes of entries representing constructor 
+ * parameters. Thus constructor signature is stored as indexes of 
+ * dependency entries.</p>
+ * 
+ * <p>Declarations hash does not reflect content of module classes, thus
+ * container verifies on restore that every stored build class and 
+ * constructor are still the ones which full initialization would choose.
+ * </p>
+ * 
+ * <p>Snapshot is read from file through memory mapping. It is written 
+ * into temporary file in the same directory which then replaces previous
+ * snapshot file atomically, so that file mapped by another JVM is never
+ * truncated. Format is:</p>
+ * <pre>
+ * int      magic
+ * int      format version
+ * byte[32] SHA-256 hash of declarations
+ * int      strings quantity, then every string as int length and UTF-8 bytes
+ * int      entries quantity, then every entry as:
+ *   int    module interface name string index
+ *   int    build class name string index
+ *   int    module type name string index
+ *   int    injection priority
+ *   int    dependencies quantity, then dependency entry indexes
+ * </pre>
+ * 
+ * @author  Diarsid
+ * @see     ModulesContainer
+ */
+final class GraphSnapshot {
+    
+    private static final int MAGIC = 0x47454D53;
+    private static final int VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+    
+    private final byte[] declarationsHash;
+    private final List<Entry> entries;
+
+    GraphSnapshot(byte[] declarationsHash, List<Entry> entries) {
+        this.declarationsHash = declarationsHash;
+        this.entries = entries;
+    }
+    
+    List<Entry> getEntries() {
+        return entries;
+    }
+    
+    /**
+     * Calculates hash of module declarations. Hash does not depend on 
+     * declarations order.
+     * 
+     * @param declarations  module declarations.
+     * @return              SHA-256 hash.
+     */
+    static byte[] hashOf(Collection<GemModuleDeclaration> declarations) {
+        List<String> lines = new ArrayList<>();
+        for (GemModuleDeclaration dec : declarations) {
+            lines.add(dec.getModuleInterfaceName() + "|" + 
+                    dec.getModuleBuildClassName() + "|" + 
+                    dec.getModuleType() + "|" + 
+                    dec.getScopeName() + "|" + 
+                    (dec.getModuleBuilder() == null ? 
+                            null : dec.getModuleBuilder().getName()));
+        }
+        Collections.sort(lines);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Integer.toString(VERSION).getBytes(StandardCharsets.UTF_8));
+            for (String line : lines) {
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+    
+    /**
+     * Reads snapshot from file if this file exists, is valid and has been
+     * written for declarations with specified hash.
+     * 
+     * @param file                  snapshot file.
+     * @param declarationsHash      hash of actual declarations.
+     * @return                      snapshot or null if there is no 
+     *                              appropriate snapshot in file.
+     */
+    static GraphSnapshot read(Path file, byte[] declarationsHash) {
+        if ( ! Files.isRegularFile(file) ) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if ( buffer.getInt() != MAGIC || buffer.getInt() != VERSION ) {
+                return null;
+            }
+            byte[] hash = new byte[HASH_LENGTH];
+            buffer.get(hash);
+            if ( ! Arrays.equals(hash, declarationsHash) ) {
+                return null;
+            }
+            String[] strings = new String[readLength(buffer, 4)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readLength(buffer, 1)];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int entriesQty = readLength(buffer, 4 * 5);
+            List<Entry> entries = new ArrayList<>(entriesQty);
+            for (int i = 0; i < entriesQty; i++) {
+                String moduleInterface = strings[buffer.getInt()];
+                String buildClass = strings[buffer.getInt()];
+                String type = strings[buffer.getInt()];
+                int priority = buffer.getInt();
+                int[] dependencies = new int[readLength(buffer, 4)];
+                for (int j = 0; j < dependencies.length; j++) {
+                    dependencies[j] = buffer.getInt();
+                    if ( dependencies[j] < 0 || dependencies[j] >= entriesQty ) {
+                        return null;
+                    }
+                }
+                entries.add(new Entry(
+                        moduleInterface, buildClass, type, priority, dependencies));
+            }
+            return new GraphSnapshot(hash, entries);
+        } catch (IOException | BufferUnderflowException | 
+                IndexOutOfBoundsException | NegativeArraySizeException | 
+                InternalError e) {
+            // snapshot is damaged or has been truncated by other process
+            // while mapped, it will be rewritten after full container 
+            // initialization.
+            return null;
+        }
+    }
+    
+    /**
+     * Reads length of following sequence and verifies that buffer contains
+     * enough bytes for it, so that damaged file can not cause allocation
+     * of huge arrays.
+     */
+    private static int readLength(ByteBuffer buffer, int elementSize) {
+        int length = buffer.getInt();
+        if ( length < 0 || (long) length * elementSize > buffer.remaining() ) {
+            throw new BufferUnderflowException();
+        }
+        return length;
+    }
+    
+    /**
+     * Writes this snapshot into temporary file and moves it in place of
+     * specified file. Previous content of file is never modified, thus 
+     * processes having it mapped keep reading consistent data.
+     * 
+     * @param file  snapshot file.
+     * @throws IOException  if file can not be written.
+     */
+    void write(Path file) throws IOException {
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        int[][] entryStrings = new int[entries.size()][];
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            entryStrings[i] = new int[] {
+                indexOf(entry.moduleInterface, strings, stringIndexes),
+                indexOf(entry.buildClass, strings, stringIndexes),
+                indexOf(entry.type, strings, stringIndexes)
+            };
+        }
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        long size = 4 + 4 + HASH_LENGTH + 4 + 4;
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            size += 4 + bytes.length;
+        }
+        for (Entry entry : entries) {
+            size += 4 * 5 + 4 * entry.dependencies.length;
+        }
+        
+        if ( size > Integer.MAX_VALUE ) {
+            throw new IOException("Snapshot is too large.");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.put(declarationsHash);
+        buffer.putInt(encoded.size());
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+        buffer.putInt(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            buffer.putInt(entryStrings[i][0]);
+            buffer.putInt(entryStrings[i][1]);
+            buffer.putInt(entryStrings[i][2]);
+            buffer.putInt(entry.priority);
+            buffer.putInt(entry.dependencies.length);
+            for (int dependency : entry.dependencies) {
+                buffer.putInt(dependency);
+            }
+        }
+        buffer.flip();
+        
+        Path target = file.toAbsolutePath();
+        Path dir = target.getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(
+                    temp, StandardOpenOption.WRITE)) {
+                while ( buffer.hasRemaining() ) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private static int indexOf(
+            String string, List<String> strings, Map<String, Integer> indexes) {
+        Integer index = indexes.get(string);
+        if ( index == null ) {
+            index = strings.size();
+            strings.add(string);
+            indexes.put(string, index);
+        }
+        return index;
+    }
+    
+    /**
+     * Resolved module description stored in snapshot.
+     */
+    static final class Entry {
+        
+        private final String moduleInterface;
+        private final String buildClass;
+        private final String type;
+        private final int priority;
+        private final int[] dependencies;
+
+        Entry(
+                String moduleInterface, 
+                String buildClass, 
+                String type, 
+                int priority, 
+                int[] dependencies) {
+            this.moduleInterface = moduleInterface;
+            this.buildClass = buildClass;
+            this.type = type;
+            this.priority = priority;
+            this.dependencies = dependencies;
+        }
+
+        String getModuleInterface() {
+            return moduleInterface;
+        }
+
+        String getBuildClass() {
+            return buildClass;
+        }
+
+        String getType() {
+            return type;
+        }
+
+        int getPriority() {
+            return priority;
+        }
+
+        int[] getDependencies() {
+            return dependencies;
+        }
+    }
+}
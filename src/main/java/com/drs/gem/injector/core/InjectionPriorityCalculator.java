@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2015 Diarsid
+ * Copyright (C) 2016 Diarsid
  *
  * This program is free software; you can redistribute it and/or
  * modify it under the terms of the GNU General Public License
@@ -18,110 +18,254 @@
 
 package com.drs.gem.injector.core;
 
-import java.lang.reflect.Constructor;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.drs.gem.injector.exceptions.CyclicDependencyException;
 import com.drs.gem.injector.exceptions.UndeclaredDependencyException;
 
 /**
- * Class calculates quantity of module's real dependencies. 
- * See detailed description in {@link ModuleMetaData}.
- * 
+ * <p>Class calculates injection priority of all modules at once.
+ * See detailed description in {@link ModuleMetaData}.</p>
+ *
+ * <p>Modules and their constructor parameters are treated as directed
+ * graph. Modules are sorted topologically with Kahn algorithm: module
+ * is placed in order as soon as all its dependencies have been placed.
+ * Position of module in this order becomes its injection priority.
+ * Whole graph is processed once, in time proportional to modules
+ * quantity plus dependencies quantity.</p>
+ *
+ * <p>If some modules can not be placed, graph contains cycle. In this
+ * case strongly connected components of graph are found with Tarjan
+ * algorithm and the cycle from the first component is reported
+ * with its full path.</p>
+ *
  * @author  Diarsid
  * @see     ModuleMetaData
  */
 final class InjectionPriorityCalculator {
-    
+
     private final ModulesInfo info;
 
     InjectionPriorityCalculator(ModulesInfo info) {
         this.info = info;
     }
-    
+
     /**
-     * Calculates injection priority. This value is actually the quantity of 
-     * modules dependencies calculated in-depth of all dependencies graph.
-     * See detailed description in {@link ModuleMetaData}.
-     * 
-     * @param metaData    ModuleMetaData which actual priority should be calculated
-     * @return      quantity of module dependencies, i.e. its injection priority
-     * @see         ModuleMetaData
-     */    
-    void calculateAndSetPriority(ModuleMetaData metaData){
-        if (metaData.getConstructor().getParameterCount() != 0){
-            int qty = calculateFullDependenciesQty(metaData);
-            metaData.setPriority(qty);
-        } else {
-            metaData.setPriority(0);
-        }     
+     * Calculates and sets injection priority of every specified module.
+     * All dependencies of these modules must be declared in container. 
+     * Dependencies which are not contained in specified collection must 
+     * be initialized already, they are not taken into account.
+     *
+     * @param metaDatas     all modules of container.
+     * @return              modules sorted by injection priority, every module
+     *                      follows all its dependencies.
+     * @see                 ModuleMetaData
+     */
+    List<ModuleMetaData> calculateAndSetPriorities(Collection<ModuleMetaData> metaDatas) {
+        ModuleMetaData[] modules = metaDatas.toArray(new ModuleMetaData[metaDatas.size()]);
+        int[][] dependencies = indexDependencies(modules);
+        int[] order = sortTopologically(dependencies);
+        if ( order.length < modules.length ) {
+            throw cyclicDependency(modules, dependencies);
+        }
+        List<ModuleMetaData> sorted = new ArrayList<>(modules.length);
+        for (int priority = 0; priority < order.length; priority++) {
+            ModuleMetaData metaData = modules[order[priority]];
+            metaData.setPriority(priority);
+            sorted.add(metaData);
+        }
+        return sorted;
     }
-    
+
     /**
-     * <p>
-     * Takes module constructor from ModuleMetaData objects and 
-     * obtains all its parameters that are modules. Then method takes constructor 
-     * from each of those modules and obtains their parameters too, calculates 
-     * them and so on, until all modules having constructors without parameters
-     * will be reached.<br>
-     * Sum of all those dependencies will determine real dependencies quantity
-     * of this concrete module.</p>
-     * 
-     * <p>In fact, this method walks through the dependencies graph. It begins 
-     * walking through from specified module taking it as entry node of graph
-     * and calculates all nodes in the graph (dependencies of every constructor)
-     * which it can reach until it will find all reachable nodes that 
-     * do not have dependencies.</p>
-     * 
-     * @param metaData  {@link ModuleMetaData} containing description of module 
-                        which real dependencies quantity should be calculated.
-     * @return          quantity of module dependencies.
+     * Replaces constructor parameters of every module with indexes of
+     * corresponding modules in array. Modules outside of array are 
+     * omitted.
      */
-    private int calculateFullDependenciesQty(ModuleMetaData metaData){
-        List<Class> dependencies = new ArrayList<>(
-                Arrays.asList(metaData.getConstructor().getParameterTypes()));
-        
-        for (int i = 0; i < dependencies.size(); i++) {
-            Class dependency = dependencies.get(i);
-            checkIfDependencyDeclaredAsModule(
-                    metaData.getConstructor().getDeclaringClass(),
-                    dependency);
-            checkIfModuleHasCyclicDependencies(
-                    metaData.getModuleInterface(),
-                    dependency, dependency);
-            Constructor dependencyConstructor = 
-                        info.getConstructorOfModule(dependency);
-            for (Class nestedDependency : dependencyConstructor.getParameterTypes()) {
+    private int[][] indexDependencies(ModuleMetaData[] modules) {
+        Map<Class, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < modules.length; i++) {
+            indexes.put(modules[i].getModuleInterface(), i);
+        }
+        int[][] dependencies = new int[modules.length][];
+        for (int i = 0; i < modules.length; i++) {
+            Class[] params = modules[i].getDeclaredDependencies();
+            int[] indexed = new int[params.length];
+            int qty = 0;
+            for (int j = 0; j < params.length; j++) {
                 checkIfDependencyDeclaredAsModule(
-                        dependencyConstructor.getDeclaringClass(),
-                        nestedDependency);
-                checkIfModuleHasCyclicDependencies(
-                        metaData.getModuleInterface(), 
-                        nestedDependency, 
-                        dependency);
-                if ( ! dependencies.contains(nestedDependency) ) {
-                    dependencies.add(nestedDependency);
+                        modules[i].getConstructor().getDeclaringClass(),
+                        params[j]);
+                Integer index = indexes.get(params[j]);
+                // dependency which is not sorted is initialized already: 
+                // it is singleton inherited from parent container or 
+                // module not affected by redeclaration.
+                if ( index != null ) {
+                    indexed[qty] = index;
+                    qty++;
                 }
             }
+            dependencies[i] = Arrays.copyOf(indexed, qty);
         }
-        return dependencies.size();
+        return dependencies;
     }
-    
-    private void checkIfModuleHasCyclicDependencies(
-            Class moduleInterface, Class dependency, Class declaration){
-        
-        if (moduleInterface.equals(dependency)){
-            throw new CyclicDependencyException(
-                    "Cyclic dependency detected: " + 
-                    moduleInterface.getCanonicalName() + " depend on " +
-                    declaration.getCanonicalName() + 
-                    " which has cyclic dependency on " + 
-                    moduleInterface.getCanonicalName());
+
+    /**
+     * Kahn algorithm. Returns indexes of modules in topological order.
+     * If graph contains cycles, modules of cycles and modules depending
+     * on them are absent in returned order.
+     */
+    private int[] sortTopologically(int[][] dependencies) {
+        int qty = dependencies.length;
+        int[] unplacedDepciesQty = new int[qty];
+        int[] dependentsQty = new int[qty];
+        for (int i = 0; i < qty; i++) {
+            unplacedDepciesQty[i] = dependencies[i].length;
+            for (int dependency : dependencies[i]) {
+                dependentsQty[dependency]++;
+            }
+        }
+        int[][] dependents = new int[qty][];
+        for (int i = 0; i < qty; i++) {
+            dependents[i] = new int[dependentsQty[i]];
+            dependentsQty[i] = 0;
+        }
+        for (int i = 0; i < qty; i++) {
+            for (int dependency : dependencies[i]) {
+                dependents[dependency][dependentsQty[dependency]++] = i;
+            }
+        }
+
+        int[] order = new int[qty];
+        int placed = 0;
+        for (int i = 0; i < qty; i++) {
+            if ( unplacedDepciesQty[i] == 0 ) {
+                order[placed++] = i;
+            }
+        }
+        for (int next = 0; next < placed; next++) {
+            for (int dependent : dependents[order[next]]) {
+                unplacedDepciesQty[dependent]--;
+                if ( unplacedDepciesQty[dependent] == 0 ) {
+                    order[placed++] = dependent;
+                }
+            }
         }
+        return Arrays.copyOf(order, placed);
     }
-    
+
+    /**
+     * Finds strongly connected components with iterative Tarjan algorithm
+     * and creates exception describing cycle of the first component
+     * containing cycle.
+     */
+    private CyclicDependencyException cyclicDependency(
+            ModuleMetaData[] modules, int[][] dependencies) {
+        int qty = dependencies.length;
+        int[] component = new int[qty];
+        Arrays.fill(component, -1);
+        int[] visitIndex = new int[qty];
+        int[] lowLink = new int[qty];
+        Arrays.fill(visitIndex, -1);
+        boolean[] onStack = new boolean[qty];
+        Deque<Integer> stack = new ArrayDeque<>();
+        int[] nextEdge = new int[qty];
+        Deque<Integer> walk = new ArrayDeque<>();
+        int visited = 0;
+        int components = 0;
+
+        for (int root = 0; root < qty; root++) {
+            if ( visitIndex[root] >= 0 ) {
+                continue;
+            }
+            walk.push(root);
+            while ( ! walk.isEmpty() ) {
+                int node = walk.peek();
+                if ( visitIndex[node] < 0 ) {
+                    visitIndex[node] = visited;
+                    lowLink[node] = visited;
+                    visited++;
+                    stack.push(node);
+                    onStack[node] = true;
+                }
+                if ( nextEdge[node] < dependencies[node].length ) {
+                    int dependency = dependencies[node][nextEdge[node]];
+                    nextEdge[node]++;
+                    if ( visitIndex[dependency] < 0 ) {
+                        walk.push(dependency);
+                    } else if ( onStack[dependency] ) {
+                        lowLink[node] = Math.min(lowLink[node], visitIndex[dependency]);
+                    }
+                    continue;
+                }
+                walk.pop();
+                if ( ! walk.isEmpty() ) {
+                    int parent = walk.peek();
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+                if ( lowLink[node] == visitIndex[node] ) {
+                    int member;
+                    do {
+                        member = stack.pop();
+                        onStack[member] = false;
+                        component[member] = components;
+                    } while ( member != node );
+                    components++;
+                }
+            }
+        }
+
+        for (int i = 0; i < qty; i++) {
+            for (int dependency : dependencies[i]) {
+                if ( component[dependency] == component[i] ) {
+                    return new CyclicDependencyException(
+                            "Cyclic dependency detected: " +
+                            describeCycle(modules, dependencies, component, i));
+                }
+            }
+        }
+        throw new IllegalStateException(
+                "Modules can not be sorted but no cycle has been found.");
+    }
+
+    /**
+     * Walks from specified module through dependencies staying in its
+     * component until some module is met for the second time.
+     */
+    private String describeCycle(
+            ModuleMetaData[] modules, int[][] dependencies, int[] component, int start) {
+        List<Integer> path = new ArrayList<>();
+        Map<Integer, Integer> positions = new HashMap<>();
+        int node = start;
+        while ( ! positions.containsKey(node) ) {
+            positions.put(node, path.size());
+            path.add(node);
+            for (int dependency : dependencies[node]) {
+                if ( component[dependency] == component[start] ) {
+                    node = dependency;
+                    break;
+                }
+            }
+        }
+        List<Integer> cycle = new ArrayList<>(path.subList(positions.get(node), path.size()));
+        cycle.add(node);
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < cycle.size(); i++) {
+            if ( i > 0 ) {
+                description.append(" -> ");
+            }
+            description.append(modules[cycle.get(i)].getModuleInterface().getCanonicalName());
+        }
+        return description.toString();
+    }
+
     private void checkIfDependencyDeclaredAsModule(
             Class buildClass, Class dependencyClass){
         if ( ! info.ifConstructorExists(dependencyClass)){
@@ -72,6 +72,12 @@ import com.drs.gem.injector.module.GemModule;
  * reaches the end of the list where the main required module is located. Then injector 
  * assembles main module, returns it and stop its work.</p>
  * 
+ * <p>PriorityLoopInjector is used to initialize singletons during container 
+ * initialization. Prototypes are not assembled by it on every request: 
+ * their assembling order is precompiled once into {@link InstantiationPlan} 
+ * which is simply executed afterwards. RecursiveInjector, if it has been 
+ * chosen, is still used for both singletons and prototypes.</p>
+ * 
  * <p>For more implementation details see comments in appropriate Injector 
  * implementation classes.</p>
  * 
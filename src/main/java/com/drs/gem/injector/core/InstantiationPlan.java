@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Immutable precompiled description of how one module object must be
+ * assembled. Plans are compiled once by {@link InstantiationPlanCompiler}
+ * during {@link Container#init()} and then executed on every request
+ * of a prototype module.</p>
+ *
+ * <p>Plan is a flat array of construction steps, represented by
+ * {@link ModuleInvoker} of appropriate module, ordered so that every step
+ * is executed after all steps producing its arguments. The last step
+ * produces the required module itself. Each step has its own array of
+ * argument slot indexes:</p>
+ * <ul>
+ * <li>index <b>0</b> or greater refers to module produced by previous
+ * step with this index;</li>
+ * <li>negative index <b>-(i + 1)</b> refers to constant module with index
+ * <b>i</b>. Constants are singletons that have been already initialized
+ * when plan was compiled.</li>
+ * </ul>
+ *
+ * <p>Thus plan execution does not require any dependency graph
+ * exploration, sorting or temporary collections apart from one array
+ * of produced modules.</p>
+ *
+ * @author  Diarsid
+ * @see     InstantiationPlanCompiler
+ */
+final class InstantiationPlan {
+
+    private final Class moduleInterface;
+    private final ModuleInvoker[] stepInvokers;
+    private final int[][] stepArgSlots;
+    private final GemModule[] constants;
+
+    InstantiationPlan(
+            Class moduleInterface,
+            ModuleInvoker[] stepInvokers,
+            int[][] stepArgSlots,
+            GemModule[] constants) {
+        this.moduleInterface = moduleInterface;
+        this.stepInvokers = stepInvokers;
+        this.stepArgSlots = stepArgSlots;
+        this.constants = constants;
+    }
+
+    Class getModuleInterface() {
+        return moduleInterface;
+    }
+
+    int getStepsQty() {
+        return stepInvokers.length;
+    }
+
+    /**
+     * Executes all construction steps one by one and returns the module
+     * produced by the last step.
+     *
+     * @return  fully initialized module.
+     */
+    GemModule execute() {
+        GemModule[] slots = new GemModule[stepInvokers.length];
+        for (int step = 0; step < stepInvokers.length; step++) {
+            int[] argSlots = stepArgSlots[step];
+            GemModule[] args = new GemModule[argSlots.length];
+            for (int i = 0; i < argSlots.length; i++) {
+                int slot = argSlots[i];
+                if ( slot >= 0 ) {
+                    args[i] = slots[slot];
+                } else {
+                    args[i] = constants[-slot - 1];
+                }
+            }
+            slots[step] = FlightRecorderEvents.newModule(stepInvokers[step], args);
+        }
+        return slots[slots.length - 1];
+    }
+}
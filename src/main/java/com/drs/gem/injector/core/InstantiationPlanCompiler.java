@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.drs.gem.injector.exceptions.ModuleNotFoundException;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Compiles {@link InstantiationPlan} for specified module.</p>
+ *
+ * <p>Compiler walks through the dependency graph of the module in depth
+ * and places construction step of every module after steps of all its
+ * dependencies. Singleton dependencies are not walked through because
+ * they must be already initialized at the moment of compilation, they are
+ * stored in plan as constants instead. Prototype dependencies receive
+ * their own step for each place where they are required because every
+ * injection of prototype requires new module object. Dependencies which 
+ * objects are provided by {@link ModuleSource}, e.g. thread and scoped 
+ * modules, are not walked through as well, they receive one step taking 
+ * object from source at the moment of plan execution.</p>
+ *
+ * <p>Dependencies injected as providers are not walked through either.
+ * Provider of module is stored in plan as constant, so that subtree of
+ * provided module is created only when provider is invoked.</p>
+ *
+ * <p>Walking is performed with explicit stack rather than with recursion
+ * so that deep dependency chains could not exhaust thread stack.</p>
+ *
+ * @author  Diarsid
+ * @see     InstantiationPlan
+ */
+final class InstantiationPlanCompiler {
+
+    private static final int[] NO_ARGS = new int[0];
+
+    private final ModulesInfo modulesInfo;
+
+    InstantiationPlanCompiler(ModulesInfo info) {
+        this.modulesInfo = info;
+    }
+
+    /**
+     * Compiles plan of specified module. Module itself is always included
+     * in plan as its last step, even if it is singleton.
+     *
+     * @param metaData  module which plan should be compiled.
+     * @return          immutable plan of module assembling.
+     */
+    InstantiationPlan compile(ModuleMetaData metaData) {
+        List<ModuleInvoker> stepInvokers = new ArrayList<>();
+        List<int[]> stepArgSlots = new ArrayList<>();
+        List<GemModule> constants = new ArrayList<>();
+        Map<GemModule, Integer> constantIndexes = new IdentityHashMap<>();
+        Map<Class, Integer> sourceSteps = new HashMap<>();
+
+        Deque<PendingStep> pending = new ArrayDeque<>();
+        pending.push(new PendingStep(metaData, null));
+
+        while ( ! pending.isEmpty() ) {
+            PendingStep current = pending.peek();
+            if ( current.hasUnresolvedArgs() ) {
+                Class dependency = current.nextDependency();
+                if ( current.isNextDependencyProvided() ) {
+                    current.resolveArg(constantSlot(
+                            modulesInfo.getProviderOfModule(dependency), 
+                            constants, constantIndexes));
+                } else if ( modulesInfo.isModuleSingleton(dependency) ) {
+                    GemModule singleton = getInitializedSingleton(
+                            current.metaData, dependency);
+                    current.resolveArg(constantSlot(
+                            singleton, constants, constantIndexes));
+                } else if ( isProvidedBySource(dependency) ) {
+                    Integer step = sourceSteps.get(dependency);
+                    if ( step == null ) {
+                        step = stepInvokers.size();
+                        stepInvokers.add(getSourceInvoker(current.metaData, dependency));
+                        stepArgSlots.add(NO_ARGS);
+                        sourceSteps.put(dependency, step);
+                    }
+                    current.resolveArg(step);
+                } else {
+                    pending.push(new PendingStep(
+                            modulesInfo.getMetaDataOfModule(dependency), current));
+                }
+            } else {
+                pending.pop();
+                int step = stepInvokers.size();
+                stepInvokers.add(current.metaData.getInvoker());
+                stepArgSlots.add(current.argSlots);
+                if ( current.parent != null ) {
+                    current.parent.resolveArg(step);
+                }
+            }
+        }
+
+        return new InstantiationPlan(
+                metaData.getModuleInterface(),
+                stepInvokers.toArray(new ModuleInvoker[stepInvokers.size()]),
+                stepArgSlots.toArray(new int[stepArgSlots.size()][]),
+                constants.toArray(new GemModule[constants.size()]));
+    }
+
+    /**
+     * Returns negative slot of specified constant, constant is added to 
+     * plan constants if it has not been added yet.
+     */
+    private int constantSlot(
+            GemModule constant, 
+            List<GemModule> constants, 
+            Map<GemModule, Integer> constantIndexes) {
+        Integer index = constantIndexes.get(constant);
+        if ( index == null ) {
+            index = constants.size();
+            constants.add(constant);
+            constantIndexes.put(constant, index);
+        }
+        return -index - 1;
+    }
+
+    private boolean isProvidedBySource(Class dependency) {
+        GemModuleType type = modulesInfo.getMetaDataOfModule(dependency).getType();
+        return type.equals(GemModuleType.THREAD) || 
+                type.equals(GemModuleType.SCOPED);
+    }
+
+    private ModuleInvoker getSourceInvoker(ModuleMetaData metaData, Class dependency) {
+        ModuleSource source = modulesInfo.getSourceOfModule(dependency);
+        if ( source == null ) {
+            throw new ModuleNotFoundException(
+                    "Dependency injection algorithm is broken: source of Module " +
+                    dependency.getCanonicalName() +
+                    " not found in container during" +
+                    " compiling instantiation plan for " +
+                    metaData.getModuleInterface().getCanonicalName() + " Module.");
+        }
+        return new ScopedModuleInvoker(
+                dependency,
+                modulesInfo.getConstructorOfModule(dependency).getDeclaringClass(),
+                source);
+    }
+
+    private GemModule getInitializedSingleton(ModuleMetaData metaData, Class dependency) {
+        GemModule singleton = modulesInfo.getSingletons().get(dependency);
+        if ( singleton == null ) {
+            throw new ModuleNotFoundException(
+                    "Dependency injection algorithm is broken: Module " +
+                    dependency.getCanonicalName() +
+                    " not found in singleton container's storage during" +
+                    " compiling instantiation plan for " +
+                    metaData.getModuleInterface().getCanonicalName() + " Module.");
+        }
+        return singleton;
+    }
+
+    /**
+     * Construction step which arguments are being resolved at the moment.
+     */
+    private static final class PendingStep {
+
+        private final ModuleMetaData metaData;
+        private final PendingStep parent;
+        private final Class[] dependencies;
+        private final int[] argSlots;
+        private int argIndex;
+
+        PendingStep(ModuleMetaData metaData, PendingStep parent) {
+            this.metaData = metaData;
+            this.parent = parent;
+            this.dependencies = metaData.getDeclaredDependencies();
+            this.argSlots = new int[dependencies.length];
+            this.argIndex = 0;
+        }
+
+        boolean hasUnresolvedArgs() {
+            return argIndex < dependencies.length;
+        }
+
+        Class nextDependency() {
+            return dependencies[argIndex];
+        }
+
+        boolean isNextDependencyProvided() {
+            return metaData.isProvidedDependency(argIndex);
+        }
+
+        void resolveArg(int slot) {
+            argSlots[argIndex] = slot;
+            argIndex++;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.drs.gem.injector.exceptions.CyclicDependencyException;
+import com.drs.gem.injector.exceptions.UndeclaredDependencyException;
+
+/**
+ * <p>Resolves modules of container on demand. Resolving includes loading 
+ * and verification of classes, constructor resolution and priority 
+ * calculation of module and of all modules in its dependency graph that 
+ * have not been resolved earlier, initialization of singletons in this 
+ * graph and compilation of instantiation plans for other modules.</p>
+ * 
+ * <p>Resolving is performed in two phases. Firstly, graph is walked 
+ * through in depth with explicit stack without any locking. Module 
+ * classes are loaded and verified, cycles are detected and all 
+ * modules which are not ready are collected in such order that every 
+ * module follows all its dependencies. Concurrent walking through the 
+ * same modules is harmless because only one {@link ModuleMetaData} of 
+ * every module is stored.</p>
+ * 
+ * <p>Secondly, modules are initialized one by one in this order. Every 
+ * module is initialized under its own lock, so that exactly one thread 
+ * creates singleton or compiles plan while other threads requiring 
+ * the same module wait for this module only. Thread never holds more 
+ * than one lock, thus unrelated modules are initialized concurrently 
+ * and no deadlocks are possible.</p>
+ * 
+ * <p>Besides lazy mode, modules are resolved in this way when {@link 
+ * ModuleProvider} is invoked during container initialization.</p>
+ * 
+ * @author  Diarsid
+ * @see     Container#useLazyInit()
+ */
+final class LazyModuleResolver {
+    
+    private final ModulesContainer container;
+    private final Factory factory;
+    
+    /**
+     * Map<Class, Object> that contains locks guarding on demand 
+     * initialization of every module, where key is module interface 
+     * class object. Lock is created when module is initialized for the 
+     * first time.
+     */
+    private final Map<Class, Object> locks;
+    
+    /**
+     * Counter of modules initialized in lazy mode, used as their 
+     * injection priority.
+     */
+    private final AtomicInteger priorities;
+    
+    LazyModuleResolver(ModulesContainer container, Factory factory) {
+        this.container = container;
+        this.factory = factory;
+        this.locks = new ConcurrentHashMap<>();
+        this.priorities = new AtomicInteger(0);
+    }
+    
+    /**
+     * Resolves specified module if it has not been resolved yet.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @throws UndeclaredDependencyException    if module or its dependency
+     *                                          is not declared.
+     * @throws CyclicDependencyException        if dependency graph of 
+     *                                          module contains cycle.
+     */
+    void resolve(Class moduleInterface) {
+        if ( container.isModuleReady(moduleInterface) || 
+                container.inheritFromParent(moduleInterface) ) {
+            return;
+        }
+        List<ModuleMetaData> notReady = collectNotReadyModules(moduleInterface);
+        InstantiationPlanCompiler compiler = 
+                factory.buildPlanCompiler((ModulesInfo) container);
+        for (ModuleMetaData metaData : notReady) {
+            Class notReadyModule = metaData.getModuleInterface();
+            Object lock = locks.computeIfAbsent(
+                    notReadyModule, module -> new Object());
+            synchronized ( lock ) {
+                if ( ! container.isModuleReady(notReadyModule) ) {
+                    finishModule(metaData, compiler);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Reserves injection priorities for modules rebuilt by redeclaration 
+     * in lazy mode.
+     * 
+     * @param count quantity of rebuilt modules.
+     * @return      the first reserved priority.
+     */
+    int reservePriorities(int count) {
+        return priorities.getAndAdd(count);
+    }
+    
+    /**
+     * Walks through dependency graph of module and returns all modules 
+     * that are not ready yet, each module follows all its dependencies.
+     */
+    private List<ModuleMetaData> collectNotReadyModules(Class moduleInterface) {
+        List<ModuleMetaData> notReady = new ArrayList<>();
+        Deque<Step> steps = new ArrayDeque<>();
+        Set<Class> onStack = new HashSet<>();
+        Set<Class> visited = new HashSet<>();
+        steps.push(new Step(resolveMetaData(moduleInterface, null)));
+        onStack.add(moduleInterface);
+        visited.add(moduleInterface);
+        while ( ! steps.isEmpty() ) {
+            Step current = steps.peek();
+            if ( current.hasNextDependency() ) {
+                Class dependency = current.nextDependency();
+                if ( onStack.contains(dependency) ) {
+                    throw cyclicDependency(steps, dependency);
+                }
+                if ( container.isModuleReady(dependency) || 
+                        container.inheritFromParent(dependency) || 
+                        ! visited.add(dependency) ) {
+                    continue;
+                }
+                steps.push(new Step(resolveMetaData(
+                        dependency, current.metaData)));
+                onStack.add(dependency);
+            } else {
+                steps.pop();
+                onStack.remove(current.metaData.getModuleInterface());
+                notReady.add(current.metaData);
+            }
+        }
+        return notReady;
+    }
+    
+    private ModuleMetaData resolveMetaData(
+            Class moduleInterface, ModuleMetaData dependent) {
+        ModuleMetaData metaData = container.getMetaDataOfModule(moduleInterface);
+        if ( metaData != null ) {
+            return metaData;
+        }
+        GemModuleDeclaration declaration = 
+                container.getDeclaration(moduleInterface.getName());
+        if ( declaration == null ) {
+            if ( dependent == null ) {
+                throw new UndeclaredDependencyException(
+                        "Undeclared dependency: " + 
+                        moduleInterface.getCanonicalName() + 
+                        " is not contained in this Container");
+            } else {
+                throw new UndeclaredDependencyException(
+                        "Modules dependency injection is broken: " +
+                        "dependency " + moduleInterface.getCanonicalName() +
+                        " declared in injected constructor in class " + 
+                        dependent.getConstructor().getDeclaringClass().getCanonicalName() +
+                        " does not declared as module.");
+            }
+        }
+        ModuleMetaData created = container.resolveDeclaredModule(
+                moduleInterface, declaration);
+        // other thread could resolve the same module simultaneously, 
+        // only the first stored ModuleMetaData is used.
+        metaData = container.storeMetaDataIfAbsent(created);
+        if ( metaData == null ) {
+            return created;
+        } else {
+            return metaData;
+        }
+    }
+    
+    private void finishModule(
+            ModuleMetaData metaData, InstantiationPlanCompiler compiler) {
+        // modules are finished in topological order, thus finishing 
+        // sequence number is module injection priority.
+        if ( container.isLazyInit() ) {
+            metaData.setPriority(priorities.getAndIncrement());
+        }
+        container.verifyDependencies(metaData);
+        container.finishModule(metaData, compiler);
+    }
+    
+    private CyclicDependencyException cyclicDependency(
+            Deque<Step> steps, Class dependency) {
+        StringBuilder path = new StringBuilder();
+        boolean inCycle = false;
+        for (Iterator<Step> it = steps.descendingIterator(); it.hasNext(); ) {
+            Class module = it.next().metaData.getModuleInterface();
+            if ( module.equals(dependency) ) {
+                inCycle = true;
+            }
+            if ( inCycle ) {
+                path.append(module.getCanonicalName()).append(" -> ");
+            }
+        }
+        path.append(dependency.getCanonicalName());
+        return new CyclicDependencyException(
+                "Cyclic dependency detected: " + path);
+    }
+    
+    /**
+     * Module which dependencies are being resolved.
+     */
+    private static final class Step {
+        
+        private final ModuleMetaData metaData;
+        private final Class[] dependencies;
+        private int next;
+        
+        Step(ModuleMetaData metaData) {
+            this.metaData = metaData;
+            this.dependencies = metaData.getDeclaredDependencies();
+            this.next = 0;
+        }
+        
+        boolean hasNextDependency() {
+            return next < dependencies.length;
+        }
+        
+        Class nextDependency() {
+            Class dependency = dependencies[next];
+            next++;
+            return dependency;
+        }
+    }
+}
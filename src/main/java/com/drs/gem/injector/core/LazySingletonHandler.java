@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Handler of proxy standing in for singleton module which should be 
+ * created on demand. Proxy implements module interface and is stored in 
+ * container instead of singleton, thus it is injected into other modules
+ * and returned by {@link Container#getModule(Class) Container.getModule()}.
+ * Singleton itself is created with its {@link InstantiationPlan} on the 
+ * first invocation of any module method, all following invocations are 
+ * delegated to it.</p>
+ * 
+ * <p>Singletons which lazy singleton depends on are initialized before 
+ * proxy is created, so that plan of lazy singleton can always be 
+ * executed. Proxy equals only to itself and does not create singleton 
+ * for {@code equals()} and {@code hashCode()}.</p>
+ * 
+ * @author  Diarsid
+ * @see     Container#useLazyProxy(String)
+ */
+final class LazySingletonHandler implements InvocationHandler {
+    
+    private final ModuleMetaData metaData;
+    private final InstantiationPlanCompiler compiler;
+    private volatile GemModule module;
+    
+    private LazySingletonHandler(
+            ModuleMetaData metaData, InstantiationPlanCompiler compiler) {
+        this.metaData = metaData;
+        this.compiler = compiler;
+        this.module = null;
+    }
+    
+    /**
+     * Creates proxy of lazy singleton.
+     * 
+     * @param metaData  singleton module.
+     * @param compiler  compiler of singleton plan.
+     * @return          proxy implementing module interface.
+     */
+    static GemModule newProxy(ModuleMetaData metaData, InstantiationPlanCompiler compiler) {
+        Class moduleInterface = metaData.getModuleInterface();
+        return (GemModule) Proxy.newProxyInstance(
+                moduleInterface.getClassLoader(), 
+                new Class[] { moduleInterface }, 
+                new LazySingletonHandler(metaData, compiler));
+    }
+    
+    /**
+     * Returns singleton standing behind proxy without its creation.
+     * 
+     * @param module    proxy of lazy singleton or any other module.
+     * @return          singleton created by proxy or null if it has not 
+     *                  been created yet. Module itself is returned if it 
+     *                  is not proxy of lazy singleton.
+     */
+    static GemModule createdModuleOf(GemModule module) {
+        if ( Proxy.isProxyClass(module.getClass()) ) {
+            InvocationHandler handler = Proxy.getInvocationHandler(module);
+            if ( handler instanceof LazySingletonHandler ) {
+                return ((LazySingletonHandler) handler).module;
+            }
+        }
+        return module;
+    }
+    
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if ( method.getDeclaringClass().equals(Object.class) ) {
+            if ( method.getName().equals("equals") ) {
+                return proxy == args[0];
+            }
+            if ( method.getName().equals("hashCode") ) {
+                return System.identityHashCode(proxy);
+            }
+        }
+        try {
+            return method.invoke(getModule(), args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        } catch (IllegalAccessException e) {
+            // method of interface that is not public, proxy class 
+            // passes the same Method object on every invocation.
+            method.setAccessible(true);
+            return invoke(proxy, method, args);
+        }
+    }
+    
+    private GemModule getModule() {
+        GemModule created = module;
+        if ( created == null ) {
+            synchronized ( this ) {
+                created = module;
+                if ( created == null ) {
+                    created = compiler.compile(metaData).execute();
+                    module = created;
+                }
+            }
+        }
+        return created;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.reflect.Constructor;
+
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>{@link ModuleInvoker} that delegates module creation to other 
+ * invoker and records time spent in module constructor into 
+ * {@link ContainerMetrics}.</p>
+ * 
+ * <p>Dependencies are passed to invoker ready, so that measured time 
+ * belongs to this module only. Failed creations are not recorded.</p>
+ * 
+ * @author  Diarsid
+ * @see     Container#useMetrics()
+ */
+final class MeasuredModuleInvoker extends ModuleInvoker {
+    
+    private final ModuleInvoker invoker;
+    private final ContainerMetrics.ModuleStats stats;
+    
+    MeasuredModuleInvoker(
+            Constructor buildCons, 
+            ModuleInvoker invoker, 
+            ContainerMetrics.ModuleStats stats) {
+        super(invoker.getModuleInterface(), buildCons);
+        this.invoker = invoker;
+        this.stats = stats;
+    }
+    
+    /**
+     * @return  invoker creating modules without measurement.
+     */
+    ModuleInvoker getInvoker() {
+        return invoker;
+    }
+    
+    @Override
+    GemModule newModule(GemModule[] args) {
+        long start = System.nanoTime();
+        GemModule module = invoker.newModule(args);
+        stats.created(System.nanoTime() - start);
+        return module;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import com.drs.gem.injector.exceptions.ContainerCloseException;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Closes objects of one module which implement {@link AutoCloseable} 
+ * on the calling thread and collects failures of closing.</p>
+ * 
+ * <p>Failure to close object does not stop closing of other objects. All 
+ * failures are reported with one {@link ContainerCloseException} having 
+ * the first failure as its cause and other failures as suppressed 
+ * exceptions.</p>
+ * 
+ * @author  Diarsid
+ * @see     ThreadModuleSource
+ * @see     PooledModuleSource
+ */
+final class ModuleCloser {
+    
+    private final Class moduleInterface;
+    private ContainerCloseException failure;
+    
+    ModuleCloser(Class moduleInterface) {
+        this.moduleInterface = moduleInterface;
+        this.failure = null;
+    }
+    
+    /**
+     * Closes module object if it implements {@link AutoCloseable}.
+     * 
+     * @param module    module object.
+     */
+    void close(GemModule module) {
+        if ( ! (module instanceof AutoCloseable) ) {
+            return;
+        }
+        try {
+            ((AutoCloseable) module).close();
+        } catch (Exception | Error e) {
+            if ( failure == null ) {
+                failure = new ContainerCloseException(
+                        moduleInterface.getCanonicalName() + 
+                        " closing exception: " + e.getMessage(), e);
+            } else {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+    
+    /**
+     * Returns failure of closing.
+     * 
+     * @return  the first failure with other failures suppressed, or null 
+     *          if all objects have been closed properly.
+     */
+    ContainerCloseException getFailure() {
+        return failure;
+    }
+}
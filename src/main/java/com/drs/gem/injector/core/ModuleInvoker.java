@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+
+import com.drs.gem.injector.exceptions.ModuleInstantiationException;
+import com.drs.gem.injector.module.GemModule;
+import com.drs.gem.injector.module.GemModuleBuilder;
+
+/**
+ * <p>Object being responsible for immediate invocation of module constructor
+ * or module builder constructor.</p>
+ *
+ * <p>Invoker is created once for every module constructor collected by
+ * container. Default invoker created by {@link #reflective(Class,
+ * Constructor) .reflective()} calls {@link
+ * Constructor#newInstance(Object...) Constructor.newInstance()}. Whether
+ * constructor belongs to {@link GemModuleBuilder} is checked once, when
+ * invoker is created, so that {@link GemModuleBuilder#buildModule()
+ * .buildModule()} is invoked without type check on every call.</p>
+ *
+ * <p>Invoker created by {@link #of(Class, Constructor) .of()} converts
+ * {@link Constructor} into {@link MethodHandle} which type is adapted to
+ * accept exactly as many {@link GemModule} arguments as constructor has
+ * and to return {@link GemModule}. If constructor belongs to {@link
+ * GemModuleBuilder} the handle is combined with {@link
+ * GemModuleBuilder#buildModule() .buildModule()} invocation, thus module
+ * is returned in both cases. There are separate implementations for
+ * constructors with zero to five parameters calling the handle with
+ * {@link MethodHandle#invokeExact(Object...) .invokeExact()}, constructors
+ * with more parameters are invoked through spreading handle accepting
+ * arguments array as is. On modern JVMs handle which is not constant is
+ * not faster than inflated reflective constructor accessor, thus method
+ * handles are used only if {@link Container#useMethodHandles()} is
+ * invoked.</p>
+ *
+ * @author  Diarsid
+ * @see     ModulesContainer
+ */
+abstract class ModuleInvoker {
+
+    private static final int MAX_SPECIALIZED_ARITY = 5;
+
+    private final Class moduleInterface;
+    private final Class buildClass;
+    private final int arity;
+
+    ModuleInvoker(Class moduleInterface, Constructor buildCons) {
+        this(moduleInterface, buildCons.getDeclaringClass(), buildCons.getParameterCount());
+    }
+
+    ModuleInvoker(Class moduleInterface, Class buildClass, int arity) {
+        this.moduleInterface = moduleInterface;
+        this.buildClass = buildClass;
+        this.arity = arity;
+    }
+
+    /**
+     * Creates invoker calling specified constructor reflectively.
+     * Constructor must be made accessible before this method invocation.
+     *
+     * @param moduleInterface   module interface which is created by
+     *                          this constructor.
+     * @param buildCons         constructor of module implementation class
+     *                          or module builder class.
+     * @return                  reflective invoker.
+     */
+    static ModuleInvoker reflective(Class moduleInterface, Constructor buildCons) {
+        return new Reflective(moduleInterface, buildCons);
+    }
+
+    /**
+     * Creates invoker calling specified constructor through method
+     * handle. Constructor must be made accessible before this method
+     * invocation.
+     *
+     * @param moduleInterface   module interface which is created by
+     *                          this constructor.
+     * @param buildCons         constructor of module implementation class
+     *                          or module builder class.
+     * @return                  invoker appropriate for constructor arity.
+     */
+    static ModuleInvoker of(Class moduleInterface, Constructor buildCons) {
+        MethodHandle handle = toModuleHandle(moduleInterface, buildCons);
+        int arity = buildCons.getParameterCount();
+        switch (arity) {
+            case 0 : return new Arity0(moduleInterface, buildCons, handle);
+            case 1 : return new Arity1(moduleInterface, buildCons, handle);
+            case 2 : return new Arity2(moduleInterface, buildCons, handle);
+            case 3 : return new Arity3(moduleInterface, buildCons, handle);
+            case 4 : return new Arity4(moduleInterface, buildCons, handle);
+            case 5 : return new Arity5(moduleInterface, buildCons, handle);
+            default : return new Spreading(moduleInterface, buildCons, handle);
+        }
+    }
+
+    private static MethodHandle toModuleHandle(Class moduleInterface, Constructor buildCons) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            MethodHandle handle = lookup.unreflectConstructor(buildCons);
+            if ( GemModuleBuilder.class.isAssignableFrom(buildCons.getDeclaringClass()) ) {
+                MethodHandle buildModule = lookup.findVirtual(
+                        GemModuleBuilder.class,
+                        "buildModule",
+                        MethodType.methodType(GemModule.class));
+                handle = handle.asType(
+                        handle.type().changeReturnType(GemModuleBuilder.class));
+                handle = MethodHandles.filterReturnValue(handle, buildModule);
+            }
+            int arity = buildCons.getParameterCount();
+            MethodType moduleType = MethodType.methodType(
+                    GemModule.class, Collections.nCopies(arity, GemModule.class));
+            handle = handle.asType(moduleType);
+            if ( arity > MAX_SPECIALIZED_ARITY ) {
+                handle = handle.asSpreader(GemModule[].class, arity);
+            }
+            return handle;
+        } catch (IllegalAccessException | NoSuchMethodException e) {
+            throw new ModuleInstantiationException(
+                    moduleInterface.getCanonicalName() +
+                    " instantiation exception: illegel access.", e);
+        }
+    }
+
+    Class getModuleInterface() {
+        return moduleInterface;
+    }
+
+    Class getBuildClass() {
+        return buildClass;
+    }
+
+    int getArity() {
+        return arity;
+    }
+
+    /**
+     * Creates new module object.
+     *
+     * @param args  dependencies of module. Array length must be equal to
+     *              constructor parameters quantity.
+     * @return      module object. If module has builder, module obtained
+     *              from builder is returned.
+     */
+    abstract GemModule newModule(GemModule[] args);
+
+    /**
+     * Returns true if invoker creates new module object on every
+     * invocation by calling module constructor.
+     *
+     * @return  true if module constructor is invoked.
+     */
+    boolean createsModule() {
+        return true;
+    }
+
+    ModuleInstantiationException failure(Throwable e) {
+        if ( e instanceof ModuleInstantiationException ) {
+            return (ModuleInstantiationException) e;
+        }
+        return new ModuleInstantiationException(
+                moduleInterface.getCanonicalName() +
+                " instantiation exception: " +
+                "underlying constructor throws exception.", e);
+    }
+
+    private static final class Reflective extends ModuleInvoker {
+
+        private final Constructor buildCons;
+        private final boolean builder;
+
+        Reflective(Class moduleInterface, Constructor buildCons) {
+            super(moduleInterface, buildCons);
+            this.buildCons = buildCons;
+            this.builder = GemModuleBuilder.class.isAssignableFrom(
+                    buildCons.getDeclaringClass());
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            Object obj;
+            try {
+                obj = buildCons.newInstance((Object[]) args);
+            } catch (InvocationTargetException e) {
+                throw failure(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new ModuleInstantiationException(
+                        getModuleInterface().getCanonicalName() +
+                        " instantiation exception: illegel access.", e);
+            } catch (IllegalArgumentException e) {
+                throw new ModuleInstantiationException(
+                        getModuleInterface().getCanonicalName() +
+                        " instantiation exception: " +
+                        "illegel arguments in constructor.", e);
+            } catch (InstantiationException e) {
+                throw new ModuleInstantiationException(
+                        getModuleInterface().getCanonicalName() +
+                        " instantiation exception: " +
+                        "underlying implementation class is abstract.", e);
+            }
+            if ( builder ) {
+                return ((GemModuleBuilder) obj).buildModule();
+            } else {
+                return (GemModule) obj;
+            }
+        }
+    }
+
+    private static final class Arity0 extends ModuleInvoker {
+
+        private final MethodHandle handle;
+
+        Arity0(Class moduleInterface, Constructor buildCons, MethodHandle handle) {
+            super(moduleInterface, buildCons);
+            this.handle = handle;
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            try {
+                return (GemModule) handle.invokeExact();
+            } catch (Throwable e) {
+                throw failure(e);
+            }
+        }
+    }
+
+    private static final class Arity1 extends ModuleInvoker {
+
+        private final MethodHandle handle;
+
+        Arity1(Class moduleInterface, Constructor buildCons, MethodHandle handle) {
+            super(moduleInterface, buildCons);
+            this.handle = handle;
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            try {
+                return (GemModule) handle.invokeExact(args[0]);
+            } catch (Throwable e) {
+                throw failure(e);
+            }
+        }
+    }
+
+    private static final class Arity2 extends ModuleInvoker {
+
+        private final MethodHandle handle;
+
+        Arity2(Class moduleInterface, Constructor buildCons, MethodHandle handle) {
+            super(moduleInterface, buildCons);
+            this.handle = handle;
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            try {
+                return (GemModule) handle.invokeExact(args[0], args[1]);
+            } catch (Throwable e) {
+                throw failure(e);
+            }
+        }
+    }
+
+    private static final class Arity3 extends ModuleInvoker {
+
+        private final MethodHandle handle;
+
+        Arity3(Class moduleInterface, Constructor buildCons, MethodHandle handle) {
+            super(moduleInterface, buildCons);
+            this.handle = handle;
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            try {
+                return (GemModule) handle.invokeExact(args[0], args[1], args[2]);
+            } catch (Throwable e) {
+                throw failure(e);
+            }
+        }
+    }
+
+    private static final class Arity4 extends ModuleInvoker {
+
+        private final MethodHandle handle;
+
+        Arity4(Class moduleInterface, Constructor buildCons, MethodHandle handle) {
+            super(moduleInterface, buildCons);
+            this.handle = handle;
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            try {
+                return (GemModule) handle.invokeExact(
+                        args[0], args[1], args[2], args[3]);
+            } catch (Throwable e) {
+                throw failure(e);
+            }
+        }
+    }
+
+    private static final class Arity5 extends ModuleInvoker {
+
+        private final MethodHandle handle;
+
+        Arity5(Class moduleInterface, Constructor buildCons, MethodHandle handle) {
+            super(moduleInterface, buildCons);
+            this.handle = handle;
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            try {
+                return (GemModule) handle.invokeExact(
+                        args[0], args[1], args[2], args[3], args[4]);
+            } catch (Throwable e) {
+                throw failure(e);
+            }
+        }
+    }
+
+    private static final class Spreading extends ModuleInvoker {
+
+        private final MethodHandle handle;
+
+        Spreading(Class moduleInterface, Constructor buildCons, MethodHandle handle) {
+            super(moduleInterface, buildCons);
+            this.handle = handle;
+        }
+
+        @Override
+        GemModule newModule(GemModule[] args) {
+            try {
+                return (GemModule) handle.invokeExact(args);
+            } catch (Throwable e) {
+                throw failure(e);
+            }
+        }
+    }
+}
@@ -19,10 +19,18 @@
 package com.drs.gem.injector.core;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 import com.drs.gem.injector.exceptions.DependencyCalculationException;
+import com.drs.gem.injector.exceptions.InvalidModuleImplementationException;
+import com.drs.gem.injector.module.GemModule;
+import com.drs.gem.injector.module.GemModuleProvider;
 
 /**
  * <p>Class representing module, provides data about it and contains
@@ -31,19 +39,24 @@ import com.drs.gem.injector.exceptions.DependencyCalculationException;
  * <p>It implements Comparable therefore collections of its objects could be 
  * sorted. 
  * Their natural ordering is determined by object's int priority field. Its value 
- * means how much real dependencies has module described by this
- * ModuleMetaData. Not only direct dependencies (constructor arguments)
- * are counted, but also dependencies of underlying modules, i.e. all
- * quantity of modules in dependencies graph that lead to this module.</p>
+ * is position of module described by this ModuleMetaData in topological 
+ * order of container modules graph, i.e. every module has greater priority
+ * than all modules in dependencies graph that lead to this module, not 
+ * only its direct dependencies (constructor arguments).</p>
  * 
- * <p>Information about every module dependencies quantity is required 
- * in order to compose sequential module initialization order when all
- * modules without dependencies will be initialized firstly, modules 
- * with one dependency secondarily and so on. This approach ensures that
+ * <p>Priority of every module is required in order to compose sequential 
+ * module initialization order when all modules without dependencies will 
+ * be initialized firstly and every other module only after all its 
+ * dependencies. This approach ensures that
  * when it comes time for every module to be initialized, all required 
  * dependencies will be already initialized and injection will be 
  * performed properly.</p>
  * 
+ * <p>Module depends on module interfaces declared as its constructor 
+ * parameters. Parameter declared as {@link GemModuleProvider} or 
+ * {@link Supplier} of some module also makes module dependent on this 
+ * module, though module receives provider instead of module object.</p>
+ * 
  * @author  Diarsid
  * @see     InjectionPriorityCalculator 
  */
@@ -51,21 +64,86 @@ final class ModuleMetaData implements Comparable<ModuleMetaData>{
     
     private final Class moduleInterface;
     private final Constructor moduleConstructor;
+    private final ModuleInvoker invoker;
     private final GemModuleType type;
-    private List<ModuleMetaData> actualDeps;
+    private final Class[] dependencies;
+    private final boolean[] providedDependencies;
+    private volatile List<ModuleMetaData> actualDeps;
     private int priority;
     
-    ModuleMetaData(Class moduleInterface, Constructor cons, GemModuleType type){        
+    ModuleMetaData(
+            Class moduleInterface, 
+            Constructor cons, 
+            ModuleInvoker invoker, 
+            GemModuleType type){        
         this.moduleInterface = moduleInterface;
         this.moduleConstructor = cons;
+        this.invoker = invoker;
         this.type = type;
+        this.dependencies = dependenciesOf(cons);
+        this.providedDependencies = new boolean[dependencies.length];
+        Class[] params = cons.getParameterTypes();
+        for (int i = 0; i < params.length; i++) {
+            providedDependencies[i] = isProvider(params[i]);
+        }
         this.priority = -1;
     }
     
+    /**
+     * Returns module interfaces which specified constructor depends on, 
+     * in order of constructor parameters. Parameter declared as provider 
+     * of module is replaced with interface of this module.
+     * 
+     * @param cons  module constructor. It can be also constructor of 
+     *              module builder.
+     * @return      dependencies of constructor.
+     * @throws      InvalidModuleImplementationException if provider 
+     *              parameter does not specify module interface.
+     */
+    static Class[] dependenciesOf(Constructor cons) {
+        Class[] dependencies = cons.getParameterTypes();
+        Type[] genericParams = cons.getGenericParameterTypes();
+        for (int i = 0; i < dependencies.length; i++) {
+            if ( isProvider(dependencies[i]) ) {
+                dependencies[i] = providedModuleOf(cons, genericParams, i);
+            }
+        }
+        return dependencies;
+    }
+    
+    private static boolean isProvider(Class param) {
+        return param.equals(GemModuleProvider.class) || 
+                param.equals(Supplier.class);
+    }
+    
+    private static Class providedModuleOf(Constructor cons, Type[] genericParams, int i) {
+        // generic parameters of inner class constructor do not include 
+        // enclosing instance, thus they can not be matched with parameters.
+        if ( genericParams.length == cons.getParameterCount() && 
+                genericParams[i] instanceof ParameterizedType ) {
+            Type provided = 
+                    ((ParameterizedType) genericParams[i]).getActualTypeArguments()[0];
+            if ( provided instanceof Class && 
+                    GemModule.class.isAssignableFrom((Class) provided) ) {
+                return (Class) provided;
+            }
+        }
+        throw new InvalidModuleImplementationException(
+                "Invalid module implementation: parameter " + i + 
+                " of injected constructor in " + 
+                cons.getDeclaringClass().getCanonicalName() + 
+                " must be provider of module interface, e.g. " + 
+                "GemModuleProvider<SomeModule>.");
+    }
+    
     Constructor getConstructor(){
         return this.moduleConstructor;
     }
         
+    ModuleInvoker getInvoker(){
+        return this.invoker;
+    }
+        
     Class getModuleInterface(){
         return moduleInterface;
     }
@@ -74,11 +152,30 @@ final class ModuleMetaData implements Comparable<ModuleMetaData>{
         return type;
     }
     
+    /**
+     * Returns module interfaces this module depends on, in order of 
+     * constructor parameters. Returned array must not be modified.
+     * 
+     * @return  dependencies of module.
+     */
+    Class[] getDeclaredDependencies(){
+        return dependencies;
+    }
+    
+    /**
+     * @param index     index of constructor parameter.
+     * @return          true if module receives provider of dependency 
+     *                  instead of dependency object.
+     */
+    boolean isProvidedDependency(int index){
+        return providedDependencies[index];
+    }
+    
     /**
      * This priority has initial value of -1 means that its actual 
-     * dependencies quantity has not been calculated yet. 
-     * {@link InjectionPriorityCalculator} is responsible for dependencies 
-     * quantity calculation.
+     * position in topological order has not been calculated yet. 
+     * {@link InjectionPriorityCalculator} is responsible for priority 
+     * calculation.
      * 
      * @param   priority.
      * @see     InjectionPriorityCalculator.
@@ -87,8 +184,20 @@ final class ModuleMetaData implements Comparable<ModuleMetaData>{
         this.priority = priority;
     }
     
+    int getPriority(){
+        return priority;
+    }
+    
+    /**
+     * Stores dependencies calculated by injector at the first module 
+     * request. Stored list is immutable and is published through volatile 
+     * field, thus it can be calculated and read by different threads 
+     * simultaneously.
+     * 
+     * @param actualDatas   actual dependencies of module.
+     */
     void setActualDependencies(List<ModuleMetaData> actualDatas) {
-        this.actualDeps = actualDatas;
+        this.actualDeps = Collections.unmodifiableList(new ArrayList<>(actualDatas));
     }
     
     List<ModuleMetaData> getDependencies() {
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import com.drs.gem.injector.module.GemModule;
+import com.drs.gem.injector.module.GemModuleProvider;
+
+/**
+ * <p>Provider injected into modules whose constructors declare 
+ * {@link GemModuleProvider} or {@link java.util.function.Supplier} 
+ * of module instead of module itself. Every {@link #get()} invocation 
+ * obtains module from container in accordance with its type, thus 
+ * prototypes are created only when they are required.</p>
+ * 
+ * <p>Provider is passed to module invokers among module dependencies,
+ * that is why it is marked as {@link GemModule} too. Container keeps 
+ * one provider per module.</p>
+ * 
+ * @author  Diarsid
+ * @see     GemModuleProvider
+ */
+final class ModuleProvider implements GemModuleProvider<GemModule>, GemModule {
+    
+    private final Class moduleInterface;
+    private final ModulesContainer container;
+    
+    ModuleProvider(Class moduleInterface, ModulesContainer container) {
+        this.moduleInterface = moduleInterface;
+        this.container = container;
+    }
+    
+    @Override
+    public GemModule get() {
+        return container.provideModule(moduleInterface);
+    }
+    
+    @Override
+    public String toString() {
+        return "GemModuleProvider<" + moduleInterface.getCanonicalName() + ">";
+    }
+}
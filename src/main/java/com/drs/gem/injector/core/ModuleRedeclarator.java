@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.drs.gem.injector.exceptions.ModuleDeclarationException;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Replaces implementation of module declared in initialized
+ * container.</p>
+ *
+ * <p>Only modules affected by replacement are rebuilt: module itself and
+ * all modules which receive its objects directly or through other
+ * affected modules. State of container kept for affected modules is
+ * saved before redeclaration and restored if any affected module can
+ * not be verified or created. Singletons replaced by redeclaration are
+ * closed by {@link ParallelSingletonsDisposer} after new modules have
+ * been stored, in the same way as they are closed by {@link
+ * Container#close(long, TimeUnit)}.</p>
+ *
+ * <p>Child containers and forks are not refreshed, thus redeclaration is
+ * rejected while any affected singleton is held by open dependent
+ * container.</p>
+ *
+ * @author  Diarsid
+ * @see     Container#redeclareModule(String, String)
+ */
+final class ModuleRedeclarator {
+
+    private final ModulesContainer container;
+    private final Factory factory;
+
+    ModuleRedeclarator(ModulesContainer container, Factory factory) {
+        this.container = container;
+        this.factory = factory;
+    }
+
+    /**
+     * Replaces declaration of resolved module and rebuilds affected
+     * modules.
+     *
+     * @param moduleInterface   redeclared module interface class object.
+     * @param previous          current declaration of module.
+     * @param redeclared        new declaration of module.
+     * @throws ModuleDeclarationException   if affected singleton is held
+     *                                      by dependent container.
+     * @throws com.drs.gem.injector.exceptions.ContainerCloseException
+     *          if replaced singleton has not been closed properly.
+     */
+    void redeclare(
+            Class moduleInterface,
+            GemModuleDeclaration previous,
+            GemModuleDeclaration redeclared) {
+        Rollback rollback = new Rollback(previous);
+        rollback.save(collectAffectedModules(moduleInterface));
+        try {
+            container.applyRedeclaration(moduleInterface, redeclared);
+            // modules resolved lazily during preparation can depend on
+            // redeclared module as well.
+            Set<Class> affected = collectAffectedModules(moduleInterface);
+            rollback.save(affected);
+            verifyNotHeldByDependents(moduleInterface, affected);
+            container.rebuildModules(affected);
+        } catch (RuntimeException | Error e) {
+            rollback.restore();
+            throw e;
+        }
+        closeReplacedSingletons(rollback);
+    }
+
+    /**
+     * Returns specified module and all modules which objects receive its
+     * objects directly or through other modules. Modules receiving
+     * provider are not affected.
+     */
+    private Set<Class> collectAffectedModules(Class moduleInterface) {
+        Map<Class, List<Class>> dependents = new HashMap<>();
+        for (ModuleMetaData metaData : container.getResolvedModules()) {
+            Class[] depcies = metaData.getDeclaredDependencies();
+            for (int i = 0; i < depcies.length; i++) {
+                if ( ! metaData.isProvidedDependency(i) ) {
+                    dependents
+                            .computeIfAbsent(depcies[i], depcy -> new ArrayList<>())
+                            .add(metaData.getModuleInterface());
+                }
+            }
+        }
+        Set<Class> affected = new LinkedHashSet<>();
+        Deque<Class> toVisit = new ArrayDeque<>();
+        affected.add(moduleInterface);
+        toVisit.push(moduleInterface);
+        while ( ! toVisit.isEmpty() ) {
+            List<Class> moduleDependents = dependents.get(toVisit.pop());
+            if ( moduleDependents != null ) {
+                for (Class dependent : moduleDependents) {
+                    if ( affected.add(dependent) ) {
+                        toVisit.push(dependent);
+                    }
+                }
+            }
+        }
+        return affected;
+    }
+
+    private void verifyNotHeldByDependents(Class redeclared, Set<Class> affected) {
+        for (Class moduleInterface : affected) {
+            GemModule module = container.getSingletons().get(moduleInterface);
+            if ( module == null ) {
+                continue;
+            }
+            ModulesContainer holder =
+                    container.getDependents().findHolderOf(moduleInterface, module);
+            if ( holder != null ) {
+                throw new ModuleDeclarationException(
+                        "Module " + redeclared.getCanonicalName() +
+                        " can not be redeclared: singleton " +
+                        moduleInterface.getCanonicalName() +
+                        " is held by container " + holder.getName() +
+                        ". Close child containers and forks holding " +
+                        "affected singletons before redeclaration.");
+            }
+        }
+    }
+
+    /**
+     * Closes singletons replaced by redeclaration. Singletons shared by
+     * template of fork are not closed, replacements become own singletons
+     * of fork.
+     */
+    private void closeReplacedSingletons(Rollback rollback) {
+        List<ModuleMetaData> replaced = new ArrayList<>();
+        Map<Class, GemModule> singletons = new HashMap<>();
+        for (Map.Entry<Class, ModulesContainer.ModuleEntries> saved :
+                rollback.entries.entrySet()) {
+            Class moduleInterface = saved.getKey();
+            ModuleMetaData metaData = saved.getValue().getMetaData();
+            GemModule singleton = saved.getValue().getSingleton();
+            if ( metaData == null || singleton == null ||
+                    container.stopSharing(moduleInterface) ) {
+                continue;
+            }
+            replaced.add(metaData);
+            singletons.put(moduleInterface, singleton);
+        }
+        if ( ! replaced.isEmpty() ) {
+            factory.buildDisposer((ModulesInfo) container).closeSingletons(
+                    replaced,
+                    singletons,
+                    ModulesContainer.DEFAULT_CLOSE_TIMEOUT_SECONDS,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * State of container touched by module redeclaration, saved before
+     * redeclaration in order to be restored if it fails.
+     */
+    private final class Rollback {
+
+        private final GemModuleDeclaration previous;
+        private final Map<Class, ModulesContainer.ModuleEntries> entries;
+        private final List<ModuleMetaData> priorities;
+
+        Rollback(GemModuleDeclaration previous) {
+            this.previous = previous;
+            this.entries = new LinkedHashMap<>();
+            this.priorities = container.getInjectionPriorities();
+        }
+
+        /**
+         * Saves state of specified modules if it has not been saved yet.
+         */
+        void save(Set<Class> modules) {
+            for (Class moduleInterface : modules) {
+                if ( ! entries.containsKey(moduleInterface) ) {
+                    entries.put(moduleInterface, container.saveEntriesOf(moduleInterface));
+                }
+            }
+        }
+
+        void restore() {
+            container.recordModuleDeclaration(previous);
+            for (Map.Entry<Class, ModulesContainer.ModuleEntries> saved :
+                    entries.entrySet()) {
+                container.restoreEntriesOf(saved.getKey(), saved.getValue());
+            }
+            container.restoreInjectionPriorities(priorities);
+        }
+    }
+}
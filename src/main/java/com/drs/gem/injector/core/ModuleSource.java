@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Source of module objects for module which objects are neither 
+ * shared by whole container like singletons nor created on every 
+ * injection like prototypes. Source decides which object should be 
+ * returned in current context and creates it with module 
+ * {@link InstantiationPlan} when it is required.</p>
+ * 
+ * <p>Modules depending on such module receive object returned by 
+ * source at the moment of their own creation.</p>
+ * 
+ * @author  Diarsid
+ * @see     ThreadModuleSource
+ */
+interface ModuleSource {
+    
+    /**
+     * Returns module object appropriate for current context.
+     * 
+     * @return  module object.
+     */
+    GemModule get();
+}
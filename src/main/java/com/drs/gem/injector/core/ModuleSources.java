@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.drs.gem.injector.exceptions.ContainerCloseException;
+import com.drs.gem.injector.exceptions.ModuleDeclarationException;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Sources of module objects of one container which are neither 
+ * singletons nor prototypes: {@link ThreadModuleSource} of every thread 
+ * module, {@link PooledModuleSource} of every pooled module and {@link 
+ * ScopedModuleSource} of every scoped module. Keeps scopes and pool 
+ * sizes set for container before initialization and {@link 
+ * ModuleProvider} objects injected instead of module objects.</p>
+ * 
+ * <p>Sources are created when instantiation plans of their modules are 
+ * compiled. Objects kept by thread and pooled sources are closed when 
+ * container is closed.</p>
+ * 
+ * @author  Diarsid
+ * @see     ModuleSource
+ */
+final class ModuleSources {
+    
+    private final ModulesContainer container;
+    private final Factory factory;
+    
+    /**
+     * Map<Class, ThreadModuleSource> that contains entries where key is 
+     * module interface class object with GemModuleType = THREAD and value
+     * is {@link ThreadModuleSource} keeping module objects of every 
+     * thread.
+     */
+    private final Map<Class, ThreadModuleSource> threadSources;
+    
+    /**
+     * Map<Class, PooledModuleSource> that contains entries where key is 
+     * module interface class object with GemModuleType = POOLED and value
+     * is {@link PooledModuleSource} keeping pool of module objects.
+     */
+    private final Map<Class, PooledModuleSource> pooledSources;
+    
+    /**
+     * Map<Class, ScopedModuleSource> that contains entries where key is 
+     * module interface class object with GemModuleType = SCOPED and value
+     * is {@link ScopedModuleSource} delegating to module scope.
+     */
+    private final Map<Class, ScopedModuleSource> scopedSources;
+    
+    /**
+     * Map<String, Integer> that contains pool sizes set for pooled 
+     * modules, where key is module interface canonical name.
+     */
+    private final Map<String, Integer> poolSizes;
+    
+    /**
+     * Map<String, GemModuleScope> that contains scopes registered in 
+     * container, where key is scope name.
+     */
+    private final Map<String, GemModuleScope> scopes;
+    
+    /**
+     * Map<Class, ModuleProvider> that contains providers injected into 
+     * modules instead of module objects, where key is provided module 
+     * interface class object.
+     */
+    private final Map<Class, ModuleProvider> providers;
+    
+    ModuleSources(ModulesContainer container, Factory factory) {
+        this.container = container;
+        this.factory = factory;
+        this.threadSources = new ConcurrentHashMap<>();
+        this.pooledSources = new ConcurrentHashMap<>();
+        this.scopedSources = new ConcurrentHashMap<>();
+        this.poolSizes = new HashMap<>();
+        this.scopes = new HashMap<>();
+        this.providers = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Receives pool sizes and scopes of template of fork.
+     * 
+     * @param template  sources of template.
+     */
+    void copySettingsOf(ModuleSources template) {
+        poolSizes.putAll(template.poolSizes);
+        scopes.putAll(template.scopes);
+    }
+    
+    /**
+     * Sets size of pool of pooled module.
+     * 
+     * @param moduleInterface   module interface canonical name.
+     * @param size              maximal quantity of idle objects in pool.
+     * @throws ModuleDeclarationException if size is not positive.
+     */
+    void setPoolSize(String moduleInterface, int size) {
+        if ( size <= 0 ) {
+            throw new ModuleDeclarationException(
+                    "Pool size of " + moduleInterface + " must be positive.");
+        }
+        poolSizes.put(moduleInterface, size);
+    }
+    
+    void registerScope(String scopeName, GemModuleScope scope) {
+        scopes.put(scopeName, scope);
+    }
+    
+    /**
+     * Creates source of thread, pooled or scoped module. Other modules 
+     * do not have sources.
+     * 
+     * @param metaData  module.
+     * @param plan      compiled instantiation plan of module.
+     */
+    void createSourceOf(ModuleMetaData metaData, InstantiationPlan plan) {
+        Class moduleInterface = metaData.getModuleInterface();
+        if ( metaData.getType().equals(GemModuleType.THREAD) ) {
+            threadSources.put(moduleInterface, factory.buildThreadSource(plan));
+        } else if ( metaData.getType().equals(GemModuleType.POOLED) ) {
+            ContainerMetrics metrics = container.getMetricsOrNull();
+            ContainerMetrics.ModuleStats stats = null;
+            if ( metrics != null ) {
+                stats = metrics.statsOf(moduleInterface, GemModuleType.POOLED);
+            }
+            pooledSources.put(moduleInterface, factory.buildPooledSource(
+                    plan, poolSizeOf(moduleInterface), stats));
+        } else if ( metaData.getType().equals(GemModuleType.SCOPED) ) {
+            scopedSources.put(moduleInterface, factory.buildScopedSource(
+                    moduleInterface, scopeOf(moduleInterface), plan));
+        }
+    }
+    
+    /**
+     * Returns registered scope of scoped module.
+     * 
+     * @param moduleInterface   scoped module interface class object.
+     * @return                  scope of module.
+     * @throws ModuleDeclarationException if scope is not registered.
+     */
+    GemModuleScope scopeOf(Class moduleInterface) {
+        String scopeName = container.getDeclaration(
+                moduleInterface.getName()).getScopeName();
+        GemModuleScope scope = scopes.get(scopeName);
+        if ( scope == null ) {
+            throw new ModuleDeclarationException(
+                    "Scope " + scopeName + " of module " + 
+                    moduleInterface.getCanonicalName() + 
+                    " is not registered in this container.");
+        }
+        return scope;
+    }
+    
+    private int poolSizeOf(Class moduleInterface) {
+        Integer size = poolSizes.get(moduleInterface.getName());
+        if ( size == null ) {
+            return Runtime.getRuntime().availableProcessors();
+        } else {
+            return size;
+        }
+    }
+    
+    /**
+     * Returns source of module of specified type.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @param type              type of module.
+     * @return                  source of module or null if module of this 
+     *                          type does not have source.
+     */
+    ModuleSource getSource(Class moduleInterface, GemModuleType type) {
+        if ( type.equals(GemModuleType.THREAD) ) {
+            return threadSources.get(moduleInterface);
+        } else if ( type.equals(GemModuleType.POOLED) ) {
+            return pooledSources.get(moduleInterface);
+        } else if ( type.equals(GemModuleType.SCOPED) ) {
+            return scopedSources.get(moduleInterface);
+        } else {
+            return null;
+        }
+    }
+    
+    /**
+     * Returns source of thread or scoped module, which object is obtained
+     * from source by instantiation plans of modules depending on it.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @return                  source of module or null.
+     * @see                     ModulesInfo#getSourceOfModule(Class)
+     */
+    ModuleSource getContextualSource(Class moduleInterface) {
+        ModuleSource source = threadSources.get(moduleInterface);
+        if ( source == null ) {
+            source = scopedSources.get(moduleInterface);
+        }
+        return source;
+    }
+    
+    ModuleProvider getProvider(Class moduleInterface) {
+        return providers.computeIfAbsent(
+                moduleInterface, 
+                module -> factory.buildProvider(module, container));
+    }
+    
+    /**
+     * Returns object obtained from pool of pooled module.
+     * 
+     * @param moduleInterface   pooled module interface class object.
+     * @param module            object of module.
+     * @throws ModuleDeclarationException   if module is not pooled or 
+     *                                      object has not been obtained 
+     *                                      from pool.
+     * @throws ContainerCloseException      if dropped object has failed 
+     *                                      to close.
+     * @see                                 Container#returnModule(Class, GemModule)
+     */
+    void returnModule(Class moduleInterface, GemModule module) {
+        PooledModuleSource source = pooledSources.get(moduleInterface);
+        if ( source == null ) {
+            throw new ModuleDeclarationException(
+                    "Module " + moduleInterface.getCanonicalName() + 
+                    " is not pooled module of this container.");
+        }
+        if ( module == null ) {
+            throw new ModuleDeclarationException(
+                    "Null can not be returned into pool of module " + 
+                    moduleInterface.getCanonicalName() + ".");
+        }
+        if ( ! source.release(module) ) {
+            throw new ModuleDeclarationException(
+                    "Object " + module + " can not be returned into pool " + 
+                    "of module " + moduleInterface.getCanonicalName() + 
+                    ": it has not been obtained from this pool or has been " + 
+                    "returned already.");
+        }
+    }
+    
+    /**
+     * Disposes objects of thread modules kept for current thread.
+     * 
+     * @return  failure of closing or null if all objects have been 
+     *          closed properly.
+     * @see     Container#releaseThreadModules()
+     */
+    ContainerCloseException releaseThreadModules() {
+        ContainerCloseException failure = null;
+        for (ThreadModuleSource source : threadSources.values()) {
+            failure = ModulesContainer.combineFailures(failure, source.release());
+        }
+        return failure;
+    }
+    
+    /**
+     * Disposes objects of thread modules kept for all threads and idle 
+     * objects of pooled modules.
+     * 
+     * @return  failure of closing or null if all objects have been 
+     *          closed properly.
+     */
+    ContainerCloseException close() {
+        ContainerCloseException failure = null;
+        for (ThreadModuleSource source : threadSources.values()) {
+            failure = ModulesContainer.combineFailures(failure, source.close());
+        }
+        for (PooledModuleSource source : pooledSources.values()) {
+            failure = ModulesContainer.combineFailures(failure, source.close());
+        }
+        return failure;
+    }
+    
+    /**
+     * Returns sources kept for specified module.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @return                  saved sources of module.
+     */
+    SavedSources saveSourcesOf(Class moduleInterface) {
+        return new SavedSources(moduleInterface);
+    }
+    
+    /**
+     * Restores sources kept for specified module. Sources which were 
+     * absent when they were saved are removed.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @param saved             saved sources of module.
+     */
+    void restoreSourcesOf(Class moduleInterface, SavedSources saved) {
+        ModulesContainer.restoreEntry(threadSources, moduleInterface, saved.threadSource);
+        ModulesContainer.restoreEntry(pooledSources, moduleInterface, saved.pooledSource);
+        ModulesContainer.restoreEntry(scopedSources, moduleInterface, saved.scopedSource);
+    }
+    
+    /**
+     * Sources kept for one module. Absent sources are null.
+     */
+    final class SavedSources {
+        
+        private final ThreadModuleSource threadSource;
+        private final PooledModuleSource pooledSource;
+        private final ScopedModuleSource scopedSource;
+        
+        private SavedSources(Class moduleInterface) {
+            this.threadSource = threadSources.get(moduleInterface);
+            this.pooledSource = pooledSources.get(moduleInterface);
+            this.scopedSource = scopedSources.get(moduleInterface);
+        }
+    }
+}
@@ -19,23 +19,40 @@
 package com.drs.gem.injector.core;
 
 import java.lang.reflect.Constructor;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+import com.drs.gem.injector.core.FlightRecorderEvents.InitRecording;
+import com.drs.gem.injector.exceptions.ContainerCloseException;
 import com.drs.gem.injector.exceptions.ContainerInitializationException;
 import com.drs.gem.injector.exceptions.ForbiddenModuleDeclarationException;
 import com.drs.gem.injector.exceptions.ModuleDeclarationException;
-import com.drs.gem.injector.exceptions.UndeclaredDependencyException;
 import com.drs.gem.injector.module.GemModule;
 
 /**
  * Pivotal class representing Dependency Injection container. <br> 
  * Receives information about
  * modules, produces module instances and relay information about modules
- * into {@link Injector}.
+ * into {@link Injector}. Redeclaration of modules, creation of forks and 
+ * tracking of child containers and forks are delegated to {@link 
+ * ModuleRedeclarator}, {@link ContainerForker} and {@link 
+ * DependentContainers}. Sources of thread, pooled and scoped modules 
+ * together with providers are kept by {@link ModuleSources}, modules are 
+ * resolved on demand by {@link LazyModuleResolver}, singletons of parent 
+ * container are inherited through {@link ParentSingletons} and resolved 
+ * graph is restored from snapshot by {@link SnapshotRestorer}.
  * 
  * @author Diarsid
  * @see Container.
@@ -43,6 +60,18 @@ import com.drs.gem.injector.module.GemModule;
  */
 final class ModulesContainer implements Container, ModulesInfo {
     
+    static final long DEFAULT_CLOSE_TIMEOUT_SECONDS = 30;
+    
+    /**
+     * Map<String, GemModuleDeclaration> that contains all module 
+     * declarations made for this container, where key is module interface 
+     * canonical name. Declarations are only recorded when they are made 
+     * and are parsed and verified during container initialization.
+     * 
+     * @see GemModuleDeclaration.
+     */
+    private final Map<String, GemModuleDeclaration> declarations;
+    
     /**
      * Map<Class, Class> that contains entries where key is module interface 
      * class object and value is class being responsible for
@@ -63,6 +92,15 @@ final class ModulesContainer implements Container, ModulesInfo {
      */
     private final Map<Class, Constructor> constructors;
     
+    /**
+     * Map<Class, ModuleInvoker> that contains entries where key is module 
+     * interface class object and value is cached {@link ModuleInvoker} 
+     * created for appropriate constructor from constructors map.
+     * 
+     * @see ModuleInvoker.
+     */
+    private final Map<Class, ModuleInvoker> invokers;
+    
     /**
      * Map<Class, GemModuleType> that contains entries where key is module interface 
      * class object and value is {@link GemModuleType} object.
@@ -89,6 +127,46 @@ final class ModulesContainer implements Container, ModulesInfo {
      */
     private List<ModuleMetaData> injectionPriorities;
     
+    /**
+     * Becomes true when {@link #init()} has been finished. All container 
+     * state written during initialization is published to other threads
+     * through this field, thus {@link #getModule(Class)} reads it first.
+     */
+    private volatile boolean initialized;
+    
+    /**
+     * Becomes true when {@link #close(long, TimeUnit)} has been invoked.
+     */
+    private volatile boolean closed;
+    
+    /**
+     * Map<Class, InstantiationPlan> that contains entries where key is 
+     * module interface class object with GemModuleType = PROTOTYPE and 
+     * value is precompiled {@link InstantiationPlan} of this module. Plans
+     * are compiled once during container initialization and executed 
+     * on every prototype module request.
+     * 
+     * @see InstantiationPlan.
+     */
+    private final Map<Class, InstantiationPlan> instantiationPlans;
+    
+    /**
+     * Set<String> that contains singleton modules represented by proxies 
+     * creating them on demand, where element is module interface 
+     * canonical name.
+     * 
+     * @see LazySingletonHandler.
+     */
+    private final Set<String> lazyProxies;
+    
+    /**
+     * Sources of thread, pooled and scoped modules and providers of 
+     * modules.
+     * 
+     * @see ModuleSources.
+     */
+    private final ModuleSources sources;
+    
     /**
      * Map<Class, ModuleMetaData> that contains module interfaces and 
      * appropriate ModuleMetaData objects.
@@ -132,25 +210,123 @@ final class ModulesContainer implements Container, ModulesInfo {
      * @see PriorityLoopInjector.
      */
     private boolean useRecursiveInjector;
+    
+    /**
+     * <p>Indicates if container should generate factory classes 
+     * for module instantiation instead of reflective invocation of 
+     * module constructors.</p>
+     * <p>Default value is false.</p>
+     * 
+     * @see GeneratedModuleInvoker.
+     */
+    private boolean useGeneratedFactories;
+
+    /**
+     * <p>Indicates if container should invoke module constructors 
+     * through method handles instead of reflective invocation. Generated 
+     * factories take precedence over method handles.</p>
+     * <p>Default value is false.</p>
+     * 
+     * @see ModuleInvoker#of(Class, Constructor).
+     */
+    private boolean useMethodHandles;
+    
+    /**
+     * File containing {@link GraphSnapshot} of resolved modules graph or 
+     * null if snapshot should not be used.
+     * 
+     * @see GraphSnapshot.
+     */
+    private Path snapshotFile;
+    
+    /**
+     * Defines if singletons should be initialized concurrently.
+     * 
+     * @see ParallelSingletonsInitializer.
+     */
+    private boolean useParallelInit;
+    
+    /**
+     * Defines if modules should be resolved and initialized on demand.
+     */
+    private boolean useLazyInit;
+    
+    /**
+     * Resolver of modules initialized on demand.
+     * 
+     * @see LazyModuleResolver.
+     */
+    private final LazyModuleResolver lazyResolver;
+    
+    /**
+     * Name of this container given by {@link GemInjector}.
+     */
+    private final String name;
+    
+    /**
+     * Metrics of this container or null if metrics should not be 
+     * collected.
+     * 
+     * @see ContainerMetrics.
+     */
+    private ContainerMetrics metrics;
+    
+    /**
+     * Class loader of declared module classes or null if class loader of 
+     * this library should be used.
+     */
+    private ClassLoader classLoader;
+    
+    /**
+     * Resolver of module classes declared by their names, created during 
+     * {@link #init()}.
+     * 
+     * @see ClassResolver.
+     */
+    private ClassResolver resolver;
+    
+    /**
+     * Initialized container which singletons are shared with this 
+     * container or null if this container is not child container.
+     */
+    private final ModulesContainer parent;
+    
+    /**
+     * Singletons inherited from parent container.
+     * 
+     * @see ParentSingletons.
+     */
+    private final ParentSingletons parentSingletons;
+    
+    /**
+     * Set<Class> that contains singletons of forked container shared 
+     * with this fork, where element is module interface class object.
+     * 
+     * @see Container#fork(String, String...)
+     */
+    private final Set<Class> sharedSingletons;
+    
+    /**
+     * Child containers and forks created from this container.
+     * 
+     * @see DependentContainers
+     */
+    private final DependentContainers dependents;
 
     /**
      * Accepts only {@link Factory} instance. <br>
      * Boolean field <b>constructorDeclaration</b> is FALSE.
      * 
      * @param factory   {@link Factory} instance.
+     * @param name      name of this container.
+     * @param parent    initialized parent container or null.
      * @see             Container.
      */
-    ModulesContainer(Factory factory) {
-        this.declaredModules = new HashMap<>();
-        this.constructors = new HashMap<>();
-        this.moduleTypes = new HashMap<>();
-        this.singletonModules = new HashMap<>();
-        this.injectionPriorities = null;
-        this.moduleDatas = new HashMap<>();
-        this.constructorDeclaration = false;
-        this.useRecursiveInjector = false;
-        this.factory = factory;
-        this.helper = factory.buildHelper();
+    ModulesContainer(Factory factory, String name, ModulesContainer parent) {
+        this(factory, name, parent, false);
+        if ( parent != null ) {
+            parent.dependents.register(this);
+        }
     }
     
     /**
@@ -159,31 +335,139 @@ final class ModulesContainer implements Container, ModulesInfo {
      * Read more about module declarations in {@link Container}.
      * 
      * @param factory       {@link Factory} instance.
+     * @param name          name of this container.
+     * @param parent        initialized parent container or null.
      * @param declarations  {@link Declaration} instances.
      * @see                 Container.
      */
-    ModulesContainer(Factory factory, Declaration... declarations) {
-        this.declaredModules = new HashMap<>();
-        this.constructors = new HashMap<>();
-        this.moduleTypes = new HashMap<>();
-        this.singletonModules = new HashMap<>();
+    ModulesContainer(
+            Factory factory, 
+            String name, 
+            ModulesContainer parent, 
+            Declaration... declarations) {
+        this(factory, name, parent, true);
+        if ( parent != null ) {
+            parent.dependents.register(this);
+        }
+        processDeclarations(declarations);
+    }
+    
+    /**
+     * Creates fork of initialized container. Fork receives declarations 
+     * and settings of template, resolved modules graph is copied by 
+     * {@link ContainerForker}.
+     * 
+     * @param template  initialized container.
+     * @param name      name of fork.
+     * @see             Container#fork(String, String...)
+     */
+    ModulesContainer(ModulesContainer template, String name) {
+        this(template.factory, name, template.parent, template.constructorDeclaration);
+        this.declarations.putAll(template.declarations);
+        this.injectionPriorities = template.injectionPriorities;
+        this.sources.copySettingsOf(template.sources);
+        this.lazyProxies.addAll(template.lazyProxies);
+        this.useRecursiveInjector = template.useRecursiveInjector;
+        this.useGeneratedFactories = template.useGeneratedFactories;
+        this.useMethodHandles = template.useMethodHandles;
+        this.useParallelInit = template.useParallelInit;
+        this.useLazyInit = template.useLazyInit;
+        this.metrics = ( template.metrics == null ) ? 
+                null : factory.buildMetrics(name);
+        this.classLoader = template.classLoader;
+        this.resolver = template.resolver;
+    }
+    
+    private ModulesContainer(
+            Factory factory, 
+            String name, 
+            ModulesContainer parent, 
+            boolean constructorDeclaration) {
+        this.declarations = new LinkedHashMap<>();
+        this.declaredModules = new ConcurrentHashMap<>();
+        this.constructors = new ConcurrentHashMap<>();
+        this.invokers = new ConcurrentHashMap<>();
+        this.moduleTypes = new ConcurrentHashMap<>();
+        this.singletonModules = new ConcurrentHashMap<>();
         this.injectionPriorities = null;
-        this.moduleDatas = new HashMap<>();
-        this.constructorDeclaration = true;
+        this.initialized = false;
+        this.moduleDatas = new ConcurrentHashMap<>();
+        this.instantiationPlans = new ConcurrentHashMap<>();
+        this.lazyProxies = new HashSet<>();
+        this.sources = factory.buildModuleSources(this);
+        this.constructorDeclaration = constructorDeclaration;
         this.useRecursiveInjector = false;
+        this.useGeneratedFactories = false;
+        this.useMethodHandles = false;
+        this.snapshotFile = null;
+        this.useParallelInit = false;
+        this.useLazyInit = false;
+        this.lazyResolver = factory.buildLazyResolver(this);
+        this.name = name;
+        this.metrics = null;
+        this.classLoader = null;
+        this.resolver = null;
+        this.parent = parent;
+        this.parentSingletons = factory.buildParentSingletons(this, parent);
+        this.sharedSingletons = ConcurrentHashMap.newKeySet();
+        this.dependents = factory.buildDependents();
+        this.closed = false;
         this.factory = factory;
         this.helper = factory.buildHelper();
-        processDeclarations(declarations);
+    }
+    
+    /**
+     * Receives resolved modules graph of template. Injection priorities 
+     * list consists of specified metadata objects, metadata of singletons 
+     * inherited from parent container is shared with template as well as 
+     * inherited singletons.
+     * 
+     * @param template  initialized container.
+     * @param metaDatas metadata of this fork created for every module 
+     *                  resolved by template.
+     */
+    void copyResolvedGraph(ModulesContainer template, List<ModuleMetaData> metaDatas) {
+        declaredModules.putAll(template.declaredModules);
+        constructors.putAll(template.constructors);
+        invokers.putAll(template.invokers);
+        moduleTypes.putAll(template.moduleTypes);
+        parentSingletons.copyOf(template.parentSingletons);
+        for (ModuleMetaData metaData : metaDatas) {
+            invokers.put(metaData.getModuleInterface(), metaData.getInvoker());
+            moduleDatas.put(metaData.getModuleInterface(), metaData);
+        }
+        List<ModuleMetaData> priorities = 
+                new ArrayList<>(template.injectionPriorities.size());
+        for (ModuleMetaData templateData : template.injectionPriorities) {
+            ModuleMetaData metaData = moduleDatas.get(templateData.getModuleInterface());
+            priorities.add(metaData == null ? templateData : metaData);
+        }
+        injectionPriorities = Collections.unmodifiableList(priorities);
+        for (Class inherited : parentSingletons.getInheritedModules()) {
+            singletonModules.put(inherited, template.singletonModules.get(inherited));
+        }
     }
     
     private void processDeclarations(Declaration[] declarations) {
         for (Declaration dec : declarations) {
             for (GemModuleDeclaration moduleDec : dec.getDeclaredModules()) {
-                String moduleInterface = moduleDec.getModuleInterfaceName();
-                String moduleBuildClass = moduleDec.getModuleBuildClassName();
-                GemModuleType type = moduleDec.getModuleType();
-                parseModuleDeclaration(moduleInterface, moduleBuildClass, type);
-            }            
+                recordModuleDeclaration(moduleDec);
+            }
+            DeclaredModule[] annotated = 
+                    dec.getClass().getAnnotationsByType(DeclaredModule.class);
+            for (DeclaredModule moduleDec : annotated) {
+                if ( moduleDec.type().equals(GemModuleType.SCOPED) ) {
+                    recordModuleDeclaration(new GemModuleDeclaration(
+                            moduleDec.module(), 
+                            moduleDec.implementation(), 
+                            moduleDec.scope()));
+                } else {
+                    recordModuleDeclaration(new GemModuleDeclaration(
+                            moduleDec.module(), 
+                            moduleDec.implementation(), 
+                            moduleDec.type()));
+                }
+            }
         }
     }
     
@@ -199,6 +483,29 @@ final class ModulesContainer implements Container, ModulesInfo {
             String moduleImplemName, 
             GemModuleType type) {
         
+        verifyExplicitDeclarationAllowed();
+        recordModuleDeclaration(new GemModuleDeclaration(
+                moduleInterfaceName, moduleImplemName, type));
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */    
+    @Override
+    public void declareModule(
+            String moduleInterfaceName, 
+            String moduleImplemName, 
+            String scopeName) {
+        
+        verifyExplicitDeclarationAllowed();
+        recordModuleDeclaration(new GemModuleDeclaration(
+                moduleInterfaceName, moduleImplemName, scopeName));
+    }
+    
+    private void verifyExplicitDeclarationAllowed() {
         if (constructorDeclaration){
             throw new ForbiddenModuleDeclarationException(
                     "This container uses constructor module declaration via " +
@@ -210,28 +517,270 @@ final class ModulesContainer implements Container, ModulesInfo {
         if ( injectionPriorities != null ){
             throw new ForbiddenModuleDeclarationException(
                     "Modules has been initialized already. Additional module " +
-                    "declarations are not premitted after container initialization.");
+                    "declarations are not premitted after container initialization. " + 
+                    "Use Container::redeclareModule(String, String) to replace " + 
+                    "implementation of declared module.");
         }
-        parseModuleDeclaration(moduleInterfaceName, moduleImplemName, type);
     }
     
     /**
-     * Processes all necessary information about module from String parameters,
-     * verifies it and saves in container.
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
      * 
-     * @param moduleInterfaceName   module interface canonical name.
-     * @param moduleImplemName      module implementation class canonical name.
-     * @param type                  module type, singleton or prototype.
+     * <p>Redeclarations are performed one by one. Affected modules are 
+     * replaced in order of their new priorities and map entries are 
+     * overwritten rather than removed, so that concurrent requests 
+     * obtain either previous or new objects.</p>
+     * 
+     * @see Container.
+     */    
+    @Override
+    public synchronized void redeclareModule(
+            String moduleInterfaceName, 
+            String moduleImplemName) {
+        
+        if ( ! initialized ) {
+            throw new ContainerInitializationException(
+                    "Modules::init() was not invoked.");
+        }
+        GemModuleDeclaration previous = declarations.get(moduleInterfaceName);
+        if ( previous == null ) {
+            throw new ModuleDeclarationException(
+                    "Module " + moduleInterfaceName + 
+                    " is not declared in this container.");
+        }
+        GemModuleDeclaration redeclared;
+        if ( previous.getModuleType().equals(GemModuleType.SCOPED) ) {
+            redeclared = new GemModuleDeclaration(
+                    moduleInterfaceName, moduleImplemName, previous.getScopeName());
+        } else {
+            redeclared = new GemModuleDeclaration(
+                    moduleInterfaceName, moduleImplemName, previous.getModuleType());
+        }
+        Class moduleInterface = resolver.resolve(moduleInterfaceName);
+        if ( ! moduleDatas.containsKey(moduleInterface) ) {
+            // module has not been resolved in lazy mode yet, new 
+            // declaration will be resolved on demand. Existing key is 
+            // replaced without structural modification of map.
+            recordModuleDeclaration(redeclared);
+            return;
+        }
+        factory.buildRedeclarator(this).redeclare(moduleInterface, previous, redeclared);
+    }
+    
+    /**
+     * Replaces declaration of redeclared module, collects its new 
+     * constructor and makes its dependencies ready.
+     * 
+     * @param moduleInterface   redeclared module interface class object.
+     * @param redeclared        new declaration of module.
+     * @see                     ModuleRedeclarator
+     */
+    void applyRedeclaration(Class moduleInterface, GemModuleDeclaration redeclared) {
+        recordModuleDeclaration(redeclared);
+        parseModuleDeclaration(redeclared);
+        collectConstructor(moduleInterface, declaredModules.get(moduleInterface));
+        prepareDependenciesOf(constructors.get(moduleInterface));
+    }
+    
+    /**
+     * Makes dependencies of new implementation of redeclared module ready.
+     * They are resolved on demand in lazy mode and inherited from parent 
+     * container if they are not declared in this container.
+     */
+    private void prepareDependenciesOf(Constructor buildCons) {
+        for (Class depcy : ModuleMetaData.dependenciesOf(buildCons)) {
+            if ( useLazyInit ) {
+                lazyResolver.resolve(depcy);
+            } else if ( ! moduleTypes.containsKey(depcy) ) {
+                inheritFromParent(depcy);
+            }
+        }
+    }
+    
+    /**
+     * Creates new {@link ModuleMetaData} for every affected module, 
+     * calculates their priorities, creates affected singletons and 
+     * compiles instantiation plans of other affected modules. Affected 
+     * modules receive priorities following priorities of all other 
+     * modules because other modules never depend on them.
+     * 
+     * @param affected  modules affected by redeclaration.
+     * @see             ModuleRedeclarator
+     */
+    void rebuildModules(Set<Class> affected) {
+        List<ModuleMetaData> metaDatas = new ArrayList<>();
+        for (Class moduleInterface : affected) {
+            metaDatas.add(initializeModuleMetaData(moduleInterface));
+        }
+        for (ModuleMetaData metaData : metaDatas) {
+            verifyDependencies(metaData);
+        }
+        List<ModuleMetaData> sorted = factory.buildCalculator((ModulesInfo) this)
+                .calculateAndSetPriorities(metaDatas);
+        int basePriority;
+        if ( useLazyInit ) {
+            basePriority = lazyResolver.reservePriorities(sorted.size());
+        } else if ( injectionPriorities.isEmpty() ) {
+            basePriority = 0;
+        } else {
+            basePriority = injectionPriorities
+                    .get(injectionPriorities.size() - 1).getPriority() + 1;
+        }
+        for (ModuleMetaData metaData : sorted) {
+            metaData.setPriority(basePriority + metaData.getPriority());
+        }
+        InstantiationPlanCompiler compiler = 
+                factory.buildPlanCompiler((ModulesInfo) this);
+        for (ModuleMetaData metaData : sorted) {
+            finishModule(metaData, compiler);
+        }
+        if ( ! useLazyInit ) {
+            List<ModuleMetaData> priorities = new ArrayList<>(injectionPriorities.size());
+            for (ModuleMetaData metaData : injectionPriorities) {
+                if ( ! affected.contains(metaData.getModuleInterface()) ) {
+                    priorities.add(metaData);
+                }
+            }
+            priorities.addAll(sorted);
+            injectionPriorities = Collections.unmodifiableList(priorities);
+        }
+    }
+    
+    /**
+     * Returns state of container kept for specified module.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @return                  saved state of module.
+     */
+    ModuleEntries saveEntriesOf(Class moduleInterface) {
+        return new ModuleEntries(moduleInterface);
+    }
+    
+    /**
+     * Restores state of container kept for specified module. Entries 
+     * which were absent when state was saved are removed.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @param entries           saved state of module.
+     */
+    void restoreEntriesOf(Class moduleInterface, ModuleEntries entries) {
+        restoreEntry(declaredModules, moduleInterface, entries.declaredBuildClass);
+        restoreEntry(constructors, moduleInterface, entries.constructor);
+        restoreEntry(invokers, moduleInterface, entries.invoker);
+        restoreEntry(moduleDatas, moduleInterface, entries.metaData);
+        restoreEntry(singletonModules, moduleInterface, entries.singleton);
+        restoreEntry(instantiationPlans, moduleInterface, entries.plan);
+        sources.restoreSourcesOf(moduleInterface, entries.sources);
+    }
+    
+    static <V> void restoreEntry(Map<Class, V> map, Class moduleInterface, V value) {
+        if ( value == null ) {
+            map.remove(moduleInterface);
+        } else {
+            map.put(moduleInterface, value);
+        }
+    }
+    
+    /**
+     * State of container kept for one module: its build class, 
+     * constructor, invoker, metadata, singleton object, instantiation plan 
+     * and module sources. Absent entries are null.
+     */
+    final class ModuleEntries {
+        
+        private final Class declaredBuildClass;
+        private final Constructor constructor;
+        private final ModuleInvoker invoker;
+        private final ModuleMetaData metaData;
+        private final GemModule singleton;
+        private final InstantiationPlan plan;
+        private final ModuleSources.SavedSources sources;
+        
+        private ModuleEntries(Class moduleInterface) {
+            this.declaredBuildClass = declaredModules.get(moduleInterface);
+            this.constructor = constructors.get(moduleInterface);
+            this.invoker = invokers.get(moduleInterface);
+            this.metaData = moduleDatas.get(moduleInterface);
+            this.singleton = singletonModules.get(moduleInterface);
+            this.plan = instantiationPlans.get(moduleInterface);
+            this.sources = ModulesContainer.this.sources.saveSourcesOf(moduleInterface);
+        }
+        
+        ModuleMetaData getMetaData() {
+            return metaData;
+        }
+        
+        GemModule getSingleton() {
+            return singleton;
+        }
+    }
+    
+    /**
+     * Returns metadata of all modules resolved by this container. 
+     * Singletons inherited from parent container are not included.
+     * 
+     * @return  metadata of resolved modules.
+     */
+    Collection<ModuleMetaData> getResolvedModules() {
+        return moduleDatas.values();
+    }
+    
+    List<ModuleMetaData> getInjectionPriorities() {
+        return injectionPriorities;
+    }
+    
+    void restoreInjectionPriorities(List<ModuleMetaData> priorities) {
+        injectionPriorities = priorities;
+    }
+    
+    /**
+     * Makes singleton shared by template of this fork an ordinary 
+     * singleton of this fork.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @return                  true if singleton has been shared.
+     */
+    boolean stopSharing(Class moduleInterface) {
+        return sharedSingletons.remove(moduleInterface);
+    }
+    
+    void recordModuleDeclaration(GemModuleDeclaration moduleDec) {
+        declarations.put(moduleDec.getModuleInterfaceName(), moduleDec);
+    }
+    
+    /**
+     * Parses and verifies all recorded module declarations.
+     */
+    private void parseModuleDeclarations() {
+        for (GemModuleDeclaration moduleDec : declarations.values()) {
+            parseModuleDeclaration(moduleDec);
+        }
+    }
+    
+    /**
+     * Processes all necessary information about module from its declaration,
+     * verifies it and saves in container. Classes declared by their names 
+     * are resolved with {@link ClassResolver}.
+     * 
+     * @param moduleDec     module declaration.
      */
-    private void parseModuleDeclaration(
-            String moduleInterfaceName, String moduleImplemName, GemModuleType type){
+    private void parseModuleDeclaration(GemModuleDeclaration moduleDec){
         
-        Class moduleInterface = helper.getClassByName(moduleInterfaceName);
-        Class moduleBuildClass = helper.getClassByName(moduleImplemName);        
+        Class moduleInterface = moduleDec.getModuleInterface();
+        Class moduleBuildClass = moduleDec.getModuleBuildClass();
+        if ( moduleInterface == null ) {
+            moduleInterface = resolver.resolve(moduleDec.getModuleInterfaceName());
+            moduleBuildClass = resolver.resolve(moduleDec.getModuleBuildClassName());
+        }
+        GemModuleType type = moduleDec.getModuleType();
         
         helper.verifyModuleInterface(moduleInterface);
         helper.verifyModuleImplementation(moduleInterface, moduleBuildClass);
-        Class moduleBuilder = helper.ifModuleHasBuilder(moduleImplemName);
+        Class moduleBuilder = moduleDec.getModuleBuilder();
+        if ( moduleBuilder == null ) {
+            moduleBuilder = resolver.findBuilder(moduleBuildClass.getName());
+        }
         if ( moduleBuilder != null ) {
             helper.verifyModuleBuilder(moduleBuilder);
             moduleBuildClass = moduleBuilder;
@@ -263,71 +812,583 @@ final class ModulesContainer implements Container, ModulesInfo {
      * @see Container.
      */ 
     @Override
-    public void init(){     
-        if (declaredModules.isEmpty()){
-            throw new ModuleDeclarationException(
-                    "No modules have been declared.");
-        }
-        collectConstructors();
-        initializeModuleMetaDatas();
-        rateModulesByInjectionPriority();
-        injectSingletons();
-    }    
-    
-    /**
-     * Collects all constructors of all declared modules and saves them
-     * in container for further object instantiations.
-     */
-    private void collectConstructors(){
-        for(Map.Entry<Class, Class> pair : declaredModules.entrySet()){
-            Class moduleInterface = pair.getKey();
-            Class moduleBuildClass = pair.getValue();
-            
-            Constructor[] moduleConss = moduleBuildClass.getDeclaredConstructors();            
-            Constructor moduleCon = helper.resolveModuleConstructors(moduleConss);
-            moduleCon.setAccessible(true);
-            constructors.put(moduleInterface, moduleCon);
-        }
+    public void useGeneratedFactories(){
+        useGeneratedFactories = true;
     }
     
     /**
-     * Creates ModuleMetaData for all declared modules and stores them.
-     */
-    private void initializeModuleMetaDatas() {
-        for(Map.Entry<Class, Class> pair : declaredModules.entrySet()) {
-            Class moduleInterface = pair.getKey();
-            Constructor buildCons = constructors.get(moduleInterface);
-            GemModuleType type = moduleTypes.get(moduleInterface);
-            
-            ModuleMetaData metaData = factory.buildMetaData(
-                    moduleInterface, buildCons, type);
-            
-            moduleDatas.put(moduleInterface, metaData);
-        }
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public void useMethodHandles(){
+        useMethodHandles = true;
     }
     
     /**
-     * Using {@link InjectionPriorityCalculator}, calculates 
-     * actual priority of all modules, sorts them by their natural ordering
-     * and stores them in injectionPriority field.
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
      * 
-     * @see ModuleMetaData
-     * @see InjectionPriorityCalculator
-     */
-    private void rateModulesByInjectionPriority() {
-        InjectionPriorityCalculator priorityCalculator = 
-                factory.buildCalculator((ModulesInfo) this);
-        List<ModuleMetaData> metaDatas = new ArrayList<>();
-        
-        for(Map.Entry<Class, ModuleMetaData> pair : moduleDatas.entrySet()) {                       
-            ModuleMetaData metaData = pair.getValue();
-            priorityCalculator.calculateAndSetPriority(metaData);
-            
-            metaDatas.add(metaData);
-        }
-        
-        Collections.sort(metaDatas);
-        injectionPriorities = Collections.unmodifiableList(metaDatas);
+     * @see Container.
+     */ 
+    @Override
+    public void useParallelInit(){
+        useParallelInit = true;
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public void useLazyInit(){
+        useLazyInit = true;
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public void useSnapshot(String snapshotFilePath){
+        if ( parent != null ) {
+            throw new ContainerInitializationException(
+                    "Snapshot can not be used by child container: its " + 
+                    "modules graph includes singletons of parent container.");
+        }
+        snapshotFile = Paths.get(snapshotFilePath);
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public void useMetrics(){
+        if ( metrics == null ) {
+            metrics = factory.buildMetrics(name);
+        }
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public void setPoolSize(String moduleInterface, int size){
+        sources.setPoolSize(moduleInterface, size);
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public void useClassLoader(ClassLoader loader){
+        classLoader = loader;
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public void useLazyProxy(String moduleInterface){
+        lazyProxies.add(moduleInterface);
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public void registerScope(String scopeName, GemModuleScope scope){
+        sources.registerScope(scopeName, scope);
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public ContainerMetricsMXBean getMetrics(){
+        return requireMetrics();
+    }
+    
+    private ContainerMetrics requireMetrics() {
+        if ( metrics == null ) {
+            throw new ContainerInitializationException(
+                    "Metrics are not collected: Container::useMetrics() " + 
+                    "was not invoked.");
+        }
+        return metrics;
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public <M extends GemModule> void returnModule(Class<M> moduleInterface, M module){
+        sources.returnModule(moduleInterface, module);
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public void releaseThreadModules(){
+        ContainerCloseException failure = sources.releaseThreadModules();
+        if ( failure != null ) {
+            throw failure;
+        }
+    }
+    
+    /**
+     * Returns the first of failures having the second failure suppressed.
+     * 
+     * @param first     failure or null.
+     * @param second    failure or null.
+     * @return          combined failure or null if both are null.
+     */
+    static ContainerCloseException combineFailures(
+            ContainerCloseException first, ContainerCloseException second) {
+        if ( first == null ) {
+            return second;
+        }
+        if ( second != null ) {
+            first.addSuppressed(second);
+        }
+        return first;
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public StartupReport getStartupReport(){
+        if ( ! initialized ) {
+            throw new ContainerInitializationException(
+                    "Modules::init() was not invoked.");
+        }
+        if ( useLazyInit ) {
+            throw new ContainerInitializationException(
+                    "Startup report is not available: modules are " + 
+                    "initialized lazily.");
+        }
+        return factory.buildCriticalPathAnalyzer((ModulesInfo) this, requireMetrics())
+                .analyze(injectionPriorities);
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public void init(){     
+        if (declarations.isEmpty()){
+            throw new ModuleDeclarationException(
+                    "No modules have been declared.");
+        }
+        InitRecording recording = FlightRecorderEvents.beginInit(name);
+        if ( classLoader == null ) {
+            resolver = factory.buildClassResolver(ModulesContainer.class.getClassLoader());
+        } else {
+            resolver = factory.buildClassResolver(classLoader);
+        }
+        if ( useLazyInit ) {
+            // modules are resolved on demand, thus there is no 
+            // full list of modules sorted by priority.
+            injectionPriorities = Collections.emptyList();
+            finishInit(recording);
+            return;
+        }
+        byte[] declarationsHash = null;
+        boolean restored = false;
+        long phaseStart = System.nanoTime();
+        if ( snapshotFile != null ) {
+            declarationsHash = GraphSnapshot.hashOf(declarations.values());
+            restored = factory.buildSnapshotRestorer(this).restore(
+                    GraphSnapshot.read(snapshotFile, declarationsHash));
+        }
+        if ( restored ) {
+            phaseStart = phaseFinished(recording, "restoreFromSnapshot", phaseStart);
+        } else {
+            parseModuleDeclarations();
+            phaseStart = phaseFinished(recording, "parseModuleDeclarations", phaseStart);
+            collectConstructors();
+            phaseStart = phaseFinished(recording, "collectConstructors", phaseStart);
+            initializeModuleMetaDatas();
+            phaseStart = phaseFinished(recording, "initializeModuleMetaDatas", phaseStart);
+            if ( parent != null ) {
+                parentSingletons.inheritRequiredBy(moduleDatas.values());
+                phaseStart = phaseFinished(recording, "inheritParentSingletons", phaseStart);
+            }
+            rateModulesByInjectionPriority();
+            phaseStart = phaseFinished(recording, "rateModulesByInjectionPriority", phaseStart);
+            if ( snapshotFile != null ) {
+                factory.buildSnapshotRestorer(this).write(snapshotFile, declarationsHash);
+                phaseStart = phaseFinished(recording, "writeSnapshot", phaseStart);
+            }
+        }
+        injectSingletons();
+        phaseStart = phaseFinished(recording, "injectSingletons", phaseStart);
+        compileInstantiationPlans();
+        phaseFinished(recording, "compileInstantiationPlans", phaseStart);
+        finishInit(recording);
+    }    
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public Container fork(String name, String... sharedSingletons){
+        return factory.buildForker(this).fork(name, sharedSingletons);
+    }
+    
+    /**
+     * Places singleton of template into this fork.
+     * 
+     * @param moduleInterface   singleton interface class object.
+     * @param module            singleton object of template.
+     */
+    void shareSingleton(Class moduleInterface, GemModule module) {
+        moduleTypes.put(moduleInterface, GemModuleType.SINGLETON);
+        sharedSingletons.add(moduleInterface);
+        singletonModules.put(moduleInterface, module);
+    }
+    
+    /**
+     * Initializes fork using resolved modules graph of template. Module 
+     * declarations are not parsed and injection priorities are not 
+     * calculated again, singletons are initialized concurrently.
+     */
+    void initFork() {
+        InitRecording recording = FlightRecorderEvents.beginInit(name);
+        if ( ! useLazyInit ) {
+            long phaseStart = System.nanoTime();
+            factory.buildParallelInitializer(
+                    (ModulesInfo) this, 
+                    factory.buildPlanCompiler((ModulesInfo) this))
+                    .initSingletons(injectionPriorities);
+            phaseStart = phaseFinished(recording, "injectSingletons", phaseStart);
+            compileInstantiationPlans();
+            phaseFinished(recording, "compileInstantiationPlans", phaseStart);
+        }
+        finishInit(recording);
+    }
+    
+    /**
+     * Records duration of init() phase if metrics are collected and 
+     * emits Flight Recorder event of this phase.
+     * 
+     * @param recording     Flight Recorder recording of init().
+     * @param phase         phase name.
+     * @param phaseStart    phase start time.
+     * @return              start time of the next phase.
+     */
+    private long phaseFinished(InitRecording recording, String phase, long phaseStart) {
+        if ( metrics != null ) {
+            metrics.phaseFinished(phase, phaseStart);
+        }
+        recording.phaseFinished(phase);
+        return System.nanoTime();
+    }
+    
+    private void finishInit(InitRecording recording) {
+        if ( metrics != null ) {
+            metrics.containerInitialized();
+        }
+        recording.initFinished(declarations.size(), useLazyInit);
+        initialized = true;
+    }
+    
+    /**
+     * Collects all constructors of all declared modules and saves them
+     * in container for further object instantiations. Creates 
+     * {@link ModuleInvoker} for every constructor.
+     */
+    private void collectConstructors(){
+        for(Map.Entry<Class, Class> pair : declaredModules.entrySet()){
+            collectConstructor(pair.getKey(), pair.getValue());
+        }
+    }
+    
+    private void collectConstructor(Class moduleInterface, Class moduleBuildClass) {
+        Constructor[] moduleConss = moduleBuildClass.getDeclaredConstructors();            
+        Constructor moduleCon = helper.resolveModuleConstructors(moduleConss);
+        moduleCon.setAccessible(true);
+        constructors.put(moduleInterface, moduleCon);
+        invokers.put(moduleInterface, buildInvoker(
+                moduleInterface, moduleCon, moduleTypes.get(moduleInterface)));
+    }
+    
+    /**
+     * Creates {@link ModuleInvoker} of module constructor according to 
+     * settings of this container.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @param buildCons         accessible constructor of module or module 
+     *                          builder.
+     * @param type              type of module.
+     * @return                  invoker of constructor.
+     */
+    ModuleInvoker buildInvoker(
+            Class moduleInterface, Constructor buildCons, GemModuleType type) {
+        ModuleInvoker invoker;
+        if ( useGeneratedFactories ) {
+            invoker = factory.buildGeneratedInvoker(moduleInterface, buildCons);
+        } else if ( useMethodHandles ) {
+            invoker = factory.buildMethodHandleInvoker(moduleInterface, buildCons);
+        } else {
+            invoker = factory.buildInvoker(moduleInterface, buildCons);
+        }
+        if ( metrics != null ) {
+            invoker = factory.buildMeasuredInvoker(
+                    buildCons, invoker, metrics.statsOf(moduleInterface, type));
+        }
+        return invoker;
+    }
+    
+    /**
+     * Creates ModuleMetaData for all declared modules and stores them.
+     */
+    private void initializeModuleMetaDatas() {
+        for(Map.Entry<Class, Class> pair : declaredModules.entrySet()) {
+            initializeModuleMetaData(pair.getKey());
+        }
+    }
+    
+    private ModuleMetaData initializeModuleMetaData(Class moduleInterface) {
+        Constructor buildCons = constructors.get(moduleInterface);
+        ModuleInvoker invoker = invokers.get(moduleInterface);
+        GemModuleType type = moduleTypes.get(moduleInterface);
+
+        ModuleMetaData metaData = factory.buildMetaData(
+                moduleInterface, buildCons, invoker, type);
+
+        moduleDatas.put(moduleInterface, metaData);
+        return metaData;
+    }
+    
+    /**
+     * Parses declaration of module and creates its {@link ModuleMetaData}
+     * without storing it, so that module resolved concurrently by other 
+     * thread is not replaced.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @param moduleDec         module declaration.
+     * @return                  new metadata of module.
+     * @see                     LazyModuleResolver
+     */
+    ModuleMetaData resolveDeclaredModule(
+            Class moduleInterface, GemModuleDeclaration moduleDec) {
+        parseModuleDeclaration(moduleDec);
+        collectConstructor(moduleInterface, declaredModules.get(moduleInterface));
+        return factory.buildMetaData(
+                moduleInterface, 
+                constructors.get(moduleInterface), 
+                invokers.get(moduleInterface), 
+                moduleTypes.get(moduleInterface));
+    }
+    
+    /**
+     * Stores metadata of module if other metadata of this module has not 
+     * been stored yet.
+     * 
+     * @param metaData  metadata of module.
+     * @return          previously stored metadata or null.
+     */
+    ModuleMetaData storeMetaDataIfAbsent(ModuleMetaData metaData) {
+        return moduleDatas.putIfAbsent(metaData.getModuleInterface(), metaData);
+    }
+    
+    /**
+     * Stores module restored from snapshot.
+     * 
+     * @param metaData  metadata of module.
+     * @see             SnapshotRestorer
+     */
+    void storeResolvedModule(ModuleMetaData metaData) {
+        Class moduleInterface = metaData.getModuleInterface();
+        Constructor buildCons = metaData.getConstructor();
+        declaredModules.put(moduleInterface, buildCons.getDeclaringClass());
+        moduleTypes.put(moduleInterface, metaData.getType());
+        constructors.put(moduleInterface, buildCons);
+        invokers.put(moduleInterface, metaData.getInvoker());
+        moduleDatas.put(moduleInterface, metaData);
+    }
+    
+    /**
+     * Stores singleton inherited from parent container.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @param metaData          metadata of module resolved by container 
+     *                          which has declared it.
+     * @param module            singleton object.
+     * @see                     ParentSingletons
+     */
+    void storeInheritedSingleton(
+            Class moduleInterface, ModuleMetaData metaData, GemModule module) {
+        constructors.put(moduleInterface, metaData.getConstructor());
+        invokers.put(moduleInterface, metaData.getInvoker());
+        moduleTypes.put(moduleInterface, GemModuleType.SINGLETON);
+        // module becomes ready when singleton is stored.
+        singletonModules.put(moduleInterface, module);
+    }
+    
+    /**
+     * Makes singleton of parent container available in this container 
+     * if module is not declared in this container.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @return                  true if module has been inherited.
+     * @see                     ParentSingletons
+     */
+    boolean inheritFromParent(Class moduleInterface) {
+        return parentSingletons.inherit(moduleInterface);
+    }
+    
+    /**
+     * Returns true if type of module is known to this container, i.e. 
+     * module has been resolved or inherited from parent container.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @return                  true if module is resolved.
+     */
+    boolean isModuleResolved(Class moduleInterface) {
+        return moduleTypes.containsKey(moduleInterface);
+    }
+    
+    /**
+     * Returns name of this container.
+     * 
+     * @return  name of container.
+     */
+    String getName() {
+        return name;
+    }
+    
+    /**
+     * Returns child containers and forks created from this container.
+     * 
+     * @return  dependent containers.
+     */
+    DependentContainers getDependents() {
+        return dependents;
+    }
+    
+    /**
+     * Returns parent container of this child container.
+     * 
+     * @return  parent container or null.
+     */
+    ModulesContainer getParent() {
+        return parent;
+    }
+    
+    int countDeclarations() {
+        return declarations.size();
+    }
+    
+    ClassResolver getResolver() {
+        return resolver;
+    }
+    
+    /**
+     * Returns declaration of module recorded in this container.
+     * 
+     * @param moduleInterfaceName   module interface canonical name.
+     * @return                      declaration or null if module is not 
+     *                              declared.
+     */
+    GemModuleDeclaration getDeclaration(String moduleInterfaceName) {
+        return declarations.get(moduleInterfaceName);
+    }
+    
+    /**
+     * Resolves class declared by its name with {@link ClassResolver} of 
+     * initialized container.
+     * 
+     * @param className class name.
+     * @return          class object.
+     */
+    Class resolveClass(String className) {
+        return resolver.resolve(className);
+    }
+    
+    ContainerMetrics getMetricsOrNull() {
+        return metrics;
+    }
+    
+    boolean isLazyInit() {
+        return useLazyInit;
+    }
+    
+    /**
+     * Returns true if {@link #close(long, TimeUnit)} has been invoked.
+     * 
+     * @return  true if container is closed.
+     */
+    boolean isClosed() {
+        return closed;
+    }
+    
+    /**
+     * Returns true if {@link #init()} has been finished.
+     * 
+     * @return  true if container is initialized.
+     */
+    boolean isInitialized() {
+        return initialized;
+    }
+    
+    /**
+     * Using {@link InjectionPriorityCalculator}, calculates 
+     * actual priority of all modules, sorts them by their natural ordering
+     * and stores them in injectionPriority field. Sorted list index of 
+     * every module is equal to its priority.
+     * 
+     * @see ModuleMetaData
+     * @see InjectionPriorityCalculator
+     */
+    private void rateModulesByInjectionPriority() {
+        InjectionPriorityCalculator priorityCalculator = 
+                factory.buildCalculator((ModulesInfo) this);
+        List<ModuleMetaData> metaDatas = 
+                priorityCalculator.calculateAndSetPriorities(moduleDatas.values());
+        injectionPriorities = Collections.unmodifiableList(metaDatas);
     }
     
     /**
@@ -337,18 +1398,206 @@ final class ModulesContainer implements Container, ModulesInfo {
      * @see ModuleMetaData
      */
     private void injectSingletons() {
+        for (ModuleMetaData metaData : injectionPriorities) {
+            verifyDependencies(metaData);
+        }
+        if ( useParallelInit ) {
+            factory.buildParallelInitializer(
+                    (ModulesInfo) this, 
+                    factory.buildPlanCompiler((ModulesInfo) this))
+                    .initSingletons(injectionPriorities);
+            return;
+        }
         Injector injector = getInjector();
+        InstantiationPlanCompiler compiler = null;
         for (ModuleMetaData metaData : injectionPriorities){
             if (metaData.getType().equals(GemModuleType.SINGLETON)){
                 Constructor buildCons = metaData.getConstructor();        
                 Class moduleInterface = metaData.getModuleInterface();
                 
-                GemModule module = injector.newModule(buildCons, moduleInterface);
+                GemModule module;
+                if ( isModuleLazyProxy(moduleInterface) ) {
+                    if ( compiler == null ) {
+                        compiler = factory.buildPlanCompiler((ModulesInfo) this);
+                    }
+                    module = factory.buildLazyProxy(metaData, compiler);
+                } else {
+                    module = injector.newModule(buildCons, moduleInterface);
+                }
                 singletonModules.put(moduleInterface, module);
             }
         }
     }
     
+    /**
+     * Compiles {@link InstantiationPlan} for every module except 
+     * singletons and creates {@link ModuleSource} for every thread, pooled 
+     * and scoped module. Must be invoked after all singletons have been initialized 
+     * because they are stored in plans as ready constants. Modules are 
+     * processed in order of their priority, so that sources of thread 
+     * modules exist when plans of modules depending on them are compiled.
+     * 
+     * @see InstantiationPlan
+     * @see InstantiationPlanCompiler
+     */
+    private void compileInstantiationPlans() {
+        InstantiationPlanCompiler compiler = 
+                factory.buildPlanCompiler((ModulesInfo) this);
+        for (ModuleMetaData metaData : injectionPriorities) {
+            // plan could be compiled earlier if provider of module has 
+            // been invoked during singletons initialization.
+            if ( ! isModuleReady(metaData.getModuleInterface()) ) {
+                compileInstantiationPlan(metaData, compiler);
+            }
+        }
+    }
+    
+    private void compileInstantiationPlan(
+            ModuleMetaData metaData, InstantiationPlanCompiler compiler) {
+        InstantiationPlan plan = compiler.compile(metaData);
+        sources.createSourceOf(metaData, plan);
+        instantiationPlans.put(metaData.getModuleInterface(), plan);
+    }
+    
+    /**
+     * Makes verified module ready: creates singleton or its lazy proxy, 
+     * compiles instantiation plan of other module. All dependencies of 
+     * module must be ready.
+     * 
+     * @param metaData  module.
+     * @param compiler  compiler of instantiation plans.
+     */
+    void finishModule(ModuleMetaData metaData, InstantiationPlanCompiler compiler) {
+        if ( metaData.getType().equals(GemModuleType.SINGLETON) ) {
+            GemModule module;
+            if ( isModuleLazyProxy(metaData.getModuleInterface()) ) {
+                module = factory.buildLazyProxy(metaData, compiler);
+            } else {
+                module = compiler.compile(metaData).execute();
+            }
+            singletonModules.put(metaData.getModuleInterface(), module);
+        } else {
+            compileInstantiationPlan(metaData, compiler);
+        }
+    }
+    
+    /**
+     * Verifies that scope of scoped module is registered, that only 
+     * singletons are declared as lazy proxies and that module does not 
+     * receive objects living shorter than itself.
+     * 
+     * @param metaData  module.
+     * @throws ModuleDeclarationException if dependencies of module violate 
+     *                                    rules of their types.
+     */
+    void verifyDependencies(ModuleMetaData metaData) {
+        GemModuleType type = metaData.getType();
+        if ( type.equals(GemModuleType.SCOPED) ) {
+            sources.scopeOf(metaData.getModuleInterface());
+        }
+        if ( isModuleLazyProxy(metaData.getModuleInterface()) && 
+                ! type.equals(GemModuleType.SINGLETON) ) {
+            throw new ModuleDeclarationException(
+                    "Module " + metaData.getModuleInterface().getCanonicalName() + 
+                    " of type " + type + " can not be lazy proxy, only " + 
+                    "singletons can be created on demand.");
+        }
+        verifyNoPooledDependencies(metaData);
+        if ( type.equals(GemModuleType.SINGLETON) || 
+                type.equals(GemModuleType.POOLED) ) {
+            verifyNoContextualDependencies(
+                    metaData, GemModuleType.THREAD, GemModuleType.SCOPED);
+        } else if ( type.equals(GemModuleType.THREAD) ) {
+            verifyNoContextualDependencies(metaData, GemModuleType.SCOPED);
+        }
+    }
+    
+    /**
+     * Verifies that module does not depend on pooled modules. Pooled 
+     * module object injected into other module would never be returned 
+     * into pool.
+     * 
+     * @param metaData  module.
+     * @throws ModuleDeclarationException if module depends on pooled 
+     *                                    module.
+     */
+    private void verifyNoPooledDependencies(ModuleMetaData metaData) {
+        for (Class depcy : metaData.getDeclaredDependencies()) {
+            if ( GemModuleType.POOLED.equals(moduleTypes.get(depcy)) ) {
+                throw new ModuleDeclarationException(
+                        "Module " + 
+                        metaData.getModuleInterface().getCanonicalName() + 
+                        " depends on pooled module " + 
+                        depcy.getCanonicalName() + 
+                        ". Pooled modules can not be injected into " + 
+                        "other modules.");
+            }
+        }
+    }
+    
+    /**
+     * Verifies that module does not depend on modules of specified types 
+     * directly or through its prototype dependencies. Singleton or pooled 
+     * module depending on thread module would keep object of one thread 
+     * and share it with other threads, module depending on scoped module 
+     * would keep object of one scope context after this context is closed.
+     * 
+     * @param metaData          module.
+     * @param forbiddenTypes    types of modules whose objects can not be 
+     *                          kept by this module.
+     * @throws ModuleDeclarationException if module depends on module of 
+     *                                    forbidden type.
+     */
+    private void verifyNoContextualDependencies(
+            ModuleMetaData metaData, GemModuleType... forbiddenTypes) {
+        Set<Class> visitedPrototypes = new HashSet<>();
+        Deque<ModuleMetaData> toVisit = new ArrayDeque<>();
+        toVisit.push(metaData);
+        while ( ! toVisit.isEmpty() ) {
+            ModuleMetaData current = toVisit.pop();
+            Class[] depcies = current.getDeclaredDependencies();
+            for (int i = 0; i < depcies.length; i++) {
+                if ( current.isProvidedDependency(i) ) {
+                    // provider obtains object of actual context on every 
+                    // invocation.
+                    continue;
+                }
+                Class depcy = depcies[i];
+                GemModuleType depcyType = moduleTypes.get(depcy);
+                for (GemModuleType forbiddenType : forbiddenTypes) {
+                    if ( forbiddenType.equals(depcyType) ) {
+                        throw new ModuleDeclarationException(
+                                "Module " + 
+                                metaData.getModuleInterface().getCanonicalName() + 
+                                " of type " + metaData.getType() + 
+                                " depends on module " + 
+                                depcy.getCanonicalName() + 
+                                " of type " + depcyType + 
+                                ". Modules of type " + depcyType + 
+                                " can not be injected into modules of type " + 
+                                metaData.getType() + ".");
+                    }
+                }
+                if ( GemModuleType.PROTOTYPE.equals(depcyType) && 
+                        visitedPrototypes.add(depcy) ) {
+                    toVisit.push(moduleDatas.get(depcy));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns true if singleton of module has been created or plan of 
+     * other module has been compiled.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @return                  true if module is ready.
+     */
+    boolean isModuleReady(Class moduleInterface) {
+        return singletonModules.containsKey(moduleInterface) || 
+                instantiationPlans.containsKey(moduleInterface);
+    }
+    
     private Injector getInjector() {
         if ( useRecursiveInjector ) {
             return factory.buildRecursiveInjector((ModulesInfo) this);
@@ -365,23 +1614,168 @@ final class ModulesContainer implements Container, ModulesInfo {
      */ 
     @Override
     public <M extends GemModule> M getModule(Class<M> moduleInterface) {      
-        if ( injectionPriorities == null ) {
+        if ( ! initialized ) {
             throw new ContainerInitializationException(
                     "Modules::init() was not invoked.");
         }
-        if (isModuleSingleton(moduleInterface)){
+        if ( closed ) {
+            throw new ContainerInitializationException(
+                    "Container " + name + " is closed.");
+        }
+        if ( parent != null && 
+                ! moduleTypes.containsKey(moduleInterface) && 
+                ! declarations.containsKey(moduleInterface.getName()) ) {
+            // modules that are not declared in child container are 
+            // obtained from parent container.
+            return parent.getModule(moduleInterface);
+        }
+        if ( metrics == null ) {
+            return obtainModule(moduleInterface);
+        }
+        long start = System.nanoTime();
+        M module = obtainModule(moduleInterface);
+        metrics.requestFinished(moduleInterface, System.nanoTime() - start);
+        return module;
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public void close() {
+        close(DEFAULT_CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Overrides abstract method in {@link Container} interface. 
+     * See full method description in {@link Container}.
+     * 
+     * @see Container.
+     */ 
+    @Override
+    public synchronized void close(long timeout, TimeUnit unit) {
+        if ( closed ) {
+            return;
+        }
+        ContainerCloseException dependentsFailure = dependents.closeAll(timeout, unit);
+        closed = true;
+        GemInjector.unregisterContainer(name, this);
+        if ( metrics != null ) {
+            metrics.unregister();
+        }
+        // objects of thread and pooled modules are closed before 
+        // singletons because they can use singletons.
+        ContainerCloseException failure = sources.close();
+        try {
+            closeOwnedSingletons(timeout, unit);
+        } catch (ContainerCloseException e) {
+            failure = combineFailures(e, failure);
+        }
+        failure = combineFailures(failure, dependentsFailure);
+        if ( failure != null ) {
+            throw failure;
+        }
+    }
+    
+    private void closeOwnedSingletons(long timeout, TimeUnit unit) {
+        if ( moduleDatas.isEmpty() ) {
+            return;
+        }
+        // singletons created before failure of initialization are 
+        // closed as well.
+        List<ModuleMetaData> owned = new ArrayList<>();
+        for (ModuleMetaData metaData : moduleDatas.values()) {
+            if ( ! sharedSingletons.contains(metaData.getModuleInterface()) ) {
+                owned.add(metaData);
+            }
+        }
+        factory.buildDisposer((ModulesInfo) this)
+                .closeSingletons(owned, singletonModules, timeout, unit);
+    }
+    
+    /**
+     * Returns module object for {@link ModuleProvider}. Provider can be 
+     * invoked by constructor of module during container initialization, 
+     * when plans of prototypes have not been compiled yet. In this case 
+     * plan of required module is compiled in the same way as in lazy 
+     * mode. All singletons in its dependency graph are already initialized
+     * because provided module precedes module receiving provider in 
+     * injection priority order.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @return                  module object.
+     */
+    GemModule provideModule(Class moduleInterface) {
+        if ( ! useLazyInit && ! isModuleReady(moduleInterface) ) {
+            lazyResolver.resolve(moduleInterface);
+        }
+        return obtainModule(moduleInterface);
+    }
+    
+    private <M extends GemModule> M obtainModule(Class<M> moduleInterface) {
+        if ( useLazyInit ) {
+            lazyResolver.resolve(moduleInterface);
+        }
+        GemModuleType type = moduleTypes.get(moduleInterface);
+        if (type.equals(GemModuleType.SINGLETON)){
             GemModule uncastedModule = singletonModules.get(moduleInterface);
             M module = moduleInterface.cast(uncastedModule);
             return module;
-        } else {
+        } else if (type.equals(GemModuleType.THREAD) || 
+                type.equals(GemModuleType.POOLED) || 
+                type.equals(GemModuleType.SCOPED)){
+            GemModule uncastedModule = sources.getSource(moduleInterface, type).get();
+            M module = moduleInterface.cast(uncastedModule);
+            return module;
+        } else if ( useRecursiveInjector && ! useLazyInit ) {
             Injector injector = getInjector();
             Constructor buildCons = constructors.get(moduleInterface);
             GemModule uncastedModule = injector.newModule(buildCons, moduleInterface);
             M module = moduleInterface.cast(uncastedModule);
             return module;
+        } else {
+            GemModule uncastedModule = instantiationPlans.get(moduleInterface).execute();
+            M module = moduleInterface.cast(uncastedModule);
+            return module;
         }
     }
  
+    /**
+     * Overrides abstract method in {@link ModulesInfo} interface. 
+     * See full method description in {@link ModulesInfo}.
+     * 
+     * @see ModulesInfo.
+     */
+    @Override
+    public ModuleSource getSourceOfModule(Class moduleInterface) {
+        return sources.getContextualSource(moduleInterface);
+    }
+    
+    /**
+     * Overrides abstract method in {@link ModulesInfo} interface. 
+     * See full method description in {@link ModulesInfo}.
+     * 
+     * @see ModulesInfo.
+     */
+    @Override
+    public ModuleProvider getProviderOfModule(Class moduleInterface) {
+        return sources.getProvider(moduleInterface);
+    }
+    
+    /**
+     * Overrides abstract method in {@link ModulesInfo} interface. 
+     * See full method description in {@link ModulesInfo}.
+     * 
+     * @see ModulesInfo.
+     */
+    @Override
+    public boolean isModuleLazyProxy(Class moduleInterface) {
+        return lazyProxies.contains(moduleInterface.getName());
+    }
+    
     /**
      * Overrides abstract method in {@link ModulesInfo} interface. 
      * See full method description in {@link ModulesInfo}.
@@ -409,10 +1803,10 @@ final class ModulesContainer implements Container, ModulesInfo {
      * See full method description in {@link ModulesInfo}.
      * 
      * @see ModulesInfo.
-     */
+     */   
     @Override
-    public boolean ifConstructorExists(Class moduleInterface) {
-        return constructors.containsKey(moduleInterface);
+    public ModuleInvoker getInvokerOfModule(Class moduleInterface) {
+        return invokers.get(moduleInterface);
     }
     
     /**
@@ -422,8 +1816,8 @@ final class ModulesContainer implements Container, ModulesInfo {
      * @see ModulesInfo.
      */
     @Override
-    public Map<Class, GemModule> getSingletons() {
-        return singletonModules;
+    public boolean ifConstructorExists(Class moduleInterface) {
+        return constructors.containsKey(moduleInterface);
     }
     
     /**
@@ -433,15 +1827,8 @@ final class ModulesContainer implements Container, ModulesInfo {
      * @see ModulesInfo.
      */
     @Override
-    public List<ModuleMetaData> getModuleDependenciesData(Class moduleInterface) {
-        for (int i = 0; i < injectionPriorities.size(); i++) {
-            if(injectionPriorities.get(i).getModuleInterface().equals(moduleInterface)){
-                return new ArrayList<>(injectionPriorities.subList(0, i + 1));
-            }
-        }
-        throw new UndeclaredDependencyException(
-                "Undeclared dependency: " + moduleInterface.getCanonicalName() + 
-                " is not contained in this Container");
+    public Map<Class, GemModule> getSingletons() {
+        return singletonModules;
     }
     
     /**
@@ -452,6 +1839,10 @@ final class ModulesContainer implements Container, ModulesInfo {
      */
     @Override
     public ModuleMetaData getMetaDataOfModule(Class moduleInterface) {
-        return moduleDatas.get(moduleInterface);
+        ModuleMetaData metaData = moduleDatas.get(moduleInterface);
+        if ( metaData == null ) {
+            metaData = parentSingletons.getMetaData(moduleInterface);
+        }
+        return metaData;
     }
 }
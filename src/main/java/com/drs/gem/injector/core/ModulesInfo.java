@@ -19,7 +19,6 @@
 package com.drs.gem.injector.core;
 
 import java.lang.reflect.Constructor;
-import java.util.List;
 import java.util.Map;
 
 import com.drs.gem.injector.module.GemModule;
@@ -56,6 +55,19 @@ interface ModulesInfo {
      */
     Map<Class, GemModule> getSingletons();
     
+    /**
+     * Returns {@link ModuleSource} of module which objects are provided 
+     * by source, i.e. of {@link GemModuleType#THREAD THREAD} or 
+     * {@link GemModuleType#SCOPED SCOPED} module.
+     * 
+     * @param moduleInterface   class object of declared module interface
+     * @return                  source of module objects or null if module 
+     *                          objects are not provided by source or 
+     *                          source has not been created yet.
+     * @see                     ModuleSource
+     */
+    ModuleSource getSourceOfModule(Class moduleInterface);
+    
     /**
      * Returns constructor that will be used to instantiate new objects
      * of specified module or {@link com.drs.gem.injector.module.GemModuleBuilder 
@@ -67,6 +79,37 @@ interface ModulesInfo {
      */
     Constructor getConstructorOfModule(Class moduleInterface);
     
+    /**
+     * Returns provider of module injected into modules which constructors 
+     * declare provider of this module.
+     * 
+     * @param moduleInterface   class object of declared module interface
+     * @return                  provider of module.
+     * @see                     ModuleProvider
+     */
+    ModuleProvider getProviderOfModule(Class moduleInterface);
+    
+    /**
+     * Defines if singleton module should be represented by proxy creating
+     * singleton on demand.
+     * 
+     * @param moduleInterface   class object of declared module interface
+     * @return                  true if module is lazy singleton.
+     * @see                     LazySingletonHandler
+     */
+    boolean isModuleLazyProxy(Class moduleInterface);
+    
+    /**
+     * Returns {@link ModuleInvoker} that will be used to invoke constructor 
+     * of specified module or its {@link com.drs.gem.injector.module.GemModuleBuilder 
+     * GemModuleBuilder}.
+     * 
+     * @param moduleInterface   class object of declared module interface
+     * @return                  appropriate module invoker
+     * @see                     ModuleInvoker
+     */
+    ModuleInvoker getInvokerOfModule(Class moduleInterface);
+    
     /**
      * Checks if appropriate constructor, assigned to specified module, exists.
      * 
@@ -77,16 +120,6 @@ interface ModulesInfo {
      */
     boolean ifConstructorExists(Class moduleInterface);
     
-    /**
-     * Returns list of ModuleMetaData sorted in ascending order by their
-     * priority.
-     * 
-     * @param moduleInterface   module interface.
-     * @return                  list of ModuleMetaData sorted in ascending 
-     *                          order by their priority.
-     */
-    List<ModuleMetaData> getModuleDependenciesData(Class moduleInterface);
-    
     /**
      * Returns ModuleMetaData of appropriate module.
      * 
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.drs.gem.injector.exceptions.ContainerCloseException;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Closes singleton modules of container concurrently.</p>
+ *
+ * <p>Singletons implementing {@link AutoCloseable} are closed in reverse
+ * dependency order: singleton is closed only after all singletons
+ * depending on it have been closed, because they can use it until they
+ * are closed themselves. Dependencies are collected in the same way as
+ * by {@link ParallelSingletonsInitializer}. Every singleton is scheduled
+ * on {@link ForkJoinPool} as soon as all its dependents have been
+ * closed, thus independent singletons are closed in parallel. Pool has
+ * one thread for every singleton to close up to {@link #MAX_PARALLELISM}
+ * threads.</p>
+ *
+ * <p>Failure to close singleton does not stop disposal, singletons it
+ * depends on are closed as usual. Disposal is bounded by timeout:
+ * singletons which have not been closed when timeout expires are left
+ * as they are and their closing is interrupted. All failures are
+ * reported with one {@link ContainerCloseException} having the first
+ * failure as its cause and other failures as suppressed exceptions.</p>
+ *
+ * @author  Diarsid
+ * @see     Container#close(long, TimeUnit)
+ */
+final class ParallelSingletonsDisposer {
+
+    /**
+     * Closing of module usually waits for I/O or for termination of 
+     * threads rather than uses processor, thus quantity of threads is 
+     * not bounded by processors quantity.
+     */
+    private static final int MAX_PARALLELISM = 64;
+
+    private final ModulesInfo modulesInfo;
+    private final Queue<Throwable> failures;
+
+    ParallelSingletonsDisposer(ModulesInfo info) {
+        this.modulesInfo = info;
+        this.failures = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Closes singletons among specified modules. Modules of other types 
+     * and singletons which objects are absent are skipped. Lazy singleton 
+     * is closed only if its proxy has created singleton object.
+     *
+     * @param modules       modules owned by container.
+     * @param singletons    singleton objects, where key is module interface
+     *                      class object.
+     * @param timeout       maximum time to wait for disposal.
+     * @param unit          unit of timeout.
+     * @throws ContainerCloseException  if any singleton has not been closed.
+     */
+    void closeSingletons(
+            Collection<ModuleMetaData> modules, 
+            Map<Class, GemModule> singletons, 
+            long timeout, 
+            TimeUnit unit) {
+        List<ModuleMetaData> owned = new ArrayList<>();
+        Map<Class, GemModule> objects = new HashMap<>();
+        for (ModuleMetaData metaData : modules) {
+            Class moduleInterface = metaData.getModuleInterface();
+            GemModule module = singletons.get(moduleInterface);
+            if ( module == null || 
+                    ! metaData.getType().equals(GemModuleType.SINGLETON) ) {
+                continue;
+            }
+            owned.add(metaData);
+            if ( modulesInfo.isModuleLazyProxy(moduleInterface) ) {
+                module = LazySingletonHandler.createdModuleOf(module);
+            }
+            if ( module != null ) {
+                objects.put(moduleInterface, module);
+            }
+        }
+        closeOwnedSingletons(owned, objects, timeout, unit);
+    }
+    
+    private void closeOwnedSingletons(
+            List<ModuleMetaData> singletons, 
+            Map<Class, GemModule> objects, 
+            long timeout, 
+            TimeUnit unit) {
+        Map<Class, List<Class>> dependents = collectDependents(singletons);
+        List<ModuleMetaData> disposalOrder = new ArrayList<>(singletons);
+        // dependents have higher priority, they are scheduled first.
+        Collections.sort(disposalOrder, Collections.reverseOrder());
+        ForkJoinPool pool = new ForkJoinPool(
+                Math.max(1, Math.min(objects.size(), MAX_PARALLELISM)));
+        Map<Class, CompletableFuture<Void>> scheduled = new HashMap<>();
+        try {
+            for (ModuleMetaData metaData : disposalOrder) {
+                scheduled.put(
+                        metaData.getModuleInterface(),
+                        schedule(metaData, objects.get(metaData.getModuleInterface()), 
+                                dependents, scheduled, pool));
+            }
+            CompletableFuture<Void> all = CompletableFuture.allOf(
+                    scheduled.values().toArray(new CompletableFuture[scheduled.size()]));
+            try {
+                all.get(timeout, unit);
+            } catch (TimeoutException e) {
+                failures.add(notClosed(scheduled, timeout, unit));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.add(e);
+            } catch (ExecutionException e) {
+                // closing tasks never complete exceptionally.
+                failures.add(e.getCause());
+            }
+        } finally {
+            for (CompletableFuture<Void> task : scheduled.values()) {
+                task.cancel(false);
+            }
+            pool.shutdownNow();
+        }
+        if ( ! failures.isEmpty() ) {
+            throw aggregatedFailure();
+        }
+    }
+
+    /**
+     * Returns modules depending on every specified singleton, directly
+     * or through modules which are not among specified singletons.
+     */
+    private Map<Class, List<Class>> collectDependents(List<ModuleMetaData> singletons) {
+        Set<Class> owned = new HashSet<>();
+        for (ModuleMetaData metaData : singletons) {
+            owned.add(metaData.getModuleInterface());
+        }
+        Map<Class, List<Class>> dependents = new HashMap<>();
+        for (ModuleMetaData metaData : singletons) {
+            Set<Class> singletonDepcies = collectSingletonDependencies(metaData);
+            // singletons of parent container or of forked container are 
+            // not closed by this container.
+            singletonDepcies.retainAll(owned);
+            for (Class depcy : singletonDepcies) {
+                dependents
+                        .computeIfAbsent(depcy, module -> new ArrayList<>())
+                        .add(metaData.getModuleInterface());
+            }
+        }
+        return dependents;
+    }
+
+    private CompletableFuture<Void> schedule(
+            ModuleMetaData metaData,
+            GemModule singleton,
+            Map<Class, List<Class>> dependents,
+            Map<Class, CompletableFuture<Void>> scheduled,
+            ForkJoinPool pool) {
+        List<Class> moduleDependents = dependents.get(metaData.getModuleInterface());
+        if ( moduleDependents == null ) {
+            moduleDependents = Collections.emptyList();
+        }
+        CompletableFuture[] dependentsTasks = new CompletableFuture[moduleDependents.size()];
+        for (int i = 0; i < dependentsTasks.length; i++) {
+            dependentsTasks[i] = scheduled.get(moduleDependents.get(i));
+        }
+        return CompletableFuture
+                .allOf(dependentsTasks)
+                .thenRunAsync(() -> closeSingleton(metaData, singleton), pool);
+    }
+
+    private void closeSingleton(ModuleMetaData metaData, GemModule singleton) {
+        if ( ! (singleton instanceof AutoCloseable) ) {
+            return;
+        }
+        try {
+            ((AutoCloseable) singleton).close();
+        } catch (Exception | Error e) {
+            failures.add(new ContainerCloseException(
+                    metaData.getModuleInterface().getCanonicalName() + 
+                    " closing exception: " + e.getMessage(), e));
+        }
+    }
+
+    /**
+     * Walks through constructor parameters of singleton and all its
+     * prototype dependencies and collects all singletons met. Modules
+     * injected as providers are walked through as well because provider
+     * can be invoked while singleton is being closed.
+     */
+    private Set<Class> collectSingletonDependencies(ModuleMetaData metaData) {
+        Set<Class> singletons = new HashSet<>();
+        Set<Class> visitedPrototypes = new HashSet<>();
+        Deque<ModuleMetaData> toVisit = new ArrayDeque<>();
+        toVisit.push(metaData);
+        while ( ! toVisit.isEmpty() ) {
+            ModuleMetaData current = toVisit.pop();
+            for (Class depcy : current.getDeclaredDependencies()) {
+                if ( modulesInfo.isModuleSingleton(depcy) ) {
+                    singletons.add(depcy);
+                } else if ( visitedPrototypes.add(depcy) ) {
+                    toVisit.push(modulesInfo.getMetaDataOfModule(depcy));
+                }
+            }
+        }
+        return singletons;
+    }
+
+    private ContainerCloseException notClosed(
+            Map<Class, CompletableFuture<Void>> scheduled, long timeout, TimeUnit unit) {
+        StringBuilder message = new StringBuilder()
+                .append("Modules have not been closed within ")
+                .append(timeout).append(" ").append(unit).append(": ");
+        boolean first = true;
+        for (Map.Entry<Class, CompletableFuture<Void>> task : scheduled.entrySet()) {
+            if ( ! task.getValue().isDone() ) {
+                if ( ! first ) {
+                    message.append(", ");
+                }
+                message.append(task.getKey().getCanonicalName());
+                first = false;
+            }
+        }
+        return new ContainerCloseException(message.toString());
+    }
+
+    private ContainerCloseException aggregatedFailure() {
+        List<Throwable> causes = new ArrayList<>(failures);
+        StringBuilder message = new StringBuilder()
+                .append(causes.size())
+                .append(" failure(s) during singletons closing: ");
+        for (int i = 0; i < causes.size(); i++) {
+            if ( i > 0 ) {
+                message.append("; ");
+            }
+            message.append(causes.get(i).getMessage());
+        }
+        ContainerCloseException exception =
+                new ContainerCloseException(message.toString(), causes.get(0));
+        for (int i = 1; i < causes.size(); i++) {
+            exception.addSuppressed(causes.get(i));
+        }
+        return exception;
+    }
+}
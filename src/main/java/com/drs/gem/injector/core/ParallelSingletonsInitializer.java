@@ -0,0 +1,253 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.drs.gem.injector.exceptions.ContainerCloseException;
+import com.drs.gem.injector.exceptions.ContainerInitializationException;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Initializes all singleton modules of container concurrently.</p>
+ *
+ * <p>Every singleton is scheduled on {@link ForkJoinPool} as soon as all
+ * singletons it depends on have been initialized. Singleton depends on
+ * singletons injected into it directly and on singletons injected into
+ * its prototype dependencies at any depth, because those prototypes are
+ * created together with singleton. Singleton is created by execution of
+ * its {@link InstantiationPlan}, thus its prototype dependencies are
+ * created in the same task and ready singletons are taken from container
+ * storage.</p>
+ *
+ * <p>On the first failure all tasks which have not been started yet are
+ * cancelled. Initializer waits for tasks being executed at this moment,
+ * removes singletons it has initialized from container storage and 
+ * closes them with {@link ParallelSingletonsDisposer} in reverse order 
+ * of their dependencies, so that resources they have opened do not leak 
+ * with container which can not be used. Then it throws one {@link 
+ * ContainerInitializationException} having the first failure as its 
+ * cause and other failures, including failures of closing, as 
+ * suppressed exceptions.</p>
+ *
+ * @author  Diarsid
+ * @see     Container#useParallelInit()
+ */
+final class ParallelSingletonsInitializer {
+
+    private final ModulesInfo modulesInfo;
+    private final InstantiationPlanCompiler compiler;
+    private final ParallelSingletonsDisposer disposer;
+    private final AtomicBoolean failed;
+    private final Queue<Throwable> failures;
+    private final Queue<CompletableFuture<GemModule>> tasks;
+    private final Queue<ModuleMetaData> initialized;
+
+    ParallelSingletonsInitializer(
+            ModulesInfo info, 
+            InstantiationPlanCompiler compiler, 
+            ParallelSingletonsDisposer disposer) {
+        this.modulesInfo = info;
+        this.compiler = compiler;
+        this.disposer = disposer;
+        this.failed = new AtomicBoolean(false);
+        this.failures = new ConcurrentLinkedQueue<>();
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.initialized = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Initializes singletons and places them into container singletons
+     * storage. Storage must allow concurrent access. Singletons which 
+     * are already stored are not initialized.
+     *
+     * @param injectionPriorities   all modules sorted by injection priority.
+     * @throws ContainerInitializationException  if any singleton can not be
+     *                                           initialized.
+     */
+    void initSingletons(List<ModuleMetaData> injectionPriorities) {
+        ForkJoinPool pool = new ForkJoinPool(
+                Runtime.getRuntime().availableProcessors());
+        try {
+            Map<Class, CompletableFuture<GemModule>> scheduled = new HashMap<>();
+            for (ModuleMetaData metaData : injectionPriorities) {
+                if ( metaData.getType().equals(GemModuleType.SINGLETON) && 
+                        ! modulesInfo.getSingletons().containsKey(
+                                metaData.getModuleInterface()) ) {
+                    scheduled.put(
+                            metaData.getModuleInterface(),
+                            schedule(metaData, scheduled, pool));
+                }
+            }
+            CompletableFuture
+                    .allOf(tasks.toArray(new CompletableFuture[tasks.size()]))
+                    .handle((ready, failure) -> ready)
+                    .join();
+            // cancelled tasks are completed immediately while tasks being
+            // executed at the moment of cancellation are still running.
+            pool.awaitQuiescence(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        if ( ! failures.isEmpty() ) {
+            ContainerInitializationException failure = aggregatedFailure();
+            closeInitialized(failure);
+            throw failure;
+        }
+    }
+    
+    /**
+     * Removes singletons initialized before failure from container 
+     * storage and closes them. Failure of closing is suppressed by 
+     * failure of initialization.
+     */
+    private void closeInitialized(ContainerInitializationException failure) {
+        Map<Class, GemModule> singletons = new HashMap<>();
+        for (ModuleMetaData metaData : initialized) {
+            Class moduleInterface = metaData.getModuleInterface();
+            singletons.put(moduleInterface, modulesInfo.getSingletons().remove(moduleInterface));
+        }
+        if ( singletons.isEmpty() ) {
+            return;
+        }
+        try {
+            disposer.closeSingletons(
+                    initialized, 
+                    singletons, 
+                    ModulesContainer.DEFAULT_CLOSE_TIMEOUT_SECONDS, 
+                    TimeUnit.SECONDS);
+        } catch (ContainerCloseException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Schedules initialization of singleton after all singletons it
+     * depends on. Singletons with lower priority are always scheduled
+     * earlier.
+     */
+    private CompletableFuture<GemModule> schedule(
+            ModuleMetaData metaData,
+            Map<Class, CompletableFuture<GemModule>> scheduled,
+            ForkJoinPool pool) {
+        Set<Class> singletonDepcies = collectSingletonDependencies(metaData);
+        // singletons inherited from parent container or shared with 
+        // forked container are ready before initialization of this container.
+        singletonDepcies.retainAll(scheduled.keySet());
+        CompletableFuture[] depciesTasks = new CompletableFuture[singletonDepcies.size()];
+        int i = 0;
+        for (Class depcy : singletonDepcies) {
+            depciesTasks[i] = scheduled.get(depcy);
+            i++;
+        }
+        CompletableFuture<GemModule> task = CompletableFuture
+                .allOf(depciesTasks)
+                .thenApplyAsync(ready -> initSingleton(metaData), pool);
+        tasks.add(task);
+        return task;
+    }
+
+    private GemModule initSingleton(ModuleMetaData metaData) {
+        if ( failed.get() ) {
+            throw new CancellationException();
+        }
+        try {
+            GemModule module;
+            if ( modulesInfo.isModuleLazyProxy(metaData.getModuleInterface()) ) {
+                module = LazySingletonHandler.newProxy(metaData, compiler);
+            } else {
+                module = compiler.compile(metaData).execute();
+            }
+            modulesInfo.getSingletons().put(metaData.getModuleInterface(), module);
+            initialized.add(metaData);
+            return module;
+        } catch (RuntimeException | Error e) {
+            failures.add(e);
+            if ( failed.compareAndSet(false, true) ) {
+                cancelAll();
+            }
+            throw e;
+        }
+    }
+
+    private void cancelAll() {
+        for (CompletableFuture<GemModule> task : tasks) {
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * Walks through constructor parameters of singleton and all its
+     * prototype dependencies and collects all singletons met. Modules 
+     * injected as providers are walked through as well because provider 
+     * can be invoked in constructor.
+     */
+    private Set<Class> collectSingletonDependencies(ModuleMetaData metaData) {
+        Set<Class> singletons = new LinkedHashSet<>();
+        Set<Class> visitedPrototypes = new HashSet<>();
+        Deque<ModuleMetaData> toVisit = new ArrayDeque<>();
+        toVisit.push(metaData);
+        while ( ! toVisit.isEmpty() ) {
+            ModuleMetaData current = toVisit.pop();
+            for (Class depcy : current.getDeclaredDependencies()) {
+                if ( modulesInfo.isModuleSingleton(depcy) ) {
+                    singletons.add(depcy);
+                } else if ( visitedPrototypes.add(depcy) ) {
+                    toVisit.push(modulesInfo.getMetaDataOfModule(depcy));
+                }
+            }
+        }
+        return singletons;
+    }
+
+    private ContainerInitializationException aggregatedFailure() {
+        List<Throwable> causes = new ArrayList<>(failures);
+        StringBuilder message = new StringBuilder()
+                .append(causes.size())
+                .append(" failure(s) during parallel singletons initialization: ");
+        for (int i = 0; i < causes.size(); i++) {
+            if ( i > 0 ) {
+                message.append("; ");
+            }
+            message.append(causes.get(i).getMessage());
+        }
+        ContainerInitializationException exception =
+                new ContainerInitializationException(
+                        message.toString(), causes.get(0));
+        for (int i = 1; i < causes.size(); i++) {
+            exception.addSuppressed(causes.get(i));
+        }
+        return exception;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Singletons of parent container inherited by child container.</p>
+ * 
+ * <p>Singleton of parent container is inherited if it is required by 
+ * module of child container and is not declared in child container. 
+ * Singleton object and its {@link ModuleMetaData} are taken from 
+ * container which has declared module, thus inheriting costs neither 
+ * module resolving nor module instantiation. Inherited modules do not 
+ * take part in priority calculation of child container.</p>
+ * 
+ * <p>Module declared in child container overrides module of parent 
+ * container for modules of child container only, singletons of parent 
+ * container keep their own dependencies.</p>
+ * 
+ * @author  Diarsid
+ * @see     GemInjector#buildChildContainer(String, String)
+ */
+final class ParentSingletons {
+    
+    private final ModulesContainer container;
+    
+    /**
+     * Initialized parent container or null if container is not child 
+     * container.
+     */
+    private final ModulesContainer parent;
+    
+    /**
+     * Map<Class, ModuleMetaData> that contains inherited singletons, 
+     * where key is module interface class object and value is 
+     * ModuleMetaData resolved by container which has declared this module.
+     */
+    private final Map<Class, ModuleMetaData> inheritedModules;
+    
+    ParentSingletons(ModulesContainer container, ModulesContainer parent) {
+        this.container = container;
+        this.parent = parent;
+        this.inheritedModules = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Receives singletons inherited by template of fork. Objects of 
+     * these singletons are taken by fork from template.
+     * 
+     * @param template  inherited singletons of template.
+     */
+    void copyOf(ParentSingletons template) {
+        inheritedModules.putAll(template.inheritedModules);
+    }
+    
+    /**
+     * Inherits singletons of parent container which are required by 
+     * specified modules and are not declared in container.
+     * 
+     * @param metaDatas resolved modules of container.
+     */
+    void inheritRequiredBy(Collection<ModuleMetaData> metaDatas) {
+        for (ModuleMetaData metaData : metaDatas) {
+            for (Class depcy : metaData.getDeclaredDependencies()) {
+                if ( ! container.isModuleResolved(depcy) ) {
+                    inherit(depcy);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Makes singleton of parent container available in container if 
+     * module is not declared in container.
+     * 
+     * @param moduleInterface   module interface class object.
+     * @return                  true if module has been inherited, false
+     *                          if it should be resolved by container.
+     */
+    boolean inherit(Class moduleInterface) {
+        if ( parent == null || 
+                container.getDeclaration(moduleInterface.getName()) != null ) {
+            return false;
+        }
+        ModulesContainer owner = findSingletonOwner(parent, moduleInterface);
+        if ( owner == null ) {
+            return false;
+        }
+        GemModule module = owner.provideModule(moduleInterface);
+        ModuleMetaData metaData = owner.getMetaDataOfModule(moduleInterface);
+        inheritedModules.put(moduleInterface, metaData);
+        container.storeInheritedSingleton(moduleInterface, metaData, module);
+        return true;
+    }
+    
+    /**
+     * Returns container declaring specified module as singleton. Module 
+     * declared in container hides modules of its parent containers.
+     * 
+     * @param container         container.
+     * @param moduleInterface   module interface class object.
+     * @return                  container declaring singleton or null if 
+     *                          module is not declared or is not singleton.
+     */
+    private static ModulesContainer findSingletonOwner(
+            ModulesContainer container, Class moduleInterface) {
+        GemModuleDeclaration declaration = 
+                container.getDeclaration(moduleInterface.getName());
+        if ( declaration != null ) {
+            if ( declaration.getModuleType().equals(GemModuleType.SINGLETON) ) {
+                return container;
+            } else {
+                return null;
+            }
+        } else if ( container.getParent() != null ) {
+            return findSingletonOwner(container.getParent(), moduleInterface);
+        } else {
+            return null;
+        }
+    }
+    
+    ModuleMetaData getMetaData(Class moduleInterface) {
+        return inheritedModules.get(moduleInterface);
+    }
+    
+    Set<Class> getInheritedModules() {
+        return inheritedModules.keySet();
+    }
+}
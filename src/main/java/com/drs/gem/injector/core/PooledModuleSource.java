@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.drs.gem.injector.exceptions.ContainerCloseException;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>{@link ModuleSource} of module having type 
+ * {@link GemModuleType#POOLED POOLED}. Source keeps bounded pool of idle 
+ * module objects. Pool is filled when source is created.</p>
+ * 
+ * <p>{@link #get()} checks out idle object from pool. If pool is empty, 
+ * new object is created with module {@link InstantiationPlan}, so that 
+ * checkout never waits for other threads returning their objects. 
+ * Object returned by {@link #release(GemModule)} is placed back into 
+ * pool, if pool is full, object is dropped.</p>
+ * 
+ * <p>Source remembers identities of objects being checked out, so that
+ * only these objects are accepted back. Object returned twice or object
+ * which has not been obtained from this source is rejected and can not 
+ * get into pool, where it would be given to several clients at once. 
+ * Objects being checked out are referenced weakly, thus object which is 
+ * never returned is not kept by source and is collected as soon as its 
+ * client drops it.</p>
+ * 
+ * <p>Idle objects are closed by {@link #close()}, objects dropped because 
+ * pool is full or source is closed are closed as well if they implement 
+ * {@link AutoCloseable}. Objects being checked out belong to their 
+ * clients and are never closed by source.</p>
+ * 
+ * <p>If metrics are collected, every checkout is recorded as hit or miss
+ * together with its duration.</p>
+ * 
+ * @author  Diarsid
+ * @see     Container#returnModule(Class, GemModule)
+ */
+final class PooledModuleSource implements ModuleSource {
+    
+    private final InstantiationPlan plan;
+    private final BlockingQueue<GemModule> idle;
+    private final Set<CheckedOut> checkedOut;
+    private final ReferenceQueue<GemModule> forgotten;
+    private final ContainerMetrics.ModuleStats stats;
+    private volatile boolean closed;
+    
+    /**
+     * Creates source and fills its pool.
+     * 
+     * @param plan      instantiation plan of pooled module.
+     * @param capacity  maximal quantity of idle objects kept in pool.
+     * @param stats     statistics of module or null if metrics are not 
+     *                  collected.
+     */
+    PooledModuleSource(
+            InstantiationPlan plan, int capacity, ContainerMetrics.ModuleStats stats) {
+        this.plan = plan;
+        this.idle = new ArrayBlockingQueue<>(capacity);
+        this.checkedOut = ConcurrentHashMap.newKeySet();
+        this.forgotten = new ReferenceQueue<>();
+        this.stats = stats;
+        this.closed = false;
+        for (int i = 0; i < capacity; i++) {
+            this.idle.offer(plan.execute());
+        }
+    }
+    
+    @Override
+    public GemModule get() {
+        if ( stats == null ) {
+            return checkout();
+        }
+        long start = System.nanoTime();
+        GemModule module = idle.poll();
+        boolean hit = ( module != null );
+        if ( ! hit ) {
+            module = plan.execute();
+        }
+        remember(module);
+        stats.checkedOut(hit, System.nanoTime() - start);
+        return module;
+    }
+    
+    private GemModule checkout() {
+        GemModule module = idle.poll();
+        if ( module == null ) {
+            module = plan.execute();
+        }
+        remember(module);
+        return module;
+    }
+    
+    private void remember(GemModule module) {
+        Reference<? extends GemModule> collected = forgotten.poll();
+        while ( collected != null ) {
+            checkedOut.remove(collected);
+            collected = forgotten.poll();
+        }
+        checkedOut.add(new CheckedOut(module, forgotten));
+    }
+    
+    /**
+     * Returns object into pool if it has been checked out from this 
+     * source and has not been returned yet. If pool is full or source is 
+     * closed, object is closed instead.
+     * 
+     * @param module    object obtained from this source earlier.
+     * @return          true if object has been accepted, false if it is 
+     *                  not checked out from this source.
+     * @throws ContainerCloseException  if dropped object has failed to 
+     *                                  close.
+     */
+    boolean release(GemModule module) {
+        if ( ! checkedOut.remove(new CheckedOut(module, null)) ) {
+            return false;
+        }
+        ModuleCloser closer = new ModuleCloser(plan.getModuleInterface());
+        if ( ! idle.offer(module) ) {
+            closer.close(module);
+        }
+        if ( closed ) {
+            // object could be placed into pool while it has been closed.
+            closeIdle(closer);
+        }
+        if ( closer.getFailure() != null ) {
+            throw closer.getFailure();
+        }
+        return true;
+    }
+    
+    /**
+     * Closes all idle objects. Objects returned after source has been 
+     * closed are closed as well.
+     * 
+     * @return  failure of closing or null if all objects have been 
+     *          closed properly.
+     */
+    ContainerCloseException close() {
+        closed = true;
+        ModuleCloser closer = new ModuleCloser(plan.getModuleInterface());
+        closeIdle(closer);
+        return closer.getFailure();
+    }
+    
+    private void closeIdle(ModuleCloser closer) {
+        GemModule module = idle.poll();
+        while ( module != null ) {
+            closer.close(module);
+            module = idle.poll();
+        }
+    }
+    
+    /**
+     * Weak reference to object being checked out. References are equal if 
+     * they refer to the same object, so that reference created for 
+     * returned object finds reference created on checkout.
+     */
+    private static final class CheckedOut extends WeakReference<GemModule> {
+        
+        private final int hash;
+        
+        CheckedOut(GemModule module, ReferenceQueue<GemModule> queue) {
+            super(module, queue);
+            this.hash = System.identityHashCode(module);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if ( this == other ) {
+                return true;
+            }
+            if ( ! (other instanceof CheckedOut) ) {
+                return false;
+            }
+            GemModule module = get();
+            return module != null && module == ((CheckedOut) other).get();
+        }
+    }
+}
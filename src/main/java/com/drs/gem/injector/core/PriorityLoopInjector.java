@@ -19,7 +19,6 @@
 package com.drs.gem.injector.core;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -29,10 +28,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 
-import com.drs.gem.injector.exceptions.ModuleInstantiationException;
 import com.drs.gem.injector.exceptions.ModuleNotFoundException;
 import com.drs.gem.injector.module.GemModule;
-import com.drs.gem.injector.module.GemModuleBuilder;
 
 /**
  * <p>PriorityLoopInjector implements {@link Injector} interface and is 
@@ -47,6 +44,8 @@ import com.drs.gem.injector.module.GemModuleBuilder;
  */
 final class PriorityLoopInjector implements Injector {
     
+    private static final GemModule[] NO_DEPENDENCIES = new GemModule[0];
+    
     private final ModulesInfo modulesInfo;
     private final Map<Class, Queue<GemModule>> assembledDepcyMods;
     private List<ModuleMetaData> declaredDepciesDatas;
@@ -102,30 +101,29 @@ final class PriorityLoopInjector implements Injector {
         if (modulesInfo.getMetaDataOfModule(moduleInterface).getDependencies() != null) {
             declaredDepciesDatas = modulesInfo.getMetaDataOfModule(moduleInterface).getDependencies();            
         } else {
-            declaredDepciesDatas = modulesInfo.getModuleDependenciesData(moduleInterface);
-            dependenciesPriorityReverseCheck();
+            dependenciesPriorityReverseCheck(modulesInfo.getMetaDataOfModule(moduleInterface));
             modulesInfo.getMetaDataOfModule(moduleInterface).setActualDependencies(declaredDepciesDatas);            
         } 
     }
     
     /**
-     * Takes list of ModuleMetaData sorted by their priority and sweeps out 
-     * those objects which also have lower priority of main required module 
-     * but are not its real dependencies. 
+     * Walks from main required module through its constructor parameters 
+     * and collects only those modules which are its real dependencies, 
+     * sorted by their priority. Modules having lower priority than main 
+     * required module but not being its dependencies are never touched, 
+     * thus cost of this method does not depend on modules quantity in 
+     * container. 
      */
-    private void dependenciesPriorityReverseCheck() {
+    private void dependenciesPriorityReverseCheck(ModuleMetaData required) {
         List<ModuleMetaData> actualized = new ArrayList<>();
-        actualized.add(declaredDepciesDatas.get(declaredDepciesDatas.size()-1));
+        actualized.add(required);
         for ( int i = 0; i < actualized.size(); i++) {
             ModuleMetaData module = actualized.get(i);
             if ( module.getType().equals(GemModuleType.PROTOTYPE) ) {
                 // If module is prototype, all its dependencies are 
                 // required because it will be initialized afresh
                 // every time.
-                Class[] moduleDepcies = module.getConstructor().getParameterTypes();
-                for (Class moduleDepcy : moduleDepcies) {
-                    actualized.add(modulesInfo.getMetaDataOfModule(moduleDepcy));
-                }
+                addConstructedDependencies(module, actualized);
             } else {
                 // If module is singleton it may not need to obtain, store 
                 // and initialize its dependencies because singleton may 
@@ -134,10 +132,7 @@ final class PriorityLoopInjector implements Injector {
                     // If module is singleton and it has not been initialized yet
                     // is only case when it is needed to obtain and store its
                     // dependencies.
-                    Class[] moduleDepcies = module.getConstructor().getParameterTypes();
-                    for (Class moduleDepcy : moduleDepcies) {
-                        actualized.add(modulesInfo.getMetaDataOfModule(moduleDepcy));
-                    }
+                    addConstructedDependencies(module, actualized);
                 }
             }
         }
@@ -145,6 +140,21 @@ final class PriorityLoopInjector implements Injector {
         declaredDepciesDatas = actualized;
     }
     
+    /**
+     * Adds dependencies of module which objects are constructed together 
+     * with module. Dependencies injected as providers are skipped because 
+     * they are obtained only when provider is invoked.
+     */
+    private void addConstructedDependencies(
+            ModuleMetaData module, List<ModuleMetaData> actualized) {
+        Class[] moduleDepcies = module.getDeclaredDependencies();
+        for (int i = 0; i < moduleDepcies.length; i++) {
+            if ( ! module.isProvidedDependency(i) ) {
+                actualized.add(modulesInfo.getMetaDataOfModule(moduleDepcies[i]));
+            }
+        }
+    }
+    
     /**
      * <p>Pivotal method being responsible for module initialization.
      * Walks through the collection of ModuleMetaData objects sorted 
@@ -200,7 +210,7 @@ final class PriorityLoopInjector implements Injector {
     }
     
     private GemModule initNewModule(ModuleMetaData metaData) {
-        if ( metaData.getConstructor().getParameterCount() == 0 ) {
+        if ( metaData.getInvoker().getArity() == 0 ) {
             return constructModuleWithoutDepend(metaData);
         } else {
             return constructModuleWithDepend(metaData);                    
@@ -208,25 +218,7 @@ final class PriorityLoopInjector implements Injector {
     }      
     
     private GemModule constructModuleWithoutDepend(ModuleMetaData metaData) {
-        Object obj = instantiateBuildObject(metaData);
-        return getModuleFromBuildObject(obj);
-    }
-    
-    /**
-     * Given object can be either GemModule instance or GemModuleBuilder instance. Method
-     * detects it and return appropriate GemModule object.
-     * 
-     * @param obj   Object that can be either GemModule instance or 
-     *              GemModuleBuilder instance.
-     * @return      GemModule obtained or casted from specified object.
-     */
-    private GemModule getModuleFromBuildObject(Object obj){
-        if ( ifObjectIsModuleBuilder(obj) ) {
-            GemModuleBuilder builder = (GemModuleBuilder) obj;
-            return (GemModule) builder.buildModule();
-        } else {
-            return (GemModule) obj;
-        }
+        return FlightRecorderEvents.newModule(metaData.getInvoker(), NO_DEPENDENCIES);
     }
     
     /**
@@ -237,12 +229,14 @@ final class PriorityLoopInjector implements Injector {
      * @return          GemModule object that is fully initialized
      */    
     private GemModule constructModuleWithDepend(ModuleMetaData metaData) {
-        Class[] moduleDep = metaData.getConstructor().getParameterTypes();
+        Class[] moduleDep = metaData.getDeclaredDependencies();
         GemModule[] depModules = new GemModule[moduleDep.length];
         
         for ( int i = 0; i < moduleDep.length; i++ ) {
             Class dependency = moduleDep[i];
-            if ( modulesInfo.isModuleSingleton(dependency) ) {
+            if ( metaData.isProvidedDependency(i) ) {
+                depModules[i] = modulesInfo.getProviderOfModule(dependency);
+            } else if ( modulesInfo.isModuleSingleton(dependency) ) {
                 if ( modulesInfo.getSingletons().containsKey(dependency) ) {
                     depModules[i] = modulesInfo.getSingletons().get(dependency);
                 } else {
@@ -267,52 +261,6 @@ final class PriorityLoopInjector implements Injector {
             }            
         }
         
-        Object obj = instantiateBuildObject(metaData, depModules);
-        return getModuleFromBuildObject(obj);
-    }
-    
-    /**
-     * Instantiates new object.<br>
-     * It can be either the object of the module interface or the object 
-     * of the module builder interface.
-     * 
-     * @param metaData      represents module that will be instantiated.
-     * @param depModules    GemModule[] array representing previously collected 
-     *                      dependencies of this module. If module doesn't 
-     *                      have any dependencies array has zero length.
-     * @return              GemModule object. It may be GemModuleBuilder object.
-     */
-    private Object instantiateBuildObject(ModuleMetaData metaData, GemModule... depModules){
-        try {
-            if ( depModules.length == 0 ){
-                return metaData.getConstructor().newInstance();
-            } else {
-                return metaData.getConstructor().newInstance(depModules);
-            }
-        } catch (IllegalAccessException e){
-            throw new ModuleInstantiationException(
-                    metaData.getModuleInterface().getCanonicalName() + 
-                    " instantiation exception: illegel access.", e);
-        } catch (IllegalArgumentException e){
-            throw new ModuleInstantiationException(
-                    metaData.getModuleInterface().getCanonicalName() + 
-                    " instantiation exception: " +
-                    "illegel arguments in constructor.", e);
-        } catch (InstantiationException e) {
-            throw new ModuleInstantiationException(
-                    metaData.getModuleInterface().getCanonicalName() + 
-                    " instantiation exception: " +
-                    "underlying implementation class is abstract.", e);
-        } catch (InvocationTargetException e) {
-            throw new ModuleInstantiationException(
-                    metaData.getModuleInterface().getCanonicalName() + 
-                    " instantiation exception: " +
-                    "underlying constructor throws exception.", e);
-        } 
-        
-    }     
-    
-    private boolean ifObjectIsModuleBuilder(Object obj){
-        return GemModuleBuilder.class.isAssignableFrom(obj.getClass());
+        return FlightRecorderEvents.newModule(metaData.getInvoker(), depModules);
     }
 }
@@ -19,12 +19,9 @@
 package com.drs.gem.injector.core;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 
-import com.drs.gem.injector.exceptions.ModuleInstantiationException;
 import com.drs.gem.injector.exceptions.ModuleNotFoundException;
 import com.drs.gem.injector.module.GemModule;
-import com.drs.gem.injector.module.GemModuleBuilder;
 
 /**
  * <p>RecursiveInjector implements {@link Injector} interface and is responsible 
@@ -33,13 +30,15 @@ import com.drs.gem.injector.module.GemModuleBuilder;
  * This implementation uses recursive method invocations to collect module
  * dependencies and instantiate module object. It initially calls {@link #newModule(
  * Constructor, Class) .newModule()} method for asked GemModule and then
- * calls {@link #findDependencies(Class, Class[]) .findDependencies()}
+ * calls {@link #findDependencies(ModuleMetaData) .findDependencies()}
  * method for searching direct dependencies of this module.
  * 
  * @author Diarsid
  */
 class RecursiveInjector implements Injector {
     
+    private static final GemModule[] NO_DEPENDENCIES = new GemModule[0];
+    
     private final ModulesInfo modulesInfo;
 
     RecursiveInjector(ModulesInfo info) {
@@ -59,43 +58,13 @@ class RecursiveInjector implements Injector {
      */    
     @Override
     public GemModule newModule(Constructor buildCons, Class moduleInterface){        
-        Class[] dependencies = buildCons.getParameterTypes();
-        try {
-            
-            Object obj;
-            if (dependencies.length == 0){
-                obj = buildCons.newInstance();
-            } else {
-                GemModule[] depModules = findDependencies(moduleInterface, dependencies);
-                obj = buildCons.newInstance(depModules);
-            }
-            
-            if (ifObjectIsModuleBuilder(obj)){
-                GemModuleBuilder builder = (GemModuleBuilder) obj;
-                return builder.buildModule();
-            } else {
-                return (GemModule) obj;
-            }
-            
-        } catch (IllegalAccessException e){
-            throw new ModuleInstantiationException(
-                    moduleInterface.getCanonicalName() + 
-                    " instantiation exception: illegel access.", e);
-        } catch (IllegalArgumentException e){
-            throw new ModuleInstantiationException(
-                    moduleInterface.getCanonicalName() + 
-                    " instantiation exception: " +
-                    "illegel arguments in constructor.", e);
-        } catch (InstantiationException e) {
-            throw new ModuleInstantiationException(
-                    moduleInterface.getCanonicalName() + 
-                    " instantiation exception: " +
-                    "underlying implementation class is abstract.", e);
-        } catch (InvocationTargetException e) {
-            throw new ModuleInstantiationException(
-                    moduleInterface.getCanonicalName() + 
-                    " instantiation exception: " +
-                    "underlying constructor throws exception.", e);
+        ModuleInvoker invoker = modulesInfo.getInvokerOfModule(moduleInterface);
+        if (invoker.getArity() == 0){
+            return FlightRecorderEvents.newModule(invoker, NO_DEPENDENCIES);
+        } else {
+            GemModule[] depModules = findDependencies(
+                    modulesInfo.getMetaDataOfModule(moduleInterface));
+            return FlightRecorderEvents.newModule(invoker, depModules);
         }
     }
     
@@ -104,17 +73,20 @@ class RecursiveInjector implements Injector {
      * they are singletons, tries to find them in container's singletons 
      * storage. If not, recursively launches the process of new module creation.
      * 
-     * @param   moduleInterf    module whose dependencies will be found in method.
-     * @param   dependencies    classes represent set of module's dependencies.
-     * @return                  module objects which are dependencies for this module.
+     * @param   metaData    module whose dependencies will be found in method.
+     * @return              module objects which are dependencies for this module.
      */    
-    private GemModule[] findDependencies(Class moduleInterf, Class[] dependencies){
+    private GemModule[] findDependencies(ModuleMetaData metaData){
+        Class moduleInterf = metaData.getModuleInterface();
+        Class[] dependencies = metaData.getDeclaredDependencies();
         GemModule[] foundModules = new GemModule[dependencies.length];        
         for (int i = 0; i < foundModules.length; i++){
             
             Class dependencyModule = dependencies[i];
             
-            if (modulesInfo.isModuleSingleton(dependencyModule)){
+            if (metaData.isProvidedDependency(i)){
+                foundModules[i] = modulesInfo.getProviderOfModule(dependencyModule);
+            } else if (modulesInfo.isModuleSingleton(dependencyModule)){
                 GemModule module = modulesInfo.getSingletons().get(dependencyModule);
                 if (module == null){
                     throw new ModuleNotFoundException(
@@ -124,6 +96,8 @@ class RecursiveInjector implements Injector {
                             " not found in Injector::Map<Class, Module> modules.");
                 }
                 foundModules[i] = module;
+            } else if (modulesInfo.getSourceOfModule(dependencyModule) != null){
+                foundModules[i] = modulesInfo.getSourceOfModule(dependencyModule).get();
             } else {
                 Constructor buildCons = modulesInfo.getConstructorOfModule(dependencyModule);
                 GemModule module = newModule(buildCons, dependencyModule);
@@ -132,8 +106,4 @@ class RecursiveInjector implements Injector {
         }
         return foundModules;
     }
-    
-    private boolean ifObjectIsModuleBuilder(Object obj){
-        return GemModuleBuilder.class.isAssignableFrom(obj.getClass());
-    }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>{@link ModuleInvoker} that does not create module object but takes
+ * it from {@link ModuleSource} of module.</p>
+ * 
+ * <p>It is used as construction step of {@link InstantiationPlan} for 
+ * dependency which objects are provided by source, so that plan 
+ * executes it like any other step.</p>
+ * 
+ * @author  Diarsid
+ * @see     InstantiationPlanCompiler
+ */
+final class ScopedModuleInvoker extends ModuleInvoker {
+    
+    private final ModuleSource source;
+    
+    ScopedModuleInvoker(Class moduleInterface, Class buildClass, ModuleSource source) {
+        super(moduleInterface, buildClass, 0);
+        this.source = source;
+    }
+    
+    @Override
+    GemModule newModule(GemModule[] args) {
+        return source.get();
+    }
+    
+    @Override
+    boolean createsModule() {
+        return false;
+    }
+}
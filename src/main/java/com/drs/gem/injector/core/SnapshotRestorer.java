@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Restores resolved modules graph of container from {@link 
+ * GraphSnapshot} and writes snapshot of graph resolved by full 
+ * initialization.</p>
+ * 
+ * <p>Snapshot hash covers only declarations, thus build class and 
+ * constructor of every module are verified to be the same as full 
+ * initialization would choose: builder may have been added or 
+ * removed, {@link com.drs.gem.injector.module.InjectedConstructor} 
+ * may have been moved to another constructor.</p>
+ * 
+ * @author  Diarsid
+ * @see     Container#useSnapshot(String)
+ */
+final class SnapshotRestorer {
+    
+    private final ModulesContainer container;
+    private final Factory factory;
+    private final ContainerHelper helper;
+    
+    SnapshotRestorer(ModulesContainer container, Factory factory) {
+        this.container = container;
+        this.factory = factory;
+        this.helper = factory.buildHelper();
+    }
+    
+    /**
+     * Restores resolved modules graph from snapshot instead of module 
+     * declarations parsing, verification, constructors resolving and
+     * priority calculation. If snapshot does not correspond to actual 
+     * classes, container state is left untouched. 
+     * 
+     * @param snapshot  snapshot of resolved graph, may be null.
+     * @return          true if graph has been restored, false if full
+     *                  initialization is required.
+     */
+    boolean restore(GraphSnapshot snapshot) {
+        if ( snapshot == null || 
+                snapshot.getEntries().size() != container.countDeclarations() ) {
+            return false;
+        }
+        List<GraphSnapshot.Entry> entries = snapshot.getEntries();
+        ClassResolver resolver = container.getResolver();
+        try {
+            Class[] interfaces = new Class[entries.size()];
+            for (int i = 0; i < interfaces.length; i++) {
+                interfaces[i] = resolver.resolveIfExists(entries.get(i).getModuleInterface());
+            }
+            List<ModuleMetaData> metaDatas = new ArrayList<>();
+            for (int i = 0; i < interfaces.length; i++) {
+                GraphSnapshot.Entry entry = entries.get(i);
+                int[] dependencies = entry.getDependencies();
+                Class[] paramTypes = new Class[dependencies.length];
+                for (int j = 0; j < dependencies.length; j++) {
+                    paramTypes[j] = interfaces[dependencies[j]];
+                }
+                Class buildClass = resolver.resolveIfExists(entry.getBuildClass());
+                if ( ! isActualBuildClass(entry.getModuleInterface(), buildClass) ) {
+                    return false;
+                }
+                Constructor buildCons = helper.resolveModuleConstructors(
+                        buildClass.getDeclaredConstructors());
+                if ( ! Arrays.equals(
+                        ModuleMetaData.dependenciesOf(buildCons), paramTypes) ) {
+                    return false;
+                }
+                buildCons.setAccessible(true);
+                GemModuleType type = GemModuleType.valueOf(entry.getType());
+                ModuleMetaData metaData = factory.buildMetaData(
+                        interfaces[i], 
+                        buildCons, 
+                        container.buildInvoker(interfaces[i], buildCons, type), 
+                        type);
+                metaData.setPriority(entry.getPriority());
+                metaDatas.add(metaData);
+            }
+            for (ModuleMetaData metaData : metaDatas) {
+                container.storeResolvedModule(metaData);
+            }
+            container.restoreInjectionPriorities(
+                    Collections.unmodifiableList(metaDatas));
+            return true;
+        } catch (ClassNotFoundException | RuntimeException e) {
+            // snapshot is outdated, full initialization will be 
+            // performed and snapshot will be rewritten.
+            return false;
+        }
+    }
+    
+    /**
+     * Verifies that class stored in snapshot is the class whose constructor
+     * would be used by full initialization, i.e. module builder if it
+     * exists or module implementation otherwise.
+     */
+    private boolean isActualBuildClass(String moduleInterfaceName, Class buildClass) {
+        GemModuleDeclaration moduleDec = container.getDeclaration(moduleInterfaceName);
+        if ( moduleDec == null ) {
+            return false;
+        }
+        Class moduleBuilder = moduleDec.getModuleBuilder();
+        if ( moduleBuilder == null ) {
+            moduleBuilder = container.getResolver()
+                    .findBuilder(moduleDec.getModuleBuildClassName());
+        }
+        if ( moduleBuilder == null ) {
+            return buildClass.getName().equals(moduleDec.getModuleBuildClassName());
+        } else {
+            return buildClass == moduleBuilder;
+        }
+    }
+    
+    /**
+     * Writes resolved modules graph into snapshot file. Failure to write 
+     * snapshot does not affect container initialization.
+     * 
+     * @param snapshotFile      snapshot file.
+     * @param declarationsHash  hash of module declarations.
+     */
+    void write(Path snapshotFile, byte[] declarationsHash) {
+        List<ModuleMetaData> priorities = container.getInjectionPriorities();
+        Map<Class, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < priorities.size(); i++) {
+            indexes.put(priorities.get(i).getModuleInterface(), i);
+        }
+        List<GraphSnapshot.Entry> entries = new ArrayList<>();
+        for (ModuleMetaData metaData : priorities) {
+            Constructor buildCons = metaData.getConstructor();
+            Class[] paramTypes = metaData.getDeclaredDependencies();
+            int[] dependencies = new int[paramTypes.length];
+            for (int i = 0; i < paramTypes.length; i++) {
+                dependencies[i] = indexes.get(paramTypes[i]);
+            }
+            entries.add(new GraphSnapshot.Entry(
+                    metaData.getModuleInterface().getName(), 
+                    buildCons.getDeclaringClass().getName(), 
+                    metaData.getType().name(), 
+                    metaData.getPriority(), 
+                    dependencies));
+        }
+        try {
+            new GraphSnapshot(declarationsHash, entries).write(snapshotFile);
+        } catch (IOException e) {
+            // snapshot is only an optimization of next initialization.
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>Report describing how singleton constructions performed during 
+ * {@link Container#init()} depend on each other in time.</p>
+ * 
+ * <p>Report contains:</p>
+ * <ul>
+ * <li>critical path - the longest chain of singletons which can not be 
+ * constructed but sequentially, because every next singleton depends on 
+ * previous one. Only acceleration or removal of constructions on this path 
+ * can shorten initialization;</li>
+ * <li>slack of every singleton - time for which its construction could 
+ * be delayed or prolonged without delay of whole initialization. 
+ * Singletons on critical path have zero slack;</li>
+ * <li>ideal parallel initialization time - duration of critical path, 
+ * i.e. duration of initialization performed on unlimited quantity of 
+ * threads, and sequential initialization time - sum of all singletons 
+ * construction times.</li>
+ * </ul>
+ * 
+ * <p>Construction time of singleton includes construction time of 
+ * all prototypes created for it. Times are measured by container, 
+ * they do not include time spent by container itself.</p>
+ * 
+ * <p>Report can be exported as JSON with {@link #toJson()} and as 
+ * graph in DOT language with {@link #toDot()}.</p>
+ * 
+ * @author  Diarsid
+ * @see     Container#getStartupReport()
+ */
+public final class StartupReport {
+    
+    private final String[] names;
+    private final long[] costs;
+    private final long[] earliestStarts;
+    private final long[] slacks;
+    private final int[][] dependencies;
+    private final int[] criticalPath;
+    private final int[] pathPositions;
+    private final long criticalPathNanos;
+    private final long sequentialNanos;
+    
+    StartupReport(
+            String[] names, 
+            long[] costs, 
+            long[] earliestStarts, 
+            long[] slacks, 
+            int[][] dependencies, 
+            int[] criticalPath, 
+            long criticalPathNanos, 
+            long sequentialNanos) {
+        this.names = names;
+        this.costs = costs;
+        this.earliestStarts = earliestStarts;
+        this.slacks = slacks;
+        this.dependencies = dependencies;
+        this.criticalPath = criticalPath;
+        this.pathPositions = new int[names.length];
+        Arrays.fill(this.pathPositions, -1);
+        for (int i = 0; i < criticalPath.length; i++) {
+            this.pathPositions[criticalPath[i]] = i;
+        }
+        this.criticalPathNanos = criticalPathNanos;
+        this.sequentialNanos = sequentialNanos;
+    }
+    
+    /**
+     * Returns canonical names of singleton module interfaces on critical 
+     * path, from the first constructed to the last constructed.
+     * 
+     * @return  critical path.
+     */
+    public List<String> getCriticalPath() {
+        List<String> path = new ArrayList<>(criticalPath.length);
+        for (int module : criticalPath) {
+            path.add(names[module]);
+        }
+        return Collections.unmodifiableList(path);
+    }
+    
+    /**
+     * Returns duration of critical path which is ideal time of parallel
+     * singletons initialization.
+     * 
+     * @return  critical path duration in nanoseconds.
+     */
+    public long getCriticalPathNanos() {
+        return criticalPathNanos;
+    }
+    
+    /**
+     * Returns sum of construction times of all singletons which is time 
+     * of sequential singletons initialization.
+     * 
+     * @return  sequential initialization time in nanoseconds.
+     */
+    public long getSequentialNanos() {
+        return sequentialNanos;
+    }
+    
+    /**
+     * Returns construction time of every singleton in order of their 
+     * injection priority.
+     * 
+     * @return  canonical names of singleton module interfaces and their 
+     *          construction times in nanoseconds.
+     */
+    public Map<String, Long> getConstructionNanos() {
+        return toMap(costs);
+    }
+    
+    /**
+     * Returns slack of every singleton in order of their injection 
+     * priority.
+     * 
+     * @return  canonical names of singleton module interfaces and their 
+     *          slacks in nanoseconds.
+     */
+    public Map<String, Long> getSlackNanos() {
+        return toMap(slacks);
+    }
+    
+    private Map<String, Long> toMap(long[] values) {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            map.put(names[i], values[i]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+    
+    /**
+     * Returns report as JSON object. Singletons are listed in order of 
+     * their injection priority, all times are in nanoseconds.
+     * 
+     * @return  JSON representation of report.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"criticalPathNanos\": ").append(criticalPathNanos).append(",\n");
+        json.append("  \"sequentialNanos\": ").append(sequentialNanos).append(",\n");
+        json.append("  \"criticalPath\": [");
+        for (int i = 0; i < criticalPath.length; i++) {
+            if ( i > 0 ) {
+                json.append(", ");
+            }
+            appendJsonString(json, names[criticalPath[i]]);
+        }
+        json.append("],\n");
+        json.append("  \"modules\": [");
+        for (int i = 0; i < names.length; i++) {
+            json.append(i > 0 ? ",\n" : "\n");
+            json.append("    {\"module\": ");
+            appendJsonString(json, names[i]);
+            json.append(", \"constructionNanos\": ").append(costs[i]);
+            json.append(", \"earliestStartNanos\": ").append(earliestStarts[i]);
+            json.append(", \"slackNanos\": ").append(slacks[i]);
+            json.append(", \"critical\": ").append(isCritical(i));
+            json.append(", \"dependencies\": [");
+            for (int j = 0; j < dependencies[i].length; j++) {
+                if ( j > 0 ) {
+                    json.append(", ");
+                }
+                appendJsonString(json, names[dependencies[i][j]]);
+            }
+            json.append("]}");
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+    
+    /**
+     * Returns report as directed graph in DOT language. Edges are directed
+     * from dependency to singleton depending on it, singletons and edges 
+     * on critical path are colored red.
+     * 
+     * @return  DOT representation of report.
+     */
+    public String toDot() {
+        StringBuilder dot = new StringBuilder();
+        dot.append("digraph startup {\n");
+        dot.append("  rankdir=LR;\n");
+        dot.append("  node [shape=box];\n");
+        for (int i = 0; i < names.length; i++) {
+            dot.append("  ").append(i).append(" [label=\"");
+            appendDotString(dot, names[i]);
+            dot.append("\\n").append(toMillis(costs[i])).append(" ms, slack ")
+                    .append(toMillis(slacks[i])).append(" ms\"");
+            if ( isCritical(i) ) {
+                dot.append(", color=red");
+            }
+            dot.append("];\n");
+        }
+        for (int i = 0; i < names.length; i++) {
+            for (int depcy : dependencies[i]) {
+                dot.append("  ").append(depcy).append(" -> ").append(i);
+                if ( isCriticalEdge(depcy, i) ) {
+                    dot.append(" [color=red]");
+                }
+                dot.append(";\n");
+            }
+        }
+        dot.append("}\n");
+        return dot.toString();
+    }
+    
+    private boolean isCritical(int module) {
+        return pathPositions[module] >= 0;
+    }
+    
+    private boolean isCriticalEdge(int from, int to) {
+        return isCritical(from) && pathPositions[to] == pathPositions[from] + 1;
+    }
+    
+    private static String toMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+    
+    private static void appendJsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ( c == '"' || c == '\\' ) {
+                json.append('\\').append(c);
+            } else if ( c < 0x20 ) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+    
+    private static void appendDotString(StringBuilder dot, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ( c == '"' || c == '\\' ) {
+                dot.append('\\');
+            }
+            dot.append(c);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.drs.gem.injector.exceptions.ContainerCloseException;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>{@link ModuleSource} of module having type 
+ * {@link GemModuleType#THREAD THREAD}. Source keeps one module object 
+ * per thread in {@link ThreadLocal}, object is created with module 
+ * {@link InstantiationPlan} when it is required in thread for the 
+ * first time.</p>
+ * 
+ * <p>Source also registers every object it has created together with 
+ * weak reference to its thread, so that objects of all threads can be 
+ * disposed. Objects implementing {@link AutoCloseable} are closed:</p>
+ * <ul>
+ * <li>by {@link #release()}, which disposes object of current thread. 
+ * Threads of pools are not terminated after every task, so that objects 
+ * kept for them should be released in the end of task;</li>
+ * <li>when thread has terminated, including virtual threads. Objects of 
+ * terminated threads are disposed when source creates next object, 
+ * failure of closing is ignored because there is nobody to report it 
+ * to;</li>
+ * <li>by {@link #close()}, which disposes objects of all threads. 
+ * Disposed object is not referenced by its thread anymore, thus threads 
+ * of pools do not keep objects of closed container.</li>
+ * </ul>
+ * 
+ * @author  Diarsid
+ * @see     Container#releaseThreadModules()
+ */
+final class ThreadModuleSource implements ModuleSource {
+    
+    private final InstantiationPlan plan;
+    private final ThreadLocal<ThreadObject> current;
+    private final Set<ThreadObject> objects;
+    private final ReferenceQueue<Thread> terminatedThreads;
+    
+    ThreadModuleSource(InstantiationPlan plan) {
+        this.plan = plan;
+        this.current = new ThreadLocal<>();
+        this.objects = ConcurrentHashMap.newKeySet();
+        this.terminatedThreads = new ReferenceQueue<>();
+    }
+    
+    @Override
+    public GemModule get() {
+        ThreadObject object = current.get();
+        if ( object != null ) {
+            GemModule module = object.module;
+            if ( module != null ) {
+                return module;
+            }
+        }
+        disposeObjectsOfTerminatedThreads();
+        GemModule module = plan.execute();
+        object = new ThreadObject(Thread.currentThread(), module, terminatedThreads);
+        objects.add(object);
+        current.set(object);
+        return module;
+    }
+    
+    /**
+     * Disposes module object kept for current thread. Next request in 
+     * this thread will create new object.
+     * 
+     * @return  failure of object closing or null if object has been 
+     *          closed properly or does not exist.
+     */
+    ContainerCloseException release() {
+        ThreadObject object = current.get();
+        if ( object == null ) {
+            return null;
+        }
+        current.remove();
+        ModuleCloser closer = new ModuleCloser(plan.getModuleInterface());
+        dispose(object, closer);
+        return closer.getFailure();
+    }
+    
+    /**
+     * Disposes module objects of all threads.
+     * 
+     * @return  failure of objects closing or null if all objects have 
+     *          been closed properly.
+     */
+    ContainerCloseException close() {
+        ModuleCloser closer = new ModuleCloser(plan.getModuleInterface());
+        for (ThreadObject object : objects) {
+            dispose(object, closer);
+        }
+        return closer.getFailure();
+    }
+    
+    private void disposeObjectsOfTerminatedThreads() {
+        Reference<? extends Thread> terminated = terminatedThreads.poll();
+        if ( terminated == null ) {
+            return;
+        }
+        ModuleCloser closer = new ModuleCloser(plan.getModuleInterface());
+        while ( terminated != null ) {
+            dispose((ThreadObject) terminated, closer);
+            terminated = terminatedThreads.poll();
+        }
+    }
+    
+    /**
+     * Closes object unless it has been disposed already by other thread.
+     */
+    private void dispose(ThreadObject object, ModuleCloser closer) {
+        if ( objects.remove(object) ) {
+            GemModule module = object.module;
+            object.module = null;
+            object.clear();
+            closer.close(module);
+        }
+    }
+    
+    /**
+     * Module object of one thread. Reference to thread is weak, it is 
+     * enqueued when thread has terminated and has been collected.
+     */
+    private static final class ThreadObject extends WeakReference<Thread> {
+        
+        private volatile GemModule module;
+        
+        ThreadObject(Thread thread, GemModule module, ReferenceQueue<Thread> queue) {
+            super(thread, queue);
+            this.module = module;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.exceptions;
+
+/**
+ * <p>This exception is thrown by {@link 
+ * com.drs.gem.injector.core.Container#close() Container.close()} if some 
+ * module objects have failed to close or singletons have not been closed 
+ * within timeout, and by {@link 
+ * com.drs.gem.injector.core.Container#releaseThreadModules() 
+ * Container.releaseThreadModules()} if released objects have failed to 
+ * close. The first failure is the cause of exception, other failures are 
+ * suppressed exceptions.</p>
+ * 
+ * @author Diarsid
+ */
+public class ContainerCloseException extends RuntimeException {
+
+    public ContainerCloseException(String message) {
+        super(message);
+    }    
+    
+    public ContainerCloseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
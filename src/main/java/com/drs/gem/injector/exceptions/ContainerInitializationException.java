@@ -22,7 +22,8 @@ package com.drs.gem.injector.exceptions;
  * This exception is thrown if {@link
  * com.drs.gem.injector.core.Container#getModule(Class)  Container.getModule()}
  * method had been invoked before container was initialized by invocation of 
- * {@link com.drs.gem.injector.core.Container#init() Container.init()} method.
+ * {@link com.drs.gem.injector.core.Container#init() Container.init()} method
+ * or if singletons could not be initialized in parallel mode.
  * 
  * @author Diarsid
  */
@@ -31,4 +32,8 @@ public class ContainerInitializationException extends RuntimeException {
     public ContainerInitializationException(String message) {
         super(message);
     }    
+    
+    public ContainerInitializationException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.module;
+
+import java.util.function.Supplier;
+
+/**
+ * <p>Provider of module objects. Every invocation of {@link #get()} 
+ * returns module object created by container with all its dependencies 
+ * injected in accordance with their types.</p>
+ * 
+ * <p>Container gives provider of module to 
+ * {@link com.drs.gem.injector.core.GemModuleScope GemModuleScope} when 
+ * scope has no object of this module in its current context.</p>
+ * 
+ * <p>Module can also receive provider of its dependency instead of 
+ * dependency object: parameter of injected constructor declared as 
+ * {@code GemModuleProvider<SomeModule>} or {@code Supplier<SomeModule>} 
+ * receives provider obtaining SomeModule from container on every 
+ * {@link #get()} invocation. Prototype dependency is not created together
+ * with module then, it is created only when it is required. Provider 
+ * of thread or scoped module returns object of current thread or 
+ * context at the moment of invocation, so that such provider can be 
+ * injected even into singleton.</p>
+ * 
+ * @param <M>   module interface.
+ * @author      Diarsid
+ * @see         com.drs.gem.injector.core.GemModuleScope
+ */
+public interface GemModuleProvider<M extends GemModule> extends Supplier<M> {
+    
+    /**
+     * Returns module object.
+     * 
+     * @return  module object.
+     */
+    @Override
+    M get();
+}
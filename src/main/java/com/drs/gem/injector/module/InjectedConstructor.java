@@ -32,6 +32,11 @@ import java.lang.annotation.Target;
  * <p>It is not permitted to mark more than one constructor in module class with
  * this annotation.</p>
  * 
+ * <p>Parameter can be declared as {@link GemModuleProvider} or 
+ * {@link java.util.function.Supplier} of module instead of module itself.
+ * Such parameter receives provider obtaining module from container on 
+ * demand, see {@link GemModuleProvider}.</p>
+ * 
  * @author Diarsid
  */
 @Retention(RetentionPolicy.RUNTIME)
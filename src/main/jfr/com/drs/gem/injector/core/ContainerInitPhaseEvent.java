@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event emitted when one phase of {@link Container#init()} 
+ * has been finished. Phases are the same as phases reported by 
+ * {@link ContainerMetricsMXBean#getPhaseNanos()}.
+ * 
+ * @author  Diarsid
+ * @see     FlightRecorderEvents
+ */
+@Name("com.drs.gem.injector.ContainerInitPhase")
+@Label("Container Init Phase")
+@Category("Gem Injector")
+@Description("Phase of container initialization")
+@StackTrace(false)
+final class ContainerInitPhaseEvent extends Event {
+    
+    @Label("Container")
+    String containerName;
+    
+    @Label("Phase")
+    String phase;
+}
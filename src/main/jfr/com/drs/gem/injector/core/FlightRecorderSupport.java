@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import jdk.jfr.FlightRecorder;
+
+import com.drs.gem.injector.core.FlightRecorderEvents.InitRecording;
+import com.drs.gem.injector.module.GemModule;
+
+/**
+ * <p>Implementation of {@link FlightRecorderEvents.Recorder} creating 
+ * Flight Recorder events. It is compiled separately from the rest of 
+ * library because Flight Recorder API is not present in Java 8, and is 
+ * loaded by {@link FlightRecorderEvents} reflectively.</p>
+ * 
+ * <p>When event is not enabled in running recording, only 
+ * {@link jdk.jfr.Event#isEnabled() .isEnabled()} check is performed, 
+ * which reads one static field, and event object does not escape, thus 
+ * JIT does not allocate it.</p>
+ * 
+ * @author  Diarsid
+ * @see     FlightRecorderEvents
+ */
+final class FlightRecorderSupport implements FlightRecorderEvents.Recorder {
+    
+    FlightRecorderSupport() {
+    }
+    
+    @Override
+    public boolean isInitialized() {
+        return FlightRecorder.isInitialized();
+    }
+    
+    @Override
+    public GemModule newModule(ModuleInvoker invoker, GemModule[] args) {
+        ModuleConstructionEvent event = new ModuleConstructionEvent();
+        if ( ! event.isEnabled() || ! invoker.createsModule() ) {
+            return invoker.newModule(args);
+        }
+        event.begin();
+        GemModule module = invoker.newModule(args);
+        event.end();
+        if ( event.shouldCommit() ) {
+            event.moduleInterface = invoker.getModuleInterface();
+            event.buildClass = invoker.getBuildClass();
+            event.builderUsed = ModuleConstructionEvent.isBuilder(
+                    invoker.getBuildClass());
+            event.dependencies = invoker.getArity();
+            event.commit();
+        }
+        return module;
+    }
+    
+    @Override
+    public InitRecording beginInit(String containerName) {
+        return new InitEvents(containerName);
+    }
+    
+    /**
+     * Events of one {@link Container#init()} invocation.
+     */
+    private static final class InitEvents implements InitRecording {
+        
+        private final String containerName;
+        private final ContainerInitEvent initEvent;
+        private ContainerInitPhaseEvent phaseEvent;
+        
+        private InitEvents(String containerName) {
+            this.containerName = containerName;
+            this.initEvent = new ContainerInitEvent();
+            this.initEvent.begin();
+            this.phaseEvent = new ContainerInitPhaseEvent();
+            this.phaseEvent.begin();
+        }
+        
+        @Override
+        public void phaseFinished(String phase) {
+            phaseEvent.end();
+            if ( phaseEvent.shouldCommit() ) {
+                phaseEvent.containerName = containerName;
+                phaseEvent.phase = phase;
+                phaseEvent.commit();
+            }
+            phaseEvent = new ContainerInitPhaseEvent();
+            phaseEvent.begin();
+        }
+        
+        @Override
+        public void initFinished(int modulesQty, boolean lazy) {
+            initEvent.end();
+            if ( initEvent.shouldCommit() ) {
+                initEvent.containerName = containerName;
+                initEvent.modules = modulesQty;
+                initEvent.lazy = lazy;
+                initEvent.commit();
+            }
+        }
+    }
+}
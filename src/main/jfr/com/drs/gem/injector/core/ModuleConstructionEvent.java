@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import com.drs.gem.injector.module.GemModuleBuilder;
+
+/**
+ * Flight Recorder event emitted when module constructor or module builder
+ * constructor and {@link GemModuleBuilder#buildModule() .buildModule()} 
+ * have been invoked. Event duration does not include creation of module 
+ * dependencies, they are recorded as separate events.
+ * 
+ * @author  Diarsid
+ * @see     FlightRecorderEvents
+ */
+@Name("com.drs.gem.injector.ModuleConstruction")
+@Label("Module Construction")
+@Category("Gem Injector")
+@Description("Invocation of module constructor or module builder")
+final class ModuleConstructionEvent extends Event {
+    
+    @Label("Module Interface")
+    Class moduleInterface;
+    
+    @Label("Build Class")
+    @Description("Module implementation class or module builder class")
+    Class buildClass;
+    
+    @Label("Builder Used")
+    boolean builderUsed;
+    
+    @Label("Dependencies")
+    @Description("Quantity of modules injected into constructor")
+    int dependencies;
+    
+    static boolean isBuilder(Class buildClass) {
+        return GemModuleBuilder.class.isAssignableFrom(buildClass);
+    }
+}
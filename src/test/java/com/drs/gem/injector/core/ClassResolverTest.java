@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests resolving of module classes defined at runtime, which have no
+ * class files visible through their class loader.
+ *
+ * @author Diarsid
+ */
+public class ClassResolverTest {
+
+    public interface Greeter extends GemModule {
+        String greeting();
+    }
+
+    /**
+     * Class loader defining classes from bytes. Hidden classes are not
+     * loaded from parent class loader and resources are never found.
+     */
+    static final class RuntimeClassLoader extends ClassLoader {
+
+        private final Set<String> hidden;
+
+        RuntimeClassLoader(Class... hiddenClasses) {
+            super(ClassResolverTest.class.getClassLoader());
+            this.hidden = new HashSet<>();
+            for (Class hiddenClass : hiddenClasses) {
+                hidden.add(hiddenClass.getName());
+            }
+        }
+
+        Class define(Class original) throws IOException {
+            String resource = original.getName().replace('.', '/') + ".class";
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (InputStream in = getParent().getResourceAsStream(resource)) {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ( (read = in.read(buffer)) != -1 ) {
+                    bytes.write(buffer, 0, read);
+                }
+            }
+            byte[] classBytes = bytes.toByteArray();
+            return defineClass(original.getName(), classBytes, 0, classBytes.length);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve)
+                throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if ( loaded != null ) {
+                    return loaded;
+                }
+                if ( hidden.contains(name) ) {
+                    throw new ClassNotFoundException(name);
+                }
+                return super.loadClass(name, resolve);
+            }
+        }
+
+        @Override
+        public URL getResource(String name) {
+            return null;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    private RuntimeClassLoader defineGreeter() throws IOException {
+        RuntimeClassLoader loader = new RuntimeClassLoader(
+                RuntimeGreeter.class, RuntimeGreeterBuilder.class);
+        loader.define(RuntimeGreeter.class);
+        loader.define(RuntimeGreeterBuilder.class);
+        return loader;
+    }
+
+    @Test
+    public void testBuilderDefinedAtRuntimeIsFound() throws IOException {
+        RuntimeClassLoader loader = defineGreeter();
+        ClassResolver resolver = new ClassResolver(loader);
+
+        Class builder = resolver.findBuilder(RuntimeGreeter.class.getName());
+
+        assertEquals(RuntimeGreeterBuilder.class.getName(), builder.getName());
+        assertSame(loader, builder.getClassLoader());
+    }
+
+    @Test
+    public void testAbsentBuilderIsRememberedByResolverOnly() throws IOException {
+        RuntimeClassLoader loader = new RuntimeClassLoader(
+                RuntimeGreeter.class, RuntimeGreeterBuilder.class);
+        loader.define(RuntimeGreeter.class);
+        ClassResolver resolver = new ClassResolver(loader);
+        assertNull(resolver.findBuilder(RuntimeGreeter.class.getName()));
+
+        loader.define(RuntimeGreeterBuilder.class);
+
+        assertNull(resolver.findBuilder(RuntimeGreeter.class.getName()));
+        assertSame(
+                loader,
+                new ClassResolver(loader)
+                        .findBuilder(RuntimeGreeter.class.getName()).getClassLoader());
+    }
+
+    @Test
+    public void testNullLoaderDenotesBootstrapLoader() {
+        ClassResolver resolver = new ClassResolver(null);
+
+        assertSame(String.class, resolver.resolve("java.lang.String"));
+        assertNull(resolver.findBuilder("java.lang.Object"));
+    }
+
+    private void verifyContainerUsesRuntimeBuilder(String name, boolean generated, boolean lazy)
+            throws IOException {
+        RuntimeClassLoader loader = defineGreeter();
+        Container container = GemInjector.buildContainer(name);
+        container.useClassLoader(loader);
+        container.declareModule(
+                Greeter.class.getName(), RuntimeGreeter.class.getName(), GemModuleType.PROTOTYPE);
+        if ( generated ) {
+            container.useGeneratedFactories();
+        }
+        if ( lazy ) {
+            container.useLazyInit();
+        }
+        container.init();
+
+        Greeter greeter = container.getModule(Greeter.class);
+
+        assertEquals("builder", greeter.greeting());
+        assertSame(loader, greeter.getClass().getClassLoader());
+        assertNotSame(RuntimeGreeter.class, greeter.getClass());
+    }
+
+    @Test
+    public void testContainerCreatesModuleDefinedAtRuntime() throws IOException {
+        for (boolean generated : Arrays.asList(false, true)) {
+            for (boolean lazy : Arrays.asList(false, true)) {
+                verifyContainerUsesRuntimeBuilder(
+                        "runtime-" + generated + "-" + lazy, generated, lazy);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests concurrent module requests to initialized container.
+ *
+ * @author Diarsid
+ */
+public class ConcurrentGetModuleTest {
+
+    private static final int THREADS = 8;
+    private static final int REQUESTS = 2000;
+
+    public interface Registry extends GemModule {}
+
+    public static class RegistryImpl implements Registry {
+    }
+
+    public interface Handler extends GemModule {
+        Registry getRegistry();
+    }
+
+    public static class HandlerImpl implements Handler {
+        private final Registry registry;
+
+        public HandlerImpl(Registry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public Registry getRegistry() {
+            return registry;
+        }
+    }
+
+    public interface Request extends GemModule {
+        Handler getHandler();
+        Registry getRegistry();
+    }
+
+    public static class RequestImpl implements Request {
+        private final Handler handler;
+        private final Registry registry;
+
+        public RequestImpl(Handler handler, Registry registry) {
+            this.handler = handler;
+            this.registry = registry;
+        }
+
+        @Override
+        public Handler getHandler() {
+            return handler;
+        }
+
+        @Override
+        public Registry getRegistry() {
+            return registry;
+        }
+    }
+
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        GemInjector.clear();
+    }
+
+    private static Container buildContainer(String name) {
+        Container container = GemInjector.buildContainer(name);
+        container.declareModule(
+                Registry.class.getName(), RegistryImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Handler.class.getName(), HandlerImpl.class.getName(), GemModuleType.PROTOTYPE);
+        container.declareModule(
+                Request.class.getName(), RequestImpl.class.getName(), GemModuleType.PROTOTYPE);
+        return container;
+    }
+
+    /**
+     * Requests modules from all threads simultaneously and verifies every 
+     * obtained object graph.
+     */
+    private void requestConcurrently(final Container container) throws Exception {
+        final CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<Registry>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            results.add(pool.submit(new Callable<Registry>() {
+                @Override
+                public Registry call() throws Exception {
+                    start.await();
+                    Registry registry = container.getModule(Registry.class);
+                    for (int j = 0; j < REQUESTS; j++) {
+                        Request request = container.getModule(Request.class);
+                        assertSame(registry, request.getRegistry());
+                        assertSame(registry, request.getHandler().getRegistry());
+                        assertNotSame(request, container.getModule(Request.class));
+                    }
+                    return registry;
+                }
+            }));
+        }
+        Registry registry = container.getModule(Registry.class);
+        for (Future<Registry> result : results) {
+            assertSame(registry, result.get());
+        }
+    }
+
+    @Test
+    public void testConcurrentRequestsWithPlans() throws Exception {
+        Container container = buildContainer("concurrent-plans");
+        container.init();
+
+        requestConcurrently(container);
+    }
+
+    @Test
+    public void testConcurrentRequestsWithRecursiveInjector() throws Exception {
+        Container container = buildContainer("concurrent-recursive");
+        container.useRecursiveInjector();
+        container.init();
+
+        requestConcurrently(container);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.drs.gem.injector.exceptions.ContainerInitializationException;
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests isolation of forks from their templates.
+ *
+ * @author Diarsid
+ */
+public class ContainerForkerTest {
+
+    public interface Session extends GemModule {}
+    public interface Request extends GemModule {
+        Session session();
+    }
+    public interface Command extends GemModule {}
+
+    static final AtomicInteger SESSIONS_OPEN = new AtomicInteger();
+
+    public static class SessionImpl implements Session, AutoCloseable {
+        public SessionImpl() {
+            SESSIONS_OPEN.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            SESSIONS_OPEN.decrementAndGet();
+        }
+    }
+
+    public static class RequestImpl implements Request {
+        private final Session session;
+
+        public RequestImpl(Session session) {
+            this.session = session;
+        }
+
+        @Override
+        public Session session() {
+            return session;
+        }
+    }
+
+    public static class CommandImpl implements Command {
+    }
+
+    @Before
+    public void setUp() {
+        SESSIONS_OPEN.set(0);
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    private Container buildTemplate(String name, ContextScope scope, boolean lazy) {
+        Container template = GemInjector.buildContainer(name);
+        template.declareModule(
+                Session.class.getName(), SessionImpl.class.getName(), GemModuleType.SINGLETON);
+        template.declareModule(
+                Request.class.getName(), RequestImpl.class.getName(), "request");
+        template.declareModule(
+                Command.class.getName(), CommandImpl.class.getName(), GemModuleType.PROTOTYPE);
+        template.registerScope("request", scope);
+        template.useMetrics();
+        if ( lazy ) {
+            template.useLazyInit();
+        }
+        template.init();
+        return template;
+    }
+
+    private void verifyScopedModulesAreIsolated(String name, boolean lazy) {
+        ContextScope scope = new ContextScope("request");
+        Container template = buildTemplate(name, scope, lazy);
+        Container fork = template.fork(name + "Fork");
+
+        try (ContextScope.Context context = scope.open()) {
+            Request templateRequest = template.getModule(Request.class);
+            Request forkRequest = fork.getModule(Request.class);
+
+            assertNotSame(templateRequest, forkRequest);
+            assertSame(forkRequest, fork.getModule(Request.class));
+            assertSame(fork.getModule(Session.class), forkRequest.session());
+            assertSame(template.getModule(Session.class), templateRequest.session());
+        }
+    }
+
+    @Test
+    public void testScopedModulesAreIsolated() {
+        verifyScopedModulesAreIsolated("scoped", false);
+    }
+
+    @Test
+    public void testScopedModulesOfLazyTemplateAreIsolated() {
+        verifyScopedModulesAreIsolated("lazyScoped", true);
+    }
+
+    @Test
+    public void testForkCollectsItsOwnMetrics() {
+        Container template = buildTemplate("measured", new ContextScope("request"), false);
+        Container fork = template.fork("measuredFork");
+
+        template.getModule(Command.class);
+        fork.getModule(Command.class);
+        fork.getModule(Command.class);
+
+        assertEquals(
+                Long.valueOf(1),
+                template.getMetrics().getPrototypeCreations().get(Command.class.getCanonicalName()));
+        assertEquals(
+                Long.valueOf(2),
+                fork.getMetrics().getPrototypeCreations().get(Command.class.getCanonicalName()));
+    }
+
+    @Test
+    public void testForkUnderExistingNameLeavesExistingContainerIntact() throws Exception {
+        Container template = buildTemplate("duplicated", new ContextScope("request"), false);
+        Container other = GemInjector.buildContainer("other");
+        other.declareModule(
+                Command.class.getName(), CommandImpl.class.getName(), GemModuleType.PROTOTYPE);
+        other.useMetrics();
+        other.init();
+        other.getModule(Command.class);
+
+        try {
+            template.fork("other");
+            fail("fork must not be registered under existing name");
+        } catch (ContainerInitializationException e) {
+            // expected
+        }
+
+        assertEquals(1, SESSIONS_OPEN.get());
+        assertSame(other, GemInjector.getContainer("other"));
+        ContainerMetricsMXBean published = JMX.newMXBeanProxy(
+                ManagementFactory.getPlatformMBeanServer(),
+                new ObjectName("com.drs.gem.injector:type=Container,name=" + 
+                        ObjectName.quote("other")),
+                ContainerMetricsMXBean.class);
+        assertEquals(
+                Long.valueOf(1), 
+                published.getPrototypeCreations().get(Command.class.getCanonicalName()));
+        assertEquals(
+                other.getMetrics().getPrototypeCreations(), 
+                published.getPrototypeCreations());
+    }
+}
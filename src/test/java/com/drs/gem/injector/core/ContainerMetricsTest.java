@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests metrics collected by container and their MXBean.
+ *
+ * @author Diarsid
+ */
+public class ContainerMetricsTest {
+
+    private static final long SLOW_NANOS = 20_000_000L;
+
+    public interface Slow extends GemModule {}
+
+    public static class SlowImpl implements Slow {
+        public SlowImpl() throws InterruptedException {
+            Thread.sleep(SLOW_NANOS / 1_000_000L);
+        }
+    }
+
+    public interface Part extends GemModule {}
+
+    public static class PartImpl implements Part {
+        public PartImpl(Slow slow) {
+        }
+    }
+
+    public interface Whole extends GemModule {}
+
+    public static class WholeImpl implements Whole {
+        public WholeImpl(Part part) {
+        }
+    }
+
+    public interface OwnerMXBean {
+        String getOwner();
+    }
+
+    public static class Owner implements OwnerMXBean {
+        @Override
+        public String getOwner() {
+            return "other";
+        }
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    private static Container initContainer(String name) {
+        Container container = GemInjector.buildContainer(name);
+        container.declareModule(
+                Slow.class.getName(), SlowImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Part.class.getName(), PartImpl.class.getName(), GemModuleType.PROTOTYPE);
+        container.declareModule(
+                Whole.class.getName(), WholeImpl.class.getName(), GemModuleType.PROTOTYPE);
+        container.useMetrics();
+        container.init();
+        return container;
+    }
+
+    private static ObjectName objectNameOf(String containerName) throws Exception {
+        return new ObjectName(
+                "com.drs.gem.injector:type=Container,name=" + 
+                ObjectName.quote(containerName));
+    }
+
+    private static long sum(long[] histogram) {
+        long sum = 0;
+        for (long quantity : histogram) {
+            sum += quantity;
+        }
+        return sum;
+    }
+
+    @Test
+    public void testPhasesAreReportedInOrder() {
+        Container container = initContainer("metrics");
+
+        Map<String, Long> phases = container.getMetrics().getPhaseNanos();
+
+        assertEquals(
+                Arrays.asList(
+                        "parseModuleDeclarations", 
+                        "collectConstructors", 
+                        "initializeModuleMetaDatas", 
+                        "rateModulesByInjectionPriority", 
+                        "injectSingletons", 
+                        "compileInstantiationPlans"), 
+                new ArrayList<>(phases.keySet()));
+        for (long nanos : phases.values()) {
+            assertTrue(nanos >= 0);
+        }
+        assertTrue(phases.get("injectSingletons") >= SLOW_NANOS);
+    }
+
+    @Test
+    public void testModuleTimingsAndCreationsAreReported() {
+        Container container = initContainer("metrics");
+        container.getModule(Whole.class);
+        container.getModule(Whole.class);
+        container.getModule(Part.class);
+
+        ContainerMetricsMXBean metrics = container.getMetrics();
+
+        assertTrue(metrics.getModuleConstructionNanos()
+                .get(Slow.class.getCanonicalName()) >= SLOW_NANOS);
+        assertEquals(3L, (long) metrics.getPrototypeCreations()
+                .get(Part.class.getCanonicalName()));
+        assertEquals(2L, (long) metrics.getPrototypeCreations()
+                .get(Whole.class.getCanonicalName()));
+        assertFalse(metrics.getPrototypeCreations()
+                .containsKey(Slow.class.getCanonicalName()));
+        assertEquals(2L, sum(metrics.getRequestLatencyHistograms()
+                .get(Whole.class.getCanonicalName())));
+        assertEquals(1L, sum(metrics.getRequestLatencyHistograms()
+                .get(Part.class.getCanonicalName())));
+    }
+
+    @Test
+    public void testMetricsAreRegisteredAsMXBean() throws Exception {
+        Container container = initContainer("metrics");
+        container.getModule(Whole.class);
+
+        ContainerMetricsMXBean proxy = JMX.newMXBeanProxy(
+                ManagementFactory.getPlatformMBeanServer(), 
+                objectNameOf("metrics"), 
+                ContainerMetricsMXBean.class);
+
+        assertEquals(
+                container.getMetrics().getPrototypeCreations(), 
+                proxy.getPrototypeCreations());
+    }
+
+    @Test
+    public void testMXBeanRegisteredByOtherOwnerIsNotReplaced() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = objectNameOf("metrics");
+        server.registerMBean(new Owner(), name);
+        try {
+            Container container = initContainer("metrics");
+            assertEquals("other", server.getAttribute(name, "Owner"));
+
+            container.close();
+            assertEquals("other", server.getAttribute(name, "Owner"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.drs.gem.injector.exceptions.ScopeNotActiveException;
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests scoped modules kept in contexts of {@link ContextScope}.
+ *
+ * @author Diarsid
+ */
+public class ContextScopeTest {
+
+    public interface Session extends GemModule {}
+
+    public static class SessionImpl implements Session {
+    }
+
+    public interface Handler extends GemModule {
+        Session getSession();
+    }
+
+    public static class HandlerImpl implements Handler {
+        private final Session session;
+
+        public HandlerImpl(Session session) {
+            this.session = session;
+        }
+
+        @Override
+        public Session getSession() {
+            return session;
+        }
+    }
+
+    private ContextScope scope;
+    private Container container;
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() {
+        scope = new ContextScope("request");
+        container = GemInjector.buildContainer("scoped");
+        container.registerScope("request", scope);
+        container.declareModule(
+                Session.class.getName(), SessionImpl.class.getName(), "request");
+        container.declareModule(
+                Handler.class.getName(), HandlerImpl.class.getName(), GemModuleType.PROTOTYPE);
+        container.init();
+        pool = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        GemInjector.clear();
+    }
+
+    private void verifyNotActive() {
+        try {
+            container.getModule(Session.class);
+            fail("scoped module must not be obtained without open context");
+        } catch (ScopeNotActiveException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testObjectIsKeptInContext() {
+        Session first;
+        try (ContextScope.Context context = scope.open()) {
+            first = container.getModule(Session.class);
+            assertSame(first, container.getModule(Session.class));
+            assertSame(first, container.getModule(Handler.class).getSession());
+        }
+        try (ContextScope.Context context = scope.open()) {
+            assertNotSame(first, container.getModule(Session.class));
+        }
+    }
+
+    @Test
+    public void testClosedContextRestoresPrevious() {
+        try (ContextScope.Context outer = scope.open()) {
+            Session outerSession = container.getModule(Session.class);
+            try (ContextScope.Context inner = scope.open()) {
+                assertNotSame(outerSession, container.getModule(Session.class));
+            }
+            assertSame(outerSession, container.getModule(Session.class));
+        }
+        verifyNotActive();
+    }
+
+    @Test
+    public void testClosedContextDropsObjects() throws Exception {
+        final ContextScope.Context context = scope.open();
+        container.getModule(Session.class);
+        pool.submit(() -> scope.attach(context)).get();
+
+        context.close();
+
+        assertTrue(context.isClosed());
+        verifyNotActive();
+        try {
+            pool.submit(() -> container.getModule(Session.class)).get();
+            fail("closed context must not give objects to attached thread");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ScopeNotActiveException);
+        }
+        try {
+            scope.attach(context);
+            fail("closed context must not be attached");
+        } catch (ScopeNotActiveException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAttachedContextSharesObjects() throws Exception {
+        try (final ContextScope.Context context = scope.open()) {
+            Session session = container.getModule(Session.class);
+
+            Session attached = pool.submit(() -> {
+                scope.attach(context);
+                try {
+                    return container.getModule(Session.class);
+                } finally {
+                    scope.detach();
+                }
+            }).get();
+
+            assertSame(session, attached);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.drs.gem.injector.exceptions.ContainerInitializationException;
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests closing of child containers and forks together with containers
+ * they have been created from.
+ *
+ * @author Diarsid
+ */
+public class DependentContainersTest {
+
+    static final List<String> CLOSED = Collections.synchronizedList(new ArrayList<String>());
+
+    public interface Pool extends GemModule {}
+    public interface Repository extends GemModule {}
+
+    public static class PoolImpl implements Pool, AutoCloseable {
+        @Override
+        public void close() {
+            CLOSED.add("pool");
+        }
+    }
+
+    public static class RepositoryImpl implements Repository, AutoCloseable {
+        private final Pool pool;
+
+        public RepositoryImpl(Pool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void close() {
+            CLOSED.add("repository");
+        }
+    }
+
+    @Before
+    public void setUp() {
+        CLOSED.clear();
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    private Container buildParent(String name) {
+        Container parent = GemInjector.buildContainer(name);
+        parent.declareModule(Pool.class.getName(), PoolImpl.class.getName(), GemModuleType.SINGLETON);
+        parent.init();
+        return parent;
+    }
+
+    private Container buildChild(String name, String parentName) {
+        Container child = GemInjector.buildChildContainer(name, parentName);
+        child.declareModule(
+                Repository.class.getName(), RepositoryImpl.class.getName(), GemModuleType.SINGLETON);
+        child.init();
+        return child;
+    }
+
+    @Test
+    public void testChildIsClosedAndRemovedWithParent() {
+        buildParent("parent");
+        Container child = buildChild("child", "parent");
+
+        assertTrue(GemInjector.removeContainer("parent"));
+
+        assertEquals(Arrays.asList("repository", "pool"), CLOSED);
+        assertFalse(GemInjector.getAllContainerNames().contains("child"));
+        try {
+            child.getModule(Repository.class);
+            fail("closed child must not provide modules");
+        } catch (ContainerInitializationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testForkOfChildIsClosedBeforeParent() {
+        buildParent("forkedParent");
+        Container child = buildChild("forkedChild", "forkedParent");
+        child.fork("childFork");
+
+        GemInjector.removeContainer("forkedParent");
+
+        assertEquals(Arrays.asList("repository", "repository", "pool"), CLOSED);
+        assertTrue(GemInjector.getAllContainerNames().isEmpty());
+    }
+
+    @Test
+    public void testSharedSingletonIsClosedOnlyByTemplate() {
+        Container template = buildParent("template");
+        template.fork("sharingFork", Pool.class.getName());
+
+        GemInjector.removeContainer("sharingFork");
+        assertTrue(CLOSED.isEmpty());
+
+        GemInjector.removeContainer("template");
+        assertEquals(Collections.singletonList("pool"), CLOSED);
+    }
+
+    @Test
+    public void testClearClosesForksBeforeTemplates() {
+        Container template = buildParent("clearedTemplate");
+        template.fork("clearedFork");
+        buildChild("clearedChild", "clearedFork");
+
+        GemInjector.clear();
+
+        assertEquals(Arrays.asList("repository", "pool", "pool"), CLOSED);
+        assertTrue(GemInjector.getAllContainerNames().isEmpty());
+    }
+
+    @Test
+    public void testClosedContainerIsRemovedWithItsMetrics() throws Exception {
+        Container container = GemInjector.buildContainer("closedDirectly");
+        container.declareModule(Pool.class.getName(), PoolImpl.class.getName(), GemModuleType.SINGLETON);
+        container.useMetrics();
+        container.init();
+        ObjectName metrics = new ObjectName(
+                "com.drs.gem.injector:type=Container,name=" + 
+                ObjectName.quote("closedDirectly"));
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(metrics));
+
+        container.close();
+
+        assertEquals(Collections.singletonList("pool"), CLOSED);
+        assertFalse(GemInjector.getAllContainerNames().contains("closedDirectly"));
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(metrics));
+        assertFalse(GemInjector.removeContainer("closedDirectly"));
+        buildParent("closedDirectly");
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.drs.gem.injector.module.GemModule;
+import com.drs.gem.injector.module.GemModuleBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests Flight Recorder events emitted by container. Tests are compiled 
+ * against Java 8 API, thus Flight Recorder is used reflectively and 
+ * tests are skipped on runtimes without it.
+ *
+ * @author Diarsid
+ */
+public class FlightRecorderEventsTest {
+
+    private static final String EVENTS_PREFIX = "com.drs.gem.injector.";
+
+    public interface Store extends GemModule {}
+
+    public static class StoreImpl implements Store {
+    }
+
+    public interface Service extends GemModule {}
+
+    public static class ServiceImpl implements Service {
+        ServiceImpl(Store store) {
+        }
+    }
+
+    public static class ServiceImplBuilder implements GemModuleBuilder<Service> {
+        private final Store store;
+
+        public ServiceImplBuilder(Store store) {
+            this.store = store;
+        }
+
+        @Override
+        public Service buildModule() {
+            return new ServiceImpl(store);
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Class<?> recordingClass;
+
+    @Before
+    public void setUp() {
+        try {
+            recordingClass = Class.forName("jdk.jfr.Recording");
+        } catch (ClassNotFoundException e) {
+            recordingClass = null;
+        }
+        Assume.assumeTrue(recordingClass != null);
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    /**
+     * Records events of container initialization and of one prototype 
+     * request.
+     */
+    private List<Object> recordContainer() throws Exception {
+        Object recording = recordingClass.newInstance();
+        Method enable = recordingClass.getMethod("enable", String.class);
+        enable.invoke(recording, EVENTS_PREFIX + "ContainerInit");
+        enable.invoke(recording, EVENTS_PREFIX + "ContainerInitPhase");
+        enable.invoke(recording, EVENTS_PREFIX + "ModuleConstruction");
+        recordingClass.getMethod("start").invoke(recording);
+        try {
+            Container container = GemInjector.buildContainer("jfr");
+            container.declareModule(
+                    Store.class.getName(), StoreImpl.class.getName(), GemModuleType.SINGLETON);
+            container.declareModule(
+                    Service.class.getName(), ServiceImpl.class.getName(), GemModuleType.PROTOTYPE);
+            container.init();
+            container.getModule(Service.class);
+        } finally {
+            recordingClass.getMethod("stop").invoke(recording);
+        }
+        Path file = folder.newFile("container.jfr").toPath();
+        recordingClass.getMethod("dump", Path.class).invoke(recording, file);
+        recordingClass.getMethod("close").invoke(recording);
+        
+        Method readAllEvents = Class.forName("jdk.jfr.consumer.RecordingFile")
+                .getMethod("readAllEvents", Path.class);
+        return new ArrayList<Object>((List<?>) readAllEvents.invoke(null, file));
+    }
+
+    private static List<Object> eventsNamed(List<Object> events, String name) 
+            throws Exception {
+        List<Object> named = new ArrayList<>();
+        for (Object event : events) {
+            Object type = event.getClass().getMethod("getEventType").invoke(event);
+            if ( type.getClass().getMethod("getName").invoke(type)
+                    .equals(EVENTS_PREFIX + name) ) {
+                named.add(event);
+            }
+        }
+        return named;
+    }
+
+    private static Object valueOf(Object event, String field) throws Exception {
+        return Class.forName("jdk.jfr.consumer.RecordedObject")
+                .getMethod("getValue", String.class)
+                .invoke(event, field);
+    }
+
+    private static String classNameOf(Object event, String field) throws Exception {
+        Object recordedClass = valueOf(event, field);
+        return (String) recordedClass.getClass().getMethod("getName").invoke(recordedClass);
+    }
+
+    private static Object constructionOf(List<Object> events, Class moduleInterface) 
+            throws Exception {
+        for (Object event : eventsNamed(events, "ModuleConstruction")) {
+            if ( classNameOf(event, "moduleInterface").equals(moduleInterface.getName()) ) {
+                return event;
+            }
+        }
+        throw new AssertionError("no construction event of " + moduleInterface.getName());
+    }
+
+    @Test
+    public void testInitEventsAreRecorded() throws Exception {
+        List<Object> events = recordContainer();
+
+        List<Object> inits = eventsNamed(events, "ContainerInit");
+        assertEquals(1, inits.size());
+        assertEquals("jfr", valueOf(inits.get(0), "containerName"));
+        assertEquals(2, valueOf(inits.get(0), "modules"));
+        assertEquals(false, valueOf(inits.get(0), "lazy"));
+        
+        List<Object> phases = new ArrayList<>();
+        for (Object phase : eventsNamed(events, "ContainerInitPhase")) {
+            phases.add(valueOf(phase, "phase"));
+        }
+        assertTrue(phases.toString(), phases.contains("injectSingletons"));
+        assertTrue(phases.toString(), phases.contains("compileInstantiationPlans"));
+    }
+
+    @Test
+    public void testConstructionEventsAreRecorded() throws Exception {
+        List<Object> events = recordContainer();
+
+        Object store = constructionOf(events, Store.class);
+        assertEquals(StoreImpl.class.getName(), classNameOf(store, "buildClass"));
+        assertEquals(false, valueOf(store, "builderUsed"));
+        assertEquals(0, valueOf(store, "dependencies"));
+        
+        Object service = constructionOf(events, Service.class);
+        assertEquals(ServiceImplBuilder.class.getName(), classNameOf(service, "buildClass"));
+        assertEquals(true, valueOf(service, "builderUsed"));
+        assertEquals(1, valueOf(service, "dependencies"));
+    }
+}
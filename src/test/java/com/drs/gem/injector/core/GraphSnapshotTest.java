@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests container initialization from resolved graph snapshot.
+ *
+ * @author Diarsid
+ */
+public class GraphSnapshotTest {
+
+    public interface Engine extends GemModule {}
+
+    public static class EngineImpl implements Engine {
+    }
+
+    public static class OtherEngineImpl implements Engine {
+    }
+
+    public interface Car extends GemModule {
+        Engine getEngine();
+    }
+
+    public static class CarImpl implements Car {
+        private final Engine engine;
+
+        public CarImpl(Engine engine) {
+            this.engine = engine;
+        }
+
+        @Override
+        public Engine getEngine() {
+            return engine;
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File snapshot;
+    private int containersCounter;
+
+    @Before
+    public void setUp() {
+        snapshot = new File(folder.getRoot(), "graph.snapshot");
+        containersCounter = 0;
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    private Container initContainer(Class engineImplementation, File file) {
+        containersCounter++;
+        Container container = GemInjector.buildContainer("snapshot-" + containersCounter);
+        container.declareModule(
+                Engine.class.getName(), engineImplementation.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Car.class.getName(), CarImpl.class.getName(), GemModuleType.PROTOTYPE);
+        container.useSnapshot(file.getPath());
+        container.useMetrics();
+        container.init();
+        return container;
+    }
+
+    private static void verifyCar(Container container, Class engineImplementation) {
+        Engine engine = container.getModule(Engine.class);
+        assertSame(engineImplementation, engine.getClass());
+        assertSame(engine, container.getModule(Car.class).getEngine());
+    }
+
+    private static void verifyRestored(Container container, boolean restored) {
+        Set<String> phases = container.getMetrics().getPhaseNanos().keySet();
+        assertEquals(restored, phases.contains("restoreFromSnapshot"));
+        assertEquals(! restored, phases.contains("parseModuleDeclarations"));
+        assertEquals(! restored, phases.contains("writeSnapshot"));
+    }
+
+    @Test
+    public void testSnapshotIsRestored() throws Exception {
+        initContainer(EngineImpl.class, snapshot);
+        assertTrue(snapshot.exists());
+        byte[] written = Files.readAllBytes(snapshot.toPath());
+
+        Container restored = initContainer(EngineImpl.class, snapshot);
+
+        verifyRestored(restored, true);
+        verifyCar(restored, EngineImpl.class);
+        assertArrayEquals(written, Files.readAllBytes(snapshot.toPath()));
+    }
+
+    @Test
+    public void testChangedDeclarationsFallBackToFullInit() throws Exception {
+        initContainer(EngineImpl.class, snapshot);
+        byte[] written = Files.readAllBytes(snapshot.toPath());
+
+        Container changed = initContainer(OtherEngineImpl.class, snapshot);
+
+        verifyRestored(changed, false);
+        verifyCar(changed, OtherEngineImpl.class);
+        File expected = new File(folder.getRoot(), "expected.snapshot");
+        initContainer(OtherEngineImpl.class, expected);
+        byte[] rewritten = Files.readAllBytes(snapshot.toPath());
+        assertFalse(Arrays.equals(written, rewritten));
+        assertArrayEquals(Files.readAllBytes(expected.toPath()), rewritten);
+    }
+
+    @Test
+    public void testDamagedSnapshotFallsBackToFullInit() throws Exception {
+        File expected = new File(folder.getRoot(), "expected.snapshot");
+        initContainer(EngineImpl.class, expected);
+        byte[] valid = Files.readAllBytes(expected.toPath());
+        Files.write(snapshot.toPath(), Arrays.copyOf(valid, valid.length / 2));
+
+        Container container = initContainer(EngineImpl.class, snapshot);
+
+        verifyRestored(container, false);
+        verifyCar(container, EngineImpl.class);
+        assertArrayEquals(valid, Files.readAllBytes(snapshot.toPath()));
+    }
+}
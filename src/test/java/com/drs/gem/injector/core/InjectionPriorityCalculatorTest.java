@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.drs.gem.injector.exceptions.CyclicDependencyException;
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests detection of cyclic dependencies which do not include module 
+ * requested or declared first.
+ *
+ * @author Diarsid
+ */
+public class InjectionPriorityCalculatorTest {
+    
+    private static final String PREFIX = "Cyclic dependency detected: ";
+
+    public interface Root extends GemModule {}
+    public interface First extends GemModule {}
+    public interface Second extends GemModule {}
+    public interface Third extends GemModule {}
+
+    public static class RootImpl implements Root {
+        public RootImpl(First first) {
+        }
+    }
+
+    public static class FirstImpl implements First {
+        public FirstImpl(Second second) {
+        }
+    }
+
+    public static class SecondImpl implements Second {
+        public SecondImpl(Third third) {
+        }
+    }
+
+    public static class ThirdImpl implements Third {
+        public ThirdImpl(First first) {
+        }
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    private Container buildContainer(String name) {
+        Container container = GemInjector.buildContainer(name);
+        container.declareModule(Root.class.getName(), RootImpl.class.getName(), GemModuleType.PROTOTYPE);
+        container.declareModule(First.class.getName(), FirstImpl.class.getName(), GemModuleType.PROTOTYPE);
+        container.declareModule(Second.class.getName(), SecondImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(Third.class.getName(), ThirdImpl.class.getName(), GemModuleType.PROTOTYPE);
+        return container;
+    }
+
+    /**
+     * Verifies that message describes cycle First -> Second -> Third -> 
+     * First starting from any of its modules and does not include Root.
+     */
+    private void verifyCyclePath(String message) {
+        assertTrue(message, message.startsWith(PREFIX));
+        List<String> path = Arrays.asList(message.substring(PREFIX.length()).split(" -> "));
+        List<String> cycle = Arrays.asList(
+                First.class.getCanonicalName(), 
+                Second.class.getCanonicalName(), 
+                Third.class.getCanonicalName());
+        assertEquals(message, cycle.size() + 1, path.size());
+        assertEquals(message, path.get(0), path.get(cycle.size()));
+        int start = cycle.indexOf(path.get(0));
+        assertTrue(message, start >= 0);
+        for (int i = 0; i < cycle.size(); i++) {
+            assertEquals(message, cycle.get((start + i) % cycle.size()), path.get(i));
+        }
+    }
+
+    @Test
+    public void testCycleBelowRootIsReportedWithFullPath() {
+        Container container = buildContainer("deepCycle");
+        try {
+            container.init();
+            fail("cyclic dependency must be detected");
+        } catch (CyclicDependencyException e) {
+            verifyCyclePath(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCycleBelowRootIsReportedInLazyMode() {
+        Container container = buildContainer("deepLazyCycle");
+        container.useLazyInit();
+        container.init();
+        try {
+            container.getModule(Root.class);
+            fail("cyclic dependency must be detected");
+        } catch (CyclicDependencyException e) {
+            assertEquals(
+                    PREFIX + 
+                    First.class.getCanonicalName() + " -> " + 
+                    Second.class.getCanonicalName() + " -> " + 
+                    Third.class.getCanonicalName() + " -> " + 
+                    First.class.getCanonicalName(), 
+                    e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.drs.gem.injector.module.GemModule;
+import com.drs.gem.injector.module.GemModuleBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that prototypes created through instantiation plans have the same
+ * object graph as prototypes created by injector.
+ *
+ * @author Diarsid
+ */
+public class InstantiationPlanTest {
+
+    public interface Config extends GemModule {}
+
+    public static class ConfigImpl implements Config {
+    }
+
+    public interface Part extends GemModule {
+        Config getConfig();
+    }
+
+    public static class PartImpl implements Part {
+        private final Config config;
+
+        public PartImpl(Config config) {
+            this.config = config;
+        }
+
+        @Override
+        public Config getConfig() {
+            return config;
+        }
+    }
+
+    public interface Widget extends GemModule {
+        Part getPart();
+        Config getConfig();
+        boolean isBuilt();
+    }
+
+    public static class WidgetImpl implements Widget {
+        private final Part part;
+        private final Config config;
+        private final boolean built;
+
+        public WidgetImpl(Part part, Config config) {
+            this(part, config, false);
+        }
+
+        WidgetImpl(Part part, Config config, boolean built) {
+            this.part = part;
+            this.config = config;
+            this.built = built;
+        }
+
+        @Override
+        public Part getPart() {
+            return part;
+        }
+
+        @Override
+        public Config getConfig() {
+            return config;
+        }
+
+        @Override
+        public boolean isBuilt() {
+            return built;
+        }
+    }
+
+    public static class WidgetImplBuilder implements GemModuleBuilder<Widget> {
+        private final Part part;
+        private final Config config;
+
+        public WidgetImplBuilder(Part part, Config config) {
+            this.part = part;
+            this.config = config;
+        }
+
+        @Override
+        public Widget buildModule() {
+            return new WidgetImpl(part, config, true);
+        }
+    }
+
+    public interface Assembly extends GemModule {
+        Part getFirstPart();
+        Part getSecondPart();
+        Config getFirstConfig();
+        Config getSecondConfig();
+        Widget getWidget();
+    }
+
+    public static class AssemblyImpl implements Assembly {
+        private final Part firstPart;
+        private final Part secondPart;
+        private final Config firstConfig;
+        private final Widget widget;
+        private final Config secondConfig;
+
+        public AssemblyImpl(
+                Part firstPart, Part secondPart, Config firstConfig,
+                Widget widget, Config secondConfig) {
+            this.firstPart = firstPart;
+            this.secondPart = secondPart;
+            this.firstConfig = firstConfig;
+            this.widget = widget;
+            this.secondConfig = secondConfig;
+        }
+
+        @Override
+        public Part getFirstPart() {
+            return firstPart;
+        }
+
+        @Override
+        public Part getSecondPart() {
+            return secondPart;
+        }
+
+        @Override
+        public Config getFirstConfig() {
+            return firstConfig;
+        }
+
+        @Override
+        public Config getSecondConfig() {
+            return secondConfig;
+        }
+
+        @Override
+        public Widget getWidget() {
+            return widget;
+        }
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    private static Container buildContainer(String name) {
+        Container container = GemInjector.buildContainer(name);
+        container.declareModule(
+                Config.class.getName(), ConfigImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Part.class.getName(), PartImpl.class.getName(), GemModuleType.PROTOTYPE);
+        container.declareModule(
+                Widget.class.getName(), WidgetImpl.class.getName(), GemModuleType.PROTOTYPE);
+        container.declareModule(
+                Assembly.class.getName(), AssemblyImpl.class.getName(), GemModuleType.PROTOTYPE);
+        return container;
+    }
+
+    /**
+     * Describes object graph of assembly, singletons are described by 
+     * their sameness with singleton of container.
+     */
+    private static String describe(Assembly assembly, Config config) {
+        return "Assembly[" +
+                describe(assembly.getFirstPart(), config) + ", " +
+                describe(assembly.getSecondPart(), config) + ", " +
+                describe(assembly.getFirstConfig(), config) + ", " +
+                describe(assembly.getWidget(), config) + ", " +
+                describe(assembly.getSecondConfig(), config) + "]";
+    }
+
+    private static String describe(Widget widget, Config config) {
+        return "Widget" + ( widget.isBuilt() ? "Built" : "" ) + "[" +
+                describe(widget.getPart(), config) + ", " +
+                describe(widget.getConfig(), config) + "]";
+    }
+
+    private static String describe(Part part, Config config) {
+        return "Part[" + describe(part.getConfig(), config) + "]";
+    }
+
+    private static String describe(Config actual, Config config) {
+        return ( actual == config ) ? "Config" : "OtherConfig";
+    }
+
+    private static String describeAssemblyOf(Container container) {
+        return describe(
+                container.getModule(Assembly.class), container.getModule(Config.class));
+    }
+
+    @Test
+    public void testPlanBuildsSameGraphAsInjector() {
+        Container injected = buildContainer("injected");
+        injected.useRecursiveInjector();
+        injected.init();
+        Container planned = buildContainer("planned");
+        planned.init();
+
+        String expected = describeAssemblyOf(injected);
+
+        assertEquals(
+                "Assembly[Part[Config], Part[Config], Config, " +
+                "WidgetBuilt[Part[Config], Config], Config]",
+                expected);
+        assertEquals(expected, describeAssemblyOf(planned));
+    }
+
+    @Test
+    public void testPlanWithMethodHandlesBuildsSameGraph() {
+        Container injected = buildContainer("injected");
+        injected.useRecursiveInjector();
+        injected.init();
+        Container planned = buildContainer("planned");
+        planned.useMethodHandles();
+        planned.init();
+
+        assertEquals(describeAssemblyOf(injected), describeAssemblyOf(planned));
+    }
+
+    @Test
+    public void testEveryInjectionReceivesNewPrototype() {
+        Container container = buildContainer("planned");
+        container.init();
+
+        Assembly first = container.getModule(Assembly.class);
+        Assembly second = container.getModule(Assembly.class);
+
+        assertNotSame(first, second);
+        assertNotSame(first.getFirstPart(), first.getSecondPart());
+        assertNotSame(first.getFirstPart(), first.getWidget().getPart());
+        assertNotSame(first.getFirstPart(), second.getFirstPart());
+        assertSame(first.getFirstConfig(), first.getSecondConfig());
+        assertSame(first.getFirstConfig(), second.getWidget().getConfig());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.drs.gem.injector.exceptions.ModuleDeclarationException;
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests on demand module resolution of lazy container.
+ *
+ * @author Diarsid
+ */
+public class LazyInitTest {
+
+    static final AtomicInteger REPOSITORIES_CREATED = new AtomicInteger();
+
+    public interface Repository extends GemModule {}
+
+    public static class RepositoryImpl implements Repository {
+        public RepositoryImpl() {
+            REPOSITORIES_CREATED.incrementAndGet();
+        }
+    }
+
+    public interface Service extends GemModule {
+        Repository getRepository();
+    }
+
+    public static class ServiceImpl implements Service {
+        private final Repository repository;
+
+        public ServiceImpl(Repository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Repository getRepository() {
+            return repository;
+        }
+    }
+
+    public interface Broken extends GemModule {}
+
+    private Container container;
+
+    @Before
+    public void setUp() {
+        REPOSITORIES_CREATED.set(0);
+        container = GemInjector.buildContainer("lazy");
+        container.declareModule(
+                Repository.class.getName(), RepositoryImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Service.class.getName(), ServiceImpl.class.getName(), GemModuleType.PROTOTYPE);
+        container.declareModule(
+                Broken.class.getName(), "com.drs.gem.injector.core.MissingBrokenImpl", 
+                GemModuleType.SINGLETON);
+        container.useLazyInit();
+        container.init();
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    @Test
+    public void testSingletonIsCreatedOnFirstRequest() {
+        assertEquals(0, REPOSITORIES_CREATED.get());
+
+        Service first = container.getModule(Service.class);
+        Service second = container.getModule(Service.class);
+
+        assertEquals(1, REPOSITORIES_CREATED.get());
+        assertNotSame(first, second);
+        assertSame(first.getRepository(), second.getRepository());
+        assertSame(first.getRepository(), container.getModule(Repository.class));
+    }
+
+    @Test
+    public void testBrokenModuleIsReportedOnRequestOnly() {
+        container.getModule(Service.class);
+
+        try {
+            container.getModule(Broken.class);
+            fail("declaration error must be reported by getModule");
+        } catch (ModuleDeclarationException e) {
+            // expected
+        }
+        container.getModule(Service.class);
+        assertEquals(1, REPOSITORIES_CREATED.get());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.drs.gem.injector.exceptions.ModuleDeclarationException;
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests singletons created on demand behind lazy proxies.
+ *
+ * @author Diarsid
+ */
+public class LazyProxyTest {
+
+    static final AtomicInteger CONSOLES_CREATED = new AtomicInteger();
+
+    public interface Console extends GemModule {
+        String execute(String command);
+    }
+
+    public static class ConsoleImpl implements Console {
+        public ConsoleImpl() {
+            CONSOLES_CREATED.incrementAndGet();
+        }
+
+        @Override
+        public String execute(String command) {
+            if ( command.isEmpty() ) {
+                throw new IllegalArgumentException("empty command");
+            }
+            return "executed " + command;
+        }
+    }
+
+    public interface Dashboard extends GemModule {
+        Console getConsole();
+    }
+
+    public static class DashboardImpl implements Dashboard {
+        private final Console console;
+
+        public DashboardImpl(Console console) {
+            this.console = console;
+        }
+
+        @Override
+        public Console getConsole() {
+            return console;
+        }
+    }
+
+    private Container container;
+
+    @Before
+    public void setUp() {
+        CONSOLES_CREATED.set(0);
+        container = GemInjector.buildContainer("proxies");
+        container.declareModule(
+                Console.class.getName(), ConsoleImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Dashboard.class.getName(), DashboardImpl.class.getName(), GemModuleType.SINGLETON);
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    @Test
+    public void testSingletonIsCreatedOnFirstInvocation() {
+        container.useLazyProxy(Console.class.getName());
+        container.init();
+        Console console = container.getModule(Dashboard.class).getConsole();
+        assertSame(console, container.getModule(Console.class));
+        assertEquals(console, console);
+        console.hashCode();
+        assertEquals(0, CONSOLES_CREATED.get());
+
+        assertEquals("executed status", console.execute("status"));
+        assertEquals("executed stop", console.execute("stop"));
+
+        assertEquals(1, CONSOLES_CREATED.get());
+    }
+
+    @Test
+    public void testModuleExceptionIsNotWrapped() {
+        container.useLazyProxy(Console.class.getName());
+        container.init();
+
+        try {
+            container.getModule(Console.class).execute("");
+            fail("exception of module method must be thrown by proxy");
+        } catch (IllegalArgumentException e) {
+            assertEquals("empty command", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSingletonIsCreatedDuringInitWithoutProxy() {
+        container.init();
+
+        assertEquals(1, CONSOLES_CREATED.get());
+        assertSame(ConsoleImpl.class, container.getModule(Console.class).getClass());
+    }
+
+    @Test(expected = ModuleDeclarationException.class)
+    public void testPrototypeCanNotBeLazyProxy() {
+        Container prototypes = GemInjector.buildContainer("prototype-proxies");
+        prototypes.declareModule(
+                Console.class.getName(), ConsoleImpl.class.getName(), GemModuleType.PROTOTYPE);
+        prototypes.useLazyProxy(Console.class.getName());
+        prototypes.init();
+    }
+}
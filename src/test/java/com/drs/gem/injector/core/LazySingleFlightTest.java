@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests single-flight creation of singletons by lazy container.
+ *
+ * @author Diarsid
+ */
+public class LazySingleFlightTest {
+
+    private static final int THREADS = 8;
+
+    static final AtomicInteger INDEXES_CREATED = new AtomicInteger();
+    static volatile CountDownLatch journalCreated;
+
+    public interface Index extends GemModule {}
+
+    public static class IndexImpl implements Index {
+        public IndexImpl() throws InterruptedException {
+            INDEXES_CREATED.incrementAndGet();
+            // gives other threads time to request the same module.
+            Thread.sleep(100);
+        }
+    }
+
+    public interface Search extends GemModule {
+        Index getIndex();
+    }
+
+    public static class SearchImpl implements Search {
+        private final Index index;
+
+        public SearchImpl(Index index) {
+            this.index = index;
+        }
+
+        @Override
+        public Index getIndex() {
+            return index;
+        }
+    }
+
+    /**
+     * Waits until journal is created by other thread. If container used 
+     * one lock for all modules, journal could not be created meanwhile.
+     */
+    public interface Archive extends GemModule {
+        boolean isJournalSeen();
+    }
+
+    public static class ArchiveImpl implements Archive {
+        private final boolean journalSeen;
+
+        public ArchiveImpl() throws InterruptedException {
+            journalSeen = journalCreated.await(10, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public boolean isJournalSeen() {
+            return journalSeen;
+        }
+    }
+
+    public interface Journal extends GemModule {}
+
+    public static class JournalImpl implements Journal {
+        public JournalImpl() {
+            journalCreated.countDown();
+        }
+    }
+
+    private Container container;
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() {
+        INDEXES_CREATED.set(0);
+        journalCreated = new CountDownLatch(1);
+        container = GemInjector.buildContainer("single-flight");
+        container.declareModule(
+                Index.class.getName(), IndexImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Search.class.getName(), SearchImpl.class.getName(), GemModuleType.PROTOTYPE);
+        container.declareModule(
+                Archive.class.getName(), ArchiveImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Journal.class.getName(), JournalImpl.class.getName(), GemModuleType.SINGLETON);
+        container.useLazyInit();
+        container.init();
+        pool = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        GemInjector.clear();
+    }
+
+    @Test
+    public void testSingletonIsCreatedOnceForConcurrentRequests() throws Exception {
+        final CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<Index>> results = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            final boolean direct = ( i % 2 == 0 );
+            results.add(pool.submit(new Callable<Index>() {
+                @Override
+                public Index call() throws Exception {
+                    start.await();
+                    if ( direct ) {
+                        return container.getModule(Index.class);
+                    } else {
+                        return container.getModule(Search.class).getIndex();
+                    }
+                }
+            }));
+        }
+        Index index = results.get(0).get();
+        for (Future<Index> result : results) {
+            assertSame(index, result.get());
+        }
+        assertEquals(1, INDEXES_CREATED.get());
+    }
+
+    @Test
+    public void testUnrelatedSingletonIsNotBlocked() throws Exception {
+        Future<Archive> archive = pool.submit(new Callable<Archive>() {
+            @Override
+            public Archive call() {
+                return container.getModule(Archive.class);
+            }
+        });
+        // lets archive constructor start waiting.
+        Thread.sleep(100);
+
+        container.getModule(Journal.class);
+
+        assertTrue(archive.get().isJournalSeen());
+    }
+}
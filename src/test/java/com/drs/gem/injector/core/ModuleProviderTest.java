@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.drs.gem.injector.module.GemModule;
+import com.drs.gem.injector.module.GemModuleProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests injection of module providers instead of module objects.
+ *
+ * @author Diarsid
+ */
+public class ModuleProviderTest {
+
+    static final AtomicInteger REPORTS_CREATED = new AtomicInteger();
+
+    public interface Report extends GemModule {}
+
+    public static class ReportImpl implements Report {
+        public ReportImpl() {
+            REPORTS_CREATED.incrementAndGet();
+        }
+    }
+
+    public interface Buffer extends GemModule {}
+
+    public static class BufferImpl implements Buffer {
+    }
+
+    public interface Reporter extends GemModule {
+        Report newReport();
+        Buffer currentBuffer();
+    }
+
+    public static class ReporterImpl implements Reporter {
+        private final GemModuleProvider<Report> reports;
+        private final GemModuleProvider<Buffer> buffers;
+
+        public ReporterImpl(
+                GemModuleProvider<Report> reports, GemModuleProvider<Buffer> buffers) {
+            this.reports = reports;
+            this.buffers = buffers;
+        }
+
+        @Override
+        public Report newReport() {
+            return reports.get();
+        }
+
+        @Override
+        public Buffer currentBuffer() {
+            return buffers.get();
+        }
+    }
+
+    public interface Exporter extends GemModule {
+        Report newReport();
+    }
+
+    public static class ExporterImpl implements Exporter {
+        private final Supplier<Report> reports;
+
+        public ExporterImpl(Supplier<Report> reports) {
+            this.reports = reports;
+        }
+
+        @Override
+        public Report newReport() {
+            return reports.get();
+        }
+    }
+
+    private Container container;
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() {
+        REPORTS_CREATED.set(0);
+        container = GemInjector.buildContainer("providers");
+        container.declareModule(
+                Report.class.getName(), ReportImpl.class.getName(), GemModuleType.PROTOTYPE);
+        container.declareModule(
+                Buffer.class.getName(), BufferImpl.class.getName(), GemModuleType.THREAD);
+        container.declareModule(
+                Reporter.class.getName(), ReporterImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Exporter.class.getName(), ExporterImpl.class.getName(), GemModuleType.PROTOTYPE);
+        container.init();
+        pool = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        GemInjector.clear();
+    }
+
+    @Test
+    public void testPrototypeIsCreatedOnProviderInvocation() {
+        Reporter reporter = container.getModule(Reporter.class);
+        container.getModule(Exporter.class);
+        assertEquals(0, REPORTS_CREATED.get());
+
+        Report first = reporter.newReport();
+        Report second = reporter.newReport();
+
+        assertEquals(2, REPORTS_CREATED.get());
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void testSupplierIsInjectedAsProvider() {
+        Exporter exporter = container.getModule(Exporter.class);
+
+        assertNotSame(exporter.newReport(), exporter.newReport());
+        assertEquals(2, REPORTS_CREATED.get());
+    }
+
+    @Test
+    public void testThreadModuleProviderReturnsObjectOfCurrentThread() throws Exception {
+        final Reporter reporter = container.getModule(Reporter.class);
+
+        Buffer buffer = reporter.currentBuffer();
+        Buffer poolBuffer = pool.submit(() -> reporter.currentBuffer()).get();
+
+        assertSame(buffer, container.getModule(Buffer.class));
+        assertNotSame(buffer, poolBuffer);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.drs.gem.injector.exceptions.ModuleDeclarationException;
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests disposal of singletons replaced by module redeclaration.
+ *
+ * @author Diarsid
+ */
+public class ModuleRedeclaratorTest {
+
+    static final List<String> CLOSED = Collections.synchronizedList(new ArrayList<String>());
+
+    public interface Resource extends GemModule {}
+    public interface Client extends GemModule {
+        Resource resource();
+    }
+    public interface User extends GemModule {}
+
+    public static class FirstResource implements Resource, AutoCloseable {
+        @Override
+        public void close() {
+            CLOSED.add("FirstResource");
+        }
+    }
+
+    public static class SecondResource implements Resource, AutoCloseable {
+        @Override
+        public void close() {
+            CLOSED.add("SecondResource");
+        }
+    }
+
+    public static class ClientImpl implements Client, AutoCloseable {
+        private final Resource resource;
+
+        public ClientImpl(Resource resource) {
+            this.resource = resource;
+        }
+
+        @Override
+        public Resource resource() {
+            return resource;
+        }
+
+        @Override
+        public void close() {
+            CLOSED.add("Client of " + resource.getClass().getSimpleName());
+        }
+    }
+
+    public static class UserImpl implements User {
+        public UserImpl(Client client) {
+        }
+    }
+
+    @Before
+    public void setUp() {
+        CLOSED.clear();
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    private Container buildContainer(String name, boolean lazy) {
+        Container container = GemInjector.buildContainer(name);
+        container.declareModule(
+                Resource.class.getName(), FirstResource.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Client.class.getName(), ClientImpl.class.getName(), GemModuleType.SINGLETON);
+        if ( lazy ) {
+            container.useLazyInit();
+        }
+        container.init();
+        return container;
+    }
+
+    @Test
+    public void testReplacedSingletonsAreClosedDependentsFirst() {
+        Container container = buildContainer("redeclared", false);
+        Client oldClient = container.getModule(Client.class);
+
+        container.redeclareModule(Resource.class.getName(), SecondResource.class.getName());
+
+        assertEquals(Arrays.asList("Client of FirstResource", "FirstResource"), CLOSED);
+        Client newClient = container.getModule(Client.class);
+        assertNotSame(oldClient, newClient);
+        assertTrue(newClient.resource() instanceof SecondResource);
+
+        CLOSED.clear();
+        container.close();
+        assertEquals(Arrays.asList("Client of SecondResource", "SecondResource"), CLOSED);
+    }
+
+    @Test
+    public void testLazySingletonsNotCreatedAreNotClosed() {
+        Container container = buildContainer("redeclaredLazy", true);
+        container.getModule(Resource.class);
+
+        container.redeclareModule(Resource.class.getName(), SecondResource.class.getName());
+
+        assertEquals(Collections.singletonList("FirstResource"), CLOSED);
+    }
+
+    @Test
+    public void testRedeclarationIsRejectedWhileChildHoldsAffectedSingleton() {
+        Container parent = buildContainer("redeclaredParent", false);
+        Client client = parent.getModule(Client.class);
+        Container child = GemInjector.buildChildContainer("redeclaredChild", "redeclaredParent");
+        child.declareModule(User.class.getName(), UserImpl.class.getName(), GemModuleType.PROTOTYPE);
+        child.init();
+
+        try {
+            parent.redeclareModule(Resource.class.getName(), SecondResource.class.getName());
+            fail("redeclaration must be rejected while child holds affected singleton");
+        } catch (ModuleDeclarationException e) {
+            assertTrue(e.getMessage().contains("redeclaredChild"));
+        }
+        assertSame(client, parent.getModule(Client.class));
+        assertTrue(CLOSED.isEmpty());
+
+        GemInjector.removeContainer("redeclaredChild");
+        parent.redeclareModule(Resource.class.getName(), SecondResource.class.getName());
+        assertEquals(Arrays.asList("Client of FirstResource", "FirstResource"), CLOSED);
+    }
+
+    @Test
+    public void testSingletonSharedWithForkIsLeftToTemplate() {
+        Container template = buildContainer("redeclaredTemplate", false);
+        Resource shared = template.getModule(Resource.class);
+        Container fork = template.fork("redeclaredFork", Resource.class.getName());
+
+        fork.redeclareModule(Resource.class.getName(), SecondResource.class.getName());
+
+        assertEquals(Collections.singletonList("Client of FirstResource"), CLOSED);
+        assertSame(shared, template.getModule(Resource.class));
+
+        CLOSED.clear();
+        fork.close();
+        assertEquals(Arrays.asList("Client of SecondResource", "SecondResource"), CLOSED);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.drs.gem.injector.exceptions.ContainerInitializationException;
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests concurrent initialization of singletons.
+ *
+ * @author Diarsid
+ */
+public class ParallelSingletonsInitializerTest {
+
+    static final Set<Object> OPEN = Collections.synchronizedSet(new HashSet<Object>());
+    static volatile boolean failing;
+
+    public interface Connection extends GemModule {}
+    public interface Cache extends GemModule {}
+    public interface Service extends GemModule {}
+
+    public static class ConnectionImpl implements Connection, AutoCloseable {
+        public ConnectionImpl() {
+            OPEN.add(this);
+        }
+
+        @Override
+        public void close() {
+            OPEN.remove(this);
+        }
+    }
+
+    public static class CacheImpl implements Cache, AutoCloseable {
+        public CacheImpl() {
+            OPEN.add(this);
+        }
+
+        @Override
+        public void close() {
+            OPEN.remove(this);
+        }
+    }
+
+    public static class ServiceImpl implements Service {
+        public ServiceImpl(Connection connection) {
+            if ( failing ) {
+                throw new IllegalStateException("service failure");
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        OPEN.clear();
+        failing = false;
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    private Container buildContainer(String name) {
+        Container container = GemInjector.buildContainer(name);
+        container.declareModule(
+                Connection.class.getName(), ConnectionImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Cache.class.getName(), CacheImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Service.class.getName(), ServiceImpl.class.getName(), GemModuleType.SINGLETON);
+        container.useParallelInit();
+        return container;
+    }
+
+    @Test
+    public void testSingletonsCreatedBeforeFailureAreClosed() {
+        failing = true;
+        Container container = buildContainer("failedParallel");
+        try {
+            container.init();
+            fail("failure of singleton must fail initialization");
+        } catch (ContainerInitializationException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(Service.class.getCanonicalName()));
+        }
+
+        assertTrue(OPEN.toString(), OPEN.isEmpty());
+        assertTrue(((ModulesContainer) container).getSingletons().isEmpty());
+    }
+
+    @Test
+    public void testFailedForkIsClosedAndItsNameReleased() {
+        Container template = buildContainer("failedForkTemplate");
+        template.init();
+        failing = true;
+
+        try {
+            template.fork("failedFork");
+            fail("failure of singleton must fail fork");
+        } catch (ContainerInitializationException e) {
+            // expected
+        }
+
+        assertEquals(
+                new HashSet<Object>(Arrays.asList(
+                        template.getModule(Connection.class), 
+                        template.getModule(Cache.class))), 
+                OPEN);
+        assertFalse(GemInjector.getAllContainerNames().contains("failedFork"));
+        failing = false;
+        template.fork("failedFork");
+    }
+}
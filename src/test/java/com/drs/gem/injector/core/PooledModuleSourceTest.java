@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.drs.gem.injector.exceptions.ModuleDeclarationException;
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests returning of pooled module objects into pool and their closing.
+ *
+ * @author Diarsid
+ */
+public class PooledModuleSourceTest {
+
+    public interface Connection extends GemModule {}
+
+    public static class ConnectionImpl implements Connection, AutoCloseable {
+
+        volatile boolean closed;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private Container container;
+
+    @Before
+    public void setUp() {
+        container = GemInjector.buildContainer("pooled");
+        container.declareModule(
+                Connection.class.getName(), ConnectionImpl.class.getName(), GemModuleType.POOLED);
+        container.setPoolSize(Connection.class.getName(), 1);
+        container.init();
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    private void verifyRejected(Connection connection) {
+        try {
+            container.returnModule(Connection.class, connection);
+            fail("object must not be accepted by pool");
+        } catch (ModuleDeclarationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testReturnedObjectIsReused() {
+        Connection connection = container.getModule(Connection.class);
+        container.returnModule(Connection.class, connection);
+
+        assertSame(connection, container.getModule(Connection.class));
+    }
+
+    @Test
+    public void testDoubleReleaseIsRejected() {
+        Connection connection = container.getModule(Connection.class);
+        container.returnModule(Connection.class, connection);
+
+        verifyRejected(connection);
+
+        Connection first = container.getModule(Connection.class);
+        Connection second = container.getModule(Connection.class);
+        assertSame(connection, first);
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void testForeignObjectIsRejected() {
+        verifyRejected(new ConnectionImpl());
+    }
+
+    @Test
+    public void testNullIsRejected() {
+        verifyRejected(null);
+    }
+
+    @Test
+    public void testIdleObjectIsClosedWithContainer() {
+        ConnectionImpl idle = (ConnectionImpl) container.getModule(Connection.class);
+        ConnectionImpl checkedOut = (ConnectionImpl) container.getModule(Connection.class);
+        container.returnModule(Connection.class, idle);
+
+        container.close();
+
+        assertTrue(idle.closed);
+        assertFalse(checkedOut.closed);
+    }
+
+    @Test
+    public void testObjectDroppedFromFullPoolIsClosed() {
+        ConnectionImpl first = (ConnectionImpl) container.getModule(Connection.class);
+        ConnectionImpl second = (ConnectionImpl) container.getModule(Connection.class);
+        container.returnModule(Connection.class, first);
+        container.returnModule(Connection.class, second);
+
+        assertFalse(first.closed);
+        assertTrue(second.closed);
+    }
+
+    @Test
+    public void testObjectReturnedAfterCloseIsClosed() {
+        ConnectionImpl connection = (ConnectionImpl) container.getModule(Connection.class);
+        container.close();
+
+        container.returnModule(Connection.class, connection);
+
+        assertTrue(connection.closed);
+    }
+}
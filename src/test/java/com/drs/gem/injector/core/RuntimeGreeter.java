@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+/**
+ * Module implementation defined at runtime by {@link ClassResolverTest}.
+ * It is a top level class because nested class can not be defined by
+ * another class loader than its enclosing class.
+ *
+ * @author Diarsid
+ */
+public class RuntimeGreeter implements ClassResolverTest.Greeter {
+
+    private final String greeting;
+
+    public RuntimeGreeter() {
+        this("constructor");
+    }
+
+    public RuntimeGreeter(String greeting) {
+        this.greeting = greeting;
+    }
+
+    @Override
+    public String greeting() {
+        return greeting;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests critical path and slacks of singletons reported by container.
+ *
+ * @author Diarsid
+ */
+public class StartupReportTest {
+
+    public interface Base extends GemModule {}
+
+    public static class BaseImpl implements Base {
+        public BaseImpl() throws InterruptedException {
+            Thread.sleep(30);
+        }
+    }
+
+    public interface Slow extends GemModule {}
+
+    public static class SlowImpl implements Slow {
+        public SlowImpl(Base base) throws InterruptedException {
+            Thread.sleep(60);
+        }
+    }
+
+    public interface Fast extends GemModule {}
+
+    public static class FastImpl implements Fast {
+        public FastImpl(Base base) throws InterruptedException {
+            Thread.sleep(10);
+        }
+    }
+
+    public interface Top extends GemModule {}
+
+    public static class TopImpl implements Top {
+        public TopImpl(Fast fast, Slow slow) throws InterruptedException {
+            Thread.sleep(10);
+        }
+    }
+
+    private StartupReport report;
+
+    @Before
+    public void setUp() {
+        Container container = GemInjector.buildContainer("startup");
+        container.declareModule(
+                Base.class.getName(), BaseImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Slow.class.getName(), SlowImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Fast.class.getName(), FastImpl.class.getName(), GemModuleType.SINGLETON);
+        container.declareModule(
+                Top.class.getName(), TopImpl.class.getName(), GemModuleType.SINGLETON);
+        container.useMetrics();
+        container.init();
+        report = container.getStartupReport();
+    }
+
+    @After
+    public void tearDown() {
+        GemInjector.clear();
+    }
+
+    private static String nameOf(Class moduleInterface) {
+        return moduleInterface.getCanonicalName();
+    }
+
+    @Test
+    public void testCriticalPathIsTheLongestChain() {
+        Map<String, Long> costs = report.getConstructionNanos();
+
+        assertEquals(
+                Arrays.asList(nameOf(Base.class), nameOf(Slow.class), nameOf(Top.class)), 
+                report.getCriticalPath());
+        assertEquals(
+                costs.get(nameOf(Base.class)) + costs.get(nameOf(Slow.class)) + 
+                        costs.get(nameOf(Top.class)), 
+                report.getCriticalPathNanos());
+        long sequential = 0;
+        for (long cost : costs.values()) {
+            sequential += cost;
+        }
+        assertEquals(sequential, report.getSequentialNanos());
+        assertTrue(report.getCriticalPathNanos() < report.getSequentialNanos());
+    }
+
+    @Test
+    public void testSlackOfModuleOutsideCriticalPath() {
+        Map<String, Long> costs = report.getConstructionNanos();
+        Map<String, Long> slacks = report.getSlackNanos();
+
+        assertEquals(0L, (long) slacks.get(nameOf(Base.class)));
+        assertEquals(0L, (long) slacks.get(nameOf(Slow.class)));
+        assertEquals(0L, (long) slacks.get(nameOf(Top.class)));
+        assertEquals(
+                costs.get(nameOf(Slow.class)) - costs.get(nameOf(Fast.class)), 
+                (long) slacks.get(nameOf(Fast.class)));
+    }
+
+    @Test
+    public void testExportedReportMarksCriticalPath() {
+        String json = report.toJson();
+        String dot = report.toDot();
+
+        assertTrue(json, json.contains("\"criticalPath\": [\"" + 
+                nameOf(Base.class) + "\", \"" + nameOf(Slow.class) + "\", \"" + 
+                nameOf(Top.class) + "\"]"));
+        assertTrue(json, json.contains("\"module\": \"" + nameOf(Fast.class) + "\""));
+        assertEquals(3, dot.split(", color=red\\]", -1).length - 1);
+        assertEquals(2, dot.split(" \\[color=red\\];", -1).length - 1);
+    }
+}
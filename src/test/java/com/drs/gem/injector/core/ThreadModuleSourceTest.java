@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 Diarsid
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.drs.gem.injector.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.drs.gem.injector.module.GemModule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests disposal of thread module objects.
+ *
+ * @author Diarsid
+ */
+public class ThreadModuleSourceTest {
+
+    public interface Buffer extends GemModule {
+        boolean isClosed();
+    }
+
+    public static class BufferImpl implements Buffer, AutoCloseable {
+        private volatile boolean closed;
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private Container container;
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() {
+        container = GemInjector.buildContainer("threads");
+        container.declareModule(
+                Buffer.class.getName(), BufferImpl.class.getName(), GemModuleType.THREAD);
+        container.init();
+        pool = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        GemInjector.clear();
+    }
+
+    private Buffer getInPool() throws Exception {
+        return pool.submit(() -> container.getModule(Buffer.class)).get();
+    }
+
+    @Test
+    public void testObjectIsKeptPerThread() throws Exception {
+        Buffer buffer = container.getModule(Buffer.class);
+
+        assertSame(buffer, container.getModule(Buffer.class));
+        Buffer poolBuffer = getInPool();
+        assertNotSame(buffer, poolBuffer);
+        assertSame(poolBuffer, getInPool());
+    }
+
+    @Test
+    public void testReleasedObjectIsClosed() throws Exception {
+        Buffer buffer = container.getModule(Buffer.class);
+        Buffer poolBuffer = getInPool();
+
+        container.releaseThreadModules();
+
+        assertTrue(buffer.isClosed());
+        assertFalse(poolBuffer.isClosed());
+        Buffer next = container.getModule(Buffer.class);
+        assertNotSame(buffer, next);
+        assertFalse(next.isClosed());
+    }
+
+    @Test
+    public void testObjectsOfAllThreadsAreClosedWithContainer() throws Exception {
+        List<Buffer> buffers = Collections.synchronizedList(new ArrayList<Buffer>());
+        buffers.add(container.getModule(Buffer.class));
+        buffers.add(getInPool());
+        Thread thread = new Thread(() -> buffers.add(container.getModule(Buffer.class)));
+        thread.start();
+        thread.join();
+
+        container.close();
+
+        assertEquals(3, buffers.size());
+        for (Buffer buffer : buffers) {
+            assertTrue(buffer.isClosed());
+        }
+    }
+}